@@ -0,0 +1,96 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.OffHeapAccountsRepository;
+
+/**
+ * Heap versus off-heap account store at millions of accounts. Setup prints the memory taken per account: the heap
+ * growth after a full GC, plus the direct memory reserved by the off-heap store. Run with a heap large enough for
+ * the heap store, e.g. {@code -Xmx8g} for 10M accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g", "-XX:MaxDirectMemorySize=4g" })
+public class AccountStoreBenchmark {
+
+	private static final int SCALE = 2;
+
+	@Param({ "heap", "offheap" })
+	private String store;
+
+	@Param({ "1000000", "10000000" })
+	private int accountCount;
+
+	@Param({ "uniform", "zipf" })
+	private String skew;
+
+	private AccountsRepository repository;
+
+	private String[] accountIds;
+
+	private ZipfianGenerator keys;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		keys = ZipfianGenerator.forSkew(skew, accountCount);
+		accountIds = new String[accountCount];
+		for (int i = 0; i < accountCount; i++) {
+			accountIds[i] = "Id-" + i;
+		}
+
+		long heapBefore = usedHeap();
+		long offHeapBytes = 0;
+		if ("offheap".equals(store)) {
+			OffHeapAccountsRepository offHeap = new OffHeapAccountsRepository(accountCount, SCALE);
+			offHeapBytes = offHeap.getOffHeapBytes();
+			repository = offHeap;
+		} else {
+			repository = new AccountsRepositoryInMemory(SCALE);
+		}
+		for (String accountId : accountIds) {
+			repository.createAccount(new Account(accountId, BigDecimal.TEN));
+		}
+		long heapBytes = usedHeap() - heapBefore;
+		System.out.printf("%n%s store, %d accounts: %.1f heap bytes/account, %.1f off-heap bytes/account%n", store,
+				accountCount, (double) heapBytes / accountCount, (double) offHeapBytes / accountCount);
+	}
+
+	@Benchmark
+	public Account getAccount() {
+		return repository.getAccount(accountIds[keys.next()]);
+	}
+
+	@Benchmark
+	public long readBalance() {
+		return repository.getAccount(accountIds[keys.next()]).getMinorBalance();
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,69 @@
+package com.dws.challenge.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.exception.TooManyRequestsException;
+import com.dws.challenge.service.TransferAdmissionControl;
+
+/**
+ * Cost of one admission decision (both account buckets plus the global slot, then the release) in nanoseconds. The
+ * target is well under a microsecond per decision. With {@code zipf} the hot accounts run into their rate limit, so
+ * rejections are measured too; run with {@code -PjmhThreads} above 1 to include contention on the hot buckets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdmissionControlBenchmark {
+
+	@Param({ "uniform", "zipf" })
+	private String skew;
+
+	@Param({ "true", "false" })
+	private boolean enabled;
+
+	private TransferAdmissionControl admissionControl;
+
+	private String[] accountIds;
+
+	private ZipfianGenerator keys;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		int accountCount = 100_000;
+		admissionControl = new TransferAdmissionControl(enabled, 1000, 2000, 1_000_000, 4096, System::nanoTime);
+		keys = ZipfianGenerator.forSkew(skew, accountCount);
+		accountIds = new String[accountCount];
+		for (int i = 0; i < accountCount; i++) {
+			accountIds[i] = "Id-" + i;
+		}
+	}
+
+	@Benchmark
+	public boolean admit() {
+		int from = keys.next();
+		int to = keys.nextOther(from);
+		try {
+			admissionControl.acquire(accountIds[from], accountIds[to]);
+		} catch (TooManyRequestsException e) {
+			return false;
+		}
+		admissionControl.release();
+		return true;
+	}
+}
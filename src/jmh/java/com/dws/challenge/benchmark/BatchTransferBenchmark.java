@@ -0,0 +1,90 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransferRequest;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.StripedLockTransferEngine;
+
+/**
+ * Compares applying {@value #BATCH_SIZE} transfers one by one through {@link AccountsService#transfer} (the work done
+ * by the single-transfer endpoint) with one {@link AccountsService#transferBatch} call. Scores are transfers per
+ * millisecond in both cases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class BatchTransferBenchmark {
+
+	static final int BATCH_SIZE = 1000;
+
+	@Param({ "1000", "100000" })
+	private int accountCount;
+
+	@Param({ "64", "256" })
+	private int lockChunkSize;
+
+	private AccountsService accountsService;
+
+	private List<TransferRequest> requests;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+		accountsService = new AccountsService(repository, (account, description) -> {
+		}, new StripedLockTransferEngine(1024), lockChunkSize);
+		for (int i = 0; i < accountCount; i++) {
+			repository.createAccount(new Account("Id-" + i, new BigDecimal("1000000000000")));
+		}
+
+		SplittableRandom random = new SplittableRandom(42);
+		requests = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			int from = random.nextInt(accountCount);
+			int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+			requests.add(new TransferRequest("Id-" + from, "Id-" + to, BigDecimal.ONE));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void singleTransfers() {
+		for (TransferRequest request : requests) {
+			Account from = accountsService.getAccount(request.getAccountFromId());
+			Account to = accountsService.getAccount(request.getAccountToId());
+			accountsService.transfer(from, to, request.getAmount());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void batchTransfer(Blackhole blackhole) {
+		blackhole.consume(accountsService.transferBatch(requests));
+	}
+}
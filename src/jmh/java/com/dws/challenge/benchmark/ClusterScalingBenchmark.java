@@ -0,0 +1,126 @@
+package com.dws.challenge.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.dws.challenge.ChallengeApplication;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.PartitionMap;
+
+/**
+ * HTTP transfer throughput of a cluster of {@code nodes} nodes started in the benchmark JVM on loopback ports. Each
+ * request goes to the node owning its source account; with {@code pairs=local} the target lives on the same node,
+ * with {@code pairs=random} it is any account, so about {@code (nodes - 1) / nodes} of the transfers run the
+ * two-phase protocol. Meant for the thread sweep, e.g.
+ * {@code ./gradlew jmhThreadSweep -PjmhIncludes=ClusterScalingBenchmark -PjmhThreadCounts=4,16,64}.
+ *
+ * <p>All nodes share this machine's cores, so the numbers show what partitioning and cross-node transfers cost
+ * relative to a single node, not the capacity added by more machines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ClusterScalingBenchmark {
+
+	private static final int ACCOUNTS_PER_NODE = 10_000;
+
+	@Param({ "1", "2", "4" })
+	private int nodes;
+
+	@Param({ "local", "random" })
+	private String pairs;
+
+	private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+
+	private final List<String> urls = new ArrayList<>();
+
+	private String[][] ownedAccounts;
+
+	private HttpClient httpClient;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		for (int i = 0; i < nodes; i++) {
+			try (ServerSocket socket = new ServerSocket(0)) {
+				urls.add("http://127.0.0.1:" + socket.getLocalPort());
+			}
+		}
+		for (int i = 0; i < nodes; i++) {
+			contexts.add(new SpringApplicationBuilder(ChallengeApplication.class).properties(
+					"server.port=" + URI.create(urls.get(i)).getPort(),
+					"cluster.nodes=" + (nodes > 1 ? String.join(",", urls) : ""),
+					"cluster.node-index=" + i,
+					"cluster.secret=benchmark",
+					"accounts.audit.interval-ms=0",
+					"transfer.admission.enabled=false",
+					"notifications.async.overflow-policy=DROP",
+					"logging.level.com.dws.challenge=WARN").run());
+		}
+
+		PartitionMap partitionMap = contexts.get(0).getBean(PartitionMap.class);
+		List<List<String>> owned = new ArrayList<>();
+		for (int i = 0; i < nodes; i++) {
+			owned.add(new ArrayList<>());
+		}
+		for (int i = 0; owned.stream().anyMatch(list -> list.size() < ACCOUNTS_PER_NODE); i++) {
+			String accountId = "Id-" + i;
+			int owner = partitionMap.ownerOf(accountId);
+			if (owned.get(owner).size() < ACCOUNTS_PER_NODE) {
+				owned.get(owner).add(accountId);
+				contexts.get(owner).getBean(AccountsService.class)
+						.createAccount(new Account(accountId, new BigDecimal("1000000000000")));
+			}
+		}
+		ownedAccounts = new String[nodes][];
+		for (int i = 0; i < nodes; i++) {
+			ownedAccounts[i] = owned.get(i).toArray(new String[0]);
+		}
+		httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		contexts.forEach(ConfigurableApplicationContext::close);
+	}
+
+	@Benchmark
+	public int transfer() throws Exception {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int node = random.nextInt(nodes);
+		String[] local = ownedAccounts[node];
+		String[] targets = "local".equals(pairs) ? local : ownedAccounts[random.nextInt(nodes)];
+		String path = "/v1/accounts/" + local[random.nextInt(local.length)] + "/"
+				+ targets[random.nextInt(targets.length)] + "/1";
+		HttpRequest request = HttpRequest.newBuilder(URI.create(urls.get(node) + path)).build();
+		return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+}
@@ -0,0 +1,109 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.ExchangeRates;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.BalanceAuditor;
+import com.dws.challenge.service.ExchangeRateService;
+import com.dws.challenge.service.HotAccountDetector;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransactionLedger;
+import com.dws.challenge.service.TransferMetrics;
+
+/**
+ * Cost of the conversion step in {@link AccountsService#transfer}: a transfer between two accounts of the base
+ * currency against one between EUR and USD accounts, and the rate lookup and rounding on their own. In the
+ * {@code reload} group one thread keeps swapping in new rate tables while the others transfer, which should cost
+ * the transfers no more than the cache traffic of reading the new table. Transfers alternate direction so balances
+ * stay bounded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FxTransferBenchmark {
+
+	private static final BigDecimal AMOUNT = new BigDecimal("12.34");
+
+	private static final Map<String, BigDecimal> RATES = Map.of("USD", new BigDecimal("1.0843"), "GBP",
+			new BigDecimal("0.8571"), "JPY", new BigDecimal("162.5"), "CHF", new BigDecimal("0.9612"));
+
+	private ExchangeRateService exchangeRateService;
+
+	private AccountsService accountsService;
+
+	private Account euroA;
+
+	private Account euroB;
+
+	private Account dollars;
+
+	private long version;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+		exchangeRateService = ExchangeRateService.fixed(ExchangeRates.of("EUR", RATES, 0));
+		accountsService = new AccountsService(repository, (account, description) -> {
+		}, new StripedLockTransferEngine(1024), 256, TransferMetrics.disabled(), TransactionLedger.disabled(),
+				BalanceAuditor.manual(repository), HotAccountDetector.disabled(), exchangeRateService);
+		euroA = new Account("Id-EA", new BigDecimal("1000000000"));
+		euroB = new Account("Id-EB", new BigDecimal("1000000000"));
+		dollars = new Account("Id-USD", new BigDecimal("1000000000"), "USD");
+		accountsService.createAccount(euroA);
+		accountsService.createAccount(euroB);
+		accountsService.createAccount(dollars);
+	}
+
+	@Benchmark
+	public void sameCurrency() {
+		accountsService.transfer(euroA, euroB, AMOUNT);
+		accountsService.transfer(euroB, euroA, AMOUNT);
+	}
+
+	@Benchmark
+	public void converted() {
+		accountsService.transfer(euroA, dollars, AMOUNT);
+		accountsService.transfer(dollars, euroA, AMOUNT);
+	}
+
+	@Benchmark
+	public BigDecimal convertOnly() {
+		return exchangeRateService.getRates().convert(AMOUNT, "EUR", "USD", Account.DECIMAL_BALANCE);
+	}
+
+	@Benchmark
+	@Group("reload")
+	@GroupThreads(3)
+	public void reloadTransfers() {
+		converted();
+	}
+
+	@Benchmark
+	@Group("reload")
+	@GroupThreads(1)
+	public void reloadRates() {
+		exchangeRateService.update(ExchangeRates.of("EUR", RATES, ++version));
+	}
+}
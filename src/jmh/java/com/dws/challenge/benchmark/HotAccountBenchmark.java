@@ -0,0 +1,98 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.BalanceAuditor;
+import com.dws.challenge.service.HotAccountDetector;
+import com.dws.challenge.service.OptimisticTransferEngine;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransactionLedger;
+import com.dws.challenge.service.TransferEngine;
+import com.dws.challenge.service.TransferMetrics;
+
+/**
+ * Skewed load where a few merchant accounts receive most of the money: sources are drawn uniformly, targets from a
+ * Zipf distribution, so credits pile up on the first accounts while debits rarely meet. Compares
+ * {@link AccountsService#transfer} with hot account detection off, where every credit to a merchant waits for its
+ * claim, and on, where those credits go to credit stripes. Run it over several thread counts, e.g.
+ * {@code ./gradlew jmhThreadSweep -PjmhIncludes=HotAccountBenchmark -PjmhThreadCounts=1,4,16}; the detector's
+ * counters are printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotAccountBenchmark {
+
+	private static final int ACCOUNTS = 100_000;
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	@Param({ "off", "on" })
+	private String hotAccounts;
+
+	@Param({ "striped", "optimistic" })
+	private String engine;
+
+	private AccountsService accountsService;
+
+	private HotAccountDetector detector;
+
+	private Account[] accounts;
+
+	private ZipfianGenerator targets;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		TransferEngine transferEngine = "optimistic".equals(engine) ? new OptimisticTransferEngine(4, 1024)
+				: new StripedLockTransferEngine(1024);
+		detector = "on".equals(hotAccounts) ? new HotAccountDetector(true, 64, 16, 4096, 0.02, 0)
+				: HotAccountDetector.disabled();
+		AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+		accountsService = new AccountsService(repository, (account, description) -> {
+		}, transferEngine, 256, TransferMetrics.disabled(), TransactionLedger.disabled(),
+				BalanceAuditor.manual(repository), detector);
+		targets = ZipfianGenerator.forSkew("zipf", ACCOUNTS);
+		accounts = new Account[ACCOUNTS];
+		for (int i = 0; i < ACCOUNTS; i++) {
+			accounts[i] = new Account("Id-" + i, new BigDecimal("1000000000000"));
+			accountsService.createAccount(accounts[i]);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.out.println("\nHot accounts: " + detector.snapshot());
+	}
+
+	@Benchmark
+	public void skewedCredits() {
+		int to = targets.next();
+		int from = ThreadLocalRandom.current().nextInt(ACCOUNTS);
+		if (from == to) {
+			from = (from + 1) % ACCOUNTS;
+		}
+		accountsService.transfer(accounts[from], accounts[to], AMOUNT);
+	}
+}
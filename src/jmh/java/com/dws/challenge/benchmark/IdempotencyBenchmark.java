@@ -0,0 +1,104 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.IdempotentTransferService;
+import com.dws.challenge.service.StripedLockTransferEngine;
+
+/**
+ * Cost of the idempotency cache: {@code replay} answers a retry of an already executed key, {@code newKey} executes a
+ * transfer under a fresh key (cache insert plus transfer) and {@code unkeyed} is the plain transfer for comparison.
+ * {@code cachedKeys} is the number of keys already in the cache, which is also its size limit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdempotencyBenchmark {
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	private static final int ACCOUNT_COUNT = 1000;
+
+	private static final String[] ACCOUNT_IDS = new String[ACCOUNT_COUNT];
+
+	static {
+		for (int i = 0; i < ACCOUNT_COUNT; i++) {
+			ACCOUNT_IDS[i] = "Id-" + i;
+		}
+	}
+
+	@Param({ "10000", "1000000" })
+	private int cachedKeys;
+
+	private AccountsService accountsService;
+
+	private IdempotentTransferService idempotentTransferService;
+
+	private String[] keys;
+
+	private final AtomicLong newKeys = new AtomicLong();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		accountsService = new AccountsService(new AccountsRepositoryInMemory(), (account, description) -> {
+		}, new StripedLockTransferEngine(1024), 256);
+		for (String accountId : ACCOUNT_IDS) {
+			accountsService.createAccount(new Account(accountId, new BigDecimal("1000000000000")));
+		}
+		idempotentTransferService = new IdempotentTransferService(accountsService, cachedKeys, 60);
+		keys = new String[cachedKeys];
+		for (int i = 0; i < cachedKeys; i++) {
+			keys[i] = "key-" + i;
+			idempotentTransferService.transfer(keys[i], fromId(i), toId(i), AMOUNT);
+		}
+	}
+
+	@Benchmark
+	public TransferStatus replay() {
+		int i = ThreadLocalRandom.current().nextInt(cachedKeys);
+		return idempotentTransferService.transfer(keys[i], fromId(i), toId(i), AMOUNT);
+	}
+
+	@Benchmark
+	public TransferStatus newKey() {
+		long i = newKeys.incrementAndGet();
+		return idempotentTransferService.transfer("new-" + i, fromId((int) i), toId((int) i), AMOUNT);
+	}
+
+	@Benchmark
+	public void unkeyed() {
+		int i = ThreadLocalRandom.current().nextInt(ACCOUNT_COUNT);
+		accountsService.transfer(accountsService.getAccount(fromId(i)), accountsService.getAccount(toId(i)), AMOUNT);
+	}
+
+	private static String fromId(int i) {
+		return ACCOUNT_IDS[Math.floorMod(i, ACCOUNT_COUNT)];
+	}
+
+	private static String toId(int i) {
+		return ACCOUNT_IDS[Math.floorMod(i + 1, ACCOUNT_COUNT)];
+	}
+}
@@ -0,0 +1,74 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransactionLedger;
+import com.dws.challenge.service.TransferMetrics;
+
+/**
+ * Cost of {@link TransactionLedger} on the transfer path: the same workload with the ledger disabled (depth 0) and
+ * at two depths. Once every account's ring has been allocated during warmup, recording should be indistinguishable
+ * from the disabled case within noise; run with {@code -prof gc} to confirm that no allocation is added per transfer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LedgerOverheadBenchmark {
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	@Param({ "0", "64", "1024" })
+	private int depth;
+
+	@Param({ "uniform", "zipf" })
+	private String skew;
+
+	private AccountsService accountsService;
+
+	private String[] accountIds;
+
+	private ZipfianGenerator keys;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		int accountCount = 100_000;
+		accountsService = new AccountsService(new AccountsRepositoryInMemory(), (account, description) -> {
+		}, new StripedLockTransferEngine(1024), 256, TransferMetrics.disabled(),
+				new TransactionLedger(depth));
+		keys = ZipfianGenerator.forSkew(skew, accountCount);
+		accountIds = new String[accountCount];
+		for (int i = 0; i < accountCount; i++) {
+			accountIds[i] = "Id-" + i;
+			accountsService.createAccount(new Account(accountIds[i], new BigDecimal("1000000000000")));
+		}
+	}
+
+	@Benchmark
+	public void transfer() {
+		int from = keys.next();
+		int to = keys.nextOther(from);
+		accountsService.transfer(accountsService.getAccount(accountIds[from]),
+				accountsService.getAccount(accountIds[to]), AMOUNT);
+	}
+}
@@ -0,0 +1,78 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransferMetrics;
+
+/**
+ * Cost of {@link TransferMetrics} on the transfer and lookup paths: the same workload with metrics enabled and
+ * disabled. The difference between the two should stay within a few percent; run with {@code -PjmhThreads} above 1
+ * to include the contended lock wait timing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	@Param({ "true", "false" })
+	private boolean metrics;
+
+	@Param({ "uniform", "zipf" })
+	private String skew;
+
+	private AccountsService accountsService;
+
+	private String[] accountIds;
+
+	private ZipfianGenerator keys;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		int accountCount = 100_000;
+		TransferMetrics transferMetrics = new TransferMetrics(metrics);
+		accountsService = new AccountsService(new AccountsRepositoryInMemory(), (account, description) -> {
+		}, new StripedLockTransferEngine(1024, transferMetrics), 256, transferMetrics);
+		keys = ZipfianGenerator.forSkew(skew, accountCount);
+		accountIds = new String[accountCount];
+		for (int i = 0; i < accountCount; i++) {
+			accountIds[i] = "Id-" + i;
+			accountsService.createAccount(new Account(accountIds[i], new BigDecimal("1000000000000")));
+		}
+	}
+
+	@Benchmark
+	public void transfer() {
+		int from = keys.next();
+		int to = keys.nextOther(from);
+		accountsService.transfer(accountsService.getAccount(accountIds[from]),
+				accountsService.getAccount(accountIds[to]), AMOUNT);
+	}
+
+	@Benchmark
+	public Account getAccount() {
+		return accountsService.getAccount(accountIds[keys.next()]);
+	}
+}
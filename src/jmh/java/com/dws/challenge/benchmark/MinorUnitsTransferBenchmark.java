@@ -0,0 +1,76 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransferEngine;
+
+/**
+ * Allocation profile of the transfer hot path with {@code BigDecimal} balances versus minor unit balances. Run with
+ * the {@code gc} profiler (enabled in build.gradle) and compare {@code gc.alloc.rate.norm}: the minor units path is
+ * expected to report 0 B/op. Transfers alternate direction so balances stay bounded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MinorUnitsTransferBenchmark {
+
+	private static final BigDecimal DECIMAL_AMOUNT = new BigDecimal("12.34");
+
+	private static final long MINOR_AMOUNT = 1234;
+
+	private final TransferEngine transferEngine = new StripedLockTransferEngine(1024);
+
+	private Account decimalA;
+
+	private Account decimalB;
+
+	private Account minorA;
+
+	private Account minorB;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		decimalA = new Account("Id-DA", new BigDecimal("1000000.00"));
+		decimalB = new Account("Id-DB", new BigDecimal("1000000.00"));
+		minorA = new Account("Id-MA", new BigDecimal("1000000.00"));
+		minorB = new Account("Id-MB", new BigDecimal("1000000.00"));
+		minorA.useMinorUnits(2);
+		minorB.useMinorUnits(2);
+	}
+
+	@Benchmark
+	public void decimalBalances() {
+		transferEngine.transfer(decimalA, decimalB, DECIMAL_AMOUNT);
+		transferEngine.transfer(decimalB, decimalA, DECIMAL_AMOUNT);
+	}
+
+	@Benchmark
+	public void minorUnitBalances() {
+		transferEngine.transferMinorUnits(minorA, minorB, MINOR_AMOUNT);
+		transferEngine.transferMinorUnits(minorB, minorA, MINOR_AMOUNT);
+	}
+
+	@Benchmark
+	public void minorUnitBalancesDecimalAmount() {
+		transferEngine.transfer(minorA, minorB, DECIMAL_AMOUNT);
+		transferEngine.transfer(minorB, minorA, DECIMAL_AMOUNT);
+	}
+}
@@ -0,0 +1,95 @@
+package com.dws.challenge.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.JournaledAccountsRepository;
+
+/**
+ * Startup time of {@link JournaledAccountsRepository}: {@code accountCount} accounts plus as many transfers, recovered
+ * either from a snapshot (with an empty journal tail) or by replaying the whole journal. The 10M account case is the
+ * one startup is sized for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class RecoveryBenchmark {
+
+	@Param({ "1000000", "10000000" })
+	private int accountCount;
+
+	@Param({ "snapshot", "journal" })
+	private String source;
+
+	private Path directory;
+
+	private JournaledAccountsRepository recovered;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("recovery-benchmark");
+		JournaledAccountsRepository repository = open();
+		for (int i = 0; i < accountCount; i++) {
+			repository.createAccount(new Account("Id-" + i, new BigDecimal("1000.00")));
+		}
+		SplittableRandom random = new SplittableRandom(7);
+		for (int i = 0; i < accountCount; i++) {
+			Account from = repository.getAccount("Id-" + random.nextInt(accountCount));
+			Account to = repository.getAccount("Id-" + random.nextInt(accountCount));
+			repository.transferCommitted(from, to, BigDecimal.ONE);
+		}
+		if ("snapshot".equals(source)) {
+			repository.snapshot();
+		}
+		repository.close();
+	}
+
+	@Benchmark
+	public JournaledAccountsRepository recover() throws IOException {
+		recovered = open();
+		return recovered;
+	}
+
+	@TearDown(Level.Iteration)
+	public void closeRecovered() {
+		if (recovered != null) {
+			recovered.close();
+			recovered = null;
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private JournaledAccountsRepository open() throws IOException {
+		return new JournaledAccountsRepository(directory, 256L << 20, 4096, 10, false, 0, Account.DECIMAL_BALANCE);
+	}
+}
@@ -0,0 +1,83 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+
+/**
+ * Lookup and insert cost of {@link AccountsRepositoryInMemory} for different repository sizes and key skews. The
+ * thread count comes from {@code -PjmhThreads}, see build.gradle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	private int accountCount;
+
+	@Param({ "uniform", "zipf" })
+	private String skew;
+
+	private AccountsRepository repository;
+
+	private String[] accountIds;
+
+	private ZipfianGenerator keys;
+
+	private final AtomicLong createdIds = new AtomicLong();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		keys = ZipfianGenerator.forSkew(skew, accountCount);
+		accountIds = new String[accountCount];
+		for (int i = 0; i < accountCount; i++) {
+			accountIds[i] = "Id-" + i;
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void populate() {
+		repository = new AccountsRepositoryInMemory();
+		for (String accountId : accountIds) {
+			repository.createAccount(new Account(accountId, BigDecimal.TEN));
+		}
+	}
+
+	@Benchmark
+	public Account getAccount() {
+		return repository.getAccount(accountIds[keys.next()]);
+	}
+
+	@Benchmark
+	public Account getMissingAccount() {
+		return repository.getAccount("Missing-" + keys.next());
+	}
+
+	@Benchmark
+	public Account createAccount() {
+		Account account = new Account("New-" + createdIds.incrementAndGet(), BigDecimal.TEN);
+		repository.createAccount(account);
+		return account;
+	}
+}
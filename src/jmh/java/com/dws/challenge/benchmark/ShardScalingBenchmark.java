@@ -0,0 +1,94 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.ShardedTransferEngine;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransferEngine;
+
+/**
+ * Sharded versus striped engine under increasing client threads. Meant to be run through the thread sweep, e.g.
+ * {@code ./gradlew jmhThreadSweep -PjmhIncludes=ShardScalingBenchmark -PjmhThreadCounts=1,2,4,8,16,32}. The sharded
+ * engine gets one shard per available processor unless {@code shards} says otherwise.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardScalingBenchmark {
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	@Param({ "striped", "sharded" })
+	private String engine;
+
+	@Param({ "0" })
+	private int shards;
+
+	@Param({ "uniform", "zipf" })
+	private String skew;
+
+	private ShardedTransferEngine shardedEngine;
+
+	private AccountsService accountsService;
+
+	private String[] accountIds;
+
+	private ZipfianGenerator keys;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		int accountCount = 100_000;
+		TransferEngine transferEngine;
+		if ("sharded".equals(engine)) {
+			shardedEngine = new ShardedTransferEngine(
+					shards > 0 ? shards : Runtime.getRuntime().availableProcessors());
+			transferEngine = shardedEngine;
+		} else {
+			transferEngine = new StripedLockTransferEngine(1024);
+		}
+		accountsService = new AccountsService(new AccountsRepositoryInMemory(), (account, description) -> {
+		}, transferEngine, 256);
+		keys = ZipfianGenerator.forSkew(skew, accountCount);
+		accountIds = new String[accountCount];
+		for (int i = 0; i < accountCount; i++) {
+			accountIds[i] = "Id-" + i;
+			accountsService.createAccount(new Account(accountIds[i], new BigDecimal("1000000000000")));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (shardedEngine != null) {
+			shardedEngine.shutdown();
+		}
+	}
+
+	@Benchmark
+	public void randomPairs() {
+		int from = keys.next();
+		int to = keys.nextOther(from);
+		accountsService.transfer(accountsService.getAccount(accountIds[from]),
+				accountsService.getAccount(accountIds[to]), AMOUNT);
+	}
+}
@@ -0,0 +1,39 @@
+package com.dws.challenge.benchmark;
+
+import java.io.File;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching a regex once per thread count and writes one JSON result file per count, e.g.
+ * {@code threads-8.json}. Used by the {@code jmhThreadSweep} Gradle task.
+ *
+ * <p>Arguments: include regex, output directory, comma separated thread counts.
+ */
+public final class ThreadSweep {
+
+	private ThreadSweep() {
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : "TransferBenchmark.randomPairs";
+		File outputDirectory = new File(args.length > 1 ? args[1] : "build/reports/jmh");
+		String threadCounts = args.length > 2 ? args[2] : "1,2,4,8,16,32";
+		outputDirectory.mkdirs();
+
+		for (String count : threadCounts.split(",")) {
+			int threads = Integer.parseInt(count.trim());
+			Options options = new OptionsBuilder()
+					.include(include)
+					.threads(threads)
+					.resultFormat(ResultFormatType.JSON)
+					.result(new File(outputDirectory, "threads-" + threads + ".json").getPath())
+					.build();
+			new Runner(options).run();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.MonitorTransferEngine;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransferEngine;
+
+/**
+ * End to end {@link AccountsService#transfer} cost, including repository lookups, for different account counts, key
+ * skews and engines. {@code randomPairs} draws both accounts from the skewed distribution; the {@code abba} group
+ * races A to B against B to A on the hottest pair, which is the deadlock-prone pattern the lock ordering exists for.
+ * Notifications go to a no-op service so only the transfer itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferBenchmark {
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	@Param({ "1000", "1000000" })
+	private int accountCount;
+
+	@Param({ "uniform", "zipf" })
+	private String skew;
+
+	@Param({ "striped", "monitor" })
+	private String engine;
+
+	private AccountsService accountsService;
+
+	private String[] accountIds;
+
+	private ZipfianGenerator keys;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		TransferEngine transferEngine = "monitor".equals(engine) ? new MonitorTransferEngine()
+				: new StripedLockTransferEngine(1024);
+		accountsService = new AccountsService(new AccountsRepositoryInMemory(), (account, description) -> {
+		}, transferEngine, 256);
+		keys = ZipfianGenerator.forSkew(skew, accountCount);
+		accountIds = new String[accountCount];
+		for (int i = 0; i < accountCount; i++) {
+			accountIds[i] = "Id-" + i;
+			accountsService.createAccount(new Account(accountIds[i], new BigDecimal("1000000000000")));
+		}
+	}
+
+	@Benchmark
+	public void randomPairs() {
+		int from = keys.next();
+		int to = keys.nextOther(from);
+		transfer(accountIds[from], accountIds[to]);
+	}
+
+	@Benchmark
+	@Group("abba")
+	@GroupThreads(2)
+	public void abbaForward() {
+		transfer(accountIds[0], accountIds[1]);
+	}
+
+	@Benchmark
+	@Group("abba")
+	@GroupThreads(2)
+	public void abbaBackward() {
+		transfer(accountIds[1], accountIds[0]);
+	}
+
+	private void transfer(String fromId, String toId) {
+		accountsService.transfer(accountsService.getAccount(fromId), accountsService.getAccount(toId), AMOUNT);
+	}
+}
@@ -0,0 +1,81 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.service.MonitorTransferEngine;
+import com.dws.challenge.service.OptimisticTransferEngine;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransferEngine;
+
+/**
+ * Contention benchmark comparing the original monitor-on-account-id locking, the striped lock engine and the
+ * optimistic compare-and-set engine. A small account count models hot accounts (high skew), a large one models mostly
+ * disjoint transfers (low skew), where the optimistic engine should come out ahead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class TransferEngineBenchmark {
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	@Param({ "monitor", "striped", "optimistic" })
+	private String engine;
+
+	@Param({ "16", "100000" })
+	private int accountCount;
+
+	private TransferEngine transferEngine;
+
+	private Account[] accounts;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		switch (engine) {
+		case "monitor":
+			transferEngine = new MonitorTransferEngine();
+			break;
+		case "optimistic":
+			transferEngine = new OptimisticTransferEngine(8, 1024);
+			break;
+		default:
+			transferEngine = new StripedLockTransferEngine(1024);
+		}
+		accounts = new Account[accountCount];
+		for (int i = 0; i < accountCount; i++) {
+			accounts[i] = new Account("Id-" + i, new BigDecimal("1000000000000"));
+		}
+	}
+
+	@Benchmark
+	public void transfer() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int from = random.nextInt(accountCount);
+		int to = random.nextInt(accountCount - 1);
+		if (to >= from) {
+			to++;
+		}
+		transferEngine.transfer(accounts[from], accounts[to], AMOUNT);
+	}
+}
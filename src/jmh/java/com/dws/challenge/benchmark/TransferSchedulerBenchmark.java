@@ -0,0 +1,169 @@
+package com.dws.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.ScheduledTransfer;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransferScheduler;
+
+/**
+ * {@link TransferScheduler} with {@code pending} transfers waiting:
+ * <ul>
+ * <li>{@code footprint} schedules them spread over a day and reports the retained heap per pending transfer in the
+ * {@code bytesPerTransfer} counter, measured as the used heap after a full GC before and after;</li>
+ * <li>{@code burst} runs them all at once, as when many standing orders fall due at midnight; divide
+ * {@code pending} by the time per operation for transfers per second;</li>
+ * <li>{@code scheduleThenCancel} is the cost of adding and removing one more transfer, which should not depend on
+ * how many are pending.</li>
+ * </ul>
+ * Transfers run with the clock under the benchmark's control, so the ticker thread is not involved.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TransferSchedulerBenchmark {
+
+	private static final int ACCOUNTS = 100_000;
+
+	private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+	@Param({ "10000", "100000", "1000000" })
+	private int pending;
+
+	private AccountsService accountsService;
+
+	private Account[] accounts;
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Footprint {
+
+		public double bytesPerTransfer;
+	}
+
+	/**
+	 * An empty scheduler for every invocation, with the clock at 0.
+	 */
+	@State(Scope.Thread)
+	public static class Empty {
+
+		private final AtomicLong clock = new AtomicLong();
+
+		private TransferScheduler scheduler;
+
+		@Setup(Level.Invocation)
+		public void setUp(TransferSchedulerBenchmark benchmark) {
+			clock.set(0);
+			scheduler = benchmark.newScheduler(clock);
+		}
+	}
+
+	/**
+	 * A scheduler holding {@code pending} transfers spread over a day, for the whole trial.
+	 */
+	@State(Scope.Thread)
+	public static class Filled {
+
+		private TransferScheduler scheduler;
+
+		@Setup(Level.Trial)
+		public void setUp(TransferSchedulerBenchmark benchmark) {
+			scheduler = benchmark.newScheduler(new AtomicLong());
+			benchmark.scheduleSpread(scheduler, DAY_MILLIS);
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		accountsService = new AccountsService(new AccountsRepositoryInMemory(), (account, description) -> {
+		}, new StripedLockTransferEngine(1024), 256);
+		accounts = new Account[ACCOUNTS];
+		for (int i = 0; i < ACCOUNTS; i++) {
+			accountsService.createAccount(new Account("Id-" + i, new BigDecimal("1000000000000")));
+			accounts[i] = accountsService.getAccount("Id-" + i);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 5)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public long footprint(Empty empty, Footprint footprint) {
+		long before = usedHeap();
+		scheduleSpread(empty.scheduler, DAY_MILLIS);
+		long after = usedHeap();
+		footprint.bytesPerTransfer = (after - before) / (double) pending;
+		return empty.scheduler.getPendingCount();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 3)
+	@Measurement(iterations = 10)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int burst(Empty empty) {
+		scheduleSpread(empty.scheduler, 0);
+		empty.clock.set(1000);
+		return empty.scheduler.runDue();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@Warmup(iterations = 3, time = 2)
+	@Measurement(iterations = 5, time = 2)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public boolean scheduleThenCancel(Filled filled) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Account accountFrom = accounts[random.nextInt(ACCOUNTS)];
+		ScheduledTransfer transfer = filled.scheduler.schedule(accountFrom, accounts[random.nextInt(ACCOUNTS)],
+				BigDecimal.ONE, Instant.ofEpochMilli(random.nextLong(1000, DAY_MILLIS)));
+		return filled.scheduler.cancel(accountFrom.getAccountId(), transfer.getId());
+	}
+
+	private TransferScheduler newScheduler(AtomicLong clock) {
+		return new TransferScheduler(accountsService, 10, 1000, Long.MAX_VALUE, clock::get, false);
+	}
+
+	/**
+	 * Schedules {@code pending} transfers between random accounts, due 1 second after the start plus a random share
+	 * of {@code spreadMillis}.
+	 */
+	private void scheduleSpread(TransferScheduler scheduler, long spreadMillis) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < pending; i++) {
+			int from = random.nextInt(ACCOUNTS);
+			int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+			long executeAt = 1000 + (spreadMillis == 0 ? 0 : random.nextLong(spreadMillis));
+			scheduler.schedule(accounts[from], accounts[to], BigDecimal.ONE, Instant.ofEpochMilli(executeAt));
+		}
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,146 @@
+package com.dws.challenge.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.dws.challenge.ChallengeApplication;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.web.WireProtocol;
+import com.dws.challenge.web.WireProtocolClient;
+import com.dws.challenge.web.WireProtocolServer;
+
+/**
+ * The same transfers sent to one application over loopback through the REST endpoint and through
+ * {@link WireProtocolServer}: one request at a time on each path, and pipelined {@value #PIPELINE_DEPTH} deep on the
+ * binary one. Sample time mode gives the latency percentiles next to the throughput; compare the thread counts with
+ * {@code ./gradlew jmhThreadSweep -PjmhIncludes=WireProtocolBenchmark -PjmhThreadCounts=1,8,32}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WireProtocolBenchmark {
+
+	private static final int ACCOUNTS = 10_000;
+
+	private static final int PIPELINE_DEPTH = 32;
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	private ConfigurableApplicationContext context;
+
+	private String url;
+
+	private int wirePort;
+
+	private HttpClient httpClient;
+
+	private String[] accountIds;
+
+	@State(Scope.Thread)
+	public static class Connection {
+
+		private WireProtocolClient client;
+
+		@Setup(Level.Trial)
+		public void open(WireProtocolBenchmark benchmark) throws IOException {
+			client = new WireProtocolClient("127.0.0.1", benchmark.wirePort);
+		}
+
+		@TearDown(Level.Trial)
+		public void close() throws IOException {
+			client.close();
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		int httpPort;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			httpPort = socket.getLocalPort();
+		}
+		context = new SpringApplicationBuilder(ChallengeApplication.class).properties(
+				"server.port=" + httpPort,
+				"wire.enabled=true",
+				"wire.port=0",
+				"wire.event-loops=4",
+				"accounts.audit.interval-ms=0",
+				"transfer.admission.enabled=false",
+				"notifications.async.overflow-policy=DROP",
+				"logging.level.com.dws.challenge=WARN").run();
+		url = "http://127.0.0.1:" + httpPort;
+		wirePort = context.getBean(WireProtocolServer.class).getPort();
+
+		AccountsService accountsService = context.getBean(AccountsService.class);
+		accountIds = new String[ACCOUNTS];
+		for (int i = 0; i < ACCOUNTS; i++) {
+			accountIds[i] = "Id-" + i;
+			accountsService.createAccount(new Account(accountIds[i], new BigDecimal("1000000000000")));
+		}
+		httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public int rest() throws Exception {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		String path = "/v1/accounts/" + accountIds[random.nextInt(ACCOUNTS)] + "/"
+				+ accountIds[random.nextInt(ACCOUNTS)] + "/" + AMOUNT;
+		HttpRequest request = HttpRequest.newBuilder(URI.create(url + path)).build();
+		return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+	@Benchmark
+	public byte wire(Connection connection) throws IOException {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return connection.client.transfer(accountIds[random.nextInt(ACCOUNTS)], accountIds[random.nextInt(ACCOUNTS)],
+				AMOUNT);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PIPELINE_DEPTH)
+	public int wirePipelined(Connection connection) throws IOException {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < PIPELINE_DEPTH; i++) {
+			connection.client.sendTransfer(accountIds[random.nextInt(ACCOUNTS)], accountIds[random.nextInt(ACCOUNTS)],
+					AMOUNT);
+		}
+		int completed = 0;
+		for (int i = 0; i < PIPELINE_DEPTH; i++) {
+			if (connection.client.receive().getStatus() == WireProtocol.OK) {
+				completed++;
+			}
+		}
+		return completed;
+	}
+}
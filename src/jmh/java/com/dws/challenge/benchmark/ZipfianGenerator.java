@@ -0,0 +1,85 @@
+package com.dws.challenge.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws indexes in {@code [0, items)} following a Zipfian distribution, using the rejection-free method of Gray et al.
+ * ("Quickly generating billion-record synthetic databases") as popularised by YCSB. Index 0 is the hottest key. A
+ * {@code theta} of 0 degenerates to a uniform draw.
+ */
+final class ZipfianGenerator {
+
+	private final int items;
+
+	private final double theta;
+
+	private final double zetaN;
+
+	private final double alpha;
+
+	private final double eta;
+
+	ZipfianGenerator(int items, double theta) {
+		if (items <= 0 || theta < 0 || theta >= 1) {
+			throw new IllegalArgumentException("Need items > 0 and 0 <= theta < 1");
+		}
+		this.items = items;
+		this.theta = theta;
+		this.zetaN = zeta(items, theta);
+		this.alpha = 1.0 / (1.0 - theta);
+		this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+	}
+
+	/**
+	 * Maps a named skew used by the benchmark {@code @Param}s to a generator.
+	 */
+	static ZipfianGenerator forSkew(String skew, int items) {
+		switch (skew) {
+		case "uniform":
+			return new ZipfianGenerator(items, 0);
+		case "zipf":
+			return new ZipfianGenerator(items, 0.99);
+		default:
+			throw new IllegalArgumentException("Unknown skew: " + skew);
+		}
+	}
+
+	int next() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		if (theta == 0) {
+			return random.nextInt(items);
+		}
+		double u = random.nextDouble();
+		double uz = u * zetaN;
+		if (uz < 1.0) {
+			return 0;
+		}
+		if (uz < 1.0 + Math.pow(0.5, theta)) {
+			return Math.min(1, items - 1);
+		}
+		int index = (int) (items * Math.pow(eta * u - eta + 1, alpha));
+		return Math.min(index, items - 1);
+	}
+
+	/**
+	 * Draws a second index different from {@code first}, with the same distribution.
+	 */
+	int nextOther(int first) {
+		if (items < 2) {
+			throw new IllegalStateException("Need at least two items");
+		}
+		int other = next();
+		while (other == first) {
+			other = next();
+		}
+		return other;
+	}
+
+	private static double zeta(int n, double theta) {
+		double sum = 0;
+		for (int i = 1; i <= n; i++) {
+			sum += 1 / Math.pow(i, theta);
+		}
+		return sum;
+	}
+}
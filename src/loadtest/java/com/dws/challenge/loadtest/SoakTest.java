@@ -0,0 +1,327 @@
+package com.dws.challenge.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Open-loop soak test against a running instance. It creates the accounts through {@code POST /v1/accounts}, then
+ * replays a seeded {@link Workload} of reads, transfers and overdrafts for the configured duration, and finally
+ * checks that the balances of all accounts still add up to the money created. Account ids are derived from the seed and
+ * the number of accounts, and the test refuses to start if any of them exists already: their balances would no longer
+ * add up to what this run created.
+ *
+ * <p>Requests are sent at the workload's arrival times whether or not earlier ones have been answered, and latency is
+ * measured from the time a request was due rather than from when it was sent. A slow server therefore shows up as
+ * higher latency instead of as fewer requests, so the results are not skewed by coordinated omission. If more than
+ * {@code maxInFlight} requests are outstanding, new arrivals are not sent and are counted as shed.
+ *
+ * <p>Every {@code reportSeconds} a line with the interval's throughput and percentiles is printed. The interval
+ * histograms go to {@code build/reports/loadtest/<label>.hlog}, readable with HdrHistogram's HistogramLogProcessor,
+ * and the percentile distributions for the whole run go to {@code <label>-reads.hgrm} and
+ * {@code <label>-transfers.hgrm}. The process exits with status 1 if money was created or lost.
+ *
+ * <p>Arguments: base URL, accounts, account creation concurrency, requests per second, duration in seconds, read
+ * percentage, Zipf theta, overdraft percentage of transfers, seed, label, max in flight, report interval in seconds.
+ */
+public final class SoakTest {
+
+	private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000");
+
+	private static final int BALANCES_PER_REQUEST = 10_000;
+
+	private static final Pattern BALANCE = Pattern.compile("\"balance\":(-?[0-9.Ee+-]+)");
+
+	private static final ExecutorService CALLBACKS = Executors.newCachedThreadPool();
+
+	private final HttpClient client;
+
+	private final String baseUrl;
+
+	private final String prefix;
+
+	private final int accounts;
+
+	private final Recorder reads = new Recorder(2);
+
+	private final Recorder transfers = new Recorder(2);
+
+	private final Histogram readsTotal = new Histogram(2);
+
+	private final Histogram transfersTotal = new Histogram(2);
+
+	private final AtomicLong inFlight = new AtomicLong();
+
+	private final LongAdder completed = new LongAdder();
+
+	private final LongAdder declined = new LongAdder();
+
+	private final LongAdder unexpectedDeclines = new LongAdder();
+
+	private final LongAdder acceptedOverdrafts = new LongAdder();
+
+	private final LongAdder throttled = new LongAdder();
+
+	private final LongAdder errors = new LongAdder();
+
+	private final LongAdder shed = new LongAdder();
+
+	private SoakTest(HttpClient client, String baseUrl, long seed, int accounts) {
+		this.client = client;
+		this.baseUrl = baseUrl;
+		this.prefix = "Soak-" + seed + "-" + accounts + "-";
+		this.accounts = accounts;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String baseUrl = argument(args, 0, "http://localhost:18080");
+		int accounts = Integer.parseInt(argument(args, 1, "1000000"));
+		int createConcurrency = Integer.parseInt(argument(args, 2, "64"));
+		double rate = Double.parseDouble(argument(args, 3, "2000"));
+		long seconds = Long.parseLong(argument(args, 4, "3600"));
+		int readPercent = Integer.parseInt(argument(args, 5, "20"));
+		double theta = Double.parseDouble(argument(args, 6, "0.99"));
+		int overdraftPercent = Integer.parseInt(argument(args, 7, "5"));
+		long seed = Long.parseLong(argument(args, 8, "1"));
+		String label = argument(args, 9, "soak");
+		int maxInFlight = Integer.parseInt(argument(args, 10, "10000"));
+		int reportSeconds = Integer.parseInt(argument(args, 11, "10"));
+
+		HttpClient client = HttpClient.newBuilder()
+				.executor(CALLBACKS)
+				.connectTimeout(Duration.ofSeconds(5))
+				.build();
+		SoakTest test = new SoakTest(client, baseUrl, seed, accounts);
+		System.out.printf("Seed %d: %d accounts, %.0f req/s for %d s, %d%% reads, theta %.2f, %d%% overdrafts%n", seed,
+				accounts, rate, seconds, readPercent, theta, overdraftPercent);
+		test.createAccounts(createConcurrency);
+
+		Path reports = Paths.get("build", "reports", "loadtest");
+		Files.createDirectories(reports);
+		Workload workload = new Workload(seed, accounts, rate, theta, readPercent, overdraftPercent);
+		try (PrintStream log = new PrintStream(Files.newOutputStream(reports.resolve(label + ".hlog")))) {
+			test.run(workload, TimeUnit.SECONDS.toNanos(seconds), maxInFlight, reportSeconds, new HistogramLogWriter(log));
+		}
+		test.writeDistribution(reports.resolve(label + "-reads.hgrm"), test.readsTotal);
+		test.writeDistribution(reports.resolve(label + "-transfers.hgrm"), test.transfersTotal);
+		boolean conserved = test.checkConservation();
+		System.exit(conserved ? 0 : 1);
+	}
+
+	private void createAccounts(int concurrency) throws InterruptedException {
+		Semaphore permits = new Semaphore(concurrency);
+		LongAdder failed = new LongAdder();
+		AtomicReference<String> firstFailure = new AtomicReference<>();
+		long start = System.nanoTime();
+		for (int i = 0; i < accounts; i++) {
+			permits.acquire();
+			HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/v1/accounts"))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString(
+							"{\"accountId\":\"" + prefix + i + "\",\"balance\":" + INITIAL_BALANCE + "}"))
+					.build();
+			String accountId = prefix + i;
+			client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, failure) -> {
+				if (failure != null || response.statusCode() != 201) {
+					failed.increment();
+					firstFailure.compareAndSet(null, accountId + ": " + (failure != null ? failure.toString()
+							: response.statusCode() + " " + response.body()));
+				}
+				permits.release();
+			});
+			if ((i + 1) % 100_000 == 0) {
+				System.out.printf("Created %d accounts%n", i + 1);
+			}
+		}
+		permits.acquire(concurrency);
+		if (failed.sum() > 0) {
+			// A 400 here is usually an account left by an earlier run with the same seed and size.
+			throw new IllegalStateException(failed.sum() + " accounts could not be created, first " + firstFailure.get()
+					+ ". Use a fresh server or another seed.");
+		}
+		System.out.printf("%d accounts ready in %d s%n", accounts,
+				TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+	}
+
+	private void run(Workload workload, long durationNanos, int maxInFlight, int reportSeconds,
+			HistogramLogWriter log) throws InterruptedException {
+		long startMillis = System.currentTimeMillis();
+		log.setBaseTime(startMillis);
+		log.outputLogFormatVersion();
+		log.outputStartTime(startMillis);
+		log.outputLegend();
+		ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+		reporter.scheduleAtFixedRate(() -> report(log, reportSeconds), reportSeconds, reportSeconds, TimeUnit.SECONDS);
+		System.out.printf("%-8s %10s %10s %10s %10s %10s %10s %8s %8s%n", "interval", "req/s", "p50 ms", "p99 ms",
+				"p99.9 ms", "max ms", "in flight", "errors", "shed");
+
+		long start = System.nanoTime();
+		long end = start + durationNanos;
+		long due = start;
+		while (true) {
+			due += workload.nextGapNanos();
+			if (due - end >= 0) {
+				break;
+			}
+			Workload.Operation operation = workload.next();
+			long wait;
+			while ((wait = due - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			if (inFlight.get() >= maxInFlight) {
+				shed.increment();
+				continue;
+			}
+			send(operation, due);
+		}
+		long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+		while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+			Thread.sleep(10);
+		}
+		reporter.shutdown();
+		reporter.awaitTermination(reportSeconds, TimeUnit.SECONDS);
+		report(log, reportSeconds);
+		if (inFlight.get() > 0) {
+			System.out.printf("%d requests still unanswered, the balance check may see them half applied%n",
+					inFlight.get());
+		}
+
+		System.out.printf("%nCompleted %d requests: %d declined (%d unexpectedly), %d overdrafts accepted, "
+				+ "%d throttled, %d errors, %d shed, %d still in flight%n", completed.sum(), declined.sum(),
+				unexpectedDeclines.sum(), acceptedOverdrafts.sum(), throttled.sum(), errors.sum(), shed.sum(),
+				inFlight.get());
+		System.out.printf("Reads:     p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+				readsTotal.getValueAtPercentile(50) / 1e6, readsTotal.getValueAtPercentile(99) / 1e6,
+				readsTotal.getValueAtPercentile(99.9) / 1e6, readsTotal.getMaxValue() / 1e6);
+		System.out.printf("Transfers: p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+				transfersTotal.getValueAtPercentile(50) / 1e6, transfersTotal.getValueAtPercentile(99) / 1e6,
+				transfersTotal.getValueAtPercentile(99.9) / 1e6, transfersTotal.getMaxValue() / 1e6);
+	}
+
+	/**
+	 * Sends one operation; its latency is counted from {@code dueNanos}, when the workload scheduled it.
+	 */
+	private void send(Workload.Operation operation, long dueNanos) {
+		String path;
+		if (operation.kind == Workload.Kind.READ) {
+			path = "/v1/accounts/" + prefix + operation.from;
+		} else {
+			BigDecimal amount = operation.kind == Workload.Kind.OVERDRAFT
+					? INITIAL_BALANCE.multiply(BigDecimal.valueOf(accounts)).add(BigDecimal.ONE)
+					: BigDecimal.ONE;
+			path = "/v1/accounts/" + prefix + operation.from + "/" + prefix + operation.to + "/" + amount;
+		}
+		HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+				.timeout(Duration.ofSeconds(30))
+				.GET()
+				.build();
+		inFlight.incrementAndGet();
+		CompletableFuture<HttpResponse<Void>> response = client.sendAsync(request,
+				HttpResponse.BodyHandlers.discarding());
+		response.whenComplete((result, failure) -> {
+			(operation.kind == Workload.Kind.READ ? reads : transfers).recordValue(System.nanoTime() - dueNanos);
+			completed.increment();
+			int status = failure == null ? result.statusCode() : -1;
+			if (status == 400) {
+				declined.increment();
+				if (operation.kind != Workload.Kind.OVERDRAFT) {
+					unexpectedDeclines.increment();
+				}
+			} else if (status == 429) {
+				throttled.increment();
+			} else if (status < 200 || status >= 300) {
+				errors.increment();
+			} else if (operation.kind == Workload.Kind.OVERDRAFT) {
+				acceptedOverdrafts.increment();
+			}
+			inFlight.decrementAndGet();
+		});
+	}
+
+	private synchronized void report(HistogramLogWriter log, int reportSeconds) {
+		Histogram readInterval = reads.getIntervalHistogram();
+		Histogram transferInterval = transfers.getIntervalHistogram();
+		readInterval.setTag("reads");
+		transferInterval.setTag("transfers");
+		log.outputIntervalHistogram(readInterval);
+		log.outputIntervalHistogram(transferInterval);
+		readsTotal.add(readInterval);
+		transfersTotal.add(transferInterval);
+
+		Histogram interval = readInterval.copy();
+		interval.add(transferInterval);
+		System.out.printf("%-8s %10.0f %10.2f %10.2f %10.2f %10.2f %10d %8d %8d%n",
+				TimeUnit.MILLISECONDS.toSeconds(interval.getEndTimeStamp() - log.getBaseTime()) + "s",
+				(double) interval.getTotalCount() / reportSeconds, interval.getValueAtPercentile(50) / 1e6,
+				interval.getValueAtPercentile(99) / 1e6, interval.getValueAtPercentile(99.9) / 1e6,
+				interval.getMaxValue() / 1e6, inFlight.get(), errors.sum(), shed.sum());
+	}
+
+	private void writeDistribution(Path file, Histogram histogram) throws IOException {
+		try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+			histogram.outputPercentileDistribution(out, 1e6);
+		}
+	}
+
+	/**
+	 * Reads every account's balance through {@code POST /v1/balances} once the traffic has stopped.
+	 *
+	 * @return whether the balances add up to the money the accounts were created with
+	 */
+	private boolean checkConservation() throws IOException, InterruptedException {
+		BigDecimal total = BigDecimal.ZERO;
+		int found = 0;
+		for (int first = 0; first < accounts; first += BALANCES_PER_REQUEST) {
+			StringBuilder ids = new StringBuilder("[");
+			for (int i = first; i < Math.min(accounts, first + BALANCES_PER_REQUEST); i++) {
+				ids.append(i == first ? "\"" : ",\"").append(prefix).append(i).append('"');
+			}
+			HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/v1/balances"))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString(ids.append(']').toString()))
+					.build();
+			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+			if (response.statusCode() != 200) {
+				throw new IllegalStateException("Reading balances failed: " + response.statusCode());
+			}
+			Matcher balance = BALANCE.matcher(response.body());
+			while (balance.find()) {
+				total = total.add(new BigDecimal(balance.group(1)));
+				found++;
+			}
+		}
+		BigDecimal expected = INITIAL_BALANCE.multiply(BigDecimal.valueOf(accounts));
+		boolean conserved = found == accounts && total.compareTo(expected) == 0;
+		System.out.printf("Balance check: %d of %d accounts, total %s, expected %s: %s%n", found, accounts,
+				total.toPlainString(), expected.toPlainString(), conserved ? "OK" : "FAILED");
+		return conserved;
+	}
+
+	private static String argument(String[] args, int index, String defaultValue) {
+		return args.length > index ? args[index] : defaultValue;
+	}
+}
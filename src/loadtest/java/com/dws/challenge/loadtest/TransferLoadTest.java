@@ -0,0 +1,175 @@
+package com.dws.challenge.loadtest;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Closed-loop HTTP load test against a running instance. For every concurrency level, that many clients each keep
+ * one request in flight for the configured duration: 80% transfers between random accounts and 20% account reads.
+ * Each level reports throughput, latency percentiles and errors; the highest level whose p99 stays under the target
+ * and whose error rate stays under 1% is reported as the maximum sustainable concurrency.
+ *
+ * <p>Run it once against {@code server.threads.mode=platform} and once against {@code server.threads.mode=virtual}
+ * with different labels and compare the two CSV files. Blocking on the server side is what separates the modes, so
+ * use a store that waits, e.g. {@code accounts.store=journal} with {@code accounts.journal.await-durable=true}.
+ *
+ * <p>Arguments: base URL, comma separated concurrency levels, seconds per level, label, p99 target in milliseconds.
+ */
+public final class TransferLoadTest {
+
+	private static final int ACCOUNT_COUNT = 10_000;
+
+	private static final int READ_PERCENT = 20;
+
+	private static final double MAX_ERROR_RATE = 0.01;
+
+	private static final ExecutorService CALLBACKS = Executors.newCachedThreadPool();
+
+	private TransferLoadTest() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		String baseUrl = args.length > 0 ? args[0] : "http://localhost:18080";
+		String levels = args.length > 1 ? args[1] : "16,64,256,1024,4096";
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		String label = args.length > 3 ? args[3] : "default";
+		double p99TargetMillis = args.length > 4 ? Double.parseDouble(args[4]) : 100;
+
+		HttpClient client = HttpClient.newBuilder()
+				.executor(CALLBACKS)
+				.connectTimeout(Duration.ofSeconds(5))
+				.build();
+		String prefix = "Load-" + System.currentTimeMillis() + "-";
+		createAccounts(client, baseUrl, prefix);
+
+		Path report = Paths.get("build", "reports", "loadtest", label + ".csv");
+		Files.createDirectories(report.getParent());
+		int maxConcurrency = 0;
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(report))) {
+			out.println("concurrency,requestsPerSecond,p50Millis,p99Millis,p999Millis,maxMillis,errors");
+			System.out.printf("%-12s %12s %10s %10s %10s %10s %8s%n", "concurrency", "req/s", "p50 ms", "p99 ms",
+					"p99.9 ms", "max ms", "errors");
+			for (String level : levels.split(",")) {
+				int concurrency = Integer.parseInt(level.trim());
+				Result result = runLevel(client, baseUrl, prefix, concurrency, seconds);
+				Histogram latency = result.latency;
+				double p99 = latency.getValueAtPercentile(99) / 1e6;
+				System.out.printf("%-12d %12.0f %10.2f %10.2f %10.2f %10.2f %8d%n", concurrency,
+						result.requestsPerSecond(seconds), latency.getValueAtPercentile(50) / 1e6, p99,
+						latency.getValueAtPercentile(99.9) / 1e6, latency.getMaxValue() / 1e6, result.errors);
+				out.printf("%d,%.0f,%.3f,%.3f,%.3f,%.3f,%d%n", concurrency, result.requestsPerSecond(seconds),
+						latency.getValueAtPercentile(50) / 1e6, p99, latency.getValueAtPercentile(99.9) / 1e6,
+						latency.getMaxValue() / 1e6, result.errors);
+				if (p99 <= p99TargetMillis && result.errorRate() < MAX_ERROR_RATE) {
+					maxConcurrency = concurrency;
+				}
+			}
+		}
+		System.out.printf("%s: highest concurrency with p99 <= %.0f ms and < 1%% errors: %d (report in %s)%n", label,
+				p99TargetMillis, maxConcurrency, report);
+		System.exit(0);
+	}
+
+	private static void createAccounts(HttpClient client, String baseUrl, String prefix)
+			throws IOException, InterruptedException {
+		for (int i = 0; i < ACCOUNT_COUNT; i++) {
+			HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/v1/accounts"))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString(
+							"{\"accountId\":\"" + prefix + i + "\",\"balance\":1000000000}"))
+					.build();
+			HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+			if (response.statusCode() != 201) {
+				throw new IllegalStateException("Could not create account " + prefix + i + ": " + response.statusCode());
+			}
+		}
+	}
+
+	private static Result runLevel(HttpClient client, String baseUrl, String prefix, int concurrency, int seconds)
+			throws InterruptedException {
+		Recorder recorder = new Recorder(2);
+		LongAdder completed = new LongAdder();
+		LongAdder errors = new LongAdder();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		CountDownLatch finished = new CountDownLatch(concurrency);
+		for (int i = 0; i < concurrency; i++) {
+			sendNext(client, baseUrl, prefix, deadline, recorder, completed, errors, finished);
+		}
+		finished.await();
+		return new Result(recorder.getIntervalHistogram(), completed.sum(), errors.sum());
+	}
+
+	/**
+	 * One virtual client: sends a request and, once it completes, the next one until the deadline passes.
+	 */
+	private static void sendNext(HttpClient client, String baseUrl, String prefix, long deadline, Recorder recorder,
+			LongAdder completed, LongAdder errors, CountDownLatch finished) {
+		if (System.nanoTime() >= deadline) {
+			finished.countDown();
+			return;
+		}
+		long start = System.nanoTime();
+		client.sendAsync(nextRequest(baseUrl, prefix), HttpResponse.BodyHandlers.discarding())
+				.whenCompleteAsync((response, failure) -> {
+					recorder.recordValue(System.nanoTime() - start);
+					completed.increment();
+					if (failure != null || response.statusCode() >= 500) {
+						errors.increment();
+					}
+					sendNext(client, baseUrl, prefix, deadline, recorder, completed, errors, finished);
+				}, CALLBACKS);
+	}
+
+	private static HttpRequest nextRequest(String baseUrl, String prefix) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int from = random.nextInt(ACCOUNT_COUNT);
+		String path;
+		if (random.nextInt(100) < READ_PERCENT) {
+			path = "/v1/accounts/" + prefix + from;
+		} else {
+			int to = (from + 1 + random.nextInt(ACCOUNT_COUNT - 1)) % ACCOUNT_COUNT;
+			path = "/v1/accounts/" + prefix + from + "/" + prefix + to + "/1";
+		}
+		return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30)).GET().build();
+	}
+
+	private static final class Result {
+
+		private final Histogram latency;
+
+		private final long completed;
+
+		private final long errors;
+
+		private Result(Histogram latency, long completed, long errors) {
+			this.latency = latency;
+			this.completed = completed;
+			this.errors = errors;
+		}
+
+		private double requestsPerSecond(int seconds) {
+			return (double) completed / seconds;
+		}
+
+		private double errorRate() {
+			return completed == 0 ? 1 : (double) errors / completed;
+		}
+	}
+}
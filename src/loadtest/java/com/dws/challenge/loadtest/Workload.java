@@ -0,0 +1,117 @@
+package com.dws.challenge.loadtest;
+
+import java.util.SplittableRandom;
+
+/**
+ * Replayable stream of soak test operations: the same seed and parameters always give the same operations in the
+ * same order with the same arrival gaps, however fast the server answers. Account indexes follow a Zipfian
+ * distribution drawn with the method of Gray et al., as in the JMH benchmarks, so index 0 is the hottest account;
+ * a {@code theta} of 0 gives uniform draws. Not thread-safe, one generator thread owns it.
+ */
+final class Workload {
+
+	enum Kind {
+		READ, TRANSFER,
+
+		/**
+		 * A transfer of more money than exists in all accounts together, which must be declined.
+		 */
+		OVERDRAFT
+	}
+
+	static final class Operation {
+
+		final Kind kind;
+
+		final int from;
+
+		final int to;
+
+		private Operation(Kind kind, int from, int to) {
+			this.kind = kind;
+			this.from = from;
+			this.to = to;
+		}
+	}
+
+	private final SplittableRandom random;
+
+	private final int accounts;
+
+	private final int readPercent;
+
+	private final int overdraftPercent;
+
+	private final double meanGapNanos;
+
+	private final double theta;
+
+	private final double zetaN;
+
+	private final double alpha;
+
+	private final double eta;
+
+	/**
+	 * @param ratePerSecond mean arrival rate; gaps between arrivals are exponentially distributed around it
+	 * @param overdraftPercent share of transfers, not of all operations, that are overdrafts
+	 */
+	Workload(long seed, int accounts, double ratePerSecond, double theta, int readPercent, int overdraftPercent) {
+		if (accounts < 2 || ratePerSecond <= 0 || theta < 0 || theta >= 1) {
+			throw new IllegalArgumentException("Need at least two accounts, a positive rate and 0 <= theta < 1");
+		}
+		this.random = new SplittableRandom(seed);
+		this.accounts = accounts;
+		this.readPercent = readPercent;
+		this.overdraftPercent = overdraftPercent;
+		this.meanGapNanos = 1e9 / ratePerSecond;
+		this.theta = theta;
+		this.zetaN = zeta(accounts, theta);
+		this.alpha = 1.0 / (1.0 - theta);
+		this.eta = (1 - Math.pow(2.0 / accounts, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+	}
+
+	/**
+	 * Time from the previous arrival to the next one, for a Poisson arrival process.
+	 */
+	long nextGapNanos() {
+		return (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+	}
+
+	Operation next() {
+		int from = nextAccount();
+		if (random.nextInt(100) < readPercent) {
+			return new Operation(Kind.READ, from, from);
+		}
+		int to = nextAccount();
+		while (to == from) {
+			to = nextAccount();
+		}
+		Kind kind = random.nextInt(100) < overdraftPercent ? Kind.OVERDRAFT : Kind.TRANSFER;
+		return new Operation(kind, from, to);
+	}
+
+	private int nextAccount() {
+		if (theta == 0) {
+			return random.nextInt(accounts);
+		}
+		double uz = random.nextDouble() * zetaN;
+		if (uz < 1.0) {
+			return 0;
+		}
+		if (uz < 1.0 + Math.pow(0.5, theta)) {
+			return 1;
+		}
+		double u = uz / zetaN;
+		int index = (int) (accounts * Math.pow(eta * u - eta + 1, alpha));
+		return Math.min(index, accounts - 1);
+	}
+
+	private static double zeta(int n, double theta) {
+		double sum = 0;
+		for (int i = 1; i <= n; i++) {
+			sum += 1 / Math.pow(i, theta);
+		}
+		return sum;
+	}
+}
@@ -1,10 +1,28 @@
 package com.dws.challenge.config;
 
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.validation.beanvalidation.MethodValidationPostProcessor;
 
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.CachingAccountsRepository;
+import com.dws.challenge.service.AsyncNotificationService;
+import com.dws.challenge.service.EmailNotificationService;
+import com.dws.challenge.service.MonitorTransferEngine;
+import com.dws.challenge.service.OptimisticTransferEngine;
+import com.dws.challenge.service.NotificationService;
+import com.dws.challenge.service.ShardedTransferEngine;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransferEngine;
+import com.dws.challenge.service.TransferMetrics;
+
 @Configuration
 public class AccountConfiguration {
 	
@@ -13,4 +31,65 @@ public class AccountConfiguration {
 	     return new MethodValidationPostProcessor();
 	}
 
+	/**
+	 * Puts a {@link CachingAccountsRepository} in front of whichever account store is configured. Wrapping after
+	 * initialization leaves the store's own lifecycle callbacks, such as closing the journal, in place.
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "accounts.cache.enabled", havingValue = "true")
+	public static BeanPostProcessor accountsRepositoryCache(
+			@Value("${accounts.cache.maximum-size:100000}") long maximumSize,
+			@Value("${accounts.cache.ttl-seconds:300}") long ttlSeconds) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof AccountsRepository && !(bean instanceof CachingAccountsRepository)) {
+					return new CachingAccountsRepository((AccountsRepository) bean, maximumSize,
+							Duration.ofSeconds(ttlSeconds));
+				}
+				return bean;
+			}
+		};
+	}
+
+	/**
+	 * The monitor engine locks the account id strings, and the off-heap store hands out a new id string on every
+	 * lookup, so the two together would not exclude each other's transfers at all.
+	 */
+	@Bean
+	public TransferEngine transferEngine(@Value("${transfer.engine:striped}") String engine,
+			@Value("${transfer.lock-stripes:1024}") int lockStripes, @Value("${transfer.shards:0}") int shards,
+			@Value("${transfer.optimistic.max-attempts:8}") int optimisticAttempts,
+			@Value("${accounts.store:memory}") String store, TransferMetrics transferMetrics) {
+		if ("monitor".equals(engine) && "offheap".equals(store)) {
+			throw new IllegalArgumentException("transfer.engine=monitor cannot be used with accounts.store=offheap");
+		}
+		switch (engine) {
+		case "monitor":
+			return new MonitorTransferEngine();
+		case "striped":
+			return new StripedLockTransferEngine(lockStripes, transferMetrics);
+		case "sharded":
+			return new ShardedTransferEngine(shards > 0 ? shards : Runtime.getRuntime().availableProcessors());
+		case "optimistic":
+			return new OptimisticTransferEngine(optimisticAttempts, lockStripes);
+		default:
+			throw new IllegalArgumentException("Unknown transfer.engine: " + engine);
+		}
+	}
+
+	@Bean
+	@Primary
+	public NotificationService transferNotificationService(EmailNotificationService emailNotificationService,
+			@Value("${notifications.async.enabled:true}") boolean async,
+			@Value("${notifications.async.queue-capacity:10000}") int queueCapacity,
+			@Value("${notifications.async.workers:2}") int workers,
+			@Value("${notifications.async.batch-size:64}") int batchSize,
+			@Value("${notifications.async.overflow-policy:BLOCK}") AsyncNotificationService.OverflowPolicy overflowPolicy) {
+		if (!async) {
+			return emailNotificationService;
+		}
+		return new AsyncNotificationService(emailNotificationService, queueCapacity, workers, batchSize, overflowPolicy);
+	}
+
 }
@@ -0,0 +1,47 @@
+package com.dws.challenge.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves HTTP requests on virtual threads instead of Tomcat's bounded platform thread pool, so a request blocked on
+ * a lock, a journal fsync or a full notification queue no longer pins an OS thread. Enabled with
+ * {@code server.threads.mode=virtual}; requires a Java 21+ runtime. The project still compiles for Java 11, so the
+ * executor is looked up reflectively and startup fails if the runtime does not provide it.
+ *
+ * <p>The striped and sharded transfer engines, the journal and the notification queue block through
+ * {@code java.util.concurrent} and release the carrier thread while waiting. The monitor engine synchronizes on
+ * account ids and pins the carrier thread, so it should not be combined with this mode.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "server.threads.mode", havingValue = "virtual")
+public class VirtualThreadConfiguration {
+
+	@Bean
+	public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+		ExecutorService executor = newVirtualThreadPerTaskExecutor();
+		log.info("Serving HTTP requests on virtual threads");
+		return protocolHandler -> protocolHandler.setExecutor(executor);
+	}
+
+	static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException(
+					"server.threads.mode=virtual needs Java 21 or newer, running on " + Runtime.version(), e);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new IllegalStateException("Could not create the virtual thread executor", e);
+		}
+	}
+}
@@ -1,9 +1,19 @@
 package com.dws.challenge.domain;
 
+import com.dws.challenge.exception.InvalidAmountException;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
@@ -12,23 +22,227 @@ import javax.validation.constraints.NotNull;
 @Data
 public class Account {
 
+  /**
+   * Value of {@link #minorUnitScale} while the balance is held as a {@link BigDecimal}.
+   */
+  public static final int DECIMAL_BALANCE = -1;
+
+  private static final VarHandle VERSION;
+
+  private static final VarHandle CREDIT_STRIPES;
+
+  static {
+    try {
+      VERSION = MethodHandles.lookup().findVarHandle(Account.class, "version", long.class);
+      CREDIT_STRIPES = MethodHandles.lookup().findVarHandle(Account.class, "creditStripes", CreditStripes.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
   @NotNull
   @NotEmpty
   private final String accountId;
 
   @NotNull
   @Min(value = 0, message = "Initial balance must be positive.")
-  private BigDecimal balance;
+  private volatile BigDecimal balance;
+
+  /**
+   * ISO 4217 code of the currency the balance is held in, or null for the base currency of the exchange rate table.
+   */
+  private final String currency;
+
+  /**
+   * Number of decimal places represented by {@link #minorBalance} once the account has been switched to minor units,
+   * e.g. 2 for cents. Balance updates in that mode are plain {@code long} arithmetic.
+   */
+  @JsonIgnore
+  @Setter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private int minorUnitScale = DECIMAL_BALANCE;
+
+  @JsonIgnore
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private volatile long minorBalance;
+
+  /**
+   * Seqlock style update counter: odd while a transfer is changing the balance, even otherwise. Readers that need a
+   * consistent view of several accounts compare it before and after reading the balances.
+   */
+  @JsonIgnore
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private volatile long version;
+
+  /**
+   * Credits added without claiming the account, see {@link #addStripedCredit(BigDecimal)}. Null until the account is
+   * first found hot; from then on they are part of the balance and never folded back into {@link #balance}.
+   */
+  @JsonIgnore
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private volatile CreditStripes creditStripes;
 
   public Account(String accountId) {
     this.accountId = accountId;
     this.balance = BigDecimal.ZERO;
+    this.currency = null;
+  }
+
+  public Account(String accountId, BigDecimal balance) {
+    this(accountId, balance, null);
   }
 
   @JsonCreator
   public Account(@JsonProperty("accountId") String accountId,
-    @JsonProperty("balance") BigDecimal balance) {
+    @JsonProperty("balance") BigDecimal balance,
+    @JsonProperty("currency") String currency) {
     this.accountId = accountId;
     this.balance = balance;
+    this.currency = currency;
+  }
+
+  /**
+   * For subclasses that keep the minor unit balance elsewhere, e.g. views over an off-heap store overriding
+   * {@link #getMinorBalance()} and {@link #setMinorBalance(long)}. Nothing is written to the balance here.
+   */
+  protected Account(String accountId, int minorUnitScale) {
+    if (minorUnitScale < 0) {
+      throw new IllegalArgumentException("Minor unit scale must not be negative: " + minorUnitScale);
+    }
+    this.accountId = accountId;
+    this.minorUnitScale = minorUnitScale;
+    this.currency = null;
+  }
+
+  /**
+   * The settled balance plus all striped credits.
+   */
+  public BigDecimal getBalance() {
+    CreditStripes stripes = creditStripes;
+    return stripes == null ? getSettledBalance() : balance.add(stripes.sum());
+  }
+
+  /**
+   * The part of the balance written by {@link #setBalance(BigDecimal)}, i.e. without striped credits. Transfers
+   * update this part and check funds against {@link #getBalance()}; it may go negative while striped credits cover
+   * the difference.
+   */
+  @JsonIgnore
+  public BigDecimal getSettledBalance() {
+    return isMinorUnits() ? BigDecimal.valueOf(getMinorBalance(), minorUnitScale) : balance;
+  }
+
+  /**
+   * Replaces the settled balance, see {@link #getSettledBalance()}.
+   */
+  public void setBalance(BigDecimal balance) {
+    if (isMinorUnits()) {
+      setMinorBalance(toMinorUnits(balance, minorUnitScale));
+    } else {
+      this.balance = balance;
+    }
+  }
+
+  @JsonIgnore
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Marks the start of a balance update. Only called by the thread that exclusively owns the account, together with
+   * {@link #endUpdate()} once the update is complete.
+   */
+  public void beginUpdate() {
+    version++;
+  }
+
+  public void endUpdate() {
+    version++;
+  }
+
+  /**
+   * Claims the account for an update without a lock: moves the version from {@code expectedVersion}, which must be
+   * even, to the odd value {@link #beginUpdate()} would have set. Fails if any other update started in between. A
+   * successful claim is released with {@link #endUpdate()}.
+   */
+  public boolean tryBeginUpdate(long expectedVersion) {
+    return VERSION.compareAndSet(this, expectedVersion, expectedVersion + 1);
+  }
+
+  @JsonIgnore
+  public boolean hasCreditStripes() {
+    return creditStripes != null;
+  }
+
+  /**
+   * Lets credits bypass the account's claim: from now on {@link #addStripedCredit(BigDecimal)} may be called by any
+   * thread at any time. Idempotent; the first call decides the number of stripes.
+   *
+   * @throws IllegalStateException for an account holding minor units
+   */
+  public void useCreditStripes(int stripes) {
+    if (isMinorUnits()) {
+      throw new IllegalStateException("Credit stripes need a decimal balance: " + accountId);
+    }
+    if (creditStripes == null) {
+      CREDIT_STRIPES.compareAndSet(this, null, new CreditStripes(stripes));
+    }
+  }
+
+  /**
+   * Adds {@code amount} to one of the account's credit stripes without claiming the account or changing its version,
+   * so concurrent credits rarely touch the same memory. Debits still claim the account and see these credits through
+   * {@link #getBalance()}.
+   *
+   * @throws IllegalStateException unless {@link #useCreditStripes(int)} was called first
+   */
+  public void addStripedCredit(BigDecimal amount) {
+    CreditStripes stripes = creditStripes;
+    if (stripes == null) {
+      throw new IllegalStateException("Credit stripes not enabled: " + accountId);
+    }
+    stripes.add(amount);
+  }
+
+  @JsonIgnore
+  public boolean isMinorUnits() {
+    return minorUnitScale != DECIMAL_BALANCE;
+  }
+
+  /**
+   * Switches the account to a fixed-scale {@code long} balance. Must be called before the account is shared.
+   *
+   * @throws InvalidAmountException if the current balance has more decimal places than {@code scale}
+   */
+  public void useMinorUnits(int scale) {
+    if (scale < 0) {
+      throw new IllegalArgumentException("Minor unit scale must not be negative: " + scale);
+    }
+    BigDecimal current = getBalance();
+    setMinorBalance(toMinorUnits(current, scale));
+    this.minorUnitScale = scale;
+    this.balance = null;
+  }
+
+  /**
+   * Converts {@code amount} to a count of minor units at {@code scale}, e.g. 12.34 at scale 2 to 1234.
+   *
+   * @throws InvalidAmountException if the amount needs more decimal places than {@code scale} or does not fit a long
+   */
+  public static long toMinorUnits(BigDecimal amount, int scale) {
+    try {
+      return amount.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    } catch (ArithmeticException e) {
+      throw new InvalidAmountException(
+        "Amount " + amount.toPlainString() + " cannot be represented with " + scale + " decimal places");
+    }
   }
 }
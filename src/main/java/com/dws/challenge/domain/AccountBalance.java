@@ -0,0 +1,32 @@
+package com.dws.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.math.BigDecimal;
+import lombok.Data;
+
+/**
+ * Immutable copy of an account's balance, detached from the live {@link Account} that transfers keep updating.
+ */
+@Data
+public class AccountBalance {
+
+  private final String accountId;
+
+  private final BigDecimal balance;
+
+  /**
+   * Omitted for accounts in the base currency.
+   */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private final String currency;
+
+  public AccountBalance(String accountId, BigDecimal balance) {
+    this(accountId, balance, null);
+  }
+
+  public AccountBalance(String accountId, BigDecimal balance, String currency) {
+    this.accountId = accountId;
+    this.balance = balance;
+    this.currency = currency;
+  }
+}
@@ -0,0 +1,35 @@
+package com.dws.challenge.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import lombok.Data;
+
+/**
+ * Outcome of one balance audit. {@code expectedTotal} is the previous audit's total plus the money deposited by
+ * accounts created since; it is null for the first audit, which only establishes the baseline. A non-zero
+ * {@code drift} means money was created or destroyed between the two audits.
+ */
+@Data
+public class AuditResult {
+
+  private final long epoch;
+
+  private final Instant completedAt;
+
+  private final long accounts;
+
+  private final BigDecimal total;
+
+  private final BigDecimal expectedTotal;
+
+  private final BigDecimal drift;
+
+  private final boolean consistent;
+
+  /**
+   * Accounts whose balance changed during the scan and were counted from the value they had at the cut.
+   */
+  private final long preImages;
+
+  private final long durationMillis;
+}
@@ -0,0 +1,16 @@
+package com.dws.challenge.domain;
+
+import java.util.List;
+import lombok.Data;
+
+/**
+ * Balances of several accounts as they all were at one point in time: no transfer between any of them is half
+ * applied. Unknown ids are listed separately.
+ */
+@Data
+public class BalanceSnapshot {
+
+  private final List<AccountBalance> balances;
+
+  private final List<String> missingAccountIds;
+}
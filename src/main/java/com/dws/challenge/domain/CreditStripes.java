@@ -0,0 +1,61 @@
+package com.dws.challenge.domain;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Add-only {@link BigDecimal} sum spread over several cells like {@link java.util.concurrent.atomic.LongAdder}: each
+ * thread starts at a cell picked from its id and moves on to the next one when its compare-and-set loses a race. Cells
+ * are padded apart so that neighbouring ones do not share a cache line.
+ */
+final class CreditStripes {
+
+  /**
+   * Distance between two used cells of the array; 16 references span at least one 64 byte cache line.
+   */
+  private static final int PADDING = 16;
+
+  private final AtomicReferenceArray<BigDecimal> cells;
+
+  private final int mask;
+
+  CreditStripes(int stripes) {
+    if (stripes < 1) {
+      throw new IllegalArgumentException("Number of stripes must be positive: " + stripes);
+    }
+    int count = Integer.highestOneBit(stripes) == stripes ? stripes : Integer.highestOneBit(stripes) << 1;
+    this.mask = count - 1;
+    this.cells = new AtomicReferenceArray<>(count * PADDING);
+    for (int i = 0; i < count; i++) {
+      cells.set(i * PADDING, BigDecimal.ZERO);
+    }
+  }
+
+  void add(BigDecimal amount) {
+    int stripe = stripeOf(Thread.currentThread());
+    while (true) {
+      int index = stripe * PADDING;
+      BigDecimal current = cells.get(index);
+      if (cells.compareAndSet(index, current, current.add(amount))) {
+        return;
+      }
+      stripe = (stripe + 1) & mask;
+    }
+  }
+
+  /**
+   * Not an atomic snapshot: credits added while the cells are read may or may not be included.
+   */
+  BigDecimal sum() {
+    BigDecimal sum = BigDecimal.ZERO;
+    for (int i = 0; i <= mask; i++) {
+      sum = sum.add(cells.get(i * PADDING));
+    }
+    return sum;
+  }
+
+  private int stripeOf(Thread thread) {
+    long id = thread.getId() * 0x9E3779B97F4A7C15L;
+    return (int) (id >>> 32) & mask;
+  }
+}
@@ -0,0 +1,39 @@
+package com.dws.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.math.BigDecimal;
+import lombok.Data;
+
+/**
+ * Credit half of a transfer between two nodes, as prepared on the node owning {@code accountId}.
+ */
+@Data
+public class CrossNodeCredit {
+
+  private final String accountId;
+
+  private final String counterpartyAccountId;
+
+  private final BigDecimal amount;
+
+  /**
+   * Currency of {@code amount}, or null for the base currency; the node owning {@code accountId} converts it.
+   */
+  private final String currency;
+
+  public CrossNodeCredit(String accountId, String counterpartyAccountId, BigDecimal amount) {
+    this(accountId, counterpartyAccountId, amount, null);
+  }
+
+  @JsonCreator
+  public CrossNodeCredit(@JsonProperty("accountId") String accountId,
+    @JsonProperty("counterpartyAccountId") String counterpartyAccountId,
+    @JsonProperty("amount") BigDecimal amount,
+    @JsonProperty("currency") String currency) {
+    this.accountId = accountId;
+    this.counterpartyAccountId = counterpartyAccountId;
+    this.amount = amount;
+    this.currency = currency;
+  }
+}
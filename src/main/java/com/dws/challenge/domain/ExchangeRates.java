@@ -0,0 +1,152 @@
+package com.dws.challenge.domain;
+
+import com.dws.challenge.exception.UnsupportedCurrencyException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable table of exchange rates against one base currency. The rate between every pair of currencies is worked
+ * out once when the table is built, so a conversion is a map lookup per currency, one multiplication and a rounding
+ * to the minor unit of the target currency. A new table replaces the old one as a whole, see
+ * {@link com.dws.challenge.service.ExchangeRateService}.
+ *
+ * <p>A null currency stands for the base currency, which is what accounts created without one hold.
+ */
+public final class ExchangeRates {
+
+  /**
+   * Precision of the cross rates; converted amounts are rounded to their currency's minor unit afterwards.
+   */
+  private static final MathContext CROSS_RATE_PRECISION = MathContext.DECIMAL128;
+
+  private final String baseCurrency;
+
+  private final long version;
+
+  private final Instant loadedAt;
+
+  /**
+   * Units of each currency per unit of the base currency, as loaded.
+   */
+  private final Map<String, BigDecimal> rates;
+
+  private final Map<String, Integer> indexes;
+
+  /**
+   * {@code crossRates[from][to]}: units of {@code to} per unit of {@code from}.
+   */
+  private final BigDecimal[][] crossRates;
+
+  private final int[] fractionDigits;
+
+  private ExchangeRates(String baseCurrency, Map<String, BigDecimal> rates, long version, Instant loadedAt) {
+    this.baseCurrency = baseCurrency;
+    this.version = version;
+    this.loadedAt = loadedAt;
+    this.rates = Collections.unmodifiableMap(new TreeMap<>(rates));
+    this.indexes = new HashMap<>();
+    this.fractionDigits = new int[rates.size()];
+    String[] currencies = this.rates.keySet().toArray(new String[0]);
+    for (int i = 0; i < currencies.length; i++) {
+      indexes.put(currencies[i], i);
+      fractionDigits[i] = Currency.getInstance(currencies[i]).getDefaultFractionDigits();
+    }
+    this.crossRates = new BigDecimal[currencies.length][currencies.length];
+    for (int from = 0; from < currencies.length; from++) {
+      for (int to = 0; to < currencies.length; to++) {
+        crossRates[from][to] = from == to ? BigDecimal.ONE
+          : this.rates.get(currencies[to]).divide(this.rates.get(currencies[from]), CROSS_RATE_PRECISION);
+      }
+    }
+  }
+
+  /**
+   * @param rates units of each currency per unit of {@code baseCurrency}; the base currency itself may be left out
+   * @throws UnsupportedCurrencyException if a code is not an ISO 4217 currency or a rate is not positive
+   */
+  public static ExchangeRates of(String baseCurrency, Map<String, BigDecimal> rates, long version) {
+    Map<String, BigDecimal> all = new HashMap<>(rates);
+    all.put(requireCurrency(baseCurrency), BigDecimal.ONE);
+    for (Map.Entry<String, BigDecimal> rate : all.entrySet()) {
+      requireCurrency(rate.getKey());
+      if (rate.getValue() == null || rate.getValue().signum() <= 0) {
+        throw new UnsupportedCurrencyException("Exchange rate of " + rate.getKey() + " must be positive");
+      }
+    }
+    return new ExchangeRates(baseCurrency, all, version, Instant.now());
+  }
+
+  /**
+   * Table with the base currency alone, in which only transfers between accounts of one currency succeed.
+   */
+  public static ExchangeRates baseOnly(String baseCurrency) {
+    return of(baseCurrency, Map.of(), 0);
+  }
+
+  /**
+   * @throws UnsupportedCurrencyException if {@code currency} is not an ISO 4217 code
+   */
+  public static String requireCurrency(String currency) {
+    try {
+      Currency.getInstance(currency);
+      return currency;
+    } catch (IllegalArgumentException | NullPointerException e) {
+      throw new UnsupportedCurrencyException("Unknown currency: " + currency);
+    }
+  }
+
+  public String getBaseCurrency() {
+    return baseCurrency;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public Instant getLoadedAt() {
+    return loadedAt;
+  }
+
+  public Map<String, BigDecimal> getRates() {
+    return rates;
+  }
+
+  public boolean isSameCurrency(String currency, String otherCurrency) {
+    if (currency == null ? otherCurrency == null : currency.equals(otherCurrency)) {
+      return true;
+    }
+    return (currency == null ? baseCurrency : currency).equals(otherCurrency == null ? baseCurrency : otherCurrency);
+  }
+
+  /**
+   * Converts {@code amount} of {@code from} into {@code to}, rounded half-even to the minor unit of {@code to} or to
+   * {@code scale} places if that is not negative.
+   *
+   * @throws UnsupportedCurrencyException if the table has no rate for either currency
+   */
+  public BigDecimal convert(BigDecimal amount, String from, String to, int scale) {
+    int fromIndex = indexOf(from);
+    int toIndex = indexOf(to);
+    return amount.multiply(crossRates[fromIndex][toIndex])
+      .setScale(scale >= 0 ? scale : Math.max(fractionDigits[toIndex], 0), RoundingMode.HALF_EVEN);
+  }
+
+  public boolean supports(String currency) {
+    return indexes.containsKey(currency == null ? baseCurrency : currency);
+  }
+
+  private int indexOf(String currency) {
+    Integer index = indexes.get(currency == null ? baseCurrency : currency);
+    if (index == null) {
+      throw new UnsupportedCurrencyException("No exchange rate for " + currency);
+    }
+    return index;
+  }
+}
@@ -0,0 +1,16 @@
+package com.dws.challenge.domain;
+
+import lombok.Data;
+
+/**
+ * A row of a bulk import that was not inserted, identified by its 1-based line number.
+ */
+@Data
+public class ImportFailure {
+
+  private final long line;
+
+  private final String accountId;
+
+  private final String message;
+}
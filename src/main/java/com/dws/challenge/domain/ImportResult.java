@@ -0,0 +1,22 @@
+package com.dws.challenge.domain;
+
+import java.util.List;
+import lombok.Data;
+
+/**
+ * Summary of a bulk import. {@code failures} lists at most a bounded number of rows; {@code failed} counts all of
+ * them.
+ */
+@Data
+public class ImportResult {
+
+  private final long imported;
+
+  private final long failed;
+
+  private final List<ImportFailure> failures;
+
+  private final long elapsedMillis;
+
+  private final double rowsPerSecond;
+}
@@ -0,0 +1,21 @@
+package com.dws.challenge.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import lombok.Data;
+
+/**
+ * One transfer as seen from one account: the amount is negative for money that left the account and positive for
+ * money that arrived. Sequence numbers count the account's transfers from 0 and never repeat.
+ */
+@Data
+public class LedgerEntry {
+
+  private final long sequence;
+
+  private final Instant timestamp;
+
+  private final String counterpartyAccountId;
+
+  private final BigDecimal amount;
+}
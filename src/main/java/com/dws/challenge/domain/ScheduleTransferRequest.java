@@ -0,0 +1,38 @@
+package com.dws.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.math.BigDecimal;
+import java.time.Instant;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import lombok.Data;
+
+/**
+ * Body of a request to move money from the account in the path at {@code executeAt}. An execution time in the past
+ * runs the transfer right away.
+ */
+@Data
+public class ScheduleTransferRequest {
+
+  @NotNull
+  @NotEmpty
+  private final String accountToId;
+
+  @NotNull
+  @Positive(message = "Amount must be positive.")
+  private final BigDecimal amount;
+
+  @NotNull
+  private final Instant executeAt;
+
+  @JsonCreator
+  public ScheduleTransferRequest(@JsonProperty("accountToId") String accountToId,
+    @JsonProperty("amount") BigDecimal amount,
+    @JsonProperty("executeAt") Instant executeAt) {
+    this.accountToId = accountToId;
+    this.amount = amount;
+    this.executeAt = executeAt;
+  }
+}
@@ -0,0 +1,23 @@
+package com.dws.challenge.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import lombok.Data;
+
+/**
+ * A transfer waiting for its execution time. The id is unique per node and is needed, together with the source
+ * account, to cancel it.
+ */
+@Data
+public class ScheduledTransfer {
+
+  private final long id;
+
+  private final String accountFromId;
+
+  private final String accountToId;
+
+  private final BigDecimal amount;
+
+  private final Instant executeAt;
+}
@@ -0,0 +1,18 @@
+package com.dws.challenge.domain;
+
+import java.util.List;
+import lombok.Data;
+
+/**
+ * A page of an account's recent transfers, newest first. {@code nextBefore} is the cursor for the next, older page
+ * and is null once the oldest retained entry has been returned.
+ */
+@Data
+public class TransactionPage {
+
+  private final String accountId;
+
+  private final List<LedgerEntry> transactions;
+
+  private final Long nextBefore;
+}
@@ -0,0 +1,16 @@
+package com.dws.challenge.domain;
+
+import lombok.Data;
+
+/**
+ * Outcome of one item of a batch transfer, identified by its position in the request.
+ */
+@Data
+public class TransferResult {
+
+  private final int index;
+
+  private final TransferStatus status;
+
+  private final String message;
+}
@@ -0,0 +1,12 @@
+package com.dws.challenge.domain;
+
+public enum TransferStatus {
+
+  COMPLETED,
+
+  INSUFFICIENT_FUNDS,
+
+  ACCOUNT_NOT_FOUND,
+
+  INVALID_REQUEST
+}
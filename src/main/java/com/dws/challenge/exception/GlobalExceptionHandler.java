@@ -2,6 +2,7 @@ package com.dws.challenge.exception;
 
 import javax.validation.ConstraintViolationException;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -12,7 +13,10 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler{
 	
 	@ExceptionHandler(value = {
-		    ConstraintViolationException.class
+		    ConstraintViolationException.class,
+		    InvalidAmountException.class,
+		    SameAccountTransferException.class,
+		    UnsupportedCurrencyException.class
 		})
 		
 		public ResponseEntity<Object> handleResourceException(
@@ -20,4 +24,21 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler{
 
 		return new ResponseEntity(ex.getMessage(),HttpStatus.BAD_REQUEST);
 	}
+
+	@ExceptionHandler(IdempotencyKeyReusedException.class)
+	public ResponseEntity<Object> handleIdempotencyKeyReused(IdempotencyKeyReusedException ex) {
+		return new ResponseEntity<>(ex.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY);
+	}
+
+	@ExceptionHandler(TooManyRequestsException.class)
+	public ResponseEntity<Object> handleTooManyRequests(TooManyRequestsException ex) {
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+				.header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+				.body(ex.getMessage());
+	}
+
+	@ExceptionHandler(NodeUnavailableException.class)
+	public ResponseEntity<Object> handleNodeUnavailable(NodeUnavailableException ex) {
+		return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+	}
 }
@@ -0,0 +1,8 @@
+package com.dws.challenge.exception;
+
+public class NodeUnavailableException extends RuntimeException {
+
+  public NodeUnavailableException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
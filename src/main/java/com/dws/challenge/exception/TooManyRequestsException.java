@@ -0,0 +1,17 @@
+package com.dws.challenge.exception;
+
+import lombok.Getter;
+
+public class TooManyRequestsException extends RuntimeException {
+
+  /**
+   * Whole seconds the client should wait before retrying, for the {@code Retry-After} header.
+   */
+  @Getter
+  private final long retryAfterSeconds;
+
+  public TooManyRequestsException(String message, long retryAfterSeconds) {
+    super(message, null, false, false);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+}
@@ -0,0 +1,541 @@
+package com.dws.challenge.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of account creations, committed transfers and single-account adjustments, split into numbered
+ * segment files ({@code journal-000000.log}, ...).
+ *
+ * <p>Appenders encode records into a shared direct buffer and get a sequence number back. A single flusher thread
+ * writes the buffer to the current segment and calls {@link FileChannel#force(boolean)} once per group: as soon as
+ * {@code batchSize} records are pending or the oldest pending record has waited {@code fsyncInterval}. Callers that
+ * need durability wait for their sequence number with {@link #awaitDurable(long)}, so many transfers share one fsync.
+ *
+ * <p>Each record is framed as {@code [int length][int crc32][payload]}. On {@link #open} the segments from
+ * {@code firstSegment} on are replayed in order; a torn or corrupt record at the end of the last segment is truncated
+ * away. Older segments are already covered by a snapshot, see {@link AccountSnapshotter}.
+ */
+@Slf4j
+public class AccountJournal implements Closeable {
+
+    /**
+     * Receives the records of the journal during replay.
+     */
+    public interface Visitor {
+
+        void accountCreated(String accountId, BigDecimal balance);
+
+        void transferCommitted(String accountFromId, String accountToId, BigDecimal amount);
+
+        /**
+         * {@code amount} was added to the account, or taken out of it if negative, without a counterpart in the
+         * journal.
+         */
+        void balanceAdjusted(String accountId, BigDecimal amount);
+    }
+
+    static final byte CREATE = 1;
+
+    static final byte TRANSFER = 2;
+
+    static final byte ADJUST = 3;
+
+    /**
+     * Longest account id a record can hold, in UTF-8 bytes; ids are prefixed with an unsigned short length.
+     */
+    static final int MAX_ID_BYTES = 0xFFFF;
+
+    private static final int HEADER_BYTES = 8;
+
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+
+    private final long segmentBytes;
+
+    private final int batchSize;
+
+    private final long fsyncIntervalNanos;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    private final CRC32 crc = new CRC32();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition workAvailable = lock.newCondition();
+
+    private final Condition durable = lock.newCondition();
+
+    private final Thread flusher;
+
+    private FileChannel channel;
+
+    private int segmentIndex;
+
+    private long appendedSeq;
+
+    private long durableSeq;
+
+    private long firstPendingNanos;
+
+    private IOException failure;
+
+    private boolean running = true;
+
+    private boolean forcing;
+
+    private AccountJournal(Path directory, long segmentBytes, int batchSize, long fsyncIntervalMillis) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.batchSize = batchSize;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+        this.flusher = new Thread(this::flushLoop, "account-journal-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    /**
+     * Replays the segments in {@code directory} numbered {@code firstSegment} or higher into {@code visitor} and opens
+     * the journal for appending.
+     */
+    public static AccountJournal open(Path directory, int firstSegment, long segmentBytes, int batchSize,
+            long fsyncIntervalMillis, Visitor visitor) throws IOException {
+        if (segmentBytes <= 0 || batchSize <= 0 || fsyncIntervalMillis < 0) {
+            throw new IllegalArgumentException("Invalid journal settings");
+        }
+        Files.createDirectories(directory);
+        AccountJournal journal = new AccountJournal(directory, segmentBytes, batchSize, fsyncIntervalMillis);
+        List<Integer> segments = listSegments(directory);
+        segments.removeIf(segment -> segment < firstSegment);
+        for (int i = 0; i < segments.size(); i++) {
+            replaySegment(segmentPath(directory, segments.get(i)), i == segments.size() - 1, visitor);
+        }
+        journal.openSegment(segments.isEmpty() ? firstSegment : segments.get(segments.size() - 1));
+        journal.flusher.start();
+        return journal;
+    }
+
+    public long appendCreate(String accountId, BigDecimal balance) {
+        byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+        byte[] unscaled = balance.unscaledValue().toByteArray();
+        lock.lock();
+        try {
+            int start = beginRecord(1 + 2 + id.length + 4 + 1 + unscaled.length);
+            buffer.put(CREATE);
+            putString(id);
+            putAmount(balance.scale(), unscaled);
+            return endRecord(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long appendAdjustment(String accountId, BigDecimal amount) {
+        byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+        byte[] unscaled = amount.unscaledValue().toByteArray();
+        lock.lock();
+        try {
+            int start = beginRecord(1 + 2 + id.length + 4 + 1 + unscaled.length);
+            buffer.put(ADJUST);
+            putString(id);
+            putAmount(amount.scale(), unscaled);
+            return endRecord(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long appendTransfer(String accountFromId, String accountToId, BigDecimal amount) {
+        byte[] unscaled = amount.unscaledValue().toByteArray();
+        return appendTransfer(accountFromId, accountToId, amount.scale(), unscaled, 0);
+    }
+
+    /**
+     * Appends a transfer whose amount is {@code minorAmount} units at {@code scale}, without creating a
+     * {@link BigDecimal}.
+     */
+    public long appendTransfer(String accountFromId, String accountToId, long minorAmount, int scale) {
+        return appendTransfer(accountFromId, accountToId, scale, null, minorAmount);
+    }
+
+    private long appendTransfer(String accountFromId, String accountToId, int scale, byte[] unscaled,
+            long minorAmount) {
+        byte[] fromId = accountFromId.getBytes(StandardCharsets.UTF_8);
+        byte[] toId = accountToId.getBytes(StandardCharsets.UTF_8);
+        int amountBytes = unscaled == null ? Long.BYTES : unscaled.length;
+        lock.lock();
+        try {
+            int start = beginRecord(1 + 2 + fromId.length + 2 + toId.length + 4 + 1 + amountBytes);
+            buffer.put(TRANSFER);
+            putString(fromId);
+            putString(toId);
+            if (unscaled == null) {
+                buffer.putInt(scale).put((byte) Long.BYTES).putLong(minorAmount);
+            } else {
+                putAmount(scale, unscaled);
+            }
+            return endRecord(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until the record with sequence number {@code seq} has been forced to disk.
+     */
+    public void awaitDurable(long seq) {
+        lock.lock();
+        try {
+            while (durableSeq < seq) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Journal flush failed", failure);
+                }
+                if (!running) {
+                    throw new IllegalStateException("Journal is closed");
+                }
+                durable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until every record appended before this call has been forced to disk.
+     */
+    public void awaitDurable() {
+        long seq;
+        lock.lock();
+        try {
+            seq = appendedSeq;
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(seq);
+    }
+
+    /**
+     * Forces the current segment and continues in a new one.
+     *
+     * @return the index of the new segment; every segment below it is sealed and will not change any more
+     */
+    public int rollSegment() {
+        lock.lock();
+        try {
+            while (forcing) {
+                durable.awaitUninterruptibly();
+            }
+            writeBuffer();
+            channel.force(false);
+            channel.close();
+            durableSeq = appendedSeq;
+            durable.signalAll();
+            openSegment(segmentIndex + 1);
+            return segmentIndex;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not roll journal segment in " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Deletes every segment and starts over with an empty journal.
+     */
+    public void reset() {
+        lock.lock();
+        try {
+            while (forcing) {
+                durable.awaitUninterruptibly();
+            }
+            buffer.clear();
+            durableSeq = appendedSeq;
+            durable.signalAll();
+            channel.close();
+            int next = segmentIndex + 1;
+            for (int segment : listSegments(directory)) {
+                Files.delete(segmentPath(directory, segment));
+            }
+            // Numbering continues so that segments can never be mistaken for ones covered by an old snapshot.
+            openSegment(next);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not reset journal in " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes and forces everything appended so far, then stops the flusher.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            writeBuffer();
+            channel.force(false);
+            durableSeq = appendedSeq;
+            durable.signalAll();
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int beginRecord(int payloadBytes) {
+        if (!running) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        if (HEADER_BYTES + payloadBytes > buffer.capacity()) {
+            throw new IllegalArgumentException("Journal record too large: " + payloadBytes + " bytes");
+        }
+        if (buffer.remaining() < HEADER_BYTES + payloadBytes) {
+            try {
+                writeBuffer();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write journal", e);
+            }
+        }
+        int start = buffer.position();
+        buffer.putInt(payloadBytes).putInt(0);
+        return start;
+    }
+
+    private long endRecord(int start) {
+        int end = buffer.position();
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(start + HEADER_BYTES).limit(end);
+        crc.reset();
+        crc.update(payload);
+        buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+
+        long seq = ++appendedSeq;
+        long pending = seq - durableSeq;
+        if (pending == 1) {
+            firstPendingNanos = System.nanoTime();
+            workAvailable.signal();
+        } else if (pending >= batchSize) {
+            workAvailable.signal();
+        }
+        return seq;
+    }
+
+    private void putString(byte[] value) {
+        putString(buffer, value);
+    }
+
+    private void putAmount(int scale, byte[] unscaled) {
+        putAmount(buffer, scale, unscaled);
+    }
+
+    static void putString(ByteBuffer target, byte[] value) {
+        target.putShort((short) value.length).put(value);
+    }
+
+    static void putAmount(ByteBuffer target, int scale, byte[] unscaled) {
+        target.putInt(scale).put((byte) unscaled.length).put(unscaled);
+    }
+
+    private void flushLoop() {
+        lock.lock();
+        try {
+            while (running) {
+                long pending = appendedSeq - durableSeq;
+                if (pending == 0) {
+                    workAvailable.awaitUninterruptibly();
+                    continue;
+                }
+                long waitNanos = fsyncIntervalNanos - (System.nanoTime() - firstPendingNanos);
+                if (pending < batchSize && waitNanos > 0) {
+                    workAvailable.awaitNanos(waitNanos);
+                    continue;
+                }
+                long target = appendedSeq;
+                writeBuffer();
+                FileChannel current = channel;
+                // Appenders keep filling the buffer while the group is being forced.
+                forcing = true;
+                lock.unlock();
+                try {
+                    current.force(false);
+                } finally {
+                    lock.lock();
+                    forcing = false;
+                }
+                durableSeq = Math.max(durableSeq, target);
+                if (appendedSeq > durableSeq) {
+                    firstPendingNanos = System.nanoTime();
+                }
+                durable.signalAll();
+                if (channel == current && channel.position() >= segmentBytes) {
+                    // Appenders may have written to the old segment while it was being forced.
+                    channel.force(false);
+                    channel.close();
+                    openSegment(segmentIndex + 1);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Journal flush failed, no further records will be made durable", e);
+            failure = e;
+            durable.signalAll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void openSegment(int index) throws IOException {
+        segmentIndex = index;
+        channel = FileChannel.open(segmentPath(directory, index), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    static Path segmentPath(Path directory, int index) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    static List<Integer> listSegments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Integer.parseInt(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Replays one segment. A damaged record is tolerated only at the end of the last segment, where it is the result
+     * of a crash mid-write, and is truncated.
+     */
+    static void replaySegment(Path segment, boolean last, Visitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size == 0) {
+                return;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 crc = new CRC32();
+            int validEnd = 0;
+            while (mapped.remaining() >= HEADER_BYTES) {
+                int length = mapped.getInt();
+                int checksum = mapped.getInt();
+                if (length <= 0 || length > mapped.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = mapped.slice();
+                payload.limit(length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                try {
+                    decode(payload, visitor);
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    break;
+                }
+                mapped.position(mapped.position() + length);
+                validEnd = mapped.position();
+            }
+            if (validEnd < size) {
+                if (!last) {
+                    throw new IOException("Corrupt record in " + segment + " at offset " + validEnd);
+                }
+                log.warn("Truncating torn journal tail of {} at offset {} (size {})", segment, validEnd, size);
+                channel.truncate(validEnd);
+            }
+        }
+    }
+
+    private static void decode(ByteBuffer payload, Visitor visitor) {
+        byte type = payload.get();
+        switch (type) {
+        case CREATE:
+            visitor.accountCreated(getString(payload), getAmount(payload));
+            break;
+        case TRANSFER:
+            visitor.transferCommitted(getString(payload), getString(payload), getAmount(payload));
+            break;
+        case ADJUST:
+            visitor.balanceAdjusted(getString(payload), getAmount(payload));
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown journal record type " + type);
+        }
+    }
+
+    static String getString(ByteBuffer payload) {
+        byte[] value = new byte[payload.getShort() & 0xFFFF];
+        payload.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    static BigDecimal getAmount(ByteBuffer payload) {
+        int scale = payload.getInt();
+        byte[] unscaled = new byte[payload.get() & 0xFF];
+        payload.get(unscaled);
+        if (unscaled.length == Long.BYTES) {
+            return BigDecimal.valueOf(ByteBuffer.wrap(unscaled).getLong(), scale);
+        }
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
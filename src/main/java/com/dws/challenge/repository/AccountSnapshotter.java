@@ -0,0 +1,255 @@
+package com.dws.challenge.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compacts sealed {@link AccountJournal} segments into a binary snapshot of every account id and balance, so that
+ * startup only has to replay the journal tail.
+ *
+ * <p>A snapshot is built from the previous snapshot plus the sealed segments, never from the live accounts, so it is
+ * consistent by construction and transfers keep running while it is written. Only accounts touched by the new
+ * segments are held in memory; the previous snapshot is streamed through. The file is written under a temporary name,
+ * forced, and atomically renamed; older snapshots and the segments it covers are deleted afterwards.
+ *
+ * <p>Format: {@code [int magic][int version][int nextSegment][long count]} followed by {@code count} records of
+ * {@code [short idLength][id utf-8][int scale][byte unscaledLength][unscaled]}.
+ */
+@Slf4j
+public class AccountSnapshotter {
+
+    private static final int MAGIC = 0x41434E54;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8;
+
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final Path directory;
+
+    private final AccountJournal journal;
+
+    public AccountSnapshotter(Path directory, AccountJournal journal) {
+        this.directory = directory;
+        this.journal = journal;
+    }
+
+    /**
+     * Index of the first journal segment not covered by the latest snapshot in {@code directory}, or 0 if there is no
+     * snapshot.
+     */
+    public static int latestSnapshotSegment(Path directory) throws IOException {
+        List<Integer> snapshots = listSnapshots(directory);
+        return snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+    }
+
+    /**
+     * Memory-maps the latest snapshot and hands every account to {@code consumer}.
+     *
+     * @return the number of accounts loaded
+     */
+    public static long load(Path directory, BiConsumer<String, BigDecimal> consumer) throws IOException {
+        List<Integer> snapshots = listSnapshots(directory);
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+        return read(snapshotPath(directory, snapshots.get(snapshots.size() - 1)), consumer);
+    }
+
+    /**
+     * Rolls the journal and folds every sealed segment into a new snapshot. Does nothing if no segment was sealed since
+     * the last snapshot.
+     */
+    public synchronized void snapshot() {
+        long start = System.nanoTime();
+        try {
+            int previous = latestSnapshotSegment(directory);
+            List<Integer> segments = AccountJournal.listSegments(directory);
+            boolean pendingRecords = segments.stream().anyMatch(segment -> segment >= previous && hasRecords(segment));
+            if (!pendingRecords) {
+                return;
+            }
+            int next = journal.rollSegment();
+
+            Map<String, BigDecimal> created = new LinkedHashMap<>();
+            Map<String, BigDecimal> deltas = new HashMap<>();
+            AccountJournal.Visitor collector = new AccountJournal.Visitor() {
+
+                @Override
+                public void accountCreated(String accountId, BigDecimal balance) {
+                    created.put(accountId, balance);
+                }
+
+                @Override
+                public void transferCommitted(String accountFromId, String accountToId, BigDecimal amount) {
+                    deltas.merge(accountFromId, amount.negate(), BigDecimal::add);
+                    deltas.merge(accountToId, amount, BigDecimal::add);
+                }
+
+                @Override
+                public void balanceAdjusted(String accountId, BigDecimal amount) {
+                    deltas.merge(accountId, amount, BigDecimal::add);
+                }
+            };
+            for (int segment : segments) {
+                if (segment >= previous && segment < next) {
+                    AccountJournal.replaySegment(AccountJournal.segmentPath(directory, segment), false, collector);
+                }
+            }
+
+            long count = write(previous, next, created, deltas);
+            deleteCovered(next);
+            log.info("Wrote snapshot of {} accounts covering journal segments below {} in {} ms", count, next,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            log.error("Snapshot failed, the journal is kept and replayed in full", e);
+        }
+    }
+
+    /**
+     * Resets the journal and deletes every snapshot. Runs under the snapshot lock so it never races a snapshot.
+     */
+    public synchronized void reset() {
+        journal.reset();
+        try {
+            for (int snapshot : listSnapshots(directory)) {
+                Files.delete(snapshotPath(directory, snapshot));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete snapshots in " + directory, e);
+        }
+    }
+
+    private long write(int previous, int next, Map<String, BigDecimal> created, Map<String, BigDecimal> deltas)
+            throws IOException {
+        Path target = snapshotPath(directory, next);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        long[] count = new long[1];
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+            buffer.position(HEADER_BYTES);
+            BiConsumer<String, BigDecimal> writer = (accountId, balance) -> {
+                BigDecimal delta = deltas.get(accountId);
+                writeRecord(channel, buffer, accountId, delta == null ? balance : balance.add(delta));
+                count[0]++;
+            };
+            if (!listSnapshots(directory).isEmpty()) {
+                read(snapshotPath(directory, previous), writer);
+            }
+            created.forEach(writer);
+            flush(channel, buffer);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(next).putLong(count[0]).flip();
+            channel.write(header, 0);
+            channel.force(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return count[0];
+    }
+
+    private static void writeRecord(FileChannel channel, ByteBuffer buffer, String accountId, BigDecimal balance) {
+        byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+        byte[] unscaled = balance.unscaledValue().toByteArray();
+        if (buffer.remaining() < 2 + id.length + 4 + 1 + unscaled.length) {
+            flush(channel, buffer);
+        }
+        AccountJournal.putString(buffer, id);
+        AccountJournal.putAmount(buffer, balance.scale(), unscaled);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    private static long read(Path snapshot, BiConsumer<String, BigDecimal> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + snapshot + " exceeds 2 GB and cannot be mapped in one piece");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.getInt() != MAGIC || mapped.getInt() != VERSION) {
+                throw new IOException("Not an account snapshot: " + snapshot);
+            }
+            mapped.getInt();
+            long count = mapped.getLong();
+            for (long i = 0; i < count; i++) {
+                consumer.accept(AccountJournal.getString(mapped), AccountJournal.getAmount(mapped));
+            }
+            return count;
+        }
+    }
+
+    private boolean hasRecords(int segment) {
+        try {
+            return Files.size(AccountJournal.segmentPath(directory, segment)) > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void deleteCovered(int next) throws IOException {
+        for (int segment : AccountJournal.listSegments(directory)) {
+            if (segment < next) {
+                Files.delete(AccountJournal.segmentPath(directory, segment));
+            }
+        }
+        for (int snapshot : listSnapshots(directory)) {
+            if (snapshot < next) {
+                Files.delete(snapshotPath(directory, snapshot));
+            }
+        }
+    }
+
+    static Path snapshotPath(Path directory, int nextSegment) {
+        return directory.resolve(String.format("%s%06d%s", SNAPSHOT_PREFIX, nextSegment, SNAPSHOT_SUFFIX));
+    }
+
+    static List<Integer> listSnapshots(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX))
+                    .map(name -> Integer.parseInt(
+                            name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
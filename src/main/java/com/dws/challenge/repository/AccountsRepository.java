@@ -3,11 +3,39 @@ package com.dws.challenge.repository;
 import com.dws.challenge.domain.Account;
 import com.dws.challenge.exception.DuplicateAccountIdException;
 
-public interface AccountsRepository {
+import java.util.function.Consumer;
+
+/**
+ * Store of the accounts. As a {@link TransferCommitListener} it is told about every balance change by the transfer
+ * engine, in commit order, which repositories that persist balances record.
+ */
+public interface AccountsRepository extends TransferCommitListener {
 
   void createAccount(Account account) throws DuplicateAccountIdException;
 
   Account getAccount(String accountId);
 
   void clearAccounts();
+
+  /**
+   * Hands every account to {@code action} without copying the repository. Accounts created or changed while the
+   * iteration runs may or may not be seen, and balances are read as the iteration reaches them.
+   */
+  void forEachAccount(Consumer<Account> action);
+
+  /**
+   * Parallel variant of {@link #forEachAccount(Consumer)} for scans over large repositories, with the same consistency.
+   * {@code action} is called from several threads at once and must be thread-safe.
+   */
+  default void forEachAccountParallel(Consumer<Account> action) {
+    forEachAccount(action);
+  }
+
+  /**
+   * Called after a change reported through {@link TransferCommitListener} has released its accounts and before it is
+   * acknowledged to the caller. Repositories that persist balances wait here until every change reported so far is
+   * durable; the in-memory repository returns at once.
+   */
+  default void awaitCommitted() {
+  }
 }
@@ -2,25 +2,80 @@ package com.dws.challenge.repository;
 
 import com.dws.challenge.domain.Account;
 import com.dws.challenge.exception.DuplicateAccountIdException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 @Repository
+@ConditionalOnProperty(name = "accounts.store", havingValue = "memory", matchIfMissing = true)
 public class AccountsRepositoryInMemory implements AccountsRepository {
 
-    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    /**
+     * Accounts per fork-join task when the map is scanned in parallel.
+     */
+    private static final long PARALLEL_SCAN_THRESHOLD = 4096;
+
+    private final ConcurrentHashMap<String, Account> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * Ids being created, so {@link #accountCreated(Account)} runs outside any map operation of {@link #accounts}: a
+     * slow hook, such as a journal append waiting for its fsync, must not hold a bin lock that lookups of other ids
+     * queue behind.
+     */
+    private final ConcurrentHashMap<String, Account> creating = new ConcurrentHashMap<>();
+
+    /**
+     * When not {@link Account#DECIMAL_BALANCE}, every created account is switched to a {@code long} balance of this
+     * many decimal places, see {@link Account#useMinorUnits(int)}.
+     */
+    private final int minorUnitScale;
+
+    public AccountsRepositoryInMemory() {
+        this(Account.DECIMAL_BALANCE);
+    }
+
+    @Autowired
+    public AccountsRepositoryInMemory(@Value("${accounts.balance.minor-unit-scale:-1}") int minorUnitScale) {
+        this.minorUnitScale = minorUnitScale;
+    }
 
     @Override
     public void createAccount(Account account) throws DuplicateAccountIdException {
-        Account previousAccount = accounts.putIfAbsent(account.getAccountId(), account);
-        if (previousAccount != null) {
-            throw new DuplicateAccountIdException(
-                    "Account id " + account.getAccountId() + " already exists!");
+        if (minorUnitScale != Account.DECIMAL_BALANCE && !account.isMinorUnits()) {
+            account.useMinorUnits(minorUnitScale);
+        }
+        String accountId = account.getAccountId();
+        if (accounts.containsKey(accountId) || creating.putIfAbsent(accountId, account) != null) {
+            throw duplicate(accountId);
+        }
+        try {
+            // Checked again: a create of the same id may have been published and released its reservation between
+            // the first check and ours.
+            if (accounts.containsKey(accountId)) {
+                throw duplicate(accountId);
+            }
+            accountCreated(account);
+            accounts.put(accountId, account);
+        } finally {
+            creating.remove(accountId);
         }
     }
 
+    private static DuplicateAccountIdException duplicate(String accountId) {
+        return new DuplicateAccountIdException("Account id " + accountId + " already exists!");
+    }
+
+    /**
+     * Hook for subclasses, invoked before a new account becomes visible to {@link #getAccount(String)}. Only one
+     * create per id runs it at a time, and no map lock is held meanwhile; an exception leaves the account unpublished.
+     */
+    protected void accountCreated(Account account) {
+    }
+
     @Override
     public Account getAccount(String accountId) {
         return accounts.get(accountId);
@@ -31,4 +86,14 @@ public class AccountsRepositoryInMemory implements AccountsRepository {
         accounts.clear();
     }
 
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        accounts.values().forEach(action);
+    }
+
+    @Override
+    public void forEachAccountParallel(Consumer<Account> action) {
+        accounts.forEachValue(PARALLEL_SCAN_THRESHOLD, action);
+    }
+
 }
@@ -0,0 +1,118 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Bounded read-through cache in front of another repository, for stores where {@link #getAccount(String)} is more
+ * than a map lookup. Accounts are kept until {@code maximumSize} is exceeded or {@code timeToLive} has passed since
+ * they were loaded; concurrent misses for the same id share one load. Unknown ids are not cached.
+ *
+ * <p>Creating or clearing accounts invalidates the affected entries. Transfers need no invalidation: they change the
+ * balance of the very instance the cache handed out, and the store records them through
+ * {@link #transferCommitted(Account, Account, BigDecimal)} as before. Scans go straight to the store.
+ */
+public class CachingAccountsRepository implements AccountsRepository {
+
+    private final AccountsRepository delegate;
+
+    private final long maximumSize;
+
+    private final Cache<String, Account> accounts;
+
+    public CachingAccountsRepository(AccountsRepository delegate, long maximumSize, Duration timeToLive) {
+        this(delegate, maximumSize, timeToLive, Ticker.systemTicker());
+    }
+
+    public CachingAccountsRepository(AccountsRepository delegate, long maximumSize, Duration timeToLive,
+            Ticker ticker) {
+        if (maximumSize <= 0 || timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("Account cache size and time to live must be positive");
+        }
+        this.delegate = delegate;
+        this.maximumSize = maximumSize;
+        this.accounts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    public AccountsRepository getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void createAccount(Account account) throws DuplicateAccountIdException {
+        try {
+            delegate.createAccount(account);
+        } finally {
+            accounts.invalidate(account.getAccountId());
+        }
+    }
+
+    @Override
+    public Account getAccount(String accountId) {
+        return accounts.get(accountId, delegate::getAccount);
+    }
+
+    @Override
+    public void clearAccounts() {
+        delegate.clearAccounts();
+        accounts.invalidateAll();
+    }
+
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        delegate.forEachAccount(action);
+    }
+
+    @Override
+    public void forEachAccountParallel(Consumer<Account> action) {
+        delegate.forEachAccountParallel(action);
+    }
+
+    @Override
+    public void transferCommitted(Account accountFrom, Account accountTo, BigDecimal amount) {
+        delegate.transferCommitted(accountFrom, accountTo, amount);
+    }
+
+    @Override
+    public void transferCommittedMinorUnits(Account accountFrom, Account accountTo, long amount) {
+        delegate.transferCommittedMinorUnits(accountFrom, accountTo, amount);
+    }
+
+    @Override
+    public void balanceAdjusted(Account account, BigDecimal amount) {
+        delegate.balanceAdjusted(account, amount);
+    }
+
+    @Override
+    public void awaitCommitted() {
+        delegate.awaitCommitted();
+    }
+
+    public Map<String, Object> snapshot() {
+        CacheStats stats = accounts.stats();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("size", accounts.estimatedSize());
+        snapshot.put("maximumSize", maximumSize);
+        snapshot.put("hits", stats.hitCount());
+        snapshot.put("misses", stats.missCount());
+        snapshot.put("hitRate", stats.hitRate());
+        snapshot.put("evictions", stats.evictionCount());
+        snapshot.put("loadMicros", stats.averageLoadPenalty() / 1_000);
+        return snapshot;
+    }
+}
@@ -0,0 +1,200 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.exception.UnsupportedCurrencyException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory repository made durable by an {@link AccountJournal}. Creations are journaled before the account becomes
+ * visible, and transfers and adjustments by the transfer engine while it still holds their accounts, so the journal
+ * order is the commit order: a record spending funds always follows the record that provided them, and any prefix of
+ * the journal replays to balances that existed. On startup the latest snapshot is loaded and only the journal
+ * segments written after it are replayed; a background {@link AccountSnapshotter} periodically folds sealed segments
+ * into a new snapshot.
+ *
+ * <p>With {@code awaitDurable} set, a create or transfer only returns once its record, and with it every earlier one,
+ * has been forced to disk by the journal's group commit; the wait happens in {@link #awaitCommitted()}, after the
+ * engine has released the accounts.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "accounts.store", havingValue = "journal")
+public class JournaledAccountsRepository extends AccountsRepositoryInMemory {
+
+    private final AccountJournal journal;
+
+    private final boolean awaitDurable;
+
+    private final AccountSnapshotter snapshotter;
+
+    private final ScheduledExecutorService snapshotScheduler;
+
+    @Autowired
+    public JournaledAccountsRepository(@Value("${accounts.journal.directory:data/journal}") String directory,
+            @Value("${accounts.journal.segment-bytes:268435456}") long segmentBytes,
+            @Value("${accounts.journal.fsync-batch-size:256}") int fsyncBatchSize,
+            @Value("${accounts.journal.fsync-interval-ms:2}") long fsyncIntervalMillis,
+            @Value("${accounts.journal.await-durable:true}") boolean awaitDurable,
+            @Value("${accounts.snapshot.interval-ms:60000}") long snapshotIntervalMillis,
+            @Value("${accounts.balance.minor-unit-scale:-1}") int minorUnitScale) throws IOException {
+        this(Paths.get(directory), segmentBytes, fsyncBatchSize, fsyncIntervalMillis, awaitDurable,
+                snapshotIntervalMillis, minorUnitScale);
+    }
+
+    /**
+     * @param snapshotIntervalMillis delay between background snapshots, 0 to only snapshot via {@link #snapshot()}
+     */
+    public JournaledAccountsRepository(Path directory, long segmentBytes, int fsyncBatchSize,
+            long fsyncIntervalMillis, boolean awaitDurable, long snapshotIntervalMillis, int minorUnitScale)
+            throws IOException {
+        super(minorUnitScale);
+        this.awaitDurable = awaitDurable;
+        long start = System.nanoTime();
+        // journal is still null while recovering, so accountCreated does not write the records back.
+        long fromSnapshot = AccountSnapshotter.load(directory,
+                (accountId, balance) -> createAccount(new Account(accountId, balance)));
+        long snapshotMillis = (System.nanoTime() - start) / 1_000_000;
+        this.journal = AccountJournal.open(directory, AccountSnapshotter.latestSnapshotSegment(directory),
+                segmentBytes, fsyncBatchSize, fsyncIntervalMillis, new ReplayVisitor());
+        log.info("Recovered accounts from {} in {} ms: {} accounts from snapshot in {} ms, then journal tail replayed",
+                directory, (System.nanoTime() - start) / 1_000_000, fromSnapshot, snapshotMillis);
+
+        this.snapshotter = new AccountSnapshotter(directory, journal);
+        if (snapshotIntervalMillis > 0) {
+            this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "account-snapshotter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotScheduler.scheduleWithFixedDelay(snapshotter::snapshot, snapshotIntervalMillis,
+                    snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.snapshotScheduler = null;
+        }
+    }
+
+    /**
+     * Writes a snapshot now instead of waiting for the next scheduled one.
+     */
+    public void snapshot() {
+        snapshotter.snapshot();
+    }
+
+    /**
+     * Journal records and snapshots carry no currency, so only accounts in the base currency can be made durable, and
+     * their ids must fit the records' length prefix.
+     */
+    @Override
+    public void createAccount(Account account) throws DuplicateAccountIdException {
+        if (account.getAccountId().getBytes(StandardCharsets.UTF_8).length > AccountJournal.MAX_ID_BYTES) {
+            throw new IllegalArgumentException("Account id longer than " + AccountJournal.MAX_ID_BYTES + " bytes");
+        }
+        if (account.getCurrency() != null) {
+            throw new UnsupportedCurrencyException("The journaled store only holds accounts in the base currency");
+        }
+        super.createAccount(account);
+    }
+
+    @Override
+    protected void accountCreated(Account account) {
+        if (journal == null) {
+            return;
+        }
+        long seq = journal.appendCreate(account.getAccountId(), account.getBalance());
+        if (awaitDurable) {
+            journal.awaitDurable(seq);
+        }
+    }
+
+    @Override
+    public void transferCommitted(Account accountFrom, Account accountTo, BigDecimal amount) {
+        journal.appendTransfer(accountFrom.getAccountId(), accountTo.getAccountId(), amount);
+    }
+
+    @Override
+    public void transferCommittedMinorUnits(Account accountFrom, Account accountTo, long amount) {
+        journal.appendTransfer(accountFrom.getAccountId(), accountTo.getAccountId(), amount,
+                accountFrom.getMinorUnitScale());
+    }
+
+    @Override
+    public void balanceAdjusted(Account account, BigDecimal amount) {
+        journal.appendAdjustment(account.getAccountId(), amount);
+    }
+
+    @Override
+    public void awaitCommitted() {
+        if (awaitDurable) {
+            journal.awaitDurable();
+        }
+    }
+
+    @Override
+    public void clearAccounts() {
+        super.clearAccounts();
+        snapshotter.reset();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdown();
+            try {
+                snapshotScheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close account journal", e);
+        }
+    }
+
+    private final class ReplayVisitor implements AccountJournal.Visitor {
+
+        @Override
+        public void accountCreated(String accountId, BigDecimal balance) {
+            createAccount(new Account(accountId, balance));
+        }
+
+        @Override
+        public void transferCommitted(String accountFromId, String accountToId, BigDecimal amount) {
+            Account accountFrom = getAccount(accountFromId);
+            Account accountTo = getAccount(accountToId);
+            if (accountFrom == null || accountTo == null) {
+                log.warn("Skipping journaled transfer between unknown accounts {} and {}", accountFromId, accountToId);
+                return;
+            }
+            accountFrom.setBalance(accountFrom.getBalance().subtract(amount));
+            accountTo.setBalance(accountTo.getBalance().add(amount));
+        }
+
+        @Override
+        public void balanceAdjusted(String accountId, BigDecimal amount) {
+            Account account = getAccount(accountId);
+            if (account == null) {
+                log.warn("Skipping journaled adjustment of unknown account {}", accountId);
+                return;
+            }
+            account.setBalance(account.getBalance().add(amount));
+        }
+    }
+}
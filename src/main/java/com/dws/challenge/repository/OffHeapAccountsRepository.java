@@ -0,0 +1,365 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.exception.UnsupportedCurrencyException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Account store for tens of millions of accounts that keeps ids and balances outside the Java heap, in an
+ * open-addressing hash table of fixed-size slots backed by direct {@link ByteBuffer}s.
+ *
+ * <p>Each slot holds {@code [long idRef][long balance][long version][int hash][int idLength]}; the UTF-8 id bytes live in an
+ * append-only arena of direct buffers that {@code idRef} points into. Balances are fixed-scale minor units, see
+ * {@link Account#useMinorUnits(int)}. Inserts are serialized by a lock and publish a slot by writing {@code idRef}
+ * last with release semantics, so lookups never lock. {@link #getAccount(String)} materializes a small
+ * {@link Account} view whose balance reads and writes go straight to the slot; transfer engines that lock by account
+ * id (the striped engine) therefore work unchanged, while the monitor engine, which locks on the id String instance,
+ * must not be combined with this store.
+ *
+ * <p>The table does not grow: {@code capacity} accounts are reserved up front at a load factor of at most 0.5.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "accounts.store", havingValue = "offheap")
+public class OffHeapAccountsRepository implements AccountsRepository {
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.nativeOrder());
+
+    private static final int SLOT_BYTES = 32;
+
+    private static final int ID_REF = 0;
+
+    private static final int BALANCE = 8;
+
+    private static final int VERSION = 16;
+
+    private static final int HASH = 24;
+
+    private static final int ID_LENGTH = 28;
+
+    private static final int SLOTS_PER_CHUNK_SHIFT = 20;
+
+    private static final int SLOTS_PER_CHUNK = 1 << SLOTS_PER_CHUNK_SHIFT;
+
+    private static final int ARENA_CHUNK_BYTES = 64 << 20;
+
+    private static final int MAX_ARENA_CHUNKS = 4096;
+
+    private static final int MAX_ID_BYTES = Short.MAX_VALUE;
+
+    private final int minorUnitScale;
+
+    private final long capacity;
+
+    private final long slotCount;
+
+    private final long slotMask;
+
+    private final ByteBuffer[] table;
+
+    /**
+     * Id arena chunks; entries are written before the slots referring to them are published.
+     */
+    private final ByteBuffer[] arena = new ByteBuffer[MAX_ARENA_CHUNKS];
+
+    private int arenaChunks;
+
+    private final ReentrantLock insertLock = new ReentrantLock();
+
+    private long size;
+
+    @Autowired
+    public OffHeapAccountsRepository(@Value("${accounts.offheap.capacity:1000000}") long capacity,
+            @Value("${accounts.balance.minor-unit-scale:-1}") int minorUnitScale) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Off-heap capacity must be positive: " + capacity);
+        }
+        if (minorUnitScale == Account.DECIMAL_BALANCE) {
+            log.info("Off-heap account store keeps minor units, using 2 decimal places");
+            minorUnitScale = 2;
+        }
+        this.minorUnitScale = minorUnitScale;
+        this.capacity = capacity;
+        long slots = Long.highestOneBit(capacity * 2 - 1) << 1;
+        this.slotCount = Math.max(slots, SLOTS_PER_CHUNK);
+        this.slotMask = slotCount - 1;
+        this.table = new ByteBuffer[(int) (slotCount >>> SLOTS_PER_CHUNK_SHIFT)];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = ByteBuffer.allocateDirect(SLOTS_PER_CHUNK * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        }
+        arena[0] = ByteBuffer.allocateDirect(ARENA_CHUNK_BYTES);
+        arenaChunks = 1;
+    }
+
+    @Override
+    public void createAccount(Account account) throws DuplicateAccountIdException {
+        String accountId = account.getAccountId();
+        byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_ID_BYTES) {
+            throw new IllegalArgumentException("Account id longer than " + MAX_ID_BYTES + " bytes");
+        }
+        if (account.getCurrency() != null) {
+            throw new UnsupportedCurrencyException("The off-heap store only holds accounts in the base currency");
+        }
+        long balance = account.isMinorUnits() && account.getMinorUnitScale() == minorUnitScale
+                ? account.getMinorBalance() : Account.toMinorUnits(account.getBalance(), minorUnitScale);
+        int hash = hash(accountId);
+
+        insertLock.lock();
+        try {
+            long slot = hash & slotMask;
+            while (true) {
+                ByteBuffer chunk = chunk(slot);
+                int offset = offset(slot);
+                long idRef = (long) LONGS.getAcquire(chunk, offset + ID_REF);
+                if (idRef == 0) {
+                    if (size >= capacity) {
+                        throw new IllegalStateException("Off-heap account store is full (" + capacity + " accounts)");
+                    }
+                    long ref = storeId(id);
+                    LONGS.setVolatile(chunk, offset + BALANCE, balance);
+                    LONGS.setVolatile(chunk, offset + VERSION, 0L);
+                    chunk.putInt(offset + HASH, hash);
+                    chunk.putInt(offset + ID_LENGTH, id.length);
+                    LONGS.setRelease(chunk, offset + ID_REF, ref);
+                    size++;
+                    return;
+                }
+                if (chunk.getInt(offset + HASH) == hash && idMatches(chunk, offset, idRef, accountId)) {
+                    throw new DuplicateAccountIdException("Account id " + accountId + " already exists!");
+                }
+                slot = (slot + 1) & slotMask;
+            }
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    @Override
+    public Account getAccount(String accountId) {
+        long slot = find(accountId);
+        return slot < 0 ? null : new OffHeapAccount(accountId, minorUnitScale, chunk(slot), offset(slot));
+    }
+
+    @Override
+    public void clearAccounts() {
+        insertLock.lock();
+        try {
+            for (ByteBuffer chunk : table) {
+                for (int offset = 0; offset < chunk.capacity(); offset += SLOT_BYTES) {
+                    LONGS.setRelease(chunk, offset + ID_REF, 0L);
+                }
+            }
+            for (int i = 1; i < arenaChunks; i++) {
+                arena[i] = null;
+            }
+            arena[0].clear();
+            arenaChunks = 1;
+            size = 0;
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    /**
+     * Scans the table; every account found is materialized as a view with its id decoded from the arena.
+     */
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        for (ByteBuffer chunk : table) {
+            forEachAccount(chunk, action);
+        }
+    }
+
+    /**
+     * Scans the table chunks in parallel on the common fork-join pool.
+     */
+    @Override
+    public void forEachAccountParallel(Consumer<Account> action) {
+        Arrays.stream(table).parallel().forEach(chunk -> forEachAccount(chunk, action));
+    }
+
+    private void forEachAccount(ByteBuffer chunk, Consumer<Account> action) {
+        for (int offset = 0; offset < chunk.capacity(); offset += SLOT_BYTES) {
+            long idRef = (long) LONGS.getAcquire(chunk, offset + ID_REF);
+            if (idRef != 0) {
+                action.accept(new OffHeapAccount(readId(chunk, offset, idRef), minorUnitScale, chunk, offset));
+            }
+        }
+    }
+
+    public long size() {
+        insertLock.lock();
+        try {
+            return size;
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    /**
+     * Direct memory reserved by the table and the id arena.
+     */
+    public long getOffHeapBytes() {
+        insertLock.lock();
+        try {
+            return (long) table.length * SLOTS_PER_CHUNK * SLOT_BYTES + (long) arenaChunks * ARENA_CHUNK_BYTES;
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    private long find(String accountId) {
+        int hash = hash(accountId);
+        long slot = hash & slotMask;
+        while (true) {
+            ByteBuffer chunk = chunk(slot);
+            int offset = offset(slot);
+            long idRef = (long) LONGS.getAcquire(chunk, offset + ID_REF);
+            if (idRef == 0) {
+                return -1;
+            }
+            if (chunk.getInt(offset + HASH) == hash && idMatches(chunk, offset, idRef, accountId)) {
+                return slot;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    /**
+     * Compares the stored UTF-8 id with {@code accountId} without allocating when the id is ASCII.
+     */
+    private boolean idMatches(ByteBuffer chunk, int offset, long idRef, String accountId) {
+        int length = chunk.getInt(offset + ID_LENGTH);
+        ByteBuffer ids = arena[(int) ((idRef - 1) >>> 32)];
+        int position = (int) (idRef - 1);
+        boolean ascii = true;
+        for (int i = 0; i < accountId.length() && ascii; i++) {
+            ascii = accountId.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            if (length != accountId.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (ids.get(position + i) != (byte) accountId.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        byte[] expected = accountId.getBytes(StandardCharsets.UTF_8);
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (ids.get(position + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readId(ByteBuffer chunk, int offset, long idRef) {
+        byte[] id = new byte[chunk.getInt(offset + ID_LENGTH)];
+        ByteBuffer ids = arena[(int) ((idRef - 1) >>> 32)];
+        int position = (int) (idRef - 1);
+        for (int i = 0; i < id.length; i++) {
+            id[i] = ids.get(position + i);
+        }
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends the id bytes to the arena; called under the insert lock.
+     *
+     * @return reference to the id: arena chunk in the upper 32 bits, offset in the lower, plus one so 0 means empty
+     */
+    private long storeId(byte[] id) {
+        ByteBuffer current = arena[arenaChunks - 1];
+        if (current.remaining() < id.length) {
+            if (arenaChunks == MAX_ARENA_CHUNKS) {
+                throw new IllegalStateException("Off-heap id arena is full");
+            }
+            current = ByteBuffer.allocateDirect(ARENA_CHUNK_BYTES);
+            arena[arenaChunks++] = current;
+        }
+        int position = current.position();
+        current.put(id);
+        return (((long) (arenaChunks - 1)) << 32 | position) + 1;
+    }
+
+    private ByteBuffer chunk(long slot) {
+        return table[(int) (slot >>> SLOTS_PER_CHUNK_SHIFT)];
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot & (SLOTS_PER_CHUNK - 1)) * SLOT_BYTES;
+    }
+
+    private static int hash(String accountId) {
+        int h = accountId.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * View of one slot. The id is the caller's String; the balance and its version are never copied onto the heap.
+     */
+    private static final class OffHeapAccount extends Account {
+
+        private final ByteBuffer chunk;
+
+        private final int offset;
+
+        private OffHeapAccount(String accountId, int minorUnitScale, ByteBuffer chunk, int offset) {
+            super(accountId, minorUnitScale);
+            this.chunk = chunk;
+            this.offset = offset;
+        }
+
+        @Override
+        public long getMinorBalance() {
+            return (long) LONGS.getVolatile(chunk, offset + BALANCE);
+        }
+
+        @Override
+        public void setMinorBalance(long minorBalance) {
+            LONGS.setVolatile(chunk, offset + BALANCE, minorBalance);
+        }
+
+        @Override
+        public long getVersion() {
+            return (long) LONGS.getVolatile(chunk, offset + VERSION);
+        }
+
+        @Override
+        public void beginUpdate() {
+            LONGS.setVolatile(chunk, offset + VERSION, getVersion() + 1);
+        }
+
+        @Override
+        public void endUpdate() {
+            LONGS.setVolatile(chunk, offset + VERSION, getVersion() + 1);
+        }
+
+        @Override
+        public boolean tryBeginUpdate(long expectedVersion) {
+            return LONGS.compareAndSet(chunk, offset + VERSION, expectedVersion, expectedVersion + 1);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.domain.Account;
+
+import java.math.BigDecimal;
+
+/**
+ * Told about every balance change by the {@link com.dws.challenge.service.TransferEngine} while the engine still holds
+ * the changed accounts, so changes arrive in the order in which they became visible: a transfer spending funds is
+ * always reported after the one that provided them. Implementations must not wait for I/O here, as the accounts stay
+ * held until they return; see {@link AccountsRepository#awaitCommitted()} for that.
+ */
+public interface TransferCommitListener {
+
+  TransferCommitListener NONE = new TransferCommitListener() {
+  };
+
+  /**
+   * Called once {@code amount} has moved from {@code accountFrom} to {@code accountTo}.
+   */
+  default void transferCommitted(Account accountFrom, Account accountTo, BigDecimal amount) {
+  }
+
+  /**
+   * Minor units variant of {@link #transferCommitted(Account, Account, BigDecimal)}; {@code amount} is expressed at
+   * the accounts' scale.
+   */
+  default void transferCommittedMinorUnits(Account accountFrom, Account accountTo, long amount) {
+  }
+
+  /**
+   * Called once {@code amount} has been added to a single account, or taken out of it if negative, with the other
+   * side of the movement elsewhere, such as one half of a transfer with another node.
+   */
+  default void balanceAdjusted(Account account, BigDecimal amount) {
+  }
+}
@@ -0,0 +1,180 @@
+package com.dws.challenge.service;
+
+import java.math.BigDecimal;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.InsufficientFundsException;
+import com.dws.challenge.repository.TransferCommitListener;
+
+/**
+ * Holds the balance mutation shared by all {@link TransferEngine} implementations. Subclasses only decide how the
+ * accounts are guarded while {@link #applyTransfer(Account, Account, BigDecimal)} runs. Every balance change is
+ * bracketed by {@link Account#beginUpdate()} and {@link Account#endUpdate()} so lock-free readers can detect it, and
+ * reported to the commit listener before the accounts are given up.
+ */
+public abstract class AbstractTransferEngine implements TransferEngine {
+
+	static final String INSUFFICIENT_FUNDS_MESSAGE = "Not enough balance in your account";
+
+	protected TransferCommitListener commitListener = TransferCommitListener.NONE;
+
+	@Override
+	public void setCommitListener(TransferCommitListener listener) {
+		this.commitListener = listener;
+	}
+
+	/**
+	 * Must be called while the caller exclusively owns both accounts.
+	 */
+	protected void applyTransfer(Account accountFrom, Account accountTo, BigDecimal amount) {
+		if (accountFrom.isMinorUnits() && accountTo.isMinorUnits()
+				&& accountFrom.getMinorUnitScale() == accountTo.getMinorUnitScale()) {
+			applyTransfer(accountFrom, accountTo, Account.toMinorUnits(amount, accountFrom.getMinorUnitScale()));
+			return;
+		}
+		if (accountFrom.getBalance().compareTo(amount) <= 0) {
+			throw new InsufficientFundsException(INSUFFICIENT_FUNDS_MESSAGE);
+		}
+		// By id: stores such as the off-heap one hand out a new view of the same slot on every lookup.
+		if (isSameAccount(accountFrom, accountTo)) {
+			return;
+		}
+		accountFrom.beginUpdate();
+		accountTo.beginUpdate();
+		accountFrom.setBalance(accountFrom.getSettledBalance().subtract(amount));
+		accountTo.setBalance(accountTo.getSettledBalance().add(amount));
+		accountFrom.endUpdate();
+		accountTo.endUpdate();
+		commitListener.transferCommitted(accountFrom, accountTo, amount);
+	}
+
+	/**
+	 * Minor units variant of {@link #applyTransfer(Account, Account, BigDecimal)}; must not allocate on success.
+	 */
+	protected void applyTransfer(Account accountFrom, Account accountTo, long amount) {
+		if (!accountFrom.isMinorUnits() || accountFrom.getMinorUnitScale() != accountTo.getMinorUnitScale()) {
+			throw new IllegalStateException("Both accounts must hold minor units of the same scale");
+		}
+		long fromBalance = accountFrom.getMinorBalance();
+		if (fromBalance <= amount) {
+			throw new InsufficientFundsException(INSUFFICIENT_FUNDS_MESSAGE);
+		}
+		if (isSameAccount(accountFrom, accountTo)) {
+			return;
+		}
+		long toBalance = Math.addExact(accountTo.getMinorBalance(), amount);
+		accountFrom.beginUpdate();
+		accountTo.beginUpdate();
+		accountFrom.setMinorBalance(fromBalance - amount);
+		accountTo.setMinorBalance(toBalance);
+		accountFrom.endUpdate();
+		accountTo.endUpdate();
+		commitListener.transferCommittedMinorUnits(accountFrom, accountTo, amount);
+	}
+
+	static boolean isSameAccount(Account accountFrom, Account accountTo) {
+		return accountFrom == accountTo || accountFrom.getAccountId().equals(accountTo.getAccountId());
+	}
+
+	static void requireDistinct(Account accountFrom, Account accountTo) {
+		if (isSameAccount(accountFrom, accountTo)) {
+			throw new IllegalArgumentException("A converted transfer needs two distinct accounts");
+		}
+	}
+
+	/**
+	 * Converted transfer, see {@link TransferEngine#transferConverted}. Must be called while the caller exclusively owns
+	 * both accounts.
+	 */
+	protected void applyConvertedTransfer(Account accountFrom, Account accountTo, BigDecimal debited,
+			BigDecimal credited) {
+		requireDistinct(accountFrom, accountTo);
+		debit(accountFrom, debited);
+		try {
+			credit(accountTo, credited);
+		} catch (RuntimeException e) {
+			credit(accountFrom, debited);
+			throw e;
+		}
+		commitListener.balanceAdjusted(accountFrom, debited.negate());
+		commitListener.balanceAdjusted(accountTo, credited);
+	}
+
+	/**
+	 * Withdrawal from a single account, reported to the commit listener as an adjustment. Must be called while the
+	 * caller exclusively owns the account.
+	 */
+	protected void applyWithdrawal(Account account, BigDecimal amount) {
+		debit(account, amount);
+		commitListener.balanceAdjusted(account, amount.negate());
+	}
+
+	/**
+	 * Deposit into a single account, see {@link #applyWithdrawal(Account, BigDecimal)}.
+	 */
+	protected void applyDeposit(Account account, BigDecimal amount) {
+		credit(account, amount);
+		commitListener.balanceAdjusted(account, amount);
+	}
+
+	/**
+	 * First half of a transfer split across two owners: checks the funds of {@code account} and takes {@code amount}
+	 * out of it. Must be called while the caller exclusively owns the account.
+	 */
+	protected void debit(Account account, BigDecimal amount) {
+		if (account.isMinorUnits()) {
+			debit(account, Account.toMinorUnits(amount, account.getMinorUnitScale()));
+			return;
+		}
+		if (account.getBalance().compareTo(amount) <= 0) {
+			throw new InsufficientFundsException(INSUFFICIENT_FUNDS_MESSAGE);
+		}
+		account.beginUpdate();
+		account.setBalance(account.getSettledBalance().subtract(amount));
+		account.endUpdate();
+	}
+
+	protected void debit(Account account, long amount) {
+		long balance = account.getMinorBalance();
+		if (balance <= amount) {
+			throw new InsufficientFundsException(INSUFFICIENT_FUNDS_MESSAGE);
+		}
+		account.beginUpdate();
+		account.setMinorBalance(balance - amount);
+		account.endUpdate();
+	}
+
+	/**
+	 * Second half of a split transfer, see {@link #debit(Account, BigDecimal)}.
+	 */
+	protected void credit(Account account, BigDecimal amount) {
+		if (account.isMinorUnits()) {
+			credit(account, Account.toMinorUnits(amount, account.getMinorUnitScale()));
+			return;
+		}
+		account.beginUpdate();
+		account.setBalance(account.getSettledBalance().add(amount));
+		account.endUpdate();
+	}
+
+	protected void credit(Account account, long amount) {
+		long balance = Math.addExact(account.getMinorBalance(), amount);
+		account.beginUpdate();
+		account.setMinorBalance(balance);
+		account.endUpdate();
+	}
+
+	/**
+	 * Batch variant of {@link #applyTransfer(Account, Account, BigDecimal)} recording the outcome on the item instead
+	 * of throwing.
+	 */
+	protected void applyTransfer(BatchTransfer transfer) {
+		try {
+			applyTransfer(transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getAmount());
+			transfer.setStatus(TransferStatus.COMPLETED);
+		} catch (InsufficientFundsException e) {
+			transfer.setStatus(TransferStatus.INSUFFICIENT_FUNDS);
+		}
+	}
+}
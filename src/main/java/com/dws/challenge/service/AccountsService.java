@@ -1,12 +1,30 @@
 package com.dws.challenge.service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.LockSupport;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountBalance;
+import com.dws.challenge.domain.BalanceSnapshot;
+import com.dws.challenge.domain.ExchangeRates;
+import com.dws.challenge.domain.TransferRequest;
+import com.dws.challenge.domain.TransferResult;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.DuplicateAccountIdException;
 import com.dws.challenge.exception.InsufficientFundsException;
+import com.dws.challenge.exception.InvalidAmountException;
+import com.dws.challenge.exception.SameAccountTransferException;
+import com.dws.challenge.exception.UnsupportedCurrencyException;
 import com.dws.challenge.repository.AccountsRepository;
 
 import lombok.Getter;
@@ -20,6 +38,8 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class AccountsService {
 
+	private static final int OPTIMISTIC_READ_ATTEMPTS = 64;
+
 	@Getter
 	private final AccountsRepository accountsRepository;
 
@@ -27,56 +47,409 @@ public class AccountsService {
 	@Getter
 	private final NotificationService notificationService;
 
+	@Getter
+	private final TransferEngine transferEngine;
+
+	@Getter
+	private final TransferMetrics transferMetrics;
+
+	@Getter
+	private final TransactionLedger transactionLedger;
+
+	@Getter
+	private final BalanceAuditor balanceAuditor;
+
+	@Getter
+	private final HotAccountDetector hotAccountDetector;
+
+	@Getter
+	private final ExchangeRateService exchangeRateService;
+
+	private final int batchLockChunkSize;
+
+	public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService,
+			TransferEngine transferEngine, int batchLockChunkSize) {
+		this(accountsRepository, notificationService, transferEngine, batchLockChunkSize, TransferMetrics.disabled());
+	}
+
+	public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService,
+			TransferEngine transferEngine, int batchLockChunkSize, TransferMetrics transferMetrics) {
+		this(accountsRepository, notificationService, transferEngine, batchLockChunkSize, transferMetrics,
+				TransactionLedger.disabled());
+	}
+
+	public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService,
+			TransferEngine transferEngine, int batchLockChunkSize, TransferMetrics transferMetrics,
+			TransactionLedger transactionLedger) {
+		this(accountsRepository, notificationService, transferEngine, batchLockChunkSize, transferMetrics,
+				transactionLedger, BalanceAuditor.manual(accountsRepository));
+	}
+
+	public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService,
+			TransferEngine transferEngine, int batchLockChunkSize, TransferMetrics transferMetrics,
+			TransactionLedger transactionLedger, BalanceAuditor balanceAuditor) {
+		this(accountsRepository, notificationService, transferEngine, batchLockChunkSize, transferMetrics,
+				transactionLedger, balanceAuditor, HotAccountDetector.disabled());
+	}
+
+	public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService,
+			TransferEngine transferEngine, int batchLockChunkSize, TransferMetrics transferMetrics,
+			TransactionLedger transactionLedger, BalanceAuditor balanceAuditor, HotAccountDetector hotAccountDetector) {
+		this(accountsRepository, notificationService, transferEngine, batchLockChunkSize, transferMetrics,
+				transactionLedger, balanceAuditor, hotAccountDetector, ExchangeRateService.disabled());
+	}
+
 	@Autowired
-	public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService) {
+	public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService,
+			TransferEngine transferEngine, @Value("${transfer.batch.lock-chunk-size:256}") int batchLockChunkSize,
+			TransferMetrics transferMetrics, TransactionLedger transactionLedger, BalanceAuditor balanceAuditor,
+			HotAccountDetector hotAccountDetector, ExchangeRateService exchangeRateService) {
 		this.accountsRepository = accountsRepository;
 		this.notificationService = notificationService;
+		this.transferEngine = transferEngine;
+		this.batchLockChunkSize = batchLockChunkSize;
+		this.transferMetrics = transferMetrics;
+		this.transactionLedger = transactionLedger;
+		this.balanceAuditor = balanceAuditor;
+		this.hotAccountDetector = hotAccountDetector;
+		this.exchangeRateService = exchangeRateService;
+		transferEngine.setCommitListener(accountsRepository);
 	}
 
 	public void createAccount(Account account) {
-		this.accountsRepository.createAccount(account);
+		if (account.getCurrency() != null) {
+			ExchangeRates.requireCurrency(account.getCurrency());
+		}
+		try {
+			balanceAuditor.createAccount(account.getAccountId(), account.getBalance(),
+					() -> this.accountsRepository.createAccount(account));
+		} catch (DuplicateAccountIdException e) {
+			transferMetrics.recordDuplicateCreate();
+			throw e;
+		}
+		transferMetrics.recordAccountCreated();
 	}
 
 	public Account getAccount(String accountId) {
-		return this.accountsRepository.getAccount(accountId);
+		long start = transferMetrics.start();
+		Account account = this.accountsRepository.getAccount(accountId);
+		transferMetrics.recordLookup(start, account != null);
+		return account;
 	}
 
-	//Method for amount transfer between two accounts.
+	//Immutable copy of the current balance; reading a single balance never needs a lock.
+	public AccountBalance getBalance(String accountId) {
+		Account account = getAccount(accountId);
+		return account == null ? null : new AccountBalance(account.getAccountId(), account.getBalance(),
+				account.getCurrency());
+	}
+
+	//Point-in-time view of several balances without taking transfer locks: the versions and balances of all accounts
+	//are collected twice and the result is accepted once no account was mid-update or changed in between. After
+	//OPTIMISTIC_READ_ATTEMPTS failures the engine is asked to hold off writers; engines that cannot do so keep the
+	//reader retrying with growing pauses. With the sharded engine an amount in flight between shards is in neither
+	//account. With transfer.hot-accounts.enabled a striped credit to a hot account does not change its version, so a
+	//transfer to it may show up as only its debit; the detector is off by default to keep this view exact.
+	public BalanceSnapshot getBalances(List<String> accountIds) {
+		List<Account> accounts = new ArrayList<>(accountIds.size());
+		List<String> missing = new ArrayList<>();
+		for (String accountId : accountIds) {
+			Account account = getAccount(accountId);
+			if (account == null) {
+				missing.add(accountId);
+			} else {
+				accounts.add(account);
+			}
+		}
+
+		long[] versions = new long[accounts.size()];
+		BigDecimal[] balances = new BigDecimal[accounts.size()];
+		for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+			if (collect(accounts, versions, balances)) {
+				return snapshot(accounts, balances, missing);
+			}
+			Thread.onSpinWait();
+		}
+		Optional<BalanceSnapshot> locked = transferEngine.readExclusively(accounts, () -> {
+			for (int i = 0; i < accounts.size(); i++) {
+				balances[i] = accounts.get(i).getBalance();
+			}
+			return snapshot(accounts, balances, missing);
+		});
+		if (locked.isPresent()) {
+			return locked.get();
+		}
+		long pauseNanos = 1_000;
+		while (!collect(accounts, versions, balances)) {
+			LockSupport.parkNanos(pauseNanos);
+			pauseNanos = Math.min(pauseNanos * 2, 1_000_000);
+		}
+		return snapshot(accounts, balances, missing);
+	}
+
+	private static boolean collect(List<Account> accounts, long[] versions, BigDecimal[] balances) {
+		for (int i = 0; i < versions.length; i++) {
+			Account account = accounts.get(i);
+			long version = account.getVersion();
+			if ((version & 1) != 0) {
+				return false;
+			}
+			versions[i] = version;
+			balances[i] = account.getBalance();
+		}
+		for (int i = 0; i < versions.length; i++) {
+			if (accounts.get(i).getVersion() != versions[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static BalanceSnapshot snapshot(List<Account> accounts, BigDecimal[] balances, List<String> missing) {
+		List<AccountBalance> result = new ArrayList<>(balances.length);
+		for (int i = 0; i < balances.length; i++) {
+			Account account = accounts.get(i);
+			result.add(new AccountBalance(account.getAccountId(), balances[i], account.getCurrency()));
+		}
+		return new BalanceSnapshot(result, missing);
+	}
+
+	//Method for amount transfer between two accounts. Locking and the balance check are delegated to the
+	//configured TransferEngine, which reports the transfer to the repository while it still holds the accounts; the
+	//ledger and the owners are told once the repository has made it durable.
+	//Between accounts in minor units of one scale the amount is converted here, once, and the transfer takes the
+	//allocation-free transferMinorUnits path.
 	public void transfer(Account accountFrom, Account accountTo ,BigDecimal amount) {
-		
-		String minId = null;
-		String maxId = null;
-		
-		if(accountFrom.getAccountId().compareTo(accountTo.getAccountId())<0) {
-			minId = accountFrom.getAccountId();
-			maxId = accountTo.getAccountId();
-		}
-		
-		if(accountFrom.getAccountId().compareTo(accountTo.getAccountId())>0) {
-			minId = accountTo.getAccountId();
-			maxId = accountFrom.getAccountId();
-		}
-		
-		//Using synchronization on minimum and maximum ids so that a deadlock never occurs in a situation like:
-		//transfer from Account A to B and Account B to A in parallel execution.
-		
-		if(accountFrom.getBalance().compareTo(amount)>0) {
-			synchronized (minId) {
-				log.info("thread {} begins: inside fromAccount {}:" , Thread.currentThread().getName() ,minId);
-				synchronized (maxId) {
-					log.info("thread {} inside toAccount {}:" ,Thread.currentThread().getName(), maxId);
-					accountFrom.setBalance(accountFrom.getBalance().subtract(amount));
-					accountTo.setBalance(accountTo.getBalance().add(amount));
-					notificationService.notifyAboutTransfer(accountFrom, "Money deducted from your account:" + amount);
-					notificationService.notifyAboutTransfer(accountTo, "Money deposited in your account:" + amount);
-					log.info("thread ends {}:" , Thread.currentThread().getName());
+		requireDistinct(accountFrom, accountTo);
+		if (!Objects.equals(accountFrom.getCurrency(), accountTo.getCurrency())) {
+			transferConverted(accountFrom, accountTo, amount);
+			return;
+		}
+		if (accountFrom.isMinorUnits() && accountTo.isMinorUnits()
+				&& accountFrom.getMinorUnitScale() == accountTo.getMinorUnitScale()) {
+			transferMinorUnits(accountFrom, accountTo, Account.toMinorUnits(amount, accountFrom.getMinorUnitScale()));
+			return;
+		}
+		long start = transferMetrics.start();
+		long epoch = balanceAuditor.enterTransfer();
+		try {
+			balanceAuditor.beforeUpdate(epoch, accountFrom);
+			balanceAuditor.beforeUpdate(epoch, accountTo);
+			applyTransfer(accountFrom, accountTo, amount);
+		} catch (InsufficientFundsException e) {
+			transferMetrics.recordInsufficientFunds(start);
+			throw e;
+		} finally {
+			balanceAuditor.exitTransfer(epoch);
+		}
+		accountsRepository.awaitCommitted();
+		transactionLedger.record(accountFrom, accountTo, amount);
+		notificationService.notifyAboutTransfer(accountFrom, "Money deducted from your account:" + amount);
+		notificationService.notifyAboutTransfer(accountTo, "Money deposited in your account:" + amount);
+		transferMetrics.recordTransferCompleted(start);
+	}
+
+	//Credits to an account the detector finds hot skip its claim and go to its credit stripes, so only the debit waits
+	//for the engine. The engine reports the debit as an adjustment; the credit is reported here before it becomes
+	//visible. Accounts in minor units keep the engine's path; their balance may live outside the Account object.
+	private void applyTransfer(Account accountFrom, Account accountTo, BigDecimal amount) {
+		if (!hotAccountDetector.recordCredit(accountTo.getAccountId())
+				|| accountFrom.isMinorUnits() || accountTo.isMinorUnits()) {
+			transferEngine.transfer(accountFrom, accountTo, amount);
+			return;
+		}
+		accountTo.useCreditStripes(hotAccountDetector.getStripes());
+		transferEngine.withdraw(accountFrom, amount);
+		accountsRepository.balanceAdjusted(accountTo, amount);
+		accountTo.addStripedCredit(amount);
+		hotAccountDetector.recordStripedCredit();
+	}
+
+	//Accounts are compared by id, as some repositories return a new Account view of the same balance on every lookup.
+	private static void requireDistinct(Account accountFrom, Account accountTo) {
+		if (accountFrom.getAccountId().equals(accountTo.getAccountId())) {
+			throw new SameAccountTransferException("Cannot transfer money from an account to itself");
+		}
+	}
+
+	//Allocation-free transfer for repositories holding balances in minor units (accounts.balance.minor-unit-scale).
+	//The amount is expressed at the accounts' scale, e.g. 1234 for 12.34 at scale 2.
+	public void transferMinorUnits(Account accountFrom, Account accountTo, long amount) {
+		requireDistinct(accountFrom, accountTo);
+		if (!Objects.equals(accountFrom.getCurrency(), accountTo.getCurrency())) {
+			transferConverted(accountFrom, accountTo, BigDecimal.valueOf(amount, accountFrom.getMinorUnitScale()));
+			return;
+		}
+		long start = transferMetrics.start();
+		long epoch = balanceAuditor.enterTransfer();
+		try {
+			balanceAuditor.beforeUpdate(epoch, accountFrom);
+			balanceAuditor.beforeUpdate(epoch, accountTo);
+			transferEngine.transferMinorUnits(accountFrom, accountTo, amount);
+		} catch (InsufficientFundsException e) {
+			transferMetrics.recordInsufficientFunds(start);
+			throw e;
+		} finally {
+			balanceAuditor.exitTransfer(epoch);
+		}
+		accountsRepository.awaitCommitted();
+		transactionLedger.recordMinorUnits(accountFrom, accountTo, amount);
+		int scale = accountFrom.getMinorUnitScale();
+		notificationService.notifyAboutTransfer(accountFrom, "Money deducted from your account:", amount, scale);
+		notificationService.notifyAboutTransfer(accountTo, "Money deposited in your account:", amount, scale);
+		transferMetrics.recordTransferCompleted(start);
+	}
+
+	//Transfer between accounts of different currencies: the amount is taken from accountFrom in its currency and
+	//accountTo is credited with its value at the current rates, rounded half-even to accountTo's minor unit. The engine
+	//applies both sides while it holds both accounts, and the auditor counts the difference as money entering.
+	private void transferConverted(Account accountFrom, Account accountTo, BigDecimal amount) {
+		long start = transferMetrics.start();
+		try {
+			moveConverted(accountFrom, accountTo, amount);
+		} catch (InsufficientFundsException e) {
+			transferMetrics.recordInsufficientFunds(start);
+			throw e;
+		}
+		transferMetrics.recordTransferCompleted(start);
+	}
+
+	private void moveConverted(Account accountFrom, Account accountTo, BigDecimal amount) {
+		ExchangeRates rates = exchangeRateService.getRates();
+		if (rates.isSameCurrency(accountFrom.getCurrency(), accountTo.getCurrency())) {
+			applyConverted(accountFrom, accountTo, amount, amount);
+			return;
+		}
+		BigDecimal converted = rates.convert(amount, accountFrom.getCurrency(), accountTo.getCurrency(),
+				accountTo.isMinorUnits() ? accountTo.getMinorUnitScale() : Account.DECIMAL_BALANCE);
+		if (converted.signum() <= 0) {
+			throw new InvalidAmountException("Amount is too small to be converted");
+		}
+		applyConverted(accountFrom, accountTo, amount, converted);
+	}
+
+	private void applyConverted(Account accountFrom, Account accountTo, BigDecimal debited, BigDecimal credited) {
+		balanceAuditor.transferConverted(accountFrom, accountTo, debited, credited,
+				() -> transferEngine.transferConverted(accountFrom, accountTo, debited, credited));
+		accountsRepository.awaitCommitted();
+		transactionLedger.record(accountFrom, accountTo.getAccountId(), true, debited);
+		transactionLedger.record(accountTo, accountFrom.getAccountId(), false, credited);
+		notificationService.notifyAboutTransfer(accountFrom, "Money deducted from your account:" + debited);
+		notificationService.notifyAboutTransfer(accountTo, "Money deposited in your account:" + credited);
+	}
+
+	//One half of a transfer with an account held by another node: takes the amount out of the local account alone.
+	//The auditor counts it as money leaving this node; the repository and the ledger record it on its own.
+	public void withdraw(Account account, String counterpartyAccountId, BigDecimal amount) {
+		balanceAuditor.deposit(account, amount.negate(), () -> transferEngine.withdraw(account, amount));
+		accountsRepository.awaitCommitted();
+		transactionLedger.record(account, counterpartyAccountId, true, amount);
+		notificationService.notifyAboutTransfer(account, "Money deducted from your account:" + amount);
+	}
+
+	//The other half of withdraw: credits the local account, or refunds it when the transfer is aborted.
+	public void deposit(Account account, String counterpartyAccountId, BigDecimal amount) {
+		balanceAuditor.deposit(account, amount, () -> transferEngine.deposit(account, amount));
+		accountsRepository.awaitCommitted();
+		transactionLedger.record(account, counterpartyAccountId, false, amount);
+		notificationService.notifyAboutTransfer(account, "Money deposited in your account:" + amount);
+	}
+
+	//Method for a batch of transfers. Every distinct account is looked up once, valid transfers are handed to the
+	//engine in chunks whose locks are taken together, and a result is returned for every item in request order.
+	public List<TransferResult> transferBatch(List<TransferRequest> requests) {
+		Map<String, Account> resolved = new HashMap<>();
+		TransferResult[] results = new TransferResult[requests.size()];
+		List<BatchTransfer> chunk = new ArrayList<>(Math.min(batchLockChunkSize, requests.size()));
+		int[] chunkIndexes = new int[batchLockChunkSize];
+
+		for (int i = 0; i < requests.size(); i++) {
+			TransferRequest request = requests.get(i);
+			if (request == null || request.getAccountFromId() == null || request.getAccountToId() == null
+					|| request.getAmount() == null || request.getAmount().signum() <= 0) {
+				results[i] = new TransferResult(i, TransferStatus.INVALID_REQUEST,
+						"Account ids and a positive amount are required");
+				continue;
+			}
+			if (request.getAccountFromId().equals(request.getAccountToId())) {
+				results[i] = new TransferResult(i, TransferStatus.INVALID_REQUEST,
+						"Cannot transfer money from an account to itself");
+				continue;
+			}
+			Account accountFrom = resolved.computeIfAbsent(request.getAccountFromId(), accountsRepository::getAccount);
+			Account accountTo = resolved.computeIfAbsent(request.getAccountToId(), accountsRepository::getAccount);
+			if (accountFrom == null || accountTo == null) {
+				results[i] = new TransferResult(i, TransferStatus.ACCOUNT_NOT_FOUND, "Accounts dont exist in database");
+				continue;
+			}
+			if (!Objects.equals(accountFrom.getCurrency(), accountTo.getCurrency())) {
+				// Earlier items go first, so items sharing an account still apply in request order.
+				if (!chunk.isEmpty()) {
+					commitChunk(chunk, chunkIndexes, results);
 				}
+				results[i] = transferConverted(i, accountFrom, accountTo, request.getAmount());
+				continue;
+			}
+			chunkIndexes[chunk.size()] = i;
+			chunk.add(new BatchTransfer(accountFrom, accountTo, request.getAmount()));
+			if (chunk.size() == batchLockChunkSize) {
+				commitChunk(chunk, chunkIndexes, results);
 			}
 		}
-		else {
-			throw new InsufficientFundsException("Not enough balance in your account");
+		if (!chunk.isEmpty()) {
+			commitChunk(chunk, chunkIndexes, results);
+		}
+
+		int[] outcomes = new int[TransferStatus.values().length];
+		List<TransferResult> resultList = new ArrayList<>(results.length);
+		for (TransferResult result : results) {
+			outcomes[result.getStatus().ordinal()]++;
+			resultList.add(result);
+		}
+		transferMetrics.recordBatchOutcomes(outcomes[TransferStatus.COMPLETED.ordinal()],
+				outcomes[TransferStatus.INSUFFICIENT_FUNDS.ordinal()], outcomes[TransferStatus.ACCOUNT_NOT_FOUND.ordinal()],
+				outcomes[TransferStatus.INVALID_REQUEST.ordinal()]);
+		return resultList;
+	}
+
+	private TransferResult transferConverted(int index, Account accountFrom, Account accountTo, BigDecimal amount) {
+		try {
+			moveConverted(accountFrom, accountTo, amount);
+			return new TransferResult(index, TransferStatus.COMPLETED, null);
+		} catch (InsufficientFundsException e) {
+			return new TransferResult(index, TransferStatus.INSUFFICIENT_FUNDS, "Not enough balance in your account");
+		} catch (UnsupportedCurrencyException | InvalidAmountException e) {
+			return new TransferResult(index, TransferStatus.INVALID_REQUEST, e.getMessage());
+		}
+	}
+
+	private void commitChunk(List<BatchTransfer> chunk, int[] chunkIndexes, TransferResult[] results) {
+		long epoch = balanceAuditor.enterTransfer();
+		try {
+			for (BatchTransfer transfer : chunk) {
+				balanceAuditor.beforeUpdate(epoch, transfer.getAccountFrom());
+				balanceAuditor.beforeUpdate(epoch, transfer.getAccountTo());
+			}
+			transferEngine.transferBatch(chunk);
+		} finally {
+			balanceAuditor.exitTransfer(epoch);
+		}
+		accountsRepository.awaitCommitted();
+		for (int j = 0; j < chunk.size(); j++) {
+			BatchTransfer transfer = chunk.get(j);
+			int index = chunkIndexes[j];
+			if (transfer.getStatus() == TransferStatus.COMPLETED) {
+				transactionLedger.record(transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getAmount());
+				notificationService.notifyAboutTransfer(transfer.getAccountFrom(),
+						"Money deducted from your account:" + transfer.getAmount());
+				notificationService.notifyAboutTransfer(transfer.getAccountTo(),
+						"Money deposited in your account:" + transfer.getAmount());
+				results[index] = new TransferResult(index, TransferStatus.COMPLETED, null);
+			} else {
+				results[index] = new TransferResult(index, transfer.getStatus(), "Not enough balance in your account");
+			}
 		}
+		chunk.clear();
 	}
 
-	
 }
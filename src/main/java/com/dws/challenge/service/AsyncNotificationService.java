@@ -0,0 +1,215 @@
+package com.dws.challenge.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.dws.challenge.domain.Account;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link NotificationService} decorator that queues notifications and hands them to the delegate on a bounded pool of
+ * worker threads, so a slow delegate never holds up a transfer. Workers drain the queue in batches of up to
+ * {@code batchSize} events. When the queue is full the {@link OverflowPolicy} decides whether the caller blocks or the
+ * notification is dropped.
+ */
+@Slf4j
+public class AsyncNotificationService implements NotificationService {
+
+	public enum OverflowPolicy {
+		/** Caller waits for queue space, pushing back on the transfer path. */
+		BLOCK,
+		/** Notification is discarded and counted in {@link #getDroppedCount()}. */
+		DROP
+	}
+
+	private static final long POLL_TIMEOUT_MILLIS = 100;
+
+	private final NotificationService delegate;
+
+	private final BlockingQueue<NotificationEvent> queue;
+
+	private final OverflowPolicy overflowPolicy;
+
+	private final int batchSize;
+
+	private final ExecutorService workers;
+
+	private final LongAdder enqueued = new LongAdder();
+
+	private final LongAdder dispatched = new LongAdder();
+
+	private final LongAdder dropped = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private volatile boolean running = true;
+
+	public AsyncNotificationService(NotificationService delegate, int queueCapacity, int workerCount, int batchSize,
+			OverflowPolicy overflowPolicy) {
+		if (queueCapacity <= 0 || workerCount <= 0 || batchSize <= 0) {
+			throw new IllegalArgumentException("Queue capacity, worker count and batch size must be positive");
+		}
+		this.delegate = delegate;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.overflowPolicy = overflowPolicy;
+		this.batchSize = batchSize;
+		this.workers = Executors.newFixedThreadPool(workerCount, new WorkerThreadFactory());
+		for (int i = 0; i < workerCount; i++) {
+			workers.execute(this::drainLoop);
+		}
+	}
+
+	@Override
+	public void notifyAboutTransfer(Account account, String transferDescription) {
+		enqueue(new NotificationEvent(account, transferDescription, 0, Account.DECIMAL_BALANCE));
+	}
+
+	@Override
+	public void notifyAboutTransfer(Account account, String descriptionPrefix, long minorAmount, int scale) {
+		enqueue(new NotificationEvent(account, descriptionPrefix, minorAmount, scale));
+	}
+
+	private void enqueue(NotificationEvent event) {
+		if (!running) {
+			dropped.increment();
+			return;
+		}
+		if (overflowPolicy == OverflowPolicy.BLOCK) {
+			try {
+				queue.put(event);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				dropped.increment();
+				return;
+			}
+		} else if (!queue.offer(event)) {
+			dropped.increment();
+			return;
+		}
+		enqueued.increment();
+	}
+
+	private void drainLoop() {
+		List<NotificationEvent> batch = new ArrayList<>(batchSize);
+		while (running || !queue.isEmpty()) {
+			try {
+				NotificationEvent first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				dispatch(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void dispatch(List<NotificationEvent> batch) {
+		for (NotificationEvent event : batch) {
+			try {
+				delegate.notifyAboutTransfer(event.account, event.description());
+				dispatched.increment();
+			} catch (RuntimeException e) {
+				failed.increment();
+				log.warn("Notification for account {} failed", event.account.getAccountId(), e);
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting notifications and waits up to {@code timeoutMillis} for the queue to be drained.
+	 */
+	public void shutdown(long timeoutMillis) {
+		running = false;
+		workers.shutdown();
+		try {
+			if (!workers.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+				log.warn("{} notifications still queued at shutdown", queue.size());
+				workers.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			workers.shutdownNow();
+		}
+	}
+
+	public void shutdown() {
+		shutdown(TimeUnit.SECONDS.toMillis(5));
+	}
+
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	public int getRemainingCapacity() {
+		return queue.remainingCapacity();
+	}
+
+	public long getEnqueuedCount() {
+		return enqueued.sum();
+	}
+
+	public long getDispatchedCount() {
+		return dispatched.sum();
+	}
+
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	public long getFailedCount() {
+		return failed.sum();
+	}
+
+	private static final class NotificationEvent {
+
+		private final Account account;
+
+		private final String text;
+
+		private final long minorAmount;
+
+		private final int scale;
+
+		private NotificationEvent(Account account, String text, long minorAmount, int scale) {
+			this.account = account;
+			this.text = text;
+			this.minorAmount = minorAmount;
+			this.scale = scale;
+		}
+
+		/**
+		 * Minor unit amounts are only formatted here, on the worker thread.
+		 */
+		private String description() {
+			return scale == Account.DECIMAL_BALANCE ? text : text + BigDecimal.valueOf(minorAmount, scale);
+		}
+	}
+
+	private static final class WorkerThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger counter = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "notification-worker-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
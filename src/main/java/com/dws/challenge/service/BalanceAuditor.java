@@ -0,0 +1,367 @@
+package com.dws.challenge.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AuditResult;
+import com.dws.challenge.repository.AccountsRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Checks that transfers conserve money by totalling every balance in the repository while transfers keep running.
+ *
+ * <p>A plain scan is not enough: a transfer that runs between the reads of its two accounts is counted once or
+ * twice. Every audit therefore takes a consistent cut using epochs. Transfers register in the current epoch for as
+ * long as the engine runs them. An audit opens a new epoch and waits only for the transfers of the previous one to
+ * finish. From then on every transfer of the new epoch records the balances of its accounts before touching them,
+ * and the scan prefers those pre-images over the live balances. The result is the total as it was at the moment
+ * the previous epoch drained, even though transfers never stop; transfers that begin during the short drain wait
+ * for it before they record anything.
+ *
+ * <p>Account creation, and any other money entering or leaving the repository, registers in the epochs too. The
+ * deposit total is read at the cut; after it, a deposit records its account's balance before the change and a new
+ * account records a pre-image of zero, so neither reaches the scanned total before the next audit. Nothing waits for
+ * the scan itself, which runs in parallel through
+ * {@link AccountsRepository#forEachAccountParallel}. Each audit is compared with the previous one: the total may only
+ * change by the money deposited or withdrawn that way, and anything else is reported as drift.
+ */
+@Slf4j
+@Component
+public class BalanceAuditor {
+
+	private final AccountsRepository accountsRepository;
+
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * Transfers that entered and left each epoch, indexed by epoch parity. Both only grow, which lets the drain check
+	 * read them without a lock, see {@link #awaitDrained(long)}.
+	 */
+	private final LongAdder[] entered = { new LongAdder(), new LongAdder() };
+
+	private final LongAdder[] exited = { new LongAdder(), new LongAdder() };
+
+	private volatile long epoch;
+
+	private volatile long auditEpoch = -1;
+
+	private volatile boolean drained = true;
+
+	/**
+	 * Balances of the accounts changed since the current audit's cut; null while no audit runs.
+	 */
+	private volatile Map<String, BigDecimal> preImages;
+
+	private final AtomicReference<BigDecimal> deposits = new AtomicReference<>(BigDecimal.ZERO);
+
+	private final ReentrantLock auditLock = new ReentrantLock();
+
+	private BigDecimal previousTotal;
+
+	private BigDecimal previousDeposits;
+
+	private volatile AuditResult lastResult;
+
+	private final LongAdder audits = new LongAdder();
+
+	private final LongAdder driftsDetected = new LongAdder();
+
+	private volatile long maxDurationMillis;
+
+	@Autowired
+	public BalanceAuditor(AccountsRepository accountsRepository,
+			@Value("${accounts.audit.interval-ms:60000}") long intervalMillis) {
+		this.accountsRepository = accountsRepository;
+		if (intervalMillis > 0) {
+			this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "balance-auditor");
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.scheduleWithFixedDelay(this::scheduledAudit, intervalMillis, intervalMillis,
+					TimeUnit.MILLISECONDS);
+		} else {
+			this.scheduler = null;
+		}
+	}
+
+	/**
+	 * An auditor without background audits, for services built outside Spring; {@link #audit()} still works.
+	 */
+	public static BalanceAuditor manual(AccountsRepository accountsRepository) {
+		return new BalanceAuditor(accountsRepository, 0);
+	}
+
+	/**
+	 * Registers a transfer in the current epoch. Must be paired with {@link #exitTransfer(long)} once the engine has
+	 * applied or rejected the transfer.
+	 *
+	 * @return the epoch to pass to {@link #beforeUpdate(long, Account)} and {@link #exitTransfer(long)}
+	 */
+	public long enterTransfer() {
+		while (true) {
+			long current = epoch;
+			int parity = (int) (current & 1);
+			entered[parity].increment();
+			if (epoch == current) {
+				return current;
+			}
+			// An audit opened a new epoch in between and may already be waiting for this one to drain.
+			exited[parity].increment();
+		}
+	}
+
+	public void exitTransfer(long transferEpoch) {
+		exited[(int) (transferEpoch & 1)].increment();
+	}
+
+	/**
+	 * Must be called for each account of a transfer before the engine changes it.
+	 */
+	public void beforeUpdate(long transferEpoch, Account account) {
+		Map<String, BigDecimal> captured = awaitCut(transferEpoch);
+		if (captured != null && !captured.containsKey(account.getAccountId())) {
+			captured.putIfAbsent(account.getAccountId(), account.getBalance());
+		}
+	}
+
+	/**
+	 * Runs {@code creation}, which deposits {@code balance} in a new account with the given id, as part of the current
+	 * epoch.
+	 */
+	public void createAccount(String accountId, BigDecimal balance, Runnable creation) {
+		long creationEpoch = enterTransfer();
+		try {
+			Map<String, BigDecimal> captured = awaitCut(creationEpoch);
+			// Accounts are never removed, so an id missing after the cut was missing at the cut too. An id that exists
+			// already is left alone: its creation is about to fail as a duplicate.
+			if (captured != null && !captured.containsKey(accountId)
+					&& accountsRepository.getAccount(accountId) == null) {
+				captured.putIfAbsent(accountId, BigDecimal.ZERO);
+			}
+			creation.run();
+			deposits.accumulateAndGet(balance, BigDecimal::add);
+		} finally {
+			exitTransfer(creationEpoch);
+		}
+	}
+
+	/**
+	 * Runs {@code change}, which moves {@code amount} into {@code account} from outside the repository, or out of it if
+	 * negative, such as one half of a transfer with an account on another node, as part of the current epoch.
+	 */
+	public void deposit(Account account, BigDecimal amount, Runnable change) {
+		long depositEpoch = enterTransfer();
+		try {
+			beforeUpdate(depositEpoch, account);
+			change.run();
+			deposits.accumulateAndGet(amount, BigDecimal::add);
+		} finally {
+			exitTransfer(depositEpoch);
+		}
+	}
+
+	/**
+	 * Runs {@code change}, a transfer between accounts of different currencies taking {@code debited} out of
+	 * {@code accountFrom} and adding {@code credited} to {@code accountTo}, as part of the current epoch. The total
+	 * moves by the difference, which is counted like a deposit.
+	 */
+	public void transferConverted(Account accountFrom, Account accountTo, BigDecimal debited, BigDecimal credited,
+			Runnable change) {
+		long transferEpoch = enterTransfer();
+		try {
+			beforeUpdate(transferEpoch, accountFrom);
+			beforeUpdate(transferEpoch, accountTo);
+			change.run();
+			deposits.accumulateAndGet(credited.subtract(debited), BigDecimal::add);
+		} finally {
+			exitTransfer(transferEpoch);
+		}
+	}
+
+	/**
+	 * Audits now; waits if an audit is already running.
+	 */
+	public AuditResult audit() {
+		auditLock.lock();
+		try {
+			long start = System.nanoTime();
+			long next;
+			BigDecimal depositsAtCut;
+			Map<String, BigDecimal> captured = new ConcurrentHashMap<>();
+			BigDecimalSum total = new BigDecimalSum();
+			LongAdder accounts = new LongAdder();
+			try {
+				next = epoch + 1;
+				drained = false;
+				auditEpoch = next;
+				preImages = captured;
+				epoch = next;
+				awaitDrained(next - 1);
+				// Read before the new epoch is released: deposits of the old one have all been added by now, and
+				// those of the new one cannot be added until drained is set.
+				depositsAtCut = deposits.get();
+				drained = true;
+
+				accountsRepository.forEachAccountParallel(account -> {
+					// Balance first: if the account changes after this read its pre-image is already in the map.
+					BigDecimal balance = account.getBalance();
+					BigDecimal before = captured.get(account.getAccountId());
+					total.add(before != null ? before : balance);
+					accounts.increment();
+				});
+			} finally {
+				preImages = null;
+				drained = true;
+			}
+			return record(next, total.sum(), depositsAtCut, accounts.sum(), captured.size(),
+					(System.nanoTime() - start) / 1_000_000);
+		} finally {
+			auditLock.unlock();
+		}
+	}
+
+	public AuditResult getLastResult() {
+		return lastResult;
+	}
+
+	public Map<String, Object> snapshot() {
+		Map<String, Object> snapshot = new LinkedHashMap<>();
+		AuditResult last = lastResult;
+		snapshot.put("audits", audits.sum());
+		snapshot.put("driftsDetected", driftsDetected.sum());
+		snapshot.put("maxDurationMillis", maxDurationMillis);
+		snapshot.put("last", last);
+		return snapshot;
+	}
+
+	@PreDestroy
+	public void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	/**
+	 * Waits until the cut of the audit that opened {@code transferEpoch} has been taken.
+	 *
+	 * @return the map for the pre-images of that audit, or null if no audit needs them
+	 */
+	private Map<String, BigDecimal> awaitCut(long transferEpoch) {
+		Map<String, BigDecimal> captured = preImages;
+		if (captured == null || transferEpoch != auditEpoch) {
+			return null;
+		}
+		while (!drained) {
+			if (transferEpoch != auditEpoch) {
+				// A newer audit has started and is waiting for this transfer's epoch to drain.
+				return null;
+			}
+			Thread.onSpinWait();
+		}
+		return captured;
+	}
+
+	/**
+	 * Waits until every transfer that entered {@code drainingEpoch} has left it. Exits are read before entries; since
+	 * both only grow, exits covering entries means each transfer that entered before the entries were read had left
+	 * before the exits were read.
+	 */
+	private void awaitDrained(long drainingEpoch) {
+		int parity = (int) (drainingEpoch & 1);
+		int spins = 0;
+		while (true) {
+			long left = exited[parity].sum();
+			long arrived = entered[parity].sum();
+			if (left >= arrived) {
+				return;
+			}
+			if (++spins < 100) {
+				Thread.onSpinWait();
+			} else {
+				LockSupport.parkNanos(10_000);
+			}
+		}
+	}
+
+	private AuditResult record(long auditedEpoch, BigDecimal total, BigDecimal depositsAtCut, long accounts,
+			long capturedPreImages, long durationMillis) {
+		BigDecimal expected = previousTotal == null ? null
+				: previousTotal.add(depositsAtCut.subtract(previousDeposits));
+		BigDecimal drift = expected == null ? BigDecimal.ZERO : total.subtract(expected);
+		boolean consistent = drift.signum() == 0;
+		previousTotal = total;
+		previousDeposits = depositsAtCut;
+
+		AuditResult result = new AuditResult(auditedEpoch, Instant.now(), accounts, total, expected, drift, consistent,
+				capturedPreImages, durationMillis);
+		lastResult = result;
+		audits.increment();
+		maxDurationMillis = Math.max(maxDurationMillis, durationMillis);
+		if (consistent) {
+			log.info("Balance audit {}: {} accounts total {} in {} ms ({} changed during the scan)", auditedEpoch,
+					accounts, total.toPlainString(), durationMillis, capturedPreImages);
+		} else {
+			driftsDetected.increment();
+			log.error("Balance audit {} found drift of {}: {} accounts total {}, expected {}", auditedEpoch,
+					drift.toPlainString(), accounts, total.toPlainString(), expected.toPlainString());
+		}
+		return result;
+	}
+
+	private void scheduledAudit() {
+		try {
+			audit();
+		} catch (RuntimeException e) {
+			log.error("Balance audit failed", e);
+		}
+	}
+
+	/**
+	 * Exact sum of {@link BigDecimal}s added from several threads, spread over a few cells to limit contention.
+	 */
+	private static final class BigDecimalSum {
+
+		private final AtomicReference<BigDecimal>[] cells;
+
+		@SuppressWarnings("unchecked")
+		private BigDecimalSum() {
+			int size = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+			this.cells = new AtomicReference[size];
+			for (int i = 0; i < size; i++) {
+				cells[i] = new AtomicReference<>(BigDecimal.ZERO);
+			}
+		}
+
+		private void add(BigDecimal value) {
+			int cell = (int) Thread.currentThread().getId() & (cells.length - 1);
+			cells[cell].accumulateAndGet(value, BigDecimal::add);
+		}
+
+		private BigDecimal sum() {
+			BigDecimal sum = BigDecimal.ZERO;
+			for (AtomicReference<BigDecimal> cell : cells) {
+				sum = sum.add(cell.get());
+			}
+			return sum;
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package com.dws.challenge.service;
+
+import java.math.BigDecimal;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransferStatus;
+
+import lombok.Getter;
+
+/**
+ * One resolved transfer of a batch handed to {@link TransferEngine#transferBatch(java.util.List)}. The engine records
+ * the outcome in {@link #getStatus()}.
+ */
+@Getter
+public class BatchTransfer {
+
+	private final Account accountFrom;
+
+	private final Account accountTo;
+
+	private final BigDecimal amount;
+
+	private TransferStatus status;
+
+	public BatchTransfer(Account accountFrom, Account accountTo, BigDecimal amount) {
+		this.accountFrom = accountFrom;
+		this.accountTo = accountTo;
+		this.amount = amount;
+	}
+
+	void setStatus(TransferStatus status) {
+		this.status = status;
+	}
+}
@@ -0,0 +1,225 @@
+package com.dws.challenge.service;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountBalance;
+import com.dws.challenge.domain.ImportFailure;
+import com.dws.challenge.domain.ImportResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams accounts in and out as newline delimited JSON, one {@code {"accountId":...,"balance":...}} object per line.
+ *
+ * <p>Imports read the input line by line and hand chunks of {@code chunkSize} lines to {@code parallelism} workers,
+ * which parse, validate and insert every row on their own. At most two chunks per worker are buffered, so memory use
+ * does not depend on the size of the input. A row that fails (malformed JSON, validation, duplicate id) is recorded
+ * and the import carries on. Exports walk the repository and write each account as it is reached.
+ */
+@Slf4j
+@Service
+public class BulkAccountService {
+
+	private static final int MAX_REPORTED_FAILURES = 10_000;
+
+	private final AccountsService accountsService;
+
+	private final ObjectMapper objectMapper;
+
+	private final Validator validator;
+
+	private final int chunkSize;
+
+	private final int parallelism;
+
+	@Autowired
+	public BulkAccountService(AccountsService accountsService, ObjectMapper objectMapper, Validator validator,
+			@Value("${accounts.import.chunk-size:1000}") int chunkSize,
+			@Value("${accounts.import.parallelism:4}") int parallelism) {
+		if (chunkSize <= 0 || parallelism <= 0) {
+			throw new IllegalArgumentException("Import chunk size and parallelism must be positive");
+		}
+		this.accountsService = accountsService;
+		this.objectMapper = objectMapper;
+		this.validator = validator;
+		this.chunkSize = chunkSize;
+		this.parallelism = parallelism;
+	}
+
+	public ImportResult importAccounts(InputStream input) throws IOException {
+		ImportRun run = new ImportRun();
+		long start = System.nanoTime();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+			List<String> chunk = new ArrayList<>(chunkSize);
+			long firstLine = 1;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				chunk.add(line);
+				if (chunk.size() == chunkSize) {
+					run.submit(chunk, firstLine);
+					firstLine += chunk.size();
+					chunk = new ArrayList<>(chunkSize);
+				}
+			}
+			if (!chunk.isEmpty()) {
+				run.submit(chunk, firstLine);
+			}
+		} finally {
+			run.finish();
+		}
+
+		long elapsedNanos = System.nanoTime() - start;
+		long rows = run.imported.sum() + run.failed.sum();
+		double rowsPerSecond = rows * 1e9 / Math.max(elapsedNanos, 1);
+		log.info("Imported {} accounts, {} rows failed, in {} ms ({} rows/s)", run.imported.sum(), run.failed.sum(),
+				elapsedNanos / 1_000_000, Math.round(rowsPerSecond));
+		return new ImportResult(run.imported.sum(), run.failed.sum(), new ArrayList<>(run.failures),
+				elapsedNanos / 1_000_000, rowsPerSecond);
+	}
+
+	/**
+	 * @return the number of accounts written
+	 */
+	public long exportAccounts(OutputStream output) throws IOException {
+		ObjectWriter writer = objectMapper.writerFor(AccountBalance.class);
+		OutputStream out = new BufferedOutputStream(output, 1 << 16);
+		long[] count = new long[1];
+		long start = System.nanoTime();
+		try {
+			accountsService.getAccountsRepository().forEachAccount(account -> {
+				try {
+					out.write(writer.writeValueAsBytes(new AccountBalance(account.getAccountId(), account.getBalance(),
+							account.getCurrency())));
+					out.write('\n');
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				count[0]++;
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		out.flush();
+
+		long elapsedNanos = System.nanoTime() - start;
+		log.info("Exported {} accounts in {} ms ({} rows/s)", count[0], elapsedNanos / 1_000_000,
+				Math.round(count[0] * 1e9 / Math.max(elapsedNanos, 1)));
+		return count[0];
+	}
+
+	private void importRow(ImportRun run, String line, long lineNumber) {
+		if (line.isBlank()) {
+			return;
+		}
+		Account account;
+		try {
+			account = objectMapper.readValue(line, Account.class);
+		} catch (JsonProcessingException e) {
+			run.fail(lineNumber, null, "Malformed account: " + e.getOriginalMessage());
+			return;
+		}
+		Set<ConstraintViolation<Account>> violations = validator.validate(account);
+		if (!violations.isEmpty()) {
+			run.fail(lineNumber, account.getAccountId(), violations.stream()
+					.map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+					.sorted()
+					.collect(Collectors.joining(", ")));
+			return;
+		}
+		// Anything the store rejects, from a duplicate id to a full off-heap table or a failed journal write, fails
+		// only this row; letting it escape would kill the worker and leave the rest of its chunk unreported.
+		try {
+			accountsService.createAccount(account);
+			run.imported.increment();
+		} catch (RuntimeException e) {
+			run.fail(lineNumber, account.getAccountId(), e.getMessage());
+		}
+	}
+
+	/**
+	 * State of one import: its workers and counters.
+	 */
+	private final class ImportRun {
+
+		private final ExecutorService workers;
+
+		private final Semaphore bufferedChunks = new Semaphore(parallelism * 2);
+
+		private final LongAdder imported = new LongAdder();
+
+		private final LongAdder failed = new LongAdder();
+
+		private final AtomicInteger reportedFailures = new AtomicInteger();
+
+		private final ConcurrentLinkedQueue<ImportFailure> failures = new ConcurrentLinkedQueue<>();
+
+		private ImportRun() {
+			AtomicInteger threads = new AtomicInteger();
+			this.workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+				Thread thread = new Thread(runnable, "account-import-" + threads.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		private void submit(List<String> lines, long firstLine) {
+			bufferedChunks.acquireUninterruptibly();
+			workers.execute(() -> {
+				try {
+					for (int i = 0; i < lines.size(); i++) {
+						importRow(this, lines.get(i), firstLine + i);
+					}
+				} finally {
+					bufferedChunks.release();
+				}
+			});
+		}
+
+		private void fail(long line, String accountId, String message) {
+			failed.increment();
+			if (reportedFailures.incrementAndGet() <= MAX_REPORTED_FAILURES) {
+				failures.add(new ImportFailure(line, accountId, message));
+			}
+		}
+
+		private void finish() throws IOException {
+			workers.shutdown();
+			try {
+				workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				workers.shutdownNow();
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for the import to finish", e);
+			}
+		}
+	}
+}
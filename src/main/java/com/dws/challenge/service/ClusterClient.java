@@ -0,0 +1,171 @@
+package com.dws.challenge.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.domain.CrossNodeCredit;
+import com.dws.challenge.exception.NodeUnavailableException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * HTTP client for the other nodes of the cluster: forwards client requests to the node owning their account and
+ * carries the messages of {@link ClusterTransferService}. Connections are kept alive and shared by all callers.
+ */
+@Component
+public class ClusterClient {
+
+	/**
+	 * Set on forwarded requests. A node receiving one serves it locally even if its own partition map disagrees, so a
+	 * misconfigured cluster answers "not found" instead of forwarding in circles.
+	 */
+	public static final String FORWARDED_HEADER = "X-Cluster-Forwarded";
+
+	/**
+	 * Carries {@code cluster.secret} on every request to another node. The node-to-node transfer endpoints refuse
+	 * requests without it, as they share the port clients use.
+	 */
+	public static final String SECRET_HEADER = "X-Cluster-Secret";
+
+	private static final String TRANSFERS_PATH = "/v1/cluster/transfers/";
+
+	private final PartitionMap partitionMap;
+
+	private final ObjectMapper objectMapper;
+
+	private final Duration requestTimeout;
+
+	private final HttpClient httpClient;
+
+	private final String secret;
+
+	@Autowired
+	public ClusterClient(PartitionMap partitionMap, ObjectMapper objectMapper,
+			@Value("${cluster.request-timeout-ms:2000}") long requestTimeoutMillis,
+			@Value("${cluster.secret:}") String secret) {
+		if (partitionMap.isPartitioned() && secret.isBlank()) {
+			throw new IllegalArgumentException("cluster.secret must be set when cluster.nodes is");
+		}
+		this.partitionMap = partitionMap;
+		this.secret = secret;
+		this.objectMapper = objectMapper;
+		this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
+		this.httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(requestTimeout)
+				.build();
+	}
+
+	/**
+	 * Sends a request to {@code node} and hands its status, content type and body back unchanged.
+	 *
+	 * @param body    serialized as JSON, or null for a request without body
+	 * @param headers extra request headers, e.g. the idempotency key
+	 */
+	public ResponseEntity<Object> forward(int node, String method, String pathAndQuery, Map<String, String> headers,
+			Object body) {
+		HttpRequest.Builder request = request(node, pathAndQuery)
+				.header(FORWARDED_HEADER, Integer.toString(partitionMap.getLocalNode()))
+				.method(method, bodyOf(body));
+		headers.forEach(request::header);
+		HttpResponse<String> response = send(node, request.build());
+		ResponseEntity.BodyBuilder forwarded = ResponseEntity.status(response.statusCode());
+		response.headers().firstValue(HttpHeaders.CONTENT_TYPE)
+				.ifPresent(contentType -> forwarded.header(HttpHeaders.CONTENT_TYPE, contentType));
+		return forwarded.body(response.body().isEmpty() ? null : response.body());
+	}
+
+	/**
+	 * Asks the node owning {@code credit}'s account to prepare it.
+	 *
+	 * @return false if that node does not hold the account
+	 */
+	public boolean prepareCredit(int node, String transactionId, CrossNodeCredit credit) {
+		return post(node, TRANSFERS_PATH + pathSegment(transactionId) + "/prepare", credit);
+	}
+
+	/**
+	 * @return false if the node knows nothing about the transaction, neither prepared nor committed
+	 */
+	public boolean commitCredit(int node, String transactionId) {
+		return post(node, TRANSFERS_PATH + pathSegment(transactionId) + "/commit", null);
+	}
+
+	public void abortCredit(int node, String transactionId) {
+		post(node, TRANSFERS_PATH + pathSegment(transactionId) + "/abort", null);
+	}
+
+	/**
+	 * Whether a request to this node came from another node of the cluster. Always false without a configured secret,
+	 * so a single node refuses the node-to-node endpoints altogether.
+	 *
+	 * @param presentedSecret value of the {@link #SECRET_HEADER} header, or null if there was none
+	 */
+	public boolean isFromClusterNode(String presentedSecret) {
+		return !secret.isEmpty() && presentedSecret != null && MessageDigest.isEqual(
+				secret.getBytes(StandardCharsets.UTF_8), presentedSecret.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Encodes an account id or other value for use as one segment of a request path.
+	 */
+	public static String pathSegment(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+	}
+
+	private boolean post(int node, String path, Object body) {
+		HttpRequest request = request(node, path).POST(bodyOf(body)).build();
+		int status = send(node, request).statusCode();
+		if (status == 404) {
+			return false;
+		}
+		if (status / 100 != 2) {
+			throw new NodeUnavailableException("Node " + node + " answered " + status + " to " + path, null);
+		}
+		return true;
+	}
+
+	private HttpRequest.Builder request(int node, String pathAndQuery) {
+		return HttpRequest.newBuilder(URI.create(partitionMap.getNodeUri(node) + pathAndQuery))
+				.timeout(requestTimeout)
+				.header(SECRET_HEADER, secret)
+				.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+	}
+
+	private HttpRequest.BodyPublisher bodyOf(Object body) {
+		if (body == null) {
+			return HttpRequest.BodyPublishers.noBody();
+		}
+		try {
+			return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Could not serialize request body", e);
+		}
+	}
+
+	private HttpResponse<String> send(int node, HttpRequest request) {
+		try {
+			return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+		} catch (IOException e) {
+			throw new NodeUnavailableException("Node " + node + " is not reachable: " + e.getMessage(), e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new NodeUnavailableException("Interrupted while waiting for node " + node, e);
+		}
+	}
+}
@@ -0,0 +1,291 @@
+package com.dws.challenge.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.CrossNodeCredit;
+import com.dws.challenge.domain.ExchangeRates;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.InsufficientFundsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Transfers between accounts owned by different nodes, run as a two-phase reserve/commit. The node owning the source
+ * account coordinates:
+ * <ol>
+ * <li>reserve: the amount is withdrawn from the source account, and a transfer without funds stops here;</li>
+ * <li>prepare: the target node checks that it holds the target account and remembers the credit;</li>
+ * <li>commit: the target node credits the account.</li>
+ * </ol>
+ * If the prepare is refused or fails, the reservation is refunded and the target node told to drop the credit. Once
+ * the commit has been sent the amount is never refunded, because the target may have applied it; commits that are not
+ * acknowledged are kept as in doubt and re-sent in the background until they are. The target applies each commit
+ * once, however often it arrives.
+ *
+ * <p>The amount is in neither account between reserve and commit. Prepared credits and in doubt commits live in
+ * memory only, so a node restarting in that window loses the transfer's outcome. A prepared credit that is neither
+ * committed nor aborted within {@code cluster.prepare-timeout-ms}, e.g. because its prepare timed out at the
+ * coordinator and the abort was lost too, is dropped; the timeout must therefore be well above the time a coordinator
+ * may keep retrying a commit while this node is unreachable.
+ */
+@Slf4j
+@Service
+public class ClusterTransferService {
+
+	private final AccountsService accountsService;
+
+	private final PartitionMap partitionMap;
+
+	private final ClusterClient clusterClient;
+
+	private final Cache<String, CrossNodeCredit> prepared;
+
+	/**
+	 * Recently committed transaction ids, so a repeated commit is acknowledged without crediting twice.
+	 */
+	private final Cache<String, Boolean> committed;
+
+	/**
+	 * Target node of every commit that has not been acknowledged yet, by transaction id.
+	 */
+	private final ConcurrentHashMap<String, Integer> inDoubt = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService retryScheduler;
+
+	private final LongAdder crossNodeTransfers = new LongAdder();
+
+	private final LongAdder aborted = new LongAdder();
+
+	private final LongAdder creditsApplied = new LongAdder();
+
+	private final LongAdder preparedExpired = new LongAdder();
+
+	private final LongAdder creditsOrphaned = new LongAdder();
+
+	@Autowired
+	public ClusterTransferService(AccountsService accountsService, PartitionMap partitionMap,
+			ClusterClient clusterClient, @Value("${cluster.commit-retry-ms:1000}") long commitRetryMillis,
+			@Value("${cluster.prepare-timeout-ms:3600000}") long prepareTimeoutMillis) {
+		this(accountsService, partitionMap, clusterClient, commitRetryMillis, prepareTimeoutMillis,
+				Ticker.systemTicker());
+	}
+
+	public ClusterTransferService(AccountsService accountsService, PartitionMap partitionMap,
+			ClusterClient clusterClient, long commitRetryMillis, long prepareTimeoutMillis, Ticker ticker) {
+		if (prepareTimeoutMillis <= 0) {
+			throw new IllegalArgumentException("cluster.prepare-timeout-ms must be positive");
+		}
+		this.accountsService = accountsService;
+		this.partitionMap = partitionMap;
+		this.clusterClient = clusterClient;
+		this.prepared = Caffeine.newBuilder()
+				.expireAfterWrite(Duration.ofMillis(prepareTimeoutMillis))
+				.ticker(ticker)
+				.executor(Runnable::run)
+				.<String, CrossNodeCredit>removalListener((transactionId, credit, cause) -> {
+					if (cause == RemovalCause.EXPIRED) {
+						preparedExpired.increment();
+						log.warn("Prepared transaction {} expired without commit or abort", transactionId);
+					}
+				})
+				.build();
+		this.committed = Caffeine.newBuilder()
+				.maximumSize(1_000_000)
+				.expireAfterWrite(Duration.ofHours(1))
+				.build();
+		if (partitionMap.isPartitioned()) {
+			this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "cluster-commit-retry");
+				thread.setDaemon(true);
+				return thread;
+			});
+			retryScheduler.scheduleWithFixedDelay(this::retryInDoubt, commitRetryMillis, commitRetryMillis,
+					TimeUnit.MILLISECONDS);
+		} else {
+			this.retryScheduler = null;
+		}
+	}
+
+	/**
+	 * Coordinates a transfer from a local account to an account owned by another node.
+	 *
+	 * @throws com.dws.challenge.exception.NodeUnavailableException if the target node could not be reached before
+	 *                                                              the commit; the reservation has been refunded
+	 */
+	public TransferStatus transfer(String accountFromId, String accountToId, BigDecimal amount) {
+		Account accountFrom = accountsService.getAccount(accountFromId);
+		if (accountFrom == null) {
+			accountsService.getTransferMetrics().recordAccountNotFound();
+			return TransferStatus.ACCOUNT_NOT_FOUND;
+		}
+		TransferMetrics metrics = accountsService.getTransferMetrics();
+		long start = metrics.start();
+		int targetNode = partitionMap.ownerOf(accountToId);
+		String transactionId = partitionMap.getLocalNode() + "-" + UUID.randomUUID();
+
+		try {
+			accountsService.withdraw(accountFrom, accountToId, amount);
+		} catch (InsufficientFundsException e) {
+			metrics.recordInsufficientFunds(start);
+			return TransferStatus.INSUFFICIENT_FUNDS;
+		}
+		boolean accepted;
+		try {
+			accepted = clusterClient.prepareCredit(targetNode, transactionId,
+					new CrossNodeCredit(accountToId, accountFromId, amount, accountFrom.getCurrency()));
+		} catch (RuntimeException e) {
+			abort(targetNode, transactionId, accountFrom, accountToId, amount);
+			throw e;
+		}
+		if (!accepted) {
+			abort(targetNode, transactionId, accountFrom, accountToId, amount);
+			metrics.recordAccountNotFound();
+			return TransferStatus.ACCOUNT_NOT_FOUND;
+		}
+		commit(targetNode, transactionId);
+		crossNodeTransfers.increment();
+		metrics.recordTransferCompleted(start);
+		return TransferStatus.COMPLETED;
+	}
+
+	/**
+	 * Participant side of phase one.
+	 *
+	 * Credits in another currency than the account's are converted here, at the rates current when prepared.
+	 *
+	 * @return false if this node does not hold the credited account or has no rate for the credit's currency
+	 */
+	public boolean prepare(String transactionId, CrossNodeCredit credit) {
+		Account account = accountsService.getAccount(credit.getAccountId());
+		if (account == null) {
+			return false;
+		}
+		ExchangeRates rates = accountsService.getExchangeRateService().getRates();
+		if (!Objects.equals(credit.getCurrency(), account.getCurrency())
+				&& !rates.isSameCurrency(credit.getCurrency(), account.getCurrency())) {
+			if (!rates.supports(credit.getCurrency()) || !rates.supports(account.getCurrency())) {
+				log.warn("Refusing transaction {}: no exchange rate from {} to {}", transactionId, credit.getCurrency(),
+						account.getCurrency());
+				return false;
+			}
+			BigDecimal converted = rates.convert(credit.getAmount(), credit.getCurrency(), account.getCurrency(),
+					account.isMinorUnits() ? account.getMinorUnitScale() : Account.DECIMAL_BALANCE);
+			if (converted.signum() <= 0) {
+				return false;
+			}
+			credit = new CrossNodeCredit(credit.getAccountId(), credit.getCounterpartyAccountId(), converted,
+					account.getCurrency());
+		}
+		prepared.asMap().putIfAbsent(transactionId, credit);
+		return true;
+	}
+
+	/**
+	 * Participant side of phase two; idempotent. A credit whose account has been removed since it was prepared cannot
+	 * be applied; it is still acknowledged, since the coordinator must not refund a committed transfer, and counted as
+	 * orphaned.
+	 *
+	 * @return false if the transaction is neither prepared nor recently committed here
+	 */
+	public boolean commit(String transactionId) {
+		CrossNodeCredit credit = prepared.asMap().remove(transactionId);
+		if (credit == null) {
+			return committed.getIfPresent(transactionId) != null;
+		}
+		// Marked first, so a repeated commit arriving while the credit is applied is acknowledged rather than refused.
+		committed.put(transactionId, Boolean.TRUE);
+		Account account = accountsService.getAccount(credit.getAccountId());
+		if (account == null) {
+			creditsOrphaned.increment();
+			log.error("Account {} of committed transaction {} no longer exists, {} from {} not credited",
+					credit.getAccountId(), transactionId, credit.getAmount(), credit.getCounterpartyAccountId());
+			return true;
+		}
+		accountsService.deposit(account, credit.getCounterpartyAccountId(), credit.getAmount());
+		creditsApplied.increment();
+		return true;
+	}
+
+	public void abort(String transactionId) {
+		prepared.invalidate(transactionId);
+	}
+
+	public Map<String, Object> snapshot() {
+		Map<String, Object> snapshot = new LinkedHashMap<>();
+		snapshot.put("crossNodeTransfers", crossNodeTransfers.sum());
+		snapshot.put("aborted", aborted.sum());
+		snapshot.put("creditsApplied", creditsApplied.sum());
+		snapshot.put("creditsOrphaned", creditsOrphaned.sum());
+		prepared.cleanUp();
+		snapshot.put("prepared", prepared.estimatedSize());
+		snapshot.put("preparedExpired", preparedExpired.sum());
+		snapshot.put("inDoubt", inDoubt.size());
+		return snapshot;
+	}
+
+	@PreDestroy
+	public void close() {
+		if (retryScheduler != null) {
+			retryScheduler.shutdownNow();
+		}
+	}
+
+	private void abort(int targetNode, String transactionId, Account accountFrom, String accountToId,
+			BigDecimal amount) {
+		accountsService.deposit(accountFrom, accountToId, amount);
+		aborted.increment();
+		try {
+			clusterClient.abortCredit(targetNode, transactionId);
+		} catch (RuntimeException e) {
+			// The credit can no longer be committed, the target only keeps it in memory.
+			log.warn("Could not abort transaction {} on node {}: {}", transactionId, targetNode, e.getMessage());
+		}
+	}
+
+	private void commit(int targetNode, String transactionId) {
+		try {
+			if (clusterClient.commitCredit(targetNode, transactionId)) {
+				return;
+			}
+			log.error("Node {} does not know prepared transaction {}", targetNode, transactionId);
+		} catch (RuntimeException e) {
+			log.warn("Commit of transaction {} on node {} failed, retrying: {}", transactionId, targetNode,
+					e.getMessage());
+		}
+		inDoubt.put(transactionId, targetNode);
+	}
+
+	private void retryInDoubt() {
+		inDoubt.forEach((transactionId, targetNode) -> {
+			try {
+				if (clusterClient.commitCredit(targetNode, transactionId)) {
+					inDoubt.remove(transactionId);
+					log.info("Transaction {} committed on node {} after retrying", transactionId, targetNode);
+				}
+			} catch (RuntimeException e) {
+				log.debug("Node {} still unavailable for transaction {}", targetNode, transactionId);
+			}
+		});
+	}
+}
@@ -0,0 +1,192 @@
+package com.dws.challenge.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.domain.ExchangeRates;
+import com.dws.challenge.exception.UnsupportedCurrencyException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Holds the exchange rate table used for transfers between accounts of different currencies. The table is immutable
+ * and replaced as a whole through a volatile reference, so a transfer reads one consistent set of rates without a
+ * lock and a reload never waits for transfers, nor they for it.
+ *
+ * <p>Rates come from a local properties file: one entry per currency other than the base giving its units per unit of
+ * the base, e.g. {@code USD=1.0843}. The base currency is fixed by {@code fx.base-currency}, since accounts without a
+ * currency hold it; an optional {@code base} entry in the file must name the same currency. The file is polled for
+ * changes; a file that cannot be read or parsed, or names another base, leaves the current table in place and is
+ * counted as a failed reload.
+ */
+@Slf4j
+@Component
+public class ExchangeRateService {
+
+	private static final String BASE_KEY = "base";
+
+	private final String baseCurrency;
+
+	private final Path ratesFile;
+
+	private final ScheduledExecutorService scheduler;
+
+	private volatile ExchangeRates rates;
+
+	private volatile FileTime loadedModified;
+
+	private long nextVersion = 1;
+
+	private final LongAdder reloads = new LongAdder();
+
+	private final LongAdder failedReloads = new LongAdder();
+
+	@Autowired
+	public ExchangeRateService(@Value("${fx.base-currency:EUR}") String baseCurrency,
+			@Value("${fx.rates.file:}") String ratesFile,
+			@Value("${fx.rates.reload-interval-ms:10000}") long reloadIntervalMillis) {
+		this.baseCurrency = ExchangeRates.requireCurrency(baseCurrency);
+		this.ratesFile = ratesFile.isEmpty() ? null : Paths.get(ratesFile);
+		this.rates = ExchangeRates.baseOnly(baseCurrency);
+		if (this.ratesFile != null) {
+			if (!reload()) {
+				log.warn("Starting without exchange rates, {} could not be loaded", ratesFile);
+			}
+		}
+		if (this.ratesFile != null && reloadIntervalMillis > 0) {
+			this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "fx-rates-reloader");
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.scheduleWithFixedDelay(this::reloadIfModified, reloadIntervalMillis, reloadIntervalMillis,
+					TimeUnit.MILLISECONDS);
+		} else {
+			this.scheduler = null;
+		}
+	}
+
+	/**
+	 * A service with a fixed table and no file, for services built outside Spring.
+	 */
+	public static ExchangeRateService fixed(ExchangeRates rates) {
+		ExchangeRateService service = new ExchangeRateService(rates.getBaseCurrency(), "", 0);
+		service.update(rates);
+		return service;
+	}
+
+	/**
+	 * A service knowing only the default base currency, so transfers between different currencies are refused.
+	 */
+	public static ExchangeRateService disabled() {
+		return new ExchangeRateService("EUR", "", 0);
+	}
+
+	/**
+	 * The current table. Callers converting several amounts should read it once and keep using that instance.
+	 */
+	public ExchangeRates getRates() {
+		return rates;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if {@code rates} are against another base currency than this service's
+	 */
+	public void update(ExchangeRates rates) {
+		if (!rates.getBaseCurrency().equals(baseCurrency)) {
+			throw new IllegalArgumentException(
+					"Exchange rates against " + rates.getBaseCurrency() + " but the base currency is " + baseCurrency);
+		}
+		this.rates = rates;
+		reloads.increment();
+	}
+
+	/**
+	 * Reads the rates file and swaps in the table built from it.
+	 *
+	 * @return false if there is no file or it could not be loaded; the current table is kept then
+	 */
+	public synchronized boolean reload() {
+		if (ratesFile == null) {
+			return false;
+		}
+		try {
+			FileTime modified = Files.getLastModifiedTime(ratesFile);
+			Properties properties = new Properties();
+			try (Reader reader = Files.newBufferedReader(ratesFile, StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			}
+			String fileBaseCurrency = properties.getProperty(BASE_KEY, baseCurrency).trim();
+			if (!fileBaseCurrency.equals(baseCurrency)) {
+				failedReloads.increment();
+				log.error("Not loading exchange rates from {}: they are against {} but fx.base-currency is {}",
+						ratesFile, fileBaseCurrency, baseCurrency);
+				return false;
+			}
+			Map<String, BigDecimal> loaded = new HashMap<>();
+			for (String currency : properties.stringPropertyNames()) {
+				if (!currency.equals(BASE_KEY)) {
+					loaded.put(currency.trim(), new BigDecimal(properties.getProperty(currency).trim()));
+				}
+			}
+			update(ExchangeRates.of(baseCurrency, loaded, nextVersion++));
+			loadedModified = modified;
+			log.info("Loaded {} exchange rates against {} from {}", loaded.size(), baseCurrency, ratesFile);
+			return true;
+		} catch (IOException | NumberFormatException | UnsupportedCurrencyException e) {
+			failedReloads.increment();
+			log.error("Could not load exchange rates from {}", ratesFile, e);
+			return false;
+		}
+	}
+
+	private void reloadIfModified() {
+		try {
+			if (!Files.getLastModifiedTime(ratesFile).equals(loadedModified)) {
+				reload();
+			}
+		} catch (IOException e) {
+			failedReloads.increment();
+			log.error("Could not check exchange rates file {}", ratesFile, e);
+		}
+	}
+
+	public Map<String, Object> snapshot() {
+		ExchangeRates current = rates;
+		Map<String, Object> snapshot = new LinkedHashMap<>();
+		snapshot.put("baseCurrency", current.getBaseCurrency());
+		snapshot.put("version", current.getVersion());
+		snapshot.put("loadedAt", current.getLoadedAt());
+		snapshot.put("currencies", current.getRates().size());
+		snapshot.put("reloads", reloads.sum());
+		snapshot.put("failedReloads", failedReloads.sum());
+		return snapshot;
+	}
+
+	@PreDestroy
+	public void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+}
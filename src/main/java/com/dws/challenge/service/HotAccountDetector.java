@@ -0,0 +1,217 @@
+package com.dws.challenge.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Finds the accounts that receive a large share of all transfers, whose claims every credit would otherwise have to
+ * wait for; off unless enabled. {@link AccountsService#transfer} credits such hot accounts through their credit stripes
+ * instead, see {@link com.dws.challenge.domain.Account#addStripedCredit(java.math.BigDecimal)}. Striped credits do not
+ * move the account's version, so while an account is hot {@link AccountsService#getBalances} is no longer a point in
+ * time view for it: a transfer to it may show up as only its debit.
+ *
+ * <p>Accounts are ranked by their share of credits, not by measured contention on their claims. A frequently credited
+ * account is promoted even if its credits are spread out enough never to wait for each other.
+ *
+ * <p>One in {@code sampleRate} credits is fed into a Space-Saving sketch of {@code capacity} counters: a counted account
+ * is incremented, an uncounted one takes over the smallest counter and inherits its count as its error. After
+ * {@code window} samples every account whose guaranteed share, count minus error, reaches {@code threshold} becomes
+ * hot; a hot account stays hot while its estimated share is at least half the threshold. The sketch then starts over.
+ * Samples arriving while another thread holds the sketch are skipped rather than waited for.
+ */
+@Component
+public class HotAccountDetector {
+
+	private final boolean enabled;
+
+	private final int capacity;
+
+	private final int sampleRate;
+
+	private final int window;
+
+	private final double threshold;
+
+	private final int stripes;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Guarded by {@link #lock}, like {@link #samples}.
+	 */
+	private final Map<String, Counter> counters;
+
+	private int samples;
+
+	private volatile Set<String> hotAccounts = Set.of();
+
+	private volatile Map<String, Double> hotShares = Map.of();
+
+	private volatile long evaluations;
+
+	private volatile long promotions;
+
+	private volatile long demotions;
+
+	private final LongAdder stripedCredits = new LongAdder();
+
+	@Autowired
+	public HotAccountDetector(@Value("${transfer.hot-accounts.enabled:false}") boolean enabled,
+			@Value("${transfer.hot-accounts.capacity:64}") int capacity,
+			@Value("${transfer.hot-accounts.sample-rate:16}") int sampleRate,
+			@Value("${transfer.hot-accounts.window:4096}") int window,
+			@Value("${transfer.hot-accounts.threshold:0.02}") double threshold,
+			@Value("${transfer.hot-accounts.stripes:0}") int stripes) {
+		if (capacity <= 0 || sampleRate <= 0 || window <= 0 || stripes < 0) {
+			throw new IllegalArgumentException(
+					"Hot account capacity, sample rate and window must be positive, stripes not negative");
+		}
+		if (threshold <= 0 || threshold > 1) {
+			throw new IllegalArgumentException("Hot account threshold must be in (0, 1]: " + threshold);
+		}
+		this.enabled = enabled;
+		this.capacity = capacity;
+		this.sampleRate = sampleRate;
+		this.window = window;
+		this.threshold = threshold;
+		this.stripes = stripes == 0 ? Runtime.getRuntime().availableProcessors() : stripes;
+		this.counters = new HashMap<>(capacity * 2);
+	}
+
+	/**
+	 * Detector that never finds a hot account, for services built outside Spring.
+	 */
+	public static HotAccountDetector disabled() {
+		return new HotAccountDetector(false, 1, 1, 1, 1, 1);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Number of credit stripes given to an account once it is hot.
+	 */
+	public int getStripes() {
+		return stripes;
+	}
+
+	/**
+	 * Counts a credit to the account, subject to sampling.
+	 *
+	 * @return whether the account is hot, as of the last completed window
+	 */
+	public boolean recordCredit(String accountId) {
+		if (!enabled) {
+			return false;
+		}
+		if ((sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0) && lock.tryLock()) {
+			try {
+				offer(accountId);
+			} finally {
+				lock.unlock();
+			}
+		}
+		return isHot(accountId);
+	}
+
+	public boolean isHot(String accountId) {
+		Set<String> hot = hotAccounts;
+		return !hot.isEmpty() && hot.contains(accountId);
+	}
+
+	public void recordStripedCredit() {
+		stripedCredits.increment();
+	}
+
+	public Map<String, Object> snapshot() {
+		Map<String, Object> snapshot = new LinkedHashMap<>();
+		snapshot.put("enabled", enabled);
+		snapshot.put("hotAccounts", hotShares);
+		snapshot.put("evaluations", evaluations);
+		snapshot.put("promotions", promotions);
+		snapshot.put("demotions", demotions);
+		snapshot.put("stripedCredits", stripedCredits.sum());
+		return snapshot;
+	}
+
+	private void offer(String accountId) {
+		Counter counter = counters.get(accountId);
+		if (counter != null) {
+			counter.count++;
+		} else if (counters.size() < capacity) {
+			counters.put(accountId, new Counter(accountId, 1, 0));
+		} else {
+			Counter smallest = null;
+			for (Counter candidate : counters.values()) {
+				if (smallest == null || candidate.count < smallest.count) {
+					smallest = candidate;
+				}
+			}
+			counters.remove(smallest.accountId);
+			smallest.accountId = accountId;
+			smallest.error = smallest.count;
+			smallest.count++;
+			counters.put(accountId, smallest);
+		}
+		if (++samples >= window) {
+			evaluate();
+		}
+	}
+
+	private void evaluate() {
+		Set<String> previous = hotAccounts;
+		Set<String> hot = new HashSet<>();
+		List<Counter> ranked = new ArrayList<>();
+		for (Counter counter : counters.values()) {
+			double guaranteed = (double) (counter.count - counter.error) / samples;
+			double estimated = (double) counter.count / samples;
+			if (guaranteed >= threshold || previous.contains(counter.accountId) && estimated >= threshold / 2) {
+				hot.add(counter.accountId);
+				ranked.add(counter);
+			}
+		}
+		ranked.sort((a, b) -> Long.compare(b.count, a.count));
+		Map<String, Double> shares = new LinkedHashMap<>();
+		for (Counter counter : ranked) {
+			shares.put(counter.accountId, (double) counter.count / samples);
+		}
+		long promoted = hot.stream().filter(accountId -> !previous.contains(accountId)).count();
+		long demoted = previous.stream().filter(accountId -> !hot.contains(accountId)).count();
+		hotAccounts = Set.copyOf(hot);
+		hotShares = Collections.unmodifiableMap(shares);
+		promotions += promoted;
+		demotions += demoted;
+		evaluations++;
+		counters.clear();
+		samples = 0;
+	}
+
+	private static final class Counter {
+
+		private String accountId;
+
+		private long count;
+
+		private long error;
+
+		private Counter(String accountId, long count, long error) {
+			this.accountId = accountId;
+			this.count = count;
+			this.error = error;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package com.dws.challenge.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.IdempotencyKeyReusedException;
+import com.dws.challenge.exception.InsufficientFundsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Runs transfers identified by a client supplied idempotency key at most once. The outcome of every keyed transfer is
+ * kept in a bounded Caffeine cache that evicts by size and age; a retry with the same key is answered from the cache
+ * without looking up the accounts or taking any lock, and a retry arriving while the original is still running waits
+ * for its outcome instead of executing again.
+ *
+ * <p>Completed and insufficient funds outcomes are remembered. A request that never reached the engine (unknown
+ * account) or failed unexpectedly is forgotten, so a retry executes it afresh.
+ */
+@Service
+public class IdempotentTransferService {
+
+	private final AccountsService accountsService;
+
+	private final Cache<String, KeyedTransfer> transfers;
+
+	@Autowired
+	public IdempotentTransferService(AccountsService accountsService,
+			@Value("${transfer.idempotency.max-keys:1000000}") long maxKeys,
+			@Value("${transfer.idempotency.ttl-minutes:60}") long ttlMinutes) {
+		this.accountsService = accountsService;
+		this.transfers = Caffeine.newBuilder()
+				.maximumSize(maxKeys)
+				.expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+				.build();
+	}
+
+	/**
+	 * @throws IdempotencyKeyReusedException if the key was already used for a transfer with different parameters
+	 */
+	public TransferStatus transfer(String idempotencyKey, String accountFromId, String accountToId,
+			BigDecimal amount) {
+		return transfer(idempotencyKey, accountFromId, accountToId, amount,
+				() -> execute(accountFromId, accountToId, amount));
+	}
+
+	/**
+	 * Runs {@code execution} at most once for the key instead of a local transfer, e.g. for a transfer with an account
+	 * on another node.
+	 *
+	 * @throws IdempotencyKeyReusedException if the key was already used for a transfer with different parameters
+	 */
+	public TransferStatus transfer(String idempotencyKey, String accountFromId, String accountToId, BigDecimal amount,
+			Supplier<TransferStatus> execution) {
+		KeyedTransfer transfer = new KeyedTransfer(accountFromId, accountToId, amount);
+		KeyedTransfer existing = transfers.asMap().putIfAbsent(idempotencyKey, transfer);
+		if (existing != null) {
+			if (!existing.matches(accountFromId, accountToId, amount)) {
+				throw new IdempotencyKeyReusedException(
+						"Idempotency key " + idempotencyKey + " was already used for a different transfer");
+			}
+			accountsService.getTransferMetrics().recordIdempotentReplay();
+			return await(existing.outcome);
+		}
+
+		TransferStatus status;
+		try {
+			status = execution.get();
+		} catch (RuntimeException e) {
+			transfers.asMap().remove(idempotencyKey, transfer);
+			transfer.outcome.completeExceptionally(e);
+			throw e;
+		}
+		if (status == TransferStatus.ACCOUNT_NOT_FOUND) {
+			transfers.asMap().remove(idempotencyKey, transfer);
+		}
+		transfer.outcome.complete(status);
+		return status;
+	}
+
+	public long getCachedKeyCount() {
+		return transfers.estimatedSize();
+	}
+
+	private TransferStatus execute(String accountFromId, String accountToId, BigDecimal amount) {
+		Account accountFrom = accountsService.getAccount(accountFromId);
+		Account accountTo = accountsService.getAccount(accountToId);
+		if (accountFrom == null || accountTo == null) {
+			accountsService.getTransferMetrics().recordAccountNotFound();
+			return TransferStatus.ACCOUNT_NOT_FOUND;
+		}
+		try {
+			accountsService.transfer(accountFrom, accountTo, amount);
+			return TransferStatus.COMPLETED;
+		} catch (InsufficientFundsException e) {
+			return TransferStatus.INSUFFICIENT_FUNDS;
+		}
+	}
+
+	private static TransferStatus await(CompletableFuture<TransferStatus> outcome) {
+		try {
+			return outcome.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private static final class KeyedTransfer {
+
+		private final String accountFromId;
+
+		private final String accountToId;
+
+		private final BigDecimal amount;
+
+		private final CompletableFuture<TransferStatus> outcome = new CompletableFuture<>();
+
+		private KeyedTransfer(String accountFromId, String accountToId, BigDecimal amount) {
+			this.accountFromId = accountFromId;
+			this.accountToId = accountToId;
+			this.amount = amount;
+		}
+
+		private boolean matches(String accountFromId, String accountToId, BigDecimal amount) {
+			return this.accountFromId.equals(accountFromId) && this.accountToId.equals(accountToId)
+					&& this.amount.compareTo(amount) == 0;
+		}
+	}
+}
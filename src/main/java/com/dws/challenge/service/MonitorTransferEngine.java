@@ -0,0 +1,67 @@
+package com.dws.challenge.service;
+
+import java.math.BigDecimal;
+
+import com.dws.challenge.domain.Account;
+
+/**
+ * Original locking scheme: synchronizes on the two account id strings, smallest id first. Kept as a selectable engine
+ * so it can be benchmarked against {@link StripedLockTransferEngine}.
+ */
+public class MonitorTransferEngine extends AbstractTransferEngine {
+
+	@Override
+	public void transfer(Account accountFrom, Account accountTo, BigDecimal amount) {
+		boolean fromFirst = accountFrom.getAccountId().compareTo(accountTo.getAccountId()) <= 0;
+		String minId = fromFirst ? accountFrom.getAccountId() : accountTo.getAccountId();
+		String maxId = fromFirst ? accountTo.getAccountId() : accountFrom.getAccountId();
+
+		//Using synchronization on minimum and maximum ids so that a deadlock never occurs in a situation like:
+		//transfer from Account A to B and Account B to A in parallel execution.
+		synchronized (minId) {
+			synchronized (maxId) {
+				applyTransfer(accountFrom, accountTo, amount);
+			}
+		}
+	}
+
+	@Override
+	public void transferMinorUnits(Account accountFrom, Account accountTo, long amount) {
+		boolean fromFirst = accountFrom.getAccountId().compareTo(accountTo.getAccountId()) <= 0;
+		String minId = fromFirst ? accountFrom.getAccountId() : accountTo.getAccountId();
+		String maxId = fromFirst ? accountTo.getAccountId() : accountFrom.getAccountId();
+
+		synchronized (minId) {
+			synchronized (maxId) {
+				applyTransfer(accountFrom, accountTo, amount);
+			}
+		}
+	}
+
+	@Override
+	public void transferConverted(Account accountFrom, Account accountTo, BigDecimal debited, BigDecimal credited) {
+		boolean fromFirst = accountFrom.getAccountId().compareTo(accountTo.getAccountId()) <= 0;
+		String minId = fromFirst ? accountFrom.getAccountId() : accountTo.getAccountId();
+		String maxId = fromFirst ? accountTo.getAccountId() : accountFrom.getAccountId();
+
+		synchronized (minId) {
+			synchronized (maxId) {
+				applyConvertedTransfer(accountFrom, accountTo, debited, credited);
+			}
+		}
+	}
+
+	@Override
+	public void withdraw(Account account, BigDecimal amount) {
+		synchronized (account.getAccountId()) {
+			applyWithdrawal(account, amount);
+		}
+	}
+
+	@Override
+	public void deposit(Account account, BigDecimal amount) {
+		synchronized (account.getAccountId()) {
+			applyDeposit(account, amount);
+		}
+	}
+}
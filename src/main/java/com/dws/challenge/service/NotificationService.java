@@ -1,8 +1,17 @@
 package com.dws.challenge.service;
 
 import com.dws.challenge.domain.Account;
+import java.math.BigDecimal;
 
 public interface NotificationService {
 
   void notifyAboutTransfer(Account account, String transferDescription);
+
+  /**
+   * Variant used by the minor units transfer path; the description is {@code descriptionPrefix} followed by the
+   * amount. Implementations may defer building the text until the notification is actually sent.
+   */
+  default void notifyAboutTransfer(Account account, String descriptionPrefix, long minorAmount, int scale) {
+    notifyAboutTransfer(account, descriptionPrefix + BigDecimal.valueOf(minorAmount, scale));
+  }
 }
@@ -0,0 +1,358 @@
+package com.dws.challenge.service;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.InsufficientFundsException;
+
+/**
+ * Transfers without locks for workloads where most transfers touch distinct accounts. Each account's seqlock version
+ * doubles as its ownership word: a transfer claims both accounts by compare-and-set of their even versions to odd,
+ * checks the funds, writes the balances and releases both claims with {@link Account#endUpdate()}. If either claim
+ * fails the other one is released at once, so nobody ever waits for a claim holder, and the attempt is retried after
+ * a bounded exponential backoff with jitter.
+ *
+ * <p>After {@code maxAttempts} failed attempts the transfer stops competing and queues on a striped lock instead.
+ * Holding the stripes keeps the other fallen back transfers of the same accounts away, so only short optimistic
+ * claims remain to spin past; a hot account therefore degrades to the throughput of the striped engine rather than
+ * to a retry storm. Balances must only be modified through this engine while it is in use.
+ */
+public class OptimisticTransferEngine extends AbstractTransferEngine {
+
+	private static final int SPIN_ATTEMPTS = 3;
+
+	private static final long MIN_BACKOFF_NANOS = 1_000;
+
+	private static final long MAX_BACKOFF_NANOS = 100_000;
+
+	private final int maxAttempts;
+
+	private final ReentrantLock[] fallbackLocks;
+
+	private final int mask;
+
+	private final LongAdder optimisticTransfers = new LongAdder();
+
+	private final LongAdder conflicts = new LongAdder();
+
+	private final LongAdder fallbacks = new LongAdder();
+
+	public OptimisticTransferEngine(int maxAttempts, int fallbackStripes) {
+		if (maxAttempts <= 0 || fallbackStripes <= 0) {
+			throw new IllegalArgumentException("Attempts and fallback stripes must be positive");
+		}
+		this.maxAttempts = maxAttempts;
+		int size = Math.max(1, Integer.highestOneBit(fallbackStripes - 1) << 1);
+		this.fallbackLocks = new ReentrantLock[size];
+		for (int i = 0; i < size; i++) {
+			fallbackLocks[i] = new ReentrantLock();
+		}
+		this.mask = size - 1;
+	}
+
+	@Override
+	public void transfer(Account accountFrom, Account accountTo, BigDecimal amount) {
+		if (accountFrom.isMinorUnits() && accountTo.isMinorUnits()
+				&& accountFrom.getMinorUnitScale() == accountTo.getMinorUnitScale()) {
+			transferMinorUnits(accountFrom, accountTo, Account.toMinorUnits(amount, accountFrom.getMinorUnitScale()));
+			return;
+		}
+		if (accountFrom.getAccountId().equals(accountTo.getAccountId())) {
+			checkFunds(accountFrom.getBalance().compareTo(amount) <= 0);
+			return;
+		}
+		if (claimOptimistically(accountFrom, accountTo)) {
+			move(accountFrom, accountTo, amount);
+			return;
+		}
+		ReentrantLock first = fallbackLock(accountFrom, accountTo, true);
+		ReentrantLock second = fallbackLock(accountFrom, accountTo, false);
+		first.lock();
+		second.lock();
+		try {
+			claimUnderLock(accountFrom, accountTo);
+			move(accountFrom, accountTo, amount);
+		} finally {
+			second.unlock();
+			first.unlock();
+		}
+	}
+
+	@Override
+	public void transferMinorUnits(Account accountFrom, Account accountTo, long amount) {
+		if (!accountFrom.isMinorUnits() || accountFrom.getMinorUnitScale() != accountTo.getMinorUnitScale()) {
+			throw new IllegalStateException("Both accounts must hold minor units of the same scale");
+		}
+		if (accountFrom.getAccountId().equals(accountTo.getAccountId())) {
+			checkFunds(accountFrom.getMinorBalance() <= amount);
+			return;
+		}
+		if (claimOptimistically(accountFrom, accountTo)) {
+			move(accountFrom, accountTo, amount);
+			return;
+		}
+		ReentrantLock first = fallbackLock(accountFrom, accountTo, true);
+		ReentrantLock second = fallbackLock(accountFrom, accountTo, false);
+		first.lock();
+		second.lock();
+		try {
+			claimUnderLock(accountFrom, accountTo);
+			move(accountFrom, accountTo, amount);
+		} finally {
+			second.unlock();
+			first.unlock();
+		}
+	}
+
+	@Override
+	public void transferConverted(Account accountFrom, Account accountTo, BigDecimal debited, BigDecimal credited) {
+		// Claiming the same account twice would never succeed.
+		requireDistinct(accountFrom, accountTo);
+		if (claimOptimistically(accountFrom, accountTo)) {
+			moveConverted(accountFrom, accountTo, debited, credited);
+			return;
+		}
+		ReentrantLock first = fallbackLock(accountFrom, accountTo, true);
+		ReentrantLock second = fallbackLock(accountFrom, accountTo, false);
+		first.lock();
+		second.lock();
+		try {
+			claimUnderLock(accountFrom, accountTo);
+			moveConverted(accountFrom, accountTo, debited, credited);
+		} finally {
+			second.unlock();
+			first.unlock();
+		}
+	}
+
+	@Override
+	public void withdraw(Account account, BigDecimal amount) {
+		claim(account);
+		try {
+			takeOut(account, amount);
+			commitListener.balanceAdjusted(account, amount.negate());
+		} finally {
+			account.endUpdate();
+		}
+	}
+
+	@Override
+	public void deposit(Account account, BigDecimal amount) {
+		claim(account);
+		try {
+			putIn(account, amount);
+			commitListener.balanceAdjusted(account, amount);
+		} finally {
+			account.endUpdate();
+		}
+	}
+
+	/**
+	 * Transfers that claimed both accounts on an optimistic attempt, whatever their outcome, without falling back to
+	 * the locks.
+	 */
+	public long getOptimisticTransfers() {
+		return optimisticTransfers.sum();
+	}
+
+	/**
+	 * Optimistic attempts that found an account already claimed and were retried.
+	 */
+	public long getConflicts() {
+		return conflicts.sum();
+	}
+
+	/**
+	 * Transfers that ran out of optimistic attempts and completed under the fallback locks.
+	 */
+	public long getFallbacks() {
+		return fallbacks.sum();
+	}
+
+	/**
+	 * Up to {@code maxAttempts} claims with backoff in between; false once the transfer has to fall back.
+	 */
+	private boolean claimOptimistically(Account accountFrom, Account accountTo) {
+		for (int attempt = 0; attempt < maxAttempts; attempt++) {
+			if (claim(accountFrom, accountTo)) {
+				optimisticTransfers.increment();
+				return true;
+			}
+			conflicts.increment();
+			if (attempt + 1 < maxAttempts) {
+				backoff(attempt);
+			}
+		}
+		fallbacks.increment();
+		return false;
+	}
+
+	/**
+	 * Called with the fallback stripes held, so the only competitors left are optimistic claims, which are released
+	 * within a few instructions.
+	 */
+	private static void claimUnderLock(Account accountFrom, Account accountTo) {
+		while (!claim(accountFrom, accountTo)) {
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * Claims a single account, with the same backoff and fallback as a pair of accounts.
+	 */
+	private void claim(Account account) {
+		for (int attempt = 0; attempt < maxAttempts; attempt++) {
+			if (tryClaim(account)) {
+				return;
+			}
+			conflicts.increment();
+			if (attempt + 1 < maxAttempts) {
+				backoff(attempt);
+			}
+		}
+		fallbacks.increment();
+		ReentrantLock lock = fallbackLocks[stripeOf(account.getAccountId())];
+		lock.lock();
+		try {
+			while (!tryClaim(account)) {
+				Thread.onSpinWait();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static boolean tryClaim(Account account) {
+		long version = account.getVersion();
+		return (version & 1) == 0 && account.tryBeginUpdate(version);
+	}
+
+	/**
+	 * Claims both accounts or neither.
+	 */
+	private static boolean claim(Account accountFrom, Account accountTo) {
+		long fromVersion = accountFrom.getVersion();
+		long toVersion = accountTo.getVersion();
+		// Both must look free before either is claimed, so a busy target does not keep bumping the source's version.
+		if (((fromVersion | toVersion) & 1) != 0 || !accountFrom.tryBeginUpdate(fromVersion)) {
+			return false;
+		}
+		if (!accountTo.tryBeginUpdate(toVersion)) {
+			accountFrom.endUpdate();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Must only be called with both accounts claimed; reports the transfer and releases the claims.
+	 */
+	private void move(Account accountFrom, Account accountTo, BigDecimal amount) {
+		try {
+			checkFunds(accountFrom.getBalance().compareTo(amount) <= 0);
+			accountFrom.setBalance(accountFrom.getSettledBalance().subtract(amount));
+			accountTo.setBalance(accountTo.getSettledBalance().add(amount));
+			commitListener.transferCommitted(accountFrom, accountTo, amount);
+		} finally {
+			accountFrom.endUpdate();
+			accountTo.endUpdate();
+		}
+	}
+
+	private void move(Account accountFrom, Account accountTo, long amount) {
+		try {
+			long fromBalance = accountFrom.getMinorBalance();
+			checkFunds(fromBalance <= amount);
+			long toBalance = Math.addExact(accountTo.getMinorBalance(), amount);
+			accountFrom.setMinorBalance(fromBalance - amount);
+			accountTo.setMinorBalance(toBalance);
+			commitListener.transferCommittedMinorUnits(accountFrom, accountTo, amount);
+		} finally {
+			accountFrom.endUpdate();
+			accountTo.endUpdate();
+		}
+	}
+
+	/**
+	 * Must only be called with both accounts claimed; undoes the debit if the credit fails, reports both sides and
+	 * releases the claims.
+	 */
+	private void moveConverted(Account accountFrom, Account accountTo, BigDecimal debited, BigDecimal credited) {
+		try {
+			takeOut(accountFrom, debited);
+			try {
+				putIn(accountTo, credited);
+			} catch (RuntimeException e) {
+				putIn(accountFrom, debited);
+				throw e;
+			}
+			commitListener.balanceAdjusted(accountFrom, debited.negate());
+			commitListener.balanceAdjusted(accountTo, credited);
+		} finally {
+			accountFrom.endUpdate();
+			accountTo.endUpdate();
+		}
+	}
+
+	/**
+	 * Checks the funds of a claimed account and takes {@code amount} out of it.
+	 */
+	private static void takeOut(Account account, BigDecimal amount) {
+		if (account.isMinorUnits()) {
+			long minorAmount = Account.toMinorUnits(amount, account.getMinorUnitScale());
+			long balance = account.getMinorBalance();
+			checkFunds(balance <= minorAmount);
+			account.setMinorBalance(balance - minorAmount);
+		} else {
+			checkFunds(account.getBalance().compareTo(amount) <= 0);
+			account.setBalance(account.getSettledBalance().subtract(amount));
+		}
+	}
+
+	private static void putIn(Account account, BigDecimal amount) {
+		if (account.isMinorUnits()) {
+			long minorAmount = Account.toMinorUnits(amount, account.getMinorUnitScale());
+			account.setMinorBalance(Math.addExact(account.getMinorBalance(), minorAmount));
+		} else {
+			account.setBalance(account.getSettledBalance().add(amount));
+		}
+	}
+
+	private static void checkFunds(boolean insufficient) {
+		if (insufficient) {
+			throw new InsufficientFundsException(INSUFFICIENT_FUNDS_MESSAGE);
+		}
+	}
+
+	/**
+	 * Spins for the first few attempts, then parks for a random time below a doubling bound.
+	 */
+	private static void backoff(int attempt) {
+		if (attempt < SPIN_ATTEMPTS) {
+			for (int i = 0; i < 1 << attempt; i++) {
+				Thread.onSpinWait();
+			}
+			return;
+		}
+		long bound = Math.min(MAX_BACKOFF_NANOS, MIN_BACKOFF_NANOS << Math.min(attempt - SPIN_ATTEMPTS, 20));
+		LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(MIN_BACKOFF_NANOS, bound + 1));
+	}
+
+	/**
+	 * Lower ({@code first}) or higher stripe lock of the two accounts; the same lock twice if they share a stripe.
+	 */
+	private ReentrantLock fallbackLock(Account accountFrom, Account accountTo, boolean first) {
+		int fromStripe = stripeOf(accountFrom.getAccountId());
+		int toStripe = stripeOf(accountTo.getAccountId());
+		return fallbackLocks[first ? Math.min(fromStripe, toStripe) : Math.max(fromStripe, toStripe)];
+	}
+
+	private int stripeOf(String accountId) {
+		int h = accountId.hashCode();
+		return (h ^ (h >>> 16)) & mask;
+	}
+}
@@ -0,0 +1,148 @@
+package com.dws.challenge.service;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Assigns every account id to the node that owns it. Account ids are hashed to 32 bits and the hash space is split
+ * into one contiguous range per node, in the order of {@code cluster.nodes}; {@code cluster.weights} makes a node's
+ * range proportionally larger. Every node must be started with the same node list and weights, only
+ * {@code cluster.node-index} differs.
+ *
+ * <p>Without {@code cluster.nodes} there is a single node that owns every account, which is the default.
+ */
+@Component
+public class PartitionMap {
+
+	private static final long HASH_SPACE = 1L << 32;
+
+	private final List<URI> nodes;
+
+	private final int localNode;
+
+	/**
+	 * Lowest hash owned by each node, ascending; node {@code i} owns up to {@code rangeStarts[i + 1] - 1}.
+	 */
+	private final long[] rangeStarts;
+
+	@Autowired
+	public PartitionMap(@Value("${cluster.nodes:}") String[] nodes, @Value("${cluster.weights:}") int[] weights,
+			@Value("${cluster.node-index:0}") int localNode) {
+		if (nodes.length == 0) {
+			this.nodes = List.of();
+			this.localNode = 0;
+			this.rangeStarts = new long[] { 0 };
+			return;
+		}
+		if (localNode < 0 || localNode >= nodes.length) {
+			throw new IllegalArgumentException("cluster.node-index must point into cluster.nodes: " + localNode);
+		}
+		if (weights.length != 0 && weights.length != nodes.length) {
+			throw new IllegalArgumentException("cluster.weights needs one weight per node");
+		}
+		List<URI> uris = new ArrayList<>(nodes.length);
+		for (String node : nodes) {
+			uris.add(URI.create(node.trim().replaceAll("/+$", "")));
+		}
+		this.nodes = List.copyOf(uris);
+		this.localNode = localNode;
+		this.rangeStarts = rangeStarts(weights.length == 0 ? equalWeights(nodes.length) : weights);
+	}
+
+	/**
+	 * A map for services built outside Spring, in which the local node owns every account.
+	 */
+	public static PartitionMap singleNode() {
+		return new PartitionMap(new String[0], new int[0], 0);
+	}
+
+	public boolean isPartitioned() {
+		return nodes.size() > 1;
+	}
+
+	public int getNodeCount() {
+		return Math.max(1, nodes.size());
+	}
+
+	public int getLocalNode() {
+		return localNode;
+	}
+
+	public URI getNodeUri(int node) {
+		return nodes.get(node);
+	}
+
+	public int ownerOf(String accountId) {
+		if (!isPartitioned()) {
+			return localNode;
+		}
+		int index = Arrays.binarySearch(rangeStarts, hash(accountId));
+		return index >= 0 ? index : -index - 2;
+	}
+
+	public boolean isLocal(String accountId) {
+		return ownerOf(accountId) == localNode;
+	}
+
+	/**
+	 * The ranges and addresses of every node, for the cluster endpoint.
+	 */
+	public List<Map<String, Object>> describe() {
+		List<Map<String, Object>> description = new ArrayList<>(nodes.size());
+		for (int node = 0; node < nodes.size(); node++) {
+			Map<String, Object> entry = new LinkedHashMap<>();
+			entry.put("node", node);
+			entry.put("uri", nodes.get(node).toString());
+			entry.put("firstHash", rangeStarts[node]);
+			entry.put("lastHash", (node + 1 < rangeStarts.length ? rangeStarts[node + 1] : HASH_SPACE) - 1);
+			entry.put("local", node == localNode);
+			description.add(entry);
+		}
+		return description;
+	}
+
+	/**
+	 * Unsigned 32-bit hash of an account id. {@link String#hashCode()} is specified by the platform and therefore the
+	 * same on every node; the murmur3 finalizer spreads ids that differ only in their last characters.
+	 */
+	static long hash(String accountId) {
+		int h = accountId.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return Integer.toUnsignedLong(h);
+	}
+
+	private static long[] rangeStarts(int[] weights) {
+		long total = 0;
+		for (int weight : weights) {
+			if (weight <= 0) {
+				throw new IllegalArgumentException("cluster.weights must be positive");
+			}
+			total += weight;
+		}
+		long[] starts = new long[weights.length];
+		long cumulative = 0;
+		for (int i = 0; i < weights.length; i++) {
+			starts[i] = cumulative * HASH_SPACE / total;
+			cumulative += weights[i];
+		}
+		return starts;
+	}
+
+	private static int[] equalWeights(int nodes) {
+		int[] weights = new int[nodes];
+		Arrays.fill(weights, 1);
+		return weights;
+	}
+}
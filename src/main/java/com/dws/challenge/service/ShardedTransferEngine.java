@@ -0,0 +1,181 @@
+package com.dws.challenge.service;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.dws.challenge.domain.Account;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Partitions accounts by id hash across single-threaded shards; each shard thread is the only writer of the balances
+ * it owns, so no locks are taken. A transfer between two accounts of the same shard runs as one task on that shard.
+ * A cross-shard transfer runs as a debit on the source shard, which reserves the amount by taking it out of the
+ * account, followed by a credit on the target shard; if the credit fails the reservation is refunded on the source
+ * shard. Money is therefore never created or lost, though for the short time a transfer is in flight the amount is
+ * in neither account, see {@link #getInFlightTransfers()}. The commit listener is told on the target shard right after
+ * the credit, before any other task of that shard can spend it.
+ *
+ * <p>Callers block until their transfer has completed, so the {@link TransferEngine} contract is unchanged. Balances
+ * must only be modified through this engine while it is in use.
+ */
+@Slf4j
+public class ShardedTransferEngine extends AbstractTransferEngine {
+
+	private final ExecutorService[] shards;
+
+	private final LongAdder inFlight = new LongAdder();
+
+	public ShardedTransferEngine(int shardCount) {
+		if (shardCount <= 0) {
+			throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+		}
+		this.shards = new ExecutorService[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			String name = "transfer-shard-" + i;
+			shards[i] = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	@Override
+	public void transfer(Account accountFrom, Account accountTo, BigDecimal amount) {
+		execute(accountFrom, accountTo, () -> applyTransfer(accountFrom, accountTo, amount),
+				() -> debit(accountFrom, amount), () -> credit(accountTo, amount), () -> credit(accountFrom, amount),
+				() -> commitListener.transferCommitted(accountFrom, accountTo, amount));
+	}
+
+	@Override
+	public void transferMinorUnits(Account accountFrom, Account accountTo, long amount) {
+		if (!accountFrom.isMinorUnits() || accountFrom.getMinorUnitScale() != accountTo.getMinorUnitScale()) {
+			throw new IllegalStateException("Both accounts must hold minor units of the same scale");
+		}
+		execute(accountFrom, accountTo, () -> applyTransfer(accountFrom, accountTo, amount),
+				() -> debit(accountFrom, amount), () -> credit(accountTo, amount), () -> credit(accountFrom, amount),
+				() -> commitListener.transferCommittedMinorUnits(accountFrom, accountTo, amount));
+	}
+
+	@Override
+	public void transferConverted(Account accountFrom, Account accountTo, BigDecimal debited, BigDecimal credited) {
+		requireDistinct(accountFrom, accountTo);
+		execute(accountFrom, accountTo, () -> applyConvertedTransfer(accountFrom, accountTo, debited, credited),
+				() -> debit(accountFrom, debited), () -> credit(accountTo, credited), () -> credit(accountFrom, debited),
+				() -> {
+					commitListener.balanceAdjusted(accountFrom, debited.negate());
+					commitListener.balanceAdjusted(accountTo, credited);
+				});
+	}
+
+	@Override
+	public void withdraw(Account account, BigDecimal amount) {
+		executeOnShard(account, () -> applyWithdrawal(account, amount));
+	}
+
+	@Override
+	public void deposit(Account account, BigDecimal amount) {
+		executeOnShard(account, () -> applyDeposit(account, amount));
+	}
+
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	/**
+	 * Number of cross-shard transfers whose amount has been debited but not yet credited or refunded.
+	 */
+	public long getInFlightTransfers() {
+		return inFlight.sum();
+	}
+
+	/**
+	 * Lets the queued transfers finish and stops the shard threads.
+	 */
+	public void shutdown() {
+		for (ExecutorService shard : shards) {
+			shard.shutdown();
+		}
+		try {
+			for (ExecutorService shard : shards) {
+				if (!shard.awaitTermination(10, TimeUnit.SECONDS)) {
+					log.warn("Transfer shard did not drain within 10 seconds");
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	int shardOf(String accountId) {
+		int h = accountId.hashCode();
+		return Math.floorMod(h ^ (h >>> 16), shards.length);
+	}
+
+	private void execute(Account accountFrom, Account accountTo, Runnable local, Runnable debit, Runnable credit,
+			Runnable refund, Runnable committed) {
+		int fromShard = shardOf(accountFrom.getAccountId());
+		int toShard = shardOf(accountTo.getAccountId());
+		CompletableFuture<Void> done = new CompletableFuture<>();
+		if (fromShard == toShard) {
+			shards[fromShard].execute(() -> complete(done, local));
+		} else {
+			shards[fromShard].execute(() -> {
+				try {
+					debit.run();
+				} catch (RuntimeException e) {
+					done.completeExceptionally(e);
+					return;
+				}
+				inFlight.increment();
+				shards[toShard].execute(() -> {
+					try {
+						credit.run();
+					} catch (RuntimeException e) {
+						shards[fromShard].execute(() -> {
+							refund.run();
+							inFlight.decrement();
+							done.completeExceptionally(e);
+						});
+						return;
+					}
+					inFlight.decrement();
+					complete(done, committed);
+				});
+			});
+		}
+		await(done);
+	}
+
+	private void executeOnShard(Account account, Runnable task) {
+		CompletableFuture<Void> done = new CompletableFuture<>();
+		shards[shardOf(account.getAccountId())].execute(() -> complete(done, task));
+		await(done);
+	}
+
+	private static void complete(CompletableFuture<Void> done, Runnable task) {
+		try {
+			task.run();
+			done.complete(null);
+		} catch (RuntimeException e) {
+			done.completeExceptionally(e);
+		}
+	}
+
+	private static void await(CompletableFuture<Void> done) {
+		try {
+			done.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+}
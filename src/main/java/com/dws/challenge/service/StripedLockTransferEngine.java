@@ -0,0 +1,184 @@
+package com.dws.challenge.service;
+
+import java.math.BigDecimal;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import com.dws.challenge.domain.Account;
+
+/**
+ * Guards accounts with a fixed pool of {@link ReentrantLock}s selected by account id hash. Both stripes of a transfer
+ * are acquired in ascending stripe order so that A to B and B to A transfers can never deadlock, and a transfer whose
+ * accounts share a stripe only takes that single lock. Batches collect the stripes of all their accounts and lock them
+ * once, in the same ascending order, before applying every transfer in a single pass.
+ *
+ * <p>Every acquisition first tries the lock without blocking; only when that fails is the wait timed and reported to
+ * {@link TransferMetrics}, so uncontended transfers do not pay for the clock reads.
+ */
+public class StripedLockTransferEngine extends AbstractTransferEngine {
+
+	private final ReentrantLock[] locks;
+
+	private final int mask;
+
+	private final TransferMetrics metrics;
+
+	public StripedLockTransferEngine(int stripes) {
+		this(stripes, TransferMetrics.disabled());
+	}
+
+	public StripedLockTransferEngine(int stripes, TransferMetrics metrics) {
+		if (stripes <= 0) {
+			throw new IllegalArgumentException("Lock stripes must be positive: " + stripes);
+		}
+		int size = Integer.highestOneBit(stripes - 1) << 1;
+		if (size == 0) {
+			size = 1;
+		}
+		this.locks = new ReentrantLock[size];
+		for (int i = 0; i < size; i++) {
+			locks[i] = new ReentrantLock();
+		}
+		this.mask = size - 1;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public void transfer(Account accountFrom, Account accountTo, BigDecimal amount) {
+		int fromStripe = stripeOf(accountFrom.getAccountId());
+		int toStripe = stripeOf(accountTo.getAccountId());
+		lock(fromStripe, toStripe);
+		try {
+			applyTransfer(accountFrom, accountTo, amount);
+		} finally {
+			unlock(fromStripe, toStripe);
+		}
+	}
+
+	@Override
+	public void transferMinorUnits(Account accountFrom, Account accountTo, long amount) {
+		int fromStripe = stripeOf(accountFrom.getAccountId());
+		int toStripe = stripeOf(accountTo.getAccountId());
+		lock(fromStripe, toStripe);
+		try {
+			applyTransfer(accountFrom, accountTo, amount);
+		} finally {
+			unlock(fromStripe, toStripe);
+		}
+	}
+
+	@Override
+	public void transferConverted(Account accountFrom, Account accountTo, BigDecimal debited, BigDecimal credited) {
+		int fromStripe = stripeOf(accountFrom.getAccountId());
+		int toStripe = stripeOf(accountTo.getAccountId());
+		lock(fromStripe, toStripe);
+		try {
+			applyConvertedTransfer(accountFrom, accountTo, debited, credited);
+		} finally {
+			unlock(fromStripe, toStripe);
+		}
+	}
+
+	@Override
+	public void withdraw(Account account, BigDecimal amount) {
+		int stripe = stripeOf(account.getAccountId());
+		lock(stripe, stripe);
+		try {
+			applyWithdrawal(account, amount);
+		} finally {
+			unlock(stripe, stripe);
+		}
+	}
+
+	@Override
+	public void deposit(Account account, BigDecimal amount) {
+		int stripe = stripeOf(account.getAccountId());
+		lock(stripe, stripe);
+		try {
+			applyDeposit(account, amount);
+		} finally {
+			unlock(stripe, stripe);
+		}
+	}
+
+	@Override
+	public void transferBatch(List<BatchTransfer> batch) {
+		BitSet stripes = new BitSet(locks.length);
+		for (BatchTransfer transfer : batch) {
+			stripes.set(stripeOf(transfer.getAccountFrom().getAccountId()));
+			stripes.set(stripeOf(transfer.getAccountTo().getAccountId()));
+		}
+
+		int locked = -1;
+		try {
+			for (int i = stripes.nextSetBit(0); i >= 0; i = stripes.nextSetBit(i + 1)) {
+				acquire(locks[i]);
+				locked = i;
+			}
+			for (BatchTransfer transfer : batch) {
+				applyTransfer(transfer);
+			}
+		} finally {
+			for (int i = locked; i >= 0; i = stripes.previousSetBit(i - 1)) {
+				locks[i].unlock();
+			}
+		}
+	}
+
+	@Override
+	public <T> Optional<T> readExclusively(List<Account> accounts, Supplier<T> reader) {
+		BitSet stripes = new BitSet(locks.length);
+		for (Account account : accounts) {
+			stripes.set(stripeOf(account.getAccountId()));
+		}
+
+		int locked = -1;
+		try {
+			for (int i = stripes.nextSetBit(0); i >= 0; i = stripes.nextSetBit(i + 1)) {
+				acquire(locks[i]);
+				locked = i;
+			}
+			return Optional.of(reader.get());
+		} finally {
+			for (int i = locked; i >= 0; i = stripes.previousSetBit(i - 1)) {
+				locks[i].unlock();
+			}
+		}
+	}
+
+	public int getStripeCount() {
+		return locks.length;
+	}
+
+	private void lock(int stripeA, int stripeB) {
+		acquire(locks[Math.min(stripeA, stripeB)]);
+		if (stripeA != stripeB) {
+			acquire(locks[Math.max(stripeA, stripeB)]);
+		}
+	}
+
+	private void acquire(ReentrantLock lock) {
+		if (lock.tryLock()) {
+			metrics.recordLockAcquired(0);
+			return;
+		}
+		long start = System.nanoTime();
+		lock.lock();
+		metrics.recordLockAcquired(Math.max(1, System.nanoTime() - start));
+	}
+
+	private void unlock(int stripeA, int stripeB) {
+		if (stripeA != stripeB) {
+			locks[Math.max(stripeA, stripeB)].unlock();
+		}
+		locks[Math.min(stripeA, stripeB)].unlock();
+	}
+
+	int stripeOf(String accountId) {
+		int h = accountId.hashCode();
+		return (h ^ (h >>> 16)) & mask;
+	}
+}
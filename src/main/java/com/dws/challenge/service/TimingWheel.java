@@ -0,0 +1,172 @@
+package com.dws.challenge.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel with cascading levels, as used by operating system kernels for their timers. Time is
+ * counted in ticks. Level 0 has one bucket per tick for the next {@value #SLOTS} ticks, each further level has
+ * buckets {@value #SLOTS} times as wide, so four levels cover 2^32 ticks. A node is filed in the lowest level whose
+ * range reaches its deadline; whenever a level's bucket comes due its nodes are re-filed one level lower, until they
+ * reach level 0 and fire. Adding and removing a node is O(1), and advancing costs one bucket per tick plus the
+ * occasional cascade, however many nodes are pending.
+ *
+ * <p>Buckets are intrusive doubly linked lists threaded through the nodes themselves, so a pending node costs no
+ * allocation beyond its own object. Deadlines beyond the last level are parked in its farthest bucket and re-filed
+ * until due. Not thread-safe.
+ */
+final class TimingWheel<N extends TimingWheel.Node> {
+
+	private static final int SLOT_BITS = 8;
+
+	static final int SLOTS = 1 << SLOT_BITS;
+
+	private static final int MASK = SLOTS - 1;
+
+	private static final int LEVELS = 4;
+
+	private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+	/**
+	 * Links of a node pending in a wheel; a node is in at most one wheel at a time.
+	 */
+	abstract static class Node {
+
+		long deadlineTick;
+
+		Node previous;
+
+		Node next;
+	}
+
+	/**
+	 * Sentinel of each bucket's circular list, {@code LEVELS * SLOTS} of them.
+	 */
+	private final Node[] buckets;
+
+	private long currentTick;
+
+	private long size;
+
+	TimingWheel(long startTick) {
+		this.currentTick = startTick;
+		this.buckets = new Node[LEVELS * SLOTS];
+		for (int i = 0; i < buckets.length; i++) {
+			Node sentinel = new Node() {
+			};
+			sentinel.previous = sentinel;
+			sentinel.next = sentinel;
+			buckets[i] = sentinel;
+		}
+	}
+
+	long getCurrentTick() {
+		return currentTick;
+	}
+
+	long size() {
+		return size;
+	}
+
+	/**
+	 * Files a node by its {@code deadlineTick}; a deadline that is not in the future fires on the next tick.
+	 */
+	void add(N node) {
+		if (node.deadlineTick <= currentTick) {
+			node.deadlineTick = currentTick + 1;
+		}
+		file(node);
+		size++;
+	}
+
+	void remove(N node) {
+		unlink(node);
+		size--;
+	}
+
+	/**
+	 * Advances tick by tick up to and including {@code tick}, handing every node that comes due to {@code due} after
+	 * removing it from the wheel.
+	 */
+	void advanceTo(long tick, Consumer<? super N> due) {
+		if (size == 0 && tick > currentTick) {
+			currentTick = tick;
+			return;
+		}
+		while (currentTick < tick) {
+			currentTick++;
+			for (int level = 1; level < LEVELS; level++) {
+				if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+					break;
+				}
+				cascade(level, slot(currentTick, level), due);
+			}
+			drain(buckets[slot(currentTick, 0)], due);
+			if (size == 0) {
+				currentTick = tick;
+			}
+		}
+	}
+
+	private void file(Node node) {
+		long delta = Math.min(node.deadlineTick - currentTick, MAX_DELTA);
+		int level = 0;
+		while (delta >= 1L << (SLOT_BITS * (level + 1))) {
+			level++;
+		}
+		Node sentinel = buckets[level * SLOTS + slot(currentTick + delta, level)];
+		node.previous = sentinel.previous;
+		node.next = sentinel;
+		sentinel.previous.next = node;
+		sentinel.previous = node;
+	}
+
+	/**
+	 * Re-files the nodes of a higher level bucket that has come due. Their deadlines now lie within the range of the
+	 * levels below, or are due right away.
+	 */
+	@SuppressWarnings("unchecked")
+	private void cascade(int level, int slot, Consumer<? super N> due) {
+		Node sentinel = buckets[level * SLOTS + slot];
+		Node node = sentinel.next;
+		sentinel.previous = sentinel;
+		sentinel.next = sentinel;
+		while (node != sentinel) {
+			Node next = node.next;
+			if (node.deadlineTick <= currentTick) {
+				size--;
+				node.previous = null;
+				node.next = null;
+				due.accept((N) node);
+			} else {
+				file(node);
+			}
+			node = next;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void drain(Node sentinel, Consumer<? super N> due) {
+		Node node = sentinel.next;
+		sentinel.previous = sentinel;
+		sentinel.next = sentinel;
+		while (node != sentinel) {
+			Node next = node.next;
+			size--;
+			node.previous = null;
+			node.next = null;
+			due.accept((N) node);
+			node = next;
+		}
+	}
+
+	private static void unlink(Node node) {
+		node.previous.next = node.next;
+		node.next.previous = node.previous;
+		node.previous = null;
+		node.next = null;
+	}
+
+	private static int slot(long tick, int level) {
+		return (int) ((tick >>> (SLOT_BITS * level)) & MASK);
+	}
+}
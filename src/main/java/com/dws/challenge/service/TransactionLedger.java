@@ -0,0 +1,195 @@
+package com.dws.challenge.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.LedgerEntry;
+import com.dws.challenge.domain.TransactionPage;
+
+/**
+ * Keeps the last {@code depth} transfers of every account in memory. Each account has a fixed-size ring of parallel
+ * arrays that is allocated on its first transfer; recording a transfer afterwards only overwrites array slots under
+ * the account's own monitor, so nothing is allocated on the transfer path and accounts never contend with each other.
+ * Entries are turned into {@link LedgerEntry} objects only when a page is read.
+ *
+ * <p>Amounts are kept in the account's own representation: the {@link BigDecimal} the caller passed in for decimal
+ * accounts, a plain {@code long} at the account's scale for accounts in minor units. Only that one amount array is
+ * allocated. An entry then costs 21 bytes in minor units (timestamp, counterparty reference, direction, amount) or
+ * 17 bytes plus the shared {@code BigDecimal} for decimal accounts, and each account with history adds about 150
+ * bytes of fixed overhead: roughly 0.5 KB per active account at the default depth of 16, or 5 GB for 10 million
+ * active accounts. The ledger is not persisted and is not rebuilt from the journal; a depth of 0 disables it.
+ */
+@Component
+public class TransactionLedger {
+
+	private final int depth;
+
+	private final ConcurrentHashMap<String, AccountLedger> ledgers = new ConcurrentHashMap<>();
+
+	@Autowired
+	public TransactionLedger(@Value("${transfer.ledger.depth:16}") int depth) {
+		if (depth < 0) {
+			throw new IllegalArgumentException("Ledger depth must not be negative: " + depth);
+		}
+		this.depth = depth;
+	}
+
+	/**
+	 * A ledger that records nothing, for services built outside Spring.
+	 */
+	public static TransactionLedger disabled() {
+		return new TransactionLedger(0);
+	}
+
+	public boolean isEnabled() {
+		return depth > 0;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public void record(Account accountFrom, Account accountTo, BigDecimal amount) {
+		if (depth == 0) {
+			return;
+		}
+		long timestamp = System.currentTimeMillis();
+		ledgerOf(accountFrom).append(timestamp, accountTo.getAccountId(), true, amount);
+		ledgerOf(accountTo).append(timestamp, accountFrom.getAccountId(), false, amount);
+	}
+
+	public void recordMinorUnits(Account accountFrom, Account accountTo, long amount) {
+		if (depth == 0) {
+			return;
+		}
+		long timestamp = System.currentTimeMillis();
+		int scale = accountFrom.getMinorUnitScale();
+		ledgerOf(accountFrom).append(timestamp, accountTo.getAccountId(), true, amount, scale);
+		ledgerOf(accountTo).append(timestamp, accountFrom.getAccountId(), false, amount, scale);
+	}
+
+	/**
+	 * Records one side of a transfer whose counterparty is not held here, see
+	 * {@link TransferEngine#withdraw(Account, BigDecimal)}.
+	 */
+	public void record(Account account, String counterpartyAccountId, boolean debit, BigDecimal amount) {
+		if (depth == 0) {
+			return;
+		}
+		ledgerOf(account).append(System.currentTimeMillis(), counterpartyAccountId, debit, amount);
+	}
+
+	/**
+	 * Newest first page of the retained transfers of an account.
+	 *
+	 * @param before only entries with a smaller sequence number are returned; {@code Long.MAX_VALUE} for the newest
+	 * @param limit  maximum number of entries in the page
+	 */
+	public TransactionPage page(String accountId, long before, int limit) {
+		AccountLedger ledger = ledgers.get(accountId);
+		if (ledger == null) {
+			return new TransactionPage(accountId, Collections.emptyList(), null);
+		}
+		return ledger.page(accountId, before, limit);
+	}
+
+	/**
+	 * Drops the history of every account.
+	 */
+	public void clear() {
+		ledgers.clear();
+	}
+
+	private AccountLedger ledgerOf(Account account) {
+		AccountLedger ledger = ledgers.get(account.getAccountId());
+		if (ledger == null) {
+			ledger = ledgers.computeIfAbsent(account.getAccountId(), id -> new AccountLedger(depth,
+					account.isMinorUnits() ? account.getMinorUnitScale() : Account.DECIMAL_BALANCE));
+		}
+		return ledger;
+	}
+
+	/**
+	 * Ring of the most recent entries of one account. Slot {@code sequence % capacity} holds entry {@code sequence}.
+	 * Exactly one of {@link #amounts} and {@link #minorAmounts} exists, depending on the account's representation when
+	 * its first transfer was recorded.
+	 */
+	private static final class AccountLedger {
+
+		private final long[] timestamps;
+
+		private final String[] counterparties;
+
+		private final boolean[] debits;
+
+		private final BigDecimal[] amounts;
+
+		private final long[] minorAmounts;
+
+		private final int scale;
+
+		private long count;
+
+		private AccountLedger(int capacity, int scale) {
+			this.timestamps = new long[capacity];
+			this.counterparties = new String[capacity];
+			this.debits = new boolean[capacity];
+			this.scale = scale;
+			this.amounts = scale == Account.DECIMAL_BALANCE ? new BigDecimal[capacity] : null;
+			this.minorAmounts = scale == Account.DECIMAL_BALANCE ? null : new long[capacity];
+		}
+
+		private synchronized void append(long timestamp, String counterparty, boolean debit, BigDecimal amount) {
+			int slot = next(timestamp, counterparty, debit);
+			if (amounts != null) {
+				amounts[slot] = amount;
+			} else {
+				minorAmounts[slot] = Account.toMinorUnits(amount, scale);
+			}
+		}
+
+		private synchronized void append(long timestamp, String counterparty, boolean debit, long amount,
+				int amountScale) {
+			int slot = next(timestamp, counterparty, debit);
+			if (minorAmounts != null && amountScale == scale) {
+				minorAmounts[slot] = amount;
+			} else if (minorAmounts != null) {
+				minorAmounts[slot] = Account.toMinorUnits(BigDecimal.valueOf(amount, amountScale), scale);
+			} else {
+				amounts[slot] = BigDecimal.valueOf(amount, amountScale);
+			}
+		}
+
+		private int next(long timestamp, String counterparty, boolean debit) {
+			int slot = (int) (count % timestamps.length);
+			timestamps[slot] = timestamp;
+			counterparties[slot] = counterparty;
+			debits[slot] = debit;
+			count++;
+			return slot;
+		}
+
+		private synchronized TransactionPage page(String accountId, long before, int limit) {
+			long oldest = Math.max(0, count - timestamps.length);
+			long end = Math.min(before, count);
+			long start = Math.max(oldest, end - limit);
+			List<LedgerEntry> entries = new ArrayList<>((int) Math.max(0, end - start));
+			for (long sequence = end - 1; sequence >= start; sequence--) {
+				int slot = (int) (sequence % timestamps.length);
+				BigDecimal amount = amounts != null ? amounts[slot] : BigDecimal.valueOf(minorAmounts[slot], scale);
+				entries.add(new LedgerEntry(sequence, Instant.ofEpochMilli(timestamps[slot]), counterparties[slot],
+						debits[slot] ? amount.negate() : amount));
+			}
+			return new TransactionPage(accountId, entries, start > oldest ? start : null);
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package com.dws.challenge.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.exception.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Admission layer in front of the transfer endpoints, off unless enabled. Every transfer must pass two checks before
+ * it may take any account lock:
+ * <ul>
+ * <li>a token bucket per debited account, so one client hammering an account is throttled before it can monopolise
+ * its lock. Credited accounts are only limited when {@code limitCredits} is set: an account paid by many payers, such
+ * as a merchant, would otherwise be capped at the per-account rate however many clients pay it, and its credits are
+ * handled by the hot account stripes instead. When the credited account is then over its rate, the token already
+ * taken from the debited one is given back;</li>
+ * <li>a global limit on transfers in progress, so excess load is shed with 429 instead of queueing in the server.</li>
+ * </ul>
+ *
+ * <p>Buckets use the generic cell rate algorithm: each one is a single {@link AtomicLong} holding the theoretical
+ * arrival time of the next request, updated with one compare-and-set and no allocation. They live in a size-bounded
+ * Caffeine cache that drops accounts idle for longer than a full refill, which loses nothing because such a bucket
+ * would be full again anyway.
+ */
+@Component
+public class TransferAdmissionControl {
+
+	private static final TooManyRequestsException CONCURRENCY_EXCEEDED = new TooManyRequestsException(
+			"Too many transfers in progress, retry later", 1);
+
+	private final boolean enabled;
+
+	private final boolean limitCredits;
+
+	private final long emissionIntervalNanos;
+
+	private final long burstToleranceNanos;
+
+	private final Cache<String, AtomicLong> buckets;
+
+	private final int maxConcurrent;
+
+	private final Semaphore inProgress;
+
+	private final LongSupplier clock;
+
+	private final LongAdder admitted = new LongAdder();
+
+	private final LongAdder rateLimited = new LongAdder();
+
+	private final LongAdder shed = new LongAdder();
+
+	@Autowired
+	public TransferAdmissionControl(@Value("${transfer.admission.enabled:false}") boolean enabled,
+			@Value("${transfer.admission.account-rate-per-second:1000}") double accountRatePerSecond,
+			@Value("${transfer.admission.account-burst:2000}") int accountBurst,
+			@Value("${transfer.admission.max-tracked-accounts:1000000}") long maxTrackedAccounts,
+			@Value("${transfer.admission.max-concurrent:512}") int maxConcurrent,
+			@Value("${transfer.admission.limit-credits:false}") boolean limitCredits) {
+		this(enabled, accountRatePerSecond, accountBurst, maxTrackedAccounts, maxConcurrent, limitCredits,
+				System::nanoTime);
+	}
+
+	public TransferAdmissionControl(boolean enabled, double accountRatePerSecond, int accountBurst,
+			long maxTrackedAccounts, int maxConcurrent, LongSupplier clock) {
+		this(enabled, accountRatePerSecond, accountBurst, maxTrackedAccounts, maxConcurrent, false, clock);
+	}
+
+	public TransferAdmissionControl(boolean enabled, double accountRatePerSecond, int accountBurst,
+			long maxTrackedAccounts, int maxConcurrent, boolean limitCredits, LongSupplier clock) {
+		if (accountRatePerSecond <= 0 || accountBurst <= 0 || maxConcurrent <= 0) {
+			throw new IllegalArgumentException("Admission rate, burst and concurrency must be positive");
+		}
+		this.enabled = enabled;
+		this.limitCredits = limitCredits;
+		this.emissionIntervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / accountRatePerSecond));
+		this.burstToleranceNanos = emissionIntervalNanos * (accountBurst - 1);
+		this.buckets = Caffeine.newBuilder()
+				.maximumSize(maxTrackedAccounts)
+				.expireAfterAccess(Duration.ofNanos(burstToleranceNanos + emissionIntervalNanos))
+				.build();
+		this.maxConcurrent = maxConcurrent;
+		this.inProgress = new Semaphore(maxConcurrent);
+		this.clock = clock;
+	}
+
+	/**
+	 * Admission control that lets everything through, for services built outside Spring.
+	 */
+	public static TransferAdmissionControl disabled() {
+		return new TransferAdmissionControl(false, 1, 1, 1, 1, System::nanoTime);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Admits a transfer between the two accounts or rejects it without waiting. An admitted transfer holds one of the
+	 * global slots and must hand it back with {@link #release()} once it has finished, whatever its outcome.
+	 *
+	 * @throws TooManyRequestsException if a limited account is over its rate or all slots are taken
+	 */
+	public void acquire(String accountFromId, String accountToId) {
+		if (!enabled) {
+			return;
+		}
+		long now = clock.getAsLong();
+		long waitNanos = take(accountFromId, now);
+		if (waitNanos == 0 && limitCredits) {
+			waitNanos = take(accountToId, now);
+			if (waitNanos > 0) {
+				giveBack(accountFromId);
+			}
+		}
+		if (waitNanos > 0) {
+			rateLimited.increment();
+			throw new TooManyRequestsException("Transfer rate exceeded for this account, retry later",
+					Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+		}
+		acquireSlot();
+	}
+
+	/**
+	 * Takes one of the global slots only, for requests such as batches that are not tied to one account pair.
+	 */
+	public void acquireSlot() {
+		if (!enabled) {
+			return;
+		}
+		if (!inProgress.tryAcquire()) {
+			shed.increment();
+			throw CONCURRENCY_EXCEEDED;
+		}
+		admitted.increment();
+	}
+
+	public void release() {
+		if (enabled) {
+			inProgress.release();
+		}
+	}
+
+	public Map<String, Object> snapshot() {
+		Map<String, Object> snapshot = new LinkedHashMap<>();
+		snapshot.put("enabled", enabled);
+		snapshot.put("limitCredits", limitCredits);
+		snapshot.put("admitted", admitted.sum());
+		snapshot.put("rateLimited", rateLimited.sum());
+		snapshot.put("shed", shed.sum());
+		snapshot.put("inProgress", enabled ? maxConcurrent - inProgress.availablePermits() : 0);
+		snapshot.put("trackedAccounts", buckets.estimatedSize());
+		return snapshot;
+	}
+
+	/**
+	 * Takes a token from the account's bucket.
+	 *
+	 * @return 0 if a token was taken, otherwise how long until one will be available
+	 */
+	private long take(String accountId, long now) {
+		AtomicLong bucket = buckets.getIfPresent(accountId);
+		if (bucket == null) {
+			bucket = buckets.get(accountId, id -> new AtomicLong(Long.MIN_VALUE));
+		}
+		while (true) {
+			long arrival = bucket.get();
+			long start = arrival == Long.MIN_VALUE || arrival - now < 0 ? now : arrival;
+			long wait = start - now - burstToleranceNanos;
+			if (wait > 0) {
+				return wait;
+			}
+			if (bucket.compareAndSet(arrival, start + emissionIntervalNanos)) {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Returns a token taken by {@link #take(String, long)}. Takes by other transfers in between only moved the arrival
+	 * time further out, so moving it back by one interval restores exactly one token.
+	 */
+	private void giveBack(String accountId) {
+		AtomicLong bucket = buckets.getIfPresent(accountId);
+		if (bucket != null) {
+			bucket.addAndGet(-emissionIntervalNanos);
+		}
+	}
+}
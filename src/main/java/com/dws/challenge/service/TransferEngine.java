@@ -0,0 +1,91 @@
+package com.dws.challenge.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.InsufficientFundsException;
+import com.dws.challenge.repository.TransferCommitListener;
+
+/**
+ * Strategy used by {@link AccountsService} to move money between two accounts atomically.
+ * Implementations decide how concurrent transfers touching the same accounts are serialized, and report every change
+ * to the {@link TransferCommitListener} before anyone else can use the money it moved.
+ */
+public interface TransferEngine {
+
+	/**
+	 * Registers the listener told about every balance change while the engine still holds the changed accounts. Must
+	 * be called before the first transfer; engines start with {@link TransferCommitListener#NONE}.
+	 */
+	void setCommitListener(TransferCommitListener listener);
+
+	/**
+	 * Debits {@code amount} from {@code accountFrom} and credits it to {@code accountTo}. The balance check is
+	 * performed inside the same critical section as the update.
+	 *
+	 * @throws InsufficientFundsException if {@code accountFrom} does not hold enough funds
+	 */
+	void transfer(Account accountFrom, Account accountTo, BigDecimal amount) throws InsufficientFundsException;
+
+	/**
+	 * Allocation-free variant of {@link #transfer(Account, Account, BigDecimal)} for accounts held in minor units.
+	 * {@code amount} is expressed at the accounts' {@link Account#getMinorUnitScale() scale}.
+	 *
+	 * @throws InsufficientFundsException if {@code accountFrom} does not hold enough funds
+	 * @throws IllegalStateException if either account is not in minor units
+	 */
+	void transferMinorUnits(Account accountFrom, Account accountTo, long amount) throws InsufficientFundsException;
+
+	/**
+	 * Debits {@code debited} from {@code accountFrom} and credits {@code credited} to {@code accountTo}, for a transfer
+	 * between accounts of different currencies. Both accounts are guarded as in
+	 * {@link #transfer(Account, Account, BigDecimal)}; if the credit fails the debit is undone before they are given
+	 * up. Each side is reported to the commit listener as an adjustment.
+	 *
+	 * @throws InsufficientFundsException if {@code accountFrom} does not hold enough funds
+	 */
+	void transferConverted(Account accountFrom, Account accountTo, BigDecimal debited, BigDecimal credited)
+			throws InsufficientFundsException;
+
+	/**
+	 * Takes {@code amount} out of {@code account} alone, as one half of a transfer whose other account is held by
+	 * another node. The account is guarded exactly as in {@link #transfer(Account, Account, BigDecimal)}.
+	 *
+	 * @throws InsufficientFundsException if {@code account} does not hold enough funds
+	 */
+	void withdraw(Account account, BigDecimal amount) throws InsufficientFundsException;
+
+	/**
+	 * Adds {@code amount} to {@code account} alone; the other half of {@link #withdraw(Account, BigDecimal)}.
+	 */
+	void deposit(Account account, BigDecimal amount);
+
+	/**
+	 * Applies every transfer of the batch in order and records the outcome of each one. A failing item does not
+	 * prevent the remaining ones from being applied. Engines may override this to acquire the locks of the whole batch
+	 * once instead of per transfer.
+	 */
+	default void transferBatch(List<BatchTransfer> batch) {
+		for (BatchTransfer transfer : batch) {
+			try {
+				transfer(transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getAmount());
+				transfer.setStatus(TransferStatus.COMPLETED);
+			} catch (InsufficientFundsException e) {
+				transfer.setStatus(TransferStatus.INSUFFICIENT_FUNDS);
+			}
+		}
+	}
+
+	/**
+	 * Runs {@code reader} while no transfer can change any of {@code accounts}, for readers whose lock-free attempts
+	 * keep failing. Engines without locks a reader could take return an empty result and the caller keeps retrying
+	 * optimistically.
+	 */
+	default <T> Optional<T> readExclusively(List<Account> accounts, Supplier<T> reader) {
+		return Optional.empty();
+	}
+}
@@ -0,0 +1,216 @@
+package com.dws.challenge.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counters and latency histograms for the account hot paths. Recording is wait-free: counters are {@link LongAdder}s
+ * and latencies go to HdrHistogram {@link Recorder}s, whose intervals are folded into cumulative histograms only when
+ * {@link #snapshot()} is called. With metrics disabled {@link #start()} returns 0 and every record call returns
+ * immediately, so not even {@link System#nanoTime()} is paid.
+ *
+ * <p>Latencies are recorded in nanoseconds and reported in microseconds.
+ */
+@Component
+public class TransferMetrics {
+
+	private static final int SIGNIFICANT_DIGITS = 2;
+
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p999" };
+
+	private final boolean enabled;
+
+	private final Recorder transferLatency = new Recorder(SIGNIFICANT_DIGITS);
+
+	private final Recorder lookupLatency = new Recorder(SIGNIFICANT_DIGITS);
+
+	private final Recorder lockWait = new Recorder(SIGNIFICANT_DIGITS);
+
+	private final Histogram transferLatencyTotal = new Histogram(SIGNIFICANT_DIGITS);
+
+	private final Histogram lookupLatencyTotal = new Histogram(SIGNIFICANT_DIGITS);
+
+	private final Histogram lockWaitTotal = new Histogram(SIGNIFICANT_DIGITS);
+
+	private final LongAdder transfersCompleted = new LongAdder();
+
+	private final LongAdder insufficientFunds = new LongAdder();
+
+	private final LongAdder accountNotFound = new LongAdder();
+
+	private final LongAdder invalidRequests = new LongAdder();
+
+	private final LongAdder idempotentReplays = new LongAdder();
+
+	private final LongAdder lockAcquisitions = new LongAdder();
+
+	private final LongAdder contendedLockAcquisitions = new LongAdder();
+
+	private final LongAdder accountsCreated = new LongAdder();
+
+	private final LongAdder duplicateCreates = new LongAdder();
+
+	private final LongAdder lookups = new LongAdder();
+
+	private final LongAdder lookupMisses = new LongAdder();
+
+	@Autowired
+	public TransferMetrics(@Value("${metrics.enabled:true}") boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Metrics that record nothing, for services built outside Spring.
+	 */
+	public static TransferMetrics disabled() {
+		return new TransferMetrics(false);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Start timestamp to pass to the record methods taking {@code startNanos}.
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	public void recordTransferCompleted(long startNanos) {
+		if (enabled) {
+			transfersCompleted.increment();
+			transferLatency.recordValue(System.nanoTime() - startNanos);
+		}
+	}
+
+	public void recordInsufficientFunds(long startNanos) {
+		if (enabled) {
+			insufficientFunds.increment();
+			transferLatency.recordValue(System.nanoTime() - startNanos);
+		}
+	}
+
+	/**
+	 * Counts outcomes of a batch whose latency is not attributed to individual transfers.
+	 */
+	public void recordBatchOutcomes(int completed, int insufficient, int notFound, int invalid) {
+		if (enabled) {
+			transfersCompleted.add(completed);
+			insufficientFunds.add(insufficient);
+			accountNotFound.add(notFound);
+			invalidRequests.add(invalid);
+		}
+	}
+
+	public void recordAccountNotFound() {
+		if (enabled) {
+			accountNotFound.increment();
+		}
+	}
+
+	/**
+	 * A keyed transfer answered from the idempotency cache instead of being executed.
+	 */
+	public void recordIdempotentReplay() {
+		if (enabled) {
+			idempotentReplays.increment();
+		}
+	}
+
+	/**
+	 * Called by transfer engines for every lock acquisition; {@code waitNanos} is 0 when the lock was free.
+	 */
+	public void recordLockAcquired(long waitNanos) {
+		if (enabled) {
+			lockAcquisitions.increment();
+			if (waitNanos > 0) {
+				contendedLockAcquisitions.increment();
+				lockWait.recordValue(waitNanos);
+			}
+		}
+	}
+
+	public void recordAccountCreated() {
+		if (enabled) {
+			accountsCreated.increment();
+		}
+	}
+
+	public void recordDuplicateCreate() {
+		if (enabled) {
+			duplicateCreates.increment();
+		}
+	}
+
+	public void recordLookup(long startNanos, boolean found) {
+		if (enabled) {
+			lookupLatency.recordValue(System.nanoTime() - startNanos);
+			lookups.increment();
+			if (!found) {
+				lookupMisses.increment();
+			}
+		}
+	}
+
+	/**
+	 * Counters and cumulative latency percentiles since startup. The lock wait histogram only covers contended
+	 * acquisitions.
+	 */
+	public synchronized Map<String, Object> snapshot() {
+		transferLatencyTotal.add(transferLatency.getIntervalHistogram());
+		lookupLatencyTotal.add(lookupLatency.getIntervalHistogram());
+		lockWaitTotal.add(lockWait.getIntervalHistogram());
+
+		Map<String, Object> transfers = new LinkedHashMap<>();
+		transfers.put("completed", transfersCompleted.sum());
+		transfers.put("insufficientFunds", insufficientFunds.sum());
+		transfers.put("accountNotFound", accountNotFound.sum());
+		transfers.put("invalidRequests", invalidRequests.sum());
+		transfers.put("idempotentReplays", idempotentReplays.sum());
+		transfers.put("latencyMicros", describe(transferLatencyTotal));
+
+		Map<String, Object> locks = new LinkedHashMap<>();
+		locks.put("acquisitions", lockAcquisitions.sum());
+		locks.put("contended", contendedLockAcquisitions.sum());
+		locks.put("waitMicros", describe(lockWaitTotal));
+
+		Map<String, Object> accounts = new LinkedHashMap<>();
+		accounts.put("created", accountsCreated.sum());
+		accounts.put("duplicateCreates", duplicateCreates.sum());
+		accounts.put("lookups", lookups.sum());
+		accounts.put("lookupMisses", lookupMisses.sum());
+		accounts.put("lookupLatencyMicros", describe(lookupLatencyTotal));
+
+		Map<String, Object> snapshot = new LinkedHashMap<>();
+		snapshot.put("enabled", enabled);
+		snapshot.put("transfers", transfers);
+		snapshot.put("locks", locks);
+		snapshot.put("accounts", accounts);
+		return snapshot;
+	}
+
+	private static Map<String, Object> describe(Histogram histogram) {
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("count", histogram.getTotalCount());
+		if (histogram.getTotalCount() == 0) {
+			return summary;
+		}
+		summary.put("min", histogram.getMinValue() / 1000.0);
+		summary.put("mean", histogram.getMean() / 1000.0);
+		for (int i = 0; i < PERCENTILES.length; i++) {
+			summary.put(PERCENTILE_NAMES[i], histogram.getValueAtPercentile(PERCENTILES[i]) / 1000.0);
+		}
+		summary.put("max", histogram.getMaxValue() / 1000.0);
+		return summary;
+	}
+}
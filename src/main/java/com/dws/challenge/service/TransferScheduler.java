@@ -0,0 +1,326 @@
+package com.dws.challenge.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.ScheduledTransfer;
+import com.dws.challenge.domain.TransferRequest;
+import com.dws.challenge.domain.TransferResult;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.InvalidAmountException;
+import com.dws.challenge.exception.TooManyRequestsException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs transfers at a later time. Pending transfers sit in a {@link TimingWheel} with a resolution of
+ * {@code transfer.schedule.tick-ms}; a single ticker thread advances it and hands whatever came due to
+ * {@link AccountsService#transferBatch} in batches of {@code transfer.schedule.batch-size}, so a burst of transfers
+ * due at the same moment takes the batch path's chunked locking instead of one engine call each. Transfers never run
+ * before their execution time and usually within one tick after it.
+ *
+ * <p>Each pending transfer is one small object, linked both into its wheel bucket and into the list of transfers
+ * scheduled from its source account, which serves listing and cancellation. It keeps the account id instances of
+ * the repository, so it costs the same however long the ids are. Accounts are looked up again when the transfer
+ * runs: a transfer whose account disappeared meanwhile or that lacks funds then fails and is counted, it is not
+ * retried.
+ *
+ * <p>Pending transfers are held in memory only and are lost on restart.
+ */
+@Slf4j
+@Component
+public class TransferScheduler {
+
+	private final AccountsService accountsService;
+
+	private final long tickMillis;
+
+	private final int batchSize;
+
+	private final long maxPending;
+
+	private final LongSupplier clock;
+
+	/**
+	 * Guards the wheel, the per-account lists and the id sequence. Held for O(1) work when scheduling and
+	 * cancelling, and by the ticker only while it unlinks the due transfers, never while they run.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final TimingWheel<Entry> wheel;
+
+	/**
+	 * Most recently scheduled pending transfer of each source account, heading the account's list.
+	 */
+	private final Map<String, Entry> bySourceAccount = new HashMap<>();
+
+	private long nextId = 1;
+
+	private final Thread ticker;
+
+	private volatile boolean running = true;
+
+	private final LongAdder scheduled = new LongAdder();
+
+	private final LongAdder cancelled = new LongAdder();
+
+	private final LongAdder executed = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private volatile long maxDelayMillis;
+
+	@Autowired
+	public TransferScheduler(AccountsService accountsService, @Value("${transfer.schedule.tick-ms:10}") long tickMillis,
+			@Value("${transfer.schedule.batch-size:1000}") int batchSize,
+			@Value("${transfer.schedule.max-pending:10000000}") long maxPending) {
+		this(accountsService, tickMillis, batchSize, maxPending, System::currentTimeMillis, true);
+	}
+
+	/**
+	 * @param clock       milliseconds since the epoch
+	 * @param startTicker false to leave advancing the wheel to calls of {@link #runDue()}
+	 */
+	public TransferScheduler(AccountsService accountsService, long tickMillis, int batchSize, long maxPending,
+			LongSupplier clock, boolean startTicker) {
+		if (tickMillis <= 0 || batchSize <= 0) {
+			throw new IllegalArgumentException("transfer.schedule.tick-ms and batch-size must be positive");
+		}
+		this.accountsService = accountsService;
+		this.tickMillis = tickMillis;
+		this.batchSize = batchSize;
+		this.maxPending = maxPending;
+		this.clock = clock;
+		this.wheel = new TimingWheel<>(Math.floorDiv(clock.getAsLong(), tickMillis));
+		if (startTicker) {
+			this.ticker = new Thread(this::tick, "transfer-scheduler");
+			ticker.setDaemon(true);
+			ticker.start();
+		} else {
+			this.ticker = null;
+		}
+	}
+
+	/**
+	 * Schedules a transfer between two existing accounts; the caller resolves them so that the pending transfer can
+	 * share their ids.
+	 *
+	 * @throws InvalidAmountException   if the amount is not positive
+	 * @throws TooManyRequestsException if {@code transfer.schedule.max-pending} transfers are already pending
+	 */
+	public ScheduledTransfer schedule(Account accountFrom, Account accountTo, BigDecimal amount, Instant executeAt) {
+		if (amount == null || amount.signum() <= 0) {
+			throw new InvalidAmountException("Amount must be positive");
+		}
+		long executeAtMillis = executeAt.toEpochMilli();
+		Entry entry;
+		lock.lock();
+		try {
+			if (wheel.size() >= maxPending) {
+				throw new TooManyRequestsException("Too many scheduled transfers pending", 60);
+			}
+			entry = new Entry(nextId++, accountFrom.getAccountId(), accountTo.getAccountId(), amount,
+					executeAtMillis);
+			// Rounded up, so the transfer never runs before its time.
+			entry.deadlineTick = -Math.floorDiv(-executeAtMillis, tickMillis);
+			wheel.add(entry);
+			Entry head = bySourceAccount.put(entry.accountFromId, entry);
+			if (head != null) {
+				entry.nextOfAccount = head;
+				head.previousOfAccount = entry;
+			}
+		} finally {
+			lock.unlock();
+		}
+		scheduled.increment();
+		return entry.toScheduledTransfer();
+	}
+
+	/**
+	 * @return false if no transfer with this id is pending from the account, because it has already run, was
+	 *         cancelled or never existed
+	 */
+	public boolean cancel(String accountFromId, long id) {
+		lock.lock();
+		try {
+			for (Entry entry = bySourceAccount.get(accountFromId); entry != null; entry = entry.nextOfAccount) {
+				if (entry.id == id) {
+					wheel.remove(entry);
+					unlinkFromAccount(entry);
+					cancelled.increment();
+					return true;
+				}
+			}
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The transfers pending from an account, soonest first.
+	 */
+	public List<ScheduledTransfer> pending(String accountFromId) {
+		List<ScheduledTransfer> pending = new ArrayList<>();
+		lock.lock();
+		try {
+			for (Entry entry = bySourceAccount.get(accountFromId); entry != null; entry = entry.nextOfAccount) {
+				pending.add(entry.toScheduledTransfer());
+			}
+		} finally {
+			lock.unlock();
+		}
+		pending.sort(Comparator.comparing(ScheduledTransfer::getExecuteAt).thenComparingLong(ScheduledTransfer::getId));
+		return pending;
+	}
+
+	/**
+	 * Advances the wheel to the current time and runs every transfer that came due, on the calling thread.
+	 *
+	 * @return the number of transfers run
+	 */
+	public int runDue() {
+		long now = clock.getAsLong();
+		List<Entry> due = new ArrayList<>();
+		lock.lock();
+		try {
+			wheel.advanceTo(Math.floorDiv(now, tickMillis), entry -> {
+				unlinkFromAccount(entry);
+				due.add(entry);
+			});
+		} finally {
+			lock.unlock();
+		}
+		for (int start = 0; start < due.size(); start += batchSize) {
+			execute(due.subList(start, Math.min(due.size(), start + batchSize)), now);
+		}
+		return due.size();
+	}
+
+	public long getPendingCount() {
+		lock.lock();
+		try {
+			return wheel.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public Map<String, Object> snapshot() {
+		Map<String, Object> snapshot = new LinkedHashMap<>();
+		snapshot.put("pending", getPendingCount());
+		snapshot.put("scheduled", scheduled.sum());
+		snapshot.put("cancelled", cancelled.sum());
+		snapshot.put("executed", executed.sum());
+		snapshot.put("failed", failed.sum());
+		snapshot.put("maxDelayMillis", maxDelayMillis);
+		return snapshot;
+	}
+
+	@PreDestroy
+	public void close() {
+		running = false;
+		if (ticker != null) {
+			LockSupport.unpark(ticker);
+		}
+	}
+
+	private void tick() {
+		while (running) {
+			try {
+				runDue();
+			} catch (RuntimeException e) {
+				log.error("Running scheduled transfers failed", e);
+			}
+			long untilNextTick = tickMillis - Math.floorMod(clock.getAsLong(), tickMillis);
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(untilNextTick));
+		}
+	}
+
+	private void execute(List<Entry> batch, long now) {
+		List<TransferRequest> requests = new ArrayList<>(batch.size());
+		long delay = 0;
+		for (Entry entry : batch) {
+			requests.add(new TransferRequest(entry.accountFromId, entry.accountToId, entry.amount));
+			delay = Math.max(delay, now - entry.executeAtMillis);
+		}
+		List<TransferResult> results = accountsService.transferBatch(requests);
+		for (TransferResult result : results) {
+			if (result.getStatus() != TransferStatus.COMPLETED) {
+				Entry entry = batch.get(result.getIndex());
+				failed.increment();
+				log.warn("Scheduled transfer {} of {} from {} to {} failed: {}", entry.id, entry.amount,
+						entry.accountFromId, entry.accountToId, result.getStatus());
+			}
+		}
+		executed.add(batch.size());
+		if (delay > maxDelayMillis) {
+			maxDelayMillis = delay;
+		}
+	}
+
+	private void unlinkFromAccount(Entry entry) {
+		if (entry.previousOfAccount != null) {
+			entry.previousOfAccount.nextOfAccount = entry.nextOfAccount;
+		} else if (entry.nextOfAccount != null) {
+			bySourceAccount.put(entry.accountFromId, entry.nextOfAccount);
+		} else {
+			bySourceAccount.remove(entry.accountFromId);
+		}
+		if (entry.nextOfAccount != null) {
+			entry.nextOfAccount.previousOfAccount = entry.previousOfAccount;
+		}
+		entry.previousOfAccount = null;
+		entry.nextOfAccount = null;
+	}
+
+	/**
+	 * A pending transfer. Besides its wheel links it is linked into the list of its source account.
+	 */
+	private static final class Entry extends TimingWheel.Node {
+
+		final long id;
+
+		final String accountFromId;
+
+		final String accountToId;
+
+		final BigDecimal amount;
+
+		final long executeAtMillis;
+
+		Entry previousOfAccount;
+
+		Entry nextOfAccount;
+
+		Entry(long id, String accountFromId, String accountToId, BigDecimal amount, long executeAtMillis) {
+			this.id = id;
+			this.accountFromId = accountFromId;
+			this.accountToId = accountToId;
+			this.amount = amount;
+			this.executeAtMillis = executeAtMillis;
+		}
+
+		ScheduledTransfer toScheduledTransfer() {
+			return new ScheduledTransfer(id, accountFromId, accountToId, amount, Instant.ofEpochMilli(executeAtMillis));
+		}
+	}
+}
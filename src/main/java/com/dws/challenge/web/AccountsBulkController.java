@@ -0,0 +1,59 @@
+package com.dws.challenge.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.dws.challenge.domain.ImportResult;
+import com.dws.challenge.service.BulkAccountService;
+import com.dws.challenge.service.PartitionMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Bulk export and import of accounts as newline delimited JSON. Neither direction holds the whole data set in memory.
+ * In a partitioned deployment an export only covers the node it is sent to, and imports are refused: the rows would
+ * all land on that node whoever owns them.
+ */
+@RestController
+@RequestMapping("/v1/bulk")
+@Slf4j
+public class AccountsBulkController {
+
+  private final BulkAccountService bulkAccountService;
+
+  private final PartitionMap partitionMap;
+
+  @Autowired
+  public AccountsBulkController(BulkAccountService bulkAccountService, PartitionMap partitionMap) {
+    this.bulkAccountService = bulkAccountService;
+    this.partitionMap = partitionMap;
+  }
+
+  @GetMapping(path = "/accounts", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> exportAccounts() {
+    log.info("Exporting accounts");
+    return ResponseEntity.ok()
+      .contentType(MediaType.APPLICATION_NDJSON)
+      .body(bulkAccountService::exportAccounts);
+  }
+
+  @PostMapping(path = "/accounts", consumes = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_PLAIN_VALUE },
+    produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> importAccounts(InputStream body) throws IOException {
+    if (partitionMap.isPartitioned()) {
+      return new ResponseEntity<>("Bulk import is not available in a partitioned deployment, create accounts through "
+        + "POST /v1/accounts instead", HttpStatus.BAD_REQUEST);
+    }
+    log.info("Importing accounts");
+    ImportResult result = bulkAccountService.importAccounts(body);
+    return new ResponseEntity<>(result, HttpStatus.OK);
+  }
+}
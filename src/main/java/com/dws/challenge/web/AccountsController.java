@@ -1,8 +1,20 @@
 package com.dws.challenge.web;
 
 import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountBalance;
+import com.dws.challenge.domain.BalanceSnapshot;
+import com.dws.challenge.domain.TransactionPage;
+import com.dws.challenge.domain.TransferRequest;
+import com.dws.challenge.domain.TransferResult;
+import com.dws.challenge.domain.TransferStatus;
 import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.exception.InsufficientFundsException;
 import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.ClusterClient;
+import com.dws.challenge.service.ClusterTransferService;
+import com.dws.challenge.service.IdempotentTransferService;
+import com.dws.challenge.service.PartitionMap;
+import com.dws.challenge.service.TransferAdmissionControl;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -13,30 +25,78 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 
+/**
+ * Account and transfer endpoints. In a partitioned deployment, requests for an account owned by another node are
+ * forwarded to that node, transfers to the owner of the source account, which runs them locally or, when the target
+ * account lives elsewhere, through {@link ClusterTransferService}. Balance snapshots and transfer batches are not
+ * split across nodes, as neither would stay atomic; they are refused unless every account they name is local.
+ */
 @RestController
-@RequestMapping("/v1/accounts")
+@RequestMapping("/v1")
 @Slf4j
 @Validated
 public class AccountsController {
 
+  private static final int MAX_BATCH_SIZE = 10000;
+
+  private static final int MAX_TRANSACTION_PAGE_SIZE = 500;
+
+  static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
   private final AccountsService accountsService;
 
+  private final IdempotentTransferService idempotentTransferService;
+
+  private final TransferAdmissionControl admissionControl;
+
+  private final PartitionMap partitionMap;
+
+  private final ClusterClient clusterClient;
+
+  private final ClusterTransferService clusterTransferService;
+
   @Autowired
-  public AccountsController(AccountsService accountsService) {
+  public AccountsController(AccountsService accountsService, IdempotentTransferService idempotentTransferService,
+    TransferAdmissionControl admissionControl, PartitionMap partitionMap, ClusterClient clusterClient,
+    ClusterTransferService clusterTransferService) {
     this.accountsService = accountsService;
+    this.idempotentTransferService = idempotentTransferService;
+    this.admissionControl = admissionControl;
+    this.partitionMap = partitionMap;
+    this.clusterClient = clusterClient;
+    this.clusterTransferService = clusterTransferService;
   }
 
-  @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<Object> createAccount(@RequestBody @Valid Account account) {
+  @PostMapping(path = "/accounts", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> createAccount(@RequestBody @Valid Account account,
+    @RequestHeader(name = ClusterClient.FORWARDED_HEADER, required = false) String forwardedBy) {
+    if (isRemote(account.getAccountId(), forwardedBy)) {
+      Map<String, Object> body = new HashMap<>();
+      body.put("accountId", account.getAccountId());
+      body.put("balance", account.getBalance());
+      if (account.getCurrency() != null) {
+        body.put("currency", account.getCurrency());
+      }
+      return this.clusterClient.forward(this.partitionMap.ownerOf(account.getAccountId()), "POST", "/v1/accounts",
+        Map.of(), body);
+    }
     log.info("Creating account {}", account);
 
     try {
@@ -48,25 +108,151 @@ public class AccountsController {
     return new ResponseEntity<>(HttpStatus.CREATED);
   }
 
-  @GetMapping(path = "/{accountId}")
-  public Account getAccount(@PathVariable String accountId) {
-    log.info("Retrieving account for id {}", accountId);
-    return this.accountsService.getAccount(accountId);
+  @GetMapping(path = "/accounts/{accountId}")
+  public ResponseEntity<Object> getAccount(@PathVariable String accountId,
+    @RequestHeader(name = ClusterClient.FORWARDED_HEADER, required = false) String forwardedBy) {
+    if (isRemote(accountId, forwardedBy)) {
+      return this.clusterClient.forward(this.partitionMap.ownerOf(accountId), "GET",
+        "/v1/accounts/" + ClusterClient.pathSegment(accountId), Map.of(), null);
+    }
+    log.debug("Retrieving account for id {}", accountId);
+    AccountBalance balance = this.accountsService.getBalance(accountId);
+    return new ResponseEntity<>(balance, HttpStatus.OK);
+  }
+
+  @GetMapping(path = "/accounts/{accountId}/transactions")
+  public ResponseEntity<Object> getTransactions(@PathVariable String accountId,
+    @RequestParam(name = "before", required = false) Long before,
+    @RequestParam(name = "limit", defaultValue = "50") @Min(value = 1, message = "Limit must be positive.")
+    @Max(value = MAX_TRANSACTION_PAGE_SIZE, message = "Limit must be at most " + MAX_TRANSACTION_PAGE_SIZE + ".")
+    int limit,
+    @RequestHeader(name = ClusterClient.FORWARDED_HEADER, required = false) String forwardedBy) {
+    if (isRemote(accountId, forwardedBy)) {
+      String query = "?limit=" + limit + (before == null ? "" : "&before=" + before);
+      return this.clusterClient.forward(this.partitionMap.ownerOf(accountId), "GET",
+        "/v1/accounts/" + ClusterClient.pathSegment(accountId) + "/transactions" + query, Map.of(), null);
+    }
+    if (this.accountsService.getAccount(accountId) == null) {
+      return new ResponseEntity<>("Account does not exist in database", HttpStatus.NOT_FOUND);
+    }
+    TransactionPage page = this.accountsService.getTransactionLedger()
+      .page(accountId, before == null ? Long.MAX_VALUE : before, limit);
+    return new ResponseEntity<>(page, HttpStatus.OK);
+  }
+
+  @GetMapping(path = "/balances")
+  public ResponseEntity<Object> getBalances(@RequestParam("ids") List<String> accountIds) {
+    return balances(accountIds);
+  }
+
+  @PostMapping(path = "/balances", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> postBalances(@RequestBody List<String> accountIds) {
+    return balances(accountIds);
+  }
+
+  private ResponseEntity<Object> balances(List<String> accountIds) {
+    if (accountIds.size() > MAX_BATCH_SIZE) {
+      return new ResponseEntity<>("At most " + MAX_BATCH_SIZE + " accounts per request", HttpStatus.BAD_REQUEST);
+    }
+    for (String accountId : accountIds) {
+      if (accountId != null && !this.partitionMap.isLocal(accountId)) {
+        return ownedElsewhere(accountId);
+      }
+    }
+    BalanceSnapshot snapshot = this.accountsService.getBalances(accountIds);
+    return new ResponseEntity<>(snapshot, HttpStatus.OK);
   }
   
   
-  @GetMapping(path = "/{accountId1}/{accountId2}/{amount}")
+  @GetMapping(path = "/accounts/{accountId1}/{accountId2}/{amount}")
   public ResponseEntity<Object> transferBetweenAccount(@PathVariable @NotNull String accountId1 ,@PathVariable @NotNull String accountId2, 
-		@PathVariable @Min(value = 0, message = "Initial balance must be positive.") BigDecimal amount) {
+		@PathVariable @Min(value = 0, message = "Initial balance must be positive.") BigDecimal amount,
+		@RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false)
+		@Size(min = 1, max = 255, message = "Idempotency key must be 1 to 255 characters.") String idempotencyKey,
+		@RequestHeader(name = ClusterClient.FORWARDED_HEADER, required = false) String forwardedBy) {
 
-	  if(accountsService.getAccount(accountId1)!=null && accountsService.getAccount(accountId2)!=null) {
-    	this.accountsService.transfer(accountsService.getAccount(accountId1), accountsService.getAccount(accountId2), amount);
-    } else {
-    	 return new ResponseEntity<>("Accounts dont exist in database", HttpStatus.BAD_REQUEST);
+    if (isRemote(accountId1, forwardedBy)) {
+      String path = "/v1/accounts/" + ClusterClient.pathSegment(accountId1) + "/"
+        + ClusterClient.pathSegment(accountId2) + "/" + amount.toPlainString();
+      return this.clusterClient.forward(this.partitionMap.ownerOf(accountId1), "GET", path,
+        idempotencyKey == null ? Map.of() : Map.of(IDEMPOTENCY_KEY_HEADER, idempotencyKey), null);
+    }
+    this.admissionControl.acquire(accountId1, accountId2);
+    try {
+      return transfer(accountId1, accountId2, amount, idempotencyKey);
+    } finally {
+      this.admissionControl.release();
+    }
+  }
+
+  private ResponseEntity<Object> transfer(String accountId1, String accountId2, BigDecimal amount,
+    String idempotencyKey) {
+    if (!this.partitionMap.isLocal(accountId2)) {
+      Supplier<TransferStatus> crossNode = () -> this.clusterTransferService.transfer(accountId1, accountId2, amount);
+      return transferResponse(idempotencyKey == null ? crossNode.get()
+        : this.idempotentTransferService.transfer(idempotencyKey, accountId1, accountId2, amount, crossNode));
+    }
+    if (idempotencyKey != null) {
+      return transferResponse(
+        this.idempotentTransferService.transfer(idempotencyKey, accountId1, accountId2, amount));
+    }
+
+    // Each account is looked up once per request and the same instances are handed to the transfer.
+    Account accountFrom = this.accountsService.getAccount(accountId1);
+    Account accountTo = accountFrom == null ? null : this.accountsService.getAccount(accountId2);
+    if (accountFrom == null || accountTo == null) {
+      accountsService.getTransferMetrics().recordAccountNotFound();
+      return new ResponseEntity<>("Accounts dont exist in database", HttpStatus.BAD_REQUEST);
+    }
+    this.accountsService.transfer(accountFrom, accountTo, amount);
+    return new ResponseEntity<>(HttpStatus.OK);
+  }
+
+  private static ResponseEntity<Object> transferResponse(TransferStatus status) {
+    if (status == TransferStatus.ACCOUNT_NOT_FOUND) {
+      return new ResponseEntity<>("Accounts dont exist in database", HttpStatus.BAD_REQUEST);
+    }
+    if (status == TransferStatus.INSUFFICIENT_FUNDS) {
+      throw new InsufficientFundsException("Not enough balance in your account");
     }
-    
     return new ResponseEntity<>(HttpStatus.OK);
   }
 
+  private ResponseEntity<Object> ownedElsewhere(String accountId) {
+    return new ResponseEntity<>("Account " + accountId + " is owned by node " + this.partitionMap.ownerOf(accountId)
+      + "; requests naming several accounts must only name accounts of the node they are sent to",
+      HttpStatus.BAD_REQUEST);
+  }
+
+  /**
+   * True if the account belongs to another node and the request has not already been forwarded once.
+   */
+  private boolean isRemote(String accountId, String forwardedBy) {
+    return forwardedBy == null && !this.partitionMap.isLocal(accountId);
+  }
+
+  @PostMapping(path = "/transfers/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> transferBatch(@RequestBody List<TransferRequest> transfers) {
+    if (transfers.size() > MAX_BATCH_SIZE) {
+      return new ResponseEntity<>("Batch exceeds " + MAX_BATCH_SIZE + " transfers", HttpStatus.BAD_REQUEST);
+    }
+    for (TransferRequest transfer : transfers) {
+      if (transfer == null) {
+        continue;
+      }
+      for (String accountId : new String[] { transfer.getAccountFromId(), transfer.getAccountToId() }) {
+        if (accountId != null && !this.partitionMap.isLocal(accountId)) {
+          return ownedElsewhere(accountId);
+        }
+      }
+    }
+    this.admissionControl.acquireSlot();
+    try {
+      List<TransferResult> results = this.accountsService.transferBatch(transfers);
+      return new ResponseEntity<>(results, HttpStatus.OK);
+    } finally {
+      this.admissionControl.release();
+    }
+  }
 
 }
@@ -0,0 +1,90 @@
+package com.dws.challenge.web;
+
+import com.dws.challenge.domain.CrossNodeCredit;
+import com.dws.challenge.service.ClusterClient;
+import com.dws.challenge.service.ClusterTransferService;
+import com.dws.challenge.service.PartitionMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Partition map of the cluster and the node-to-node side of {@link ClusterTransferService}. The transfer endpoints are
+ * meant for the other nodes only and answer 403 to requests without the cluster's shared secret.
+ */
+@RestController
+@RequestMapping("/v1/cluster")
+public class ClusterController {
+
+  private final PartitionMap partitionMap;
+
+  private final ClusterTransferService clusterTransferService;
+
+  private final ClusterClient clusterClient;
+
+  @Autowired
+  public ClusterController(PartitionMap partitionMap, ClusterTransferService clusterTransferService,
+    ClusterClient clusterClient) {
+    this.partitionMap = partitionMap;
+    this.clusterTransferService = clusterTransferService;
+    this.clusterClient = clusterClient;
+  }
+
+  @GetMapping
+  public Map<String, Object> getCluster() {
+    Map<String, Object> cluster = new LinkedHashMap<>();
+    cluster.put("localNode", partitionMap.getLocalNode());
+    cluster.put("nodes", partitionMap.describe());
+    cluster.put("transfers", clusterTransferService.snapshot());
+    return cluster;
+  }
+
+  @PostMapping(path = "/transfers/{transactionId}/prepare", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> prepare(@PathVariable String transactionId, @RequestBody CrossNodeCredit credit,
+    @RequestHeader(name = ClusterClient.SECRET_HEADER, required = false) String secret) {
+    if (!clusterClient.isFromClusterNode(secret)) {
+      return forbidden();
+    }
+    if (!clusterTransferService.prepare(transactionId, credit)) {
+      return new ResponseEntity<>("Account does not exist in database", HttpStatus.NOT_FOUND);
+    }
+    return new ResponseEntity<>(HttpStatus.OK);
+  }
+
+  @PostMapping(path = "/transfers/{transactionId}/commit")
+  public ResponseEntity<Object> commit(@PathVariable String transactionId,
+    @RequestHeader(name = ClusterClient.SECRET_HEADER, required = false) String secret) {
+    if (!clusterClient.isFromClusterNode(secret)) {
+      return forbidden();
+    }
+    if (!clusterTransferService.commit(transactionId)) {
+      return new ResponseEntity<>("Unknown transaction", HttpStatus.NOT_FOUND);
+    }
+    return new ResponseEntity<>(HttpStatus.OK);
+  }
+
+  @PostMapping(path = "/transfers/{transactionId}/abort")
+  public ResponseEntity<Object> abort(@PathVariable String transactionId,
+    @RequestHeader(name = ClusterClient.SECRET_HEADER, required = false) String secret) {
+    if (!clusterClient.isFromClusterNode(secret)) {
+      return forbidden();
+    }
+    clusterTransferService.abort(transactionId);
+    return new ResponseEntity<>(HttpStatus.OK);
+  }
+
+  private static ResponseEntity<Object> forbidden() {
+    return new ResponseEntity<>("Cluster endpoints are reserved for the other nodes", HttpStatus.FORBIDDEN);
+  }
+}
@@ -0,0 +1,107 @@
+package com.dws.challenge.web;
+
+import com.dws.challenge.domain.AuditResult;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.CachingAccountsRepository;
+import com.dws.challenge.service.AsyncNotificationService;
+import com.dws.challenge.service.BalanceAuditor;
+import com.dws.challenge.service.ExchangeRateService;
+import com.dws.challenge.service.HotAccountDetector;
+import com.dws.challenge.service.NotificationService;
+import com.dws.challenge.service.OptimisticTransferEngine;
+import com.dws.challenge.service.TransferAdmissionControl;
+import com.dws.challenge.service.TransferEngine;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferScheduler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes {@link TransferMetrics} and, when notifications are asynchronous, the state of the notification queue. With
+ * the optimistic engine its conflict and fallback counters are included, followed by the admission control counters
+ * and the outcome of the balance audits, the counters of scheduled transfers and the accounts currently found hot.
+ * The hit rate of the account cache is added when it is enabled, and the version of the exchange rate table in use
+ * last. An audit can also be run on demand.
+ */
+@RestController
+@RequestMapping("/v1")
+public class MetricsController {
+
+  private final TransferMetrics transferMetrics;
+
+  private final NotificationService notificationService;
+
+  private final TransferEngine transferEngine;
+
+  private final TransferAdmissionControl admissionControl;
+
+  private final BalanceAuditor balanceAuditor;
+
+  private final TransferScheduler transferScheduler;
+
+  private final HotAccountDetector hotAccountDetector;
+
+  private final AccountsRepository accountsRepository;
+
+  private final ExchangeRateService exchangeRateService;
+
+  @Autowired
+  public MetricsController(TransferMetrics transferMetrics, NotificationService notificationService,
+    TransferEngine transferEngine, TransferAdmissionControl admissionControl, BalanceAuditor balanceAuditor,
+    TransferScheduler transferScheduler, HotAccountDetector hotAccountDetector, AccountsRepository accountsRepository,
+    ExchangeRateService exchangeRateService) {
+    this.transferMetrics = transferMetrics;
+    this.notificationService = notificationService;
+    this.transferEngine = transferEngine;
+    this.admissionControl = admissionControl;
+    this.balanceAuditor = balanceAuditor;
+    this.transferScheduler = transferScheduler;
+    this.hotAccountDetector = hotAccountDetector;
+    this.accountsRepository = accountsRepository;
+    this.exchangeRateService = exchangeRateService;
+  }
+
+  @GetMapping(path = "/metrics")
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = transferMetrics.snapshot();
+    if (notificationService instanceof AsyncNotificationService) {
+      AsyncNotificationService async = (AsyncNotificationService) notificationService;
+      Map<String, Object> notifications = new LinkedHashMap<>();
+      notifications.put("queueDepth", async.getQueueDepth());
+      notifications.put("remainingCapacity", async.getRemainingCapacity());
+      notifications.put("enqueued", async.getEnqueuedCount());
+      notifications.put("dispatched", async.getDispatchedCount());
+      notifications.put("dropped", async.getDroppedCount());
+      notifications.put("failed", async.getFailedCount());
+      metrics.put("notifications", notifications);
+    }
+    if (transferEngine instanceof OptimisticTransferEngine) {
+      OptimisticTransferEngine optimistic = (OptimisticTransferEngine) transferEngine;
+      Map<String, Object> engine = new LinkedHashMap<>();
+      engine.put("optimisticTransfers", optimistic.getOptimisticTransfers());
+      engine.put("conflicts", optimistic.getConflicts());
+      engine.put("fallbacks", optimistic.getFallbacks());
+      metrics.put("optimisticEngine", engine);
+    }
+    metrics.put("admission", admissionControl.snapshot());
+    metrics.put("audit", balanceAuditor.snapshot());
+    metrics.put("scheduledTransfers", transferScheduler.snapshot());
+    metrics.put("hotAccounts", hotAccountDetector.snapshot());
+    if (accountsRepository instanceof CachingAccountsRepository) {
+      metrics.put("accountCache", ((CachingAccountsRepository) accountsRepository).snapshot());
+    }
+    metrics.put("exchangeRates", exchangeRateService.snapshot());
+    return metrics;
+  }
+
+  @PostMapping(path = "/audit")
+  public AuditResult audit() {
+    return balanceAuditor.audit();
+  }
+}
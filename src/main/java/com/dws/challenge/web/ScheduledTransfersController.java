@@ -0,0 +1,111 @@
+package com.dws.challenge.web;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.ScheduleTransferRequest;
+import com.dws.challenge.domain.ScheduledTransfer;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.ClusterClient;
+import com.dws.challenge.service.PartitionMap;
+import com.dws.challenge.service.TransferScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.validation.Valid;
+
+/**
+ * Transfers scheduled to run later, kept under their source account. In a partitioned deployment they live on the
+ * node owning the source account, and requests are forwarded there; both accounts must be owned by that node.
+ */
+@RestController
+@RequestMapping("/v1/accounts/{accountId}/scheduled-transfers")
+@Slf4j
+public class ScheduledTransfersController {
+
+  private final AccountsService accountsService;
+
+  private final TransferScheduler transferScheduler;
+
+  private final PartitionMap partitionMap;
+
+  private final ClusterClient clusterClient;
+
+  @Autowired
+  public ScheduledTransfersController(AccountsService accountsService, TransferScheduler transferScheduler,
+    PartitionMap partitionMap, ClusterClient clusterClient) {
+    this.accountsService = accountsService;
+    this.transferScheduler = transferScheduler;
+    this.partitionMap = partitionMap;
+    this.clusterClient = clusterClient;
+  }
+
+  @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> schedule(@PathVariable String accountId,
+    @RequestBody @Valid ScheduleTransferRequest request,
+    @RequestHeader(name = ClusterClient.FORWARDED_HEADER, required = false) String forwardedBy) {
+    if (isRemote(accountId, forwardedBy)) {
+      return this.clusterClient.forward(this.partitionMap.ownerOf(accountId), "POST", path(accountId), Map.of(),
+        request);
+    }
+    if (!this.partitionMap.isLocal(request.getAccountToId())) {
+      return new ResponseEntity<>("Scheduled transfers between nodes are not supported", HttpStatus.BAD_REQUEST);
+    }
+    Account accountFrom = this.accountsService.getAccount(accountId);
+    Account accountTo = this.accountsService.getAccount(request.getAccountToId());
+    if (accountFrom == null || accountTo == null) {
+      return new ResponseEntity<>("Accounts dont exist in database", HttpStatus.BAD_REQUEST);
+    }
+    ScheduledTransfer scheduled = this.transferScheduler.schedule(accountFrom, accountTo, request.getAmount(),
+      request.getExecuteAt());
+    log.info("Scheduled transfer {}", scheduled);
+    return new ResponseEntity<>(scheduled, HttpStatus.CREATED);
+  }
+
+  @GetMapping
+  public ResponseEntity<Object> pending(@PathVariable String accountId,
+    @RequestHeader(name = ClusterClient.FORWARDED_HEADER, required = false) String forwardedBy) {
+    if (isRemote(accountId, forwardedBy)) {
+      return this.clusterClient.forward(this.partitionMap.ownerOf(accountId), "GET", path(accountId), Map.of(), null);
+    }
+    if (this.accountsService.getAccount(accountId) == null) {
+      return new ResponseEntity<>("Account does not exist in database", HttpStatus.NOT_FOUND);
+    }
+    List<ScheduledTransfer> pending = this.transferScheduler.pending(accountId);
+    return new ResponseEntity<>(pending, HttpStatus.OK);
+  }
+
+  @DeleteMapping(path = "/{id}")
+  public ResponseEntity<Object> cancel(@PathVariable String accountId, @PathVariable long id,
+    @RequestHeader(name = ClusterClient.FORWARDED_HEADER, required = false) String forwardedBy) {
+    if (isRemote(accountId, forwardedBy)) {
+      return this.clusterClient.forward(this.partitionMap.ownerOf(accountId), "DELETE", path(accountId) + "/" + id,
+        Map.of(), null);
+    }
+    if (!this.transferScheduler.cancel(accountId, id)) {
+      return new ResponseEntity<>("No such scheduled transfer pending", HttpStatus.NOT_FOUND);
+    }
+    log.info("Cancelled scheduled transfer {} from {}", id, accountId);
+    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+  }
+
+  private boolean isRemote(String accountId, String forwardedBy) {
+    return forwardedBy == null && !this.partitionMap.isLocal(accountId);
+  }
+
+  private static String path(String accountId) {
+    return "/v1/accounts/" + ClusterClient.pathSegment(accountId) + "/scheduled-transfers";
+  }
+}
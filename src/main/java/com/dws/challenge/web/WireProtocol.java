@@ -0,0 +1,100 @@
+package com.dws.challenge.web;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Frame layout of the binary protocol served by {@link WireProtocolServer}. All integers are big-endian.
+ *
+ * <p>Request: {@code int length, byte opcode, int requestId, fields...}, where {@code length} counts the bytes after
+ * itself. Fields by opcode:
+ * <ul>
+ * <li>{@link #CREATE}: account id, balance;</li>
+ * <li>{@link #GET}: account id;</li>
+ * <li>{@link #TRANSFER}: source account id, target account id, amount.</li>
+ * </ul>
+ * An account id is an unsigned short byte count followed by that many UTF-8 bytes. An amount is a long unscaled value
+ * followed by a byte scale, i.e. {@code unscaled * 10^-scale}, so 12.34 is {@code 1234, 2}.
+ *
+ * <p>Response: {@code int length, int requestId, byte status}, followed by the balance for a successful
+ * {@link #GET} and by the owning node's index for {@link #WRONG_NODE}. Requests may be pipelined; responses come
+ * back in request order on the same connection.
+ */
+public final class WireProtocol {
+
+  public static final byte CREATE = 1;
+
+  public static final byte GET = 2;
+
+  public static final byte TRANSFER = 3;
+
+  public static final byte OK = 0;
+
+  public static final byte INSUFFICIENT_FUNDS = 1;
+
+  public static final byte ACCOUNT_NOT_FOUND = 2;
+
+  public static final byte DUPLICATE_ACCOUNT = 3;
+
+  public static final byte INVALID_REQUEST = 4;
+
+  public static final byte TOO_MANY_REQUESTS = 5;
+
+  /**
+   * The account belongs to another node of the cluster; the response carries that node's index.
+   */
+  public static final byte WRONG_NODE = 6;
+
+  /**
+   * Transfers to an account on another node are only available over HTTP.
+   */
+  public static final byte NOT_SUPPORTED = 7;
+
+  public static final byte ERROR = 8;
+
+  /**
+   * Bytes of a response header after the length: request id and status.
+   */
+  static final int RESPONSE_HEADER_BYTES = 5;
+
+  /**
+   * Longest response, a balance: length, header, unscaled value and scale.
+   */
+  static final int MAX_RESPONSE_BYTES = 4 + RESPONSE_HEADER_BYTES + 9;
+
+  private WireProtocol() {
+  }
+
+  public static void putAccountId(ByteBuffer buffer, String accountId) {
+    byte[] bytes = accountId.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF) {
+      throw new IllegalArgumentException("Account id longer than 65535 bytes");
+    }
+    buffer.putShort((short) bytes.length);
+    buffer.put(bytes);
+  }
+
+  public static String getAccountId(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @throws ArithmeticException if the amount's unscaled value does not fit a long or its scale a byte
+   */
+  public static void putAmount(ByteBuffer buffer, BigDecimal amount) {
+    int scale = amount.scale();
+    if (scale != (byte) scale) {
+      throw new ArithmeticException("Scale out of range: " + scale);
+    }
+    buffer.putLong(amount.unscaledValue().longValueExact());
+    buffer.put((byte) scale);
+  }
+
+  public static BigDecimal getAmount(ByteBuffer buffer) {
+    long unscaled = buffer.getLong();
+    return BigDecimal.valueOf(unscaled, buffer.get());
+  }
+}
@@ -0,0 +1,176 @@
+package com.dws.challenge.web;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Blocking client for {@link WireProtocolServer}. Requests are buffered by the {@code send} methods and written by
+ * {@link #flush()}, or earlier when the buffer fills up; {@link #receive()} returns the responses in request order.
+ * Sending many requests before receiving their responses pipelines them. Not thread-safe, use one client per thread.
+ */
+public class WireProtocolClient implements Closeable {
+
+  private static final int BUFFER_BYTES = 64 * 1024;
+
+  private final SocketChannel channel;
+
+  private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+  private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+  private int nextRequestId;
+
+  public WireProtocolClient(String host, int port) throws IOException {
+    this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    in.flip();
+  }
+
+  /**
+   * @return the request id that the response will carry
+   * @throws ArithmeticException if the balance does not fit the protocol's amount encoding
+   */
+  public int sendCreate(String accountId, BigDecimal balance) throws IOException {
+    int start = begin(WireProtocol.CREATE, accountId.length() * 3 + 11);
+    try {
+      WireProtocol.putAccountId(out, accountId);
+      WireProtocol.putAmount(out, balance);
+    } catch (RuntimeException e) {
+      out.position(start);
+      throw e;
+    }
+    return end(start);
+  }
+
+  public int sendGet(String accountId) throws IOException {
+    int start = begin(WireProtocol.GET, accountId.length() * 3 + 2);
+    try {
+      WireProtocol.putAccountId(out, accountId);
+    } catch (RuntimeException e) {
+      out.position(start);
+      throw e;
+    }
+    return end(start);
+  }
+
+  public int sendTransfer(String accountFromId, String accountToId, BigDecimal amount) throws IOException {
+    int start = begin(WireProtocol.TRANSFER, (accountFromId.length() + accountToId.length()) * 3 + 13);
+    try {
+      WireProtocol.putAccountId(out, accountFromId);
+      WireProtocol.putAccountId(out, accountToId);
+      WireProtocol.putAmount(out, amount);
+    } catch (RuntimeException e) {
+      out.position(start);
+      throw e;
+    }
+    return end(start);
+  }
+
+  public void flush() throws IOException {
+    out.flip();
+    while (out.hasRemaining()) {
+      channel.write(out);
+    }
+    out.clear();
+  }
+
+  /**
+   * Flushes pending requests and blocks until the next response has arrived.
+   */
+  public Response receive() throws IOException {
+    if (out.position() > 0) {
+      flush();
+    }
+    fill(4);
+    int length = in.getInt();
+    fill(length);
+    int requestId = in.getInt();
+    byte status = in.get();
+    BigDecimal balance = null;
+    int ownerNode = -1;
+    if (status == WireProtocol.OK && length > WireProtocol.RESPONSE_HEADER_BYTES) {
+      balance = WireProtocol.getAmount(in);
+    } else if (status == WireProtocol.WRONG_NODE) {
+      ownerNode = in.getInt();
+    }
+    return new Response(requestId, status, balance, ownerNode);
+  }
+
+  /**
+   * Sends one transfer and waits for its outcome.
+   *
+   * @return the status, one of the constants of {@link WireProtocol}
+   */
+  public byte transfer(String accountFromId, String accountToId, BigDecimal amount) throws IOException {
+    sendTransfer(accountFromId, accountToId, amount);
+    return receive().getStatus();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private int begin(byte opcode, int maxFieldBytes) throws IOException {
+    if (out.remaining() < 9 + maxFieldBytes) {
+      flush();
+    }
+    int start = out.position();
+    out.putInt(0).put(opcode).putInt(nextRequestId);
+    return start;
+  }
+
+  private int end(int start) {
+    out.putInt(start, out.position() - start - 4);
+    return nextRequestId++;
+  }
+
+  /**
+   * Reads until at least {@code bytes} unread bytes are buffered.
+   */
+  private void fill(int bytes) throws IOException {
+    if (in.remaining() >= bytes) {
+      return;
+    }
+    in.compact();
+    while (in.position() < bytes) {
+      if (channel.read(in) < 0) {
+        throw new EOFException("Connection closed by the server");
+      }
+    }
+    in.flip();
+  }
+
+  @Getter
+  @ToString
+  @RequiredArgsConstructor
+  public static class Response {
+
+    private final int requestId;
+
+    /**
+     * One of the status constants of {@link WireProtocol}.
+     */
+    private final byte status;
+
+    /**
+     * The balance of a successful {@link WireProtocol#GET}, otherwise null.
+     */
+    private final BigDecimal balance;
+
+    /**
+     * The node owning the account of a {@link WireProtocol#WRONG_NODE} response, otherwise -1.
+     */
+    private final int ownerNode;
+  }
+}
@@ -0,0 +1,420 @@
+package com.dws.challenge.web;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.exception.InsufficientFundsException;
+import com.dws.challenge.exception.InvalidAmountException;
+import com.dws.challenge.exception.SameAccountTransferException;
+import com.dws.challenge.exception.TooManyRequestsException;
+import com.dws.challenge.exception.UnsupportedCurrencyException;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.PartitionMap;
+import com.dws.challenge.service.TransferAdmissionControl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Serves {@link WireProtocol} on its own port for clients that send transfers at a rate where JSON, path parsing and
+ * the MVC dispatch would cost more than the transfers. Requests go to the same {@link AccountsService}, admission
+ * control and partition map as the REST endpoints, with the same outcomes.
+ *
+ * <p>An acceptor thread hands each connection to one of {@code wire.event-loops} selector threads, which read
+ * pipelined frames into a direct buffer per connection, run them in order and write the responses back in batches.
+ * Requests run on the event loop, so a transfer waiting for a lock delays the other connections of its loop.
+ * Transfers to accounts of other nodes are refused, see {@link WireProtocol#NOT_SUPPORTED}. Disabled by default.
+ */
+@Component
+@Slf4j
+public class WireProtocolServer {
+
+  private final AccountsService accountsService;
+
+  private final TransferAdmissionControl admissionControl;
+
+  private final PartitionMap partitionMap;
+
+  private final int maxFrameBytes;
+
+  private final ServerSocketChannel serverChannel;
+
+  private final EventLoop[] eventLoops;
+
+  private final Thread acceptor;
+
+  private volatile boolean running = true;
+
+  private final LongAdder connections = new LongAdder();
+
+  private final LongAdder requests = new LongAdder();
+
+  private final LongAdder protocolErrors = new LongAdder();
+
+  @Autowired
+  public WireProtocolServer(AccountsService accountsService, TransferAdmissionControl admissionControl,
+    PartitionMap partitionMap, @Value("${wire.enabled:false}") boolean enabled, @Value("${wire.port:7070}") int port,
+    @Value("${wire.event-loops:2}") int eventLoops, @Value("${wire.max-frame-bytes:65536}") int maxFrameBytes) {
+    this.accountsService = accountsService;
+    this.admissionControl = admissionControl;
+    this.partitionMap = partitionMap;
+    this.maxFrameBytes = maxFrameBytes;
+    if (!enabled) {
+      this.serverChannel = null;
+      this.eventLoops = new EventLoop[0];
+      this.acceptor = null;
+      return;
+    }
+    try {
+      this.serverChannel = ServerSocketChannel.open();
+      serverChannel.bind(new InetSocketAddress(port));
+      this.eventLoops = new EventLoop[eventLoops];
+      for (int i = 0; i < eventLoops; i++) {
+        this.eventLoops[i] = new EventLoop(Selector.open());
+        Thread thread = new Thread(this.eventLoops[i], "wire-loop-" + i);
+        thread.setDaemon(true);
+        thread.start();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not start the wire protocol server on port " + port, e);
+    }
+    this.acceptor = new Thread(this::accept, "wire-acceptor");
+    acceptor.setDaemon(true);
+    acceptor.start();
+    log.info("Wire protocol server listening on port {}", getPort());
+  }
+
+  /**
+   * The port actually bound, which differs from {@code wire.port} when that is 0; -1 while disabled.
+   */
+  public int getPort() {
+    return serverChannel == null ? -1 : serverChannel.socket().getLocalPort();
+  }
+
+  public long getConnectionCount() {
+    return connections.sum();
+  }
+
+  public long getRequestCount() {
+    return requests.sum();
+  }
+
+  public long getProtocolErrorCount() {
+    return protocolErrors.sum();
+  }
+
+  @PreDestroy
+  public void close() throws IOException {
+    running = false;
+    if (serverChannel != null) {
+      serverChannel.close();
+    }
+    for (EventLoop eventLoop : eventLoops) {
+      eventLoop.selector.wakeup();
+    }
+  }
+
+  private void accept() {
+    int next = 0;
+    while (running) {
+      try {
+        SocketChannel channel = serverChannel.accept();
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+        connections.increment();
+        eventLoops[next++ % eventLoops.length].register(channel);
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException e) {
+        log.warn("Accepting a wire protocol connection failed: {}", e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Runs one request whose fields start at the buffer's position and writes its response.
+   */
+  private void handle(byte opcode, int requestId, ByteBuffer in, ByteBuffer out) {
+    switch (opcode) {
+      case WireProtocol.CREATE:
+        create(requestId, WireProtocol.getAccountId(in), WireProtocol.getAmount(in), out);
+        break;
+      case WireProtocol.GET:
+        get(requestId, WireProtocol.getAccountId(in), out);
+        break;
+      case WireProtocol.TRANSFER:
+        transfer(requestId, WireProtocol.getAccountId(in), WireProtocol.getAccountId(in),
+          WireProtocol.getAmount(in), out);
+        break;
+      default:
+        respond(out, requestId, WireProtocol.INVALID_REQUEST);
+    }
+  }
+
+  private void create(int requestId, String accountId, BigDecimal balance, ByteBuffer out) {
+    if (!partitionMap.isLocal(accountId)) {
+      wrongNode(out, requestId, accountId);
+      return;
+    }
+    if (accountId.isEmpty() || balance.signum() < 0) {
+      respond(out, requestId, WireProtocol.INVALID_REQUEST);
+      return;
+    }
+    try {
+      accountsService.createAccount(new Account(accountId, balance));
+      respond(out, requestId, WireProtocol.OK);
+    } catch (DuplicateAccountIdException e) {
+      respond(out, requestId, WireProtocol.DUPLICATE_ACCOUNT);
+    }
+  }
+
+  private void get(int requestId, String accountId, ByteBuffer out) {
+    if (!partitionMap.isLocal(accountId)) {
+      wrongNode(out, requestId, accountId);
+      return;
+    }
+    Account account = accountsService.getAccount(accountId);
+    if (account == null) {
+      respond(out, requestId, WireProtocol.ACCOUNT_NOT_FOUND);
+      return;
+    }
+    BigDecimal balance = account.getBalance();
+    int start = out.position();
+    out.putInt(WireProtocol.RESPONSE_HEADER_BYTES + 9).putInt(requestId).put(WireProtocol.OK);
+    try {
+      WireProtocol.putAmount(out, balance);
+    } catch (ArithmeticException e) {
+      out.position(start);
+      respond(out, requestId, WireProtocol.ERROR);
+    }
+  }
+
+  private void transfer(int requestId, String accountFromId, String accountToId, BigDecimal amount,
+    ByteBuffer out) {
+    if (!partitionMap.isLocal(accountFromId)) {
+      wrongNode(out, requestId, accountFromId);
+      return;
+    }
+    if (!partitionMap.isLocal(accountToId)) {
+      respond(out, requestId, WireProtocol.NOT_SUPPORTED);
+      return;
+    }
+    if (amount.signum() <= 0) {
+      respond(out, requestId, WireProtocol.INVALID_REQUEST);
+      return;
+    }
+    try {
+      admissionControl.acquire(accountFromId, accountToId);
+    } catch (TooManyRequestsException e) {
+      respond(out, requestId, WireProtocol.TOO_MANY_REQUESTS);
+      return;
+    }
+    try {
+      Account accountFrom = accountsService.getAccount(accountFromId);
+      Account accountTo = accountsService.getAccount(accountToId);
+      if (accountFrom == null || accountTo == null) {
+        accountsService.getTransferMetrics().recordAccountNotFound();
+        respond(out, requestId, WireProtocol.ACCOUNT_NOT_FOUND);
+        return;
+      }
+      accountsService.transfer(accountFrom, accountTo, amount);
+      respond(out, requestId, WireProtocol.OK);
+    } catch (InsufficientFundsException e) {
+      respond(out, requestId, WireProtocol.INSUFFICIENT_FUNDS);
+    } catch (InvalidAmountException | SameAccountTransferException | UnsupportedCurrencyException e) {
+      respond(out, requestId, WireProtocol.INVALID_REQUEST);
+    } finally {
+      admissionControl.release();
+    }
+  }
+
+  private void wrongNode(ByteBuffer out, int requestId, String accountId) {
+    out.putInt(WireProtocol.RESPONSE_HEADER_BYTES + 4).putInt(requestId).put(WireProtocol.WRONG_NODE)
+      .putInt(partitionMap.ownerOf(accountId));
+  }
+
+  private static void respond(ByteBuffer out, int requestId, byte status) {
+    out.putInt(WireProtocol.RESPONSE_HEADER_BYTES).putInt(requestId).put(status);
+  }
+
+  private final class EventLoop implements Runnable {
+
+    private final Selector selector;
+
+    private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+
+    EventLoop(Selector selector) {
+      this.selector = selector;
+    }
+
+    void register(SocketChannel channel) {
+      registrations.add(channel);
+      selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (running) {
+          selector.select();
+          for (SocketChannel channel; (channel = registrations.poll()) != null; ) {
+            channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+          }
+          Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            Connection connection = (Connection) key.attachment();
+            try {
+              if (key.isReadable() && connection.channel.read(connection.in) < 0) {
+                connection.close();
+                continue;
+              }
+              connection.process(key);
+            } catch (IOException e) {
+              log.debug("Wire protocol connection closed: {}", e.getMessage());
+              connection.close();
+            }
+          }
+        }
+      } catch (IOException e) {
+        log.error("Wire protocol event loop failed", e);
+      } finally {
+        for (SelectionKey key : selector.keys()) {
+          ((Connection) key.attachment()).close();
+        }
+        try {
+          selector.close();
+        } catch (IOException e) {
+          log.debug("Closing selector failed", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Buffers of one client connection. Input is kept in write mode between reads; output in write mode until it is
+   * flushed.
+   */
+  private final class Connection {
+
+    private final SocketChannel channel;
+
+    private final ByteBuffer in;
+
+    private final ByteBuffer out;
+
+    private boolean invalidFrame;
+
+    Connection(SocketChannel channel) {
+      this.channel = channel;
+      this.in = ByteBuffer.allocateDirect(4 + maxFrameBytes);
+      this.out = ByteBuffer.allocateDirect(Math.max(4 + maxFrameBytes, 64 * WireProtocol.MAX_RESPONSE_BYTES));
+    }
+
+    /**
+     * Runs the complete frames received so far and writes their responses. When the client does not read its
+     * responses fast enough, reading stops until the pending output has been written. A frame with an invalid
+     * length closes the connection once the responses to the frames before it have been written.
+     */
+    void process(SelectionKey key) throws IOException {
+      boolean outputFull;
+      do {
+        outputFull = handleFrames();
+        out.flip();
+        channel.write(out);
+        boolean flushed = !out.hasRemaining();
+        out.compact();
+        if (invalidFrame) {
+          // The responses to the frames before it have been written as far as the socket takes them.
+          throw new IOException("Invalid frame length");
+        }
+        if (!flushed) {
+          setInterest(key, SelectionKey.OP_WRITE);
+          return;
+        }
+      } while (outputFull);
+      setInterest(key, SelectionKey.OP_READ);
+    }
+
+    /**
+     * @return true if frames were left unhandled for lack of output space
+     */
+    private boolean handleFrames() {
+      int handled = 0;
+      in.flip();
+      try {
+        while (in.remaining() >= 4) {
+          if (out.remaining() < WireProtocol.MAX_RESPONSE_BYTES) {
+            return true;
+          }
+          int length = in.getInt(in.position());
+          if (length < 5 || length > maxFrameBytes) {
+            protocolErrors.increment();
+            invalidFrame = true;
+            return false;
+          }
+          if (in.remaining() < 4 + length) {
+            break;
+          }
+          int frameEnd = in.position() + 4 + length;
+          int limit = in.limit();
+          in.position(in.position() + 4).limit(frameEnd);
+          byte opcode = in.get();
+          int requestId = in.getInt();
+          int responseStart = out.position();
+          try {
+            handle(opcode, requestId, in, out);
+          } catch (BufferUnderflowException e) {
+            protocolErrors.increment();
+            out.position(responseStart);
+            respond(out, requestId, WireProtocol.INVALID_REQUEST);
+          } catch (RuntimeException e) {
+            log.error("Wire protocol request {} failed", requestId, e);
+            out.position(responseStart);
+            respond(out, requestId, WireProtocol.ERROR);
+          }
+          in.limit(limit).position(frameEnd);
+          handled++;
+        }
+        return false;
+      } finally {
+        in.compact();
+        requests.add(handled);
+      }
+    }
+
+    private void setInterest(SelectionKey key, int ops) {
+      if (key.interestOps() != ops) {
+        key.interestOps(ops);
+      }
+    }
+
+    void close() {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        log.debug("Closing wire protocol connection failed", e);
+      }
+    }
+  }
+}
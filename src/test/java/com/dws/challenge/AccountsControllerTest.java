@@ -4,10 +4,12 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
 
 import java.math.BigDecimal;
+import java.util.Map;
 
 import com.dws.challenge.domain.Account;
 import com.dws.challenge.service.AccountsService;
@@ -103,4 +105,112 @@ class AccountsControllerTest {
       .andExpect(
         content().string("{\"accountId\":\"" + uniqueAccountId + "\",\"balance\":123.45}"));
   }
+
+  @Test
+  void transferBatch() throws Exception {
+    this.accountsService.createAccount(new Account("Id-B1", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account("Id-B2", new BigDecimal("50")));
+
+    this.mockMvc.perform(post("/v1/transfers/batch").contentType(MediaType.APPLICATION_JSON)
+      .content("[{\"accountFromId\":\"Id-B1\",\"accountToId\":\"Id-B2\",\"amount\":30},"
+        + "{\"accountFromId\":\"Id-B2\",\"accountToId\":\"Id-B1\",\"amount\":500},"
+        + "{\"accountFromId\":\"Id-B1\",\"accountToId\":\"Id-XX\",\"amount\":1}]"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$[0].status").value("COMPLETED"))
+      .andExpect(jsonPath("$[1].status").value("INSUFFICIENT_FUNDS"))
+      .andExpect(jsonPath("$[2].status").value("ACCOUNT_NOT_FOUND"));
+
+    assertThat(accountsService.getAccount("Id-B1").getBalance()).isEqualByComparingTo("70");
+    assertThat(accountsService.getAccount("Id-B2").getBalance()).isEqualByComparingTo("80");
+  }
+
+  @Test
+  void getMetrics() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+      .content("{\"accountId\":\"Id-M1\",\"balance\":100}")).andExpect(status().isCreated());
+
+    this.mockMvc.perform(get("/v1/metrics"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.enabled").value(true))
+      .andExpect(jsonPath("$.transfers.latencyMicros.count").isNumber())
+      .andExpect(jsonPath("$.locks.contended").isNumber())
+      .andExpect(jsonPath("$.accounts.created").isNumber())
+      .andExpect(jsonPath("$.notifications.queueDepth").isNumber());
+  }
+
+  @Test
+  void transferWithIdempotencyKey_executesOnce() throws Exception {
+    String key = "key-" + System.nanoTime();
+    this.accountsService.createAccount(new Account("Id-I1", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account("Id-I2", new BigDecimal("0")));
+
+    for (int i = 0; i < 3; i++) {
+      this.mockMvc.perform(get("/v1/accounts/Id-I1/Id-I2/40").header("Idempotency-Key", key))
+        .andExpect(status().isOk());
+    }
+    this.mockMvc.perform(get("/v1/accounts/Id-I1/Id-I2/41").header("Idempotency-Key", key))
+      .andExpect(status().isUnprocessableEntity());
+
+    assertThat(accountsService.getAccount("Id-I1").getBalance()).isEqualByComparingTo("60");
+    assertThat(accountsService.getAccount("Id-I2").getBalance()).isEqualByComparingTo("40");
+  }
+
+  @Test
+  void transfer_looksUpEachAccountOnce() throws Exception {
+    this.accountsService.createAccount(new Account("Id-L1", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account("Id-L2", new BigDecimal("0")));
+    long before = lookups();
+
+    this.mockMvc.perform(get("/v1/accounts/Id-L1/Id-L2/40")).andExpect(status().isOk());
+
+    assertThat(lookups() - before).isEqualTo(2);
+    assertThat(accountsService.getAccount("Id-L2").getBalance()).isEqualByComparingTo("40");
+  }
+
+  @SuppressWarnings("unchecked")
+  private long lookups() {
+    Map<String, Object> accounts = (Map<String, Object>) accountsService.getTransferMetrics().snapshot().get("accounts");
+    return (long) accounts.get("lookups");
+  }
+
+  @Test
+  void getBalances() throws Exception {
+    this.accountsService.createAccount(new Account("Id-G1", new BigDecimal("10")));
+    this.accountsService.createAccount(new Account("Id-G2", new BigDecimal("20.5")));
+
+    this.mockMvc.perform(get("/v1/balances").param("ids", "Id-G1", "Id-G2", "Id-GX"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.balances[0].accountId").value("Id-G1"))
+      .andExpect(jsonPath("$.balances[0].balance").value(10))
+      .andExpect(jsonPath("$.balances[1].balance").value(20.5))
+      .andExpect(jsonPath("$.missingAccountIds[0]").value("Id-GX"));
+  }
+
+  @Test
+  void getTransactions() throws Exception {
+    this.accountsService.getTransactionLedger().clear();
+    Account accountFrom = new Account("Id-T1", new BigDecimal("100"));
+    Account accountTo = new Account("Id-T2", new BigDecimal("0"));
+    this.accountsService.createAccount(accountFrom);
+    this.accountsService.createAccount(accountTo);
+    this.accountsService.transfer(accountFrom, accountTo, new BigDecimal("30"));
+    this.accountsService.transfer(accountFrom, accountTo, new BigDecimal("20"));
+
+    this.mockMvc.perform(get("/v1/accounts/Id-T1/transactions").param("limit", "1"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.transactions.length()").value(1))
+      .andExpect(jsonPath("$.transactions[0].sequence").value(1))
+      .andExpect(jsonPath("$.transactions[0].counterpartyAccountId").value("Id-T2"))
+      .andExpect(jsonPath("$.transactions[0].amount").value(-20))
+      .andExpect(jsonPath("$.nextBefore").value(1));
+
+    this.mockMvc.perform(get("/v1/accounts/Id-T1/transactions").param("before", "1"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.transactions[0].amount").value(-30))
+      .andExpect(jsonPath("$.nextBefore").doesNotExist());
+
+    this.mockMvc.perform(get("/v1/accounts/Id-TX/transactions")).andExpect(status().isNotFound());
+    this.mockMvc.perform(get("/v1/accounts/Id-T1/transactions").param("limit", "0"))
+      .andExpect(status().isBadRequest());
+  }
 }
@@ -0,0 +1,65 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.service.AsyncNotificationService;
+import com.dws.challenge.service.AsyncNotificationService.OverflowPolicy;
+
+class AsyncNotificationServiceTest {
+
+	private final Account account = new Account("Id-N1", BigDecimal.TEN);
+
+	@Test
+	void notifications_deliveredToDelegate() throws InterruptedException {
+		CountDownLatch delivered = new CountDownLatch(500);
+		AsyncNotificationService service = new AsyncNotificationService(
+				(account, description) -> delivered.countDown(), 100, 2, 16, OverflowPolicy.BLOCK);
+
+		for (int i = 0; i < 500; i++) {
+			service.notifyAboutTransfer(account, "Money deposited in your account:" + i);
+		}
+
+		assertTrue(delivered.await(5, TimeUnit.SECONDS));
+		service.shutdown();
+		assertEquals(500, service.getEnqueuedCount());
+		assertEquals(500, service.getDispatchedCount());
+		assertEquals(0, service.getDroppedCount());
+	}
+
+	@Test
+	void dropPolicy_discardsWhenQueueIsFull() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		AsyncNotificationService service = new AsyncNotificationService((account, description) -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, 2, 1, 1, OverflowPolicy.DROP);
+
+		// The single worker is stuck on the first event, so only two more fit in the queue.
+		service.notifyAboutTransfer(account, "first");
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 5; i++) {
+			service.notifyAboutTransfer(account, "queued-" + i);
+		}
+
+		assertEquals(2, service.getQueueDepth());
+		assertThat(service.getDroppedCount()).isEqualTo(3);
+
+		release.countDown();
+		service.shutdown();
+		assertEquals(3, service.getDispatchedCount());
+	}
+}
@@ -0,0 +1,184 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AuditResult;
+import com.dws.challenge.exception.InsufficientFundsException;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.BalanceAuditor;
+import com.dws.challenge.service.NotificationService;
+import com.dws.challenge.service.OptimisticTransferEngine;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransferEngine;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransactionLedger;
+
+class BalanceAuditorTest {
+
+	private static final int ACCOUNTS = 64;
+
+	@Test
+	void audit_firstRunIsBaselineThenTracksDeposits() {
+		AccountsService accountsService = service(new StripedLockTransferEngine(16));
+		BalanceAuditor auditor = accountsService.getBalanceAuditor();
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("100.50")));
+
+		AuditResult baseline = auditor.audit();
+		assertEquals(1, baseline.getAccounts());
+		assertThat(baseline.getTotal()).isEqualByComparingTo("100.50");
+		assertNull(baseline.getExpectedTotal());
+		assertTrue(baseline.isConsistent());
+
+		accountsService.createAccount(new Account("Id-2", new BigDecimal("20")));
+		accountsService.transfer(accountsService.getAccount("Id-1"), accountsService.getAccount("Id-2"),
+				new BigDecimal("0.50"));
+
+		AuditResult next = auditor.audit();
+		assertEquals(2, next.getAccounts());
+		assertThat(next.getTotal()).isEqualByComparingTo("120.50");
+		assertThat(next.getExpectedTotal()).isEqualByComparingTo("120.50");
+		assertTrue(next.isConsistent());
+	}
+
+	@Test
+	void audit_reportsDriftWhenBalancesChangeOutsideTransfers() {
+		AccountsService accountsService = service(new StripedLockTransferEngine(16));
+		BalanceAuditor auditor = accountsService.getBalanceAuditor();
+		accountsService.createAccount(new Account("Id-1", BigDecimal.valueOf(100)));
+		auditor.audit();
+
+		accountsService.getAccount("Id-1").setBalance(BigDecimal.valueOf(90));
+
+		AuditResult result = auditor.audit();
+		assertFalse(result.isConsistent());
+		assertThat(result.getDrift()).isEqualByComparingTo("-10");
+		assertEquals(1L, auditor.snapshot().get("driftsDetected"));
+	}
+
+	@Test
+	void concurrent_audits_seeConsistentTotalsWhileTransfersAndCreationsRun() throws Exception {
+		for (TransferEngine engine : new TransferEngine[] { new StripedLockTransferEngine(8),
+				new OptimisticTransferEngine(4, 8) }) {
+			AccountsService accountsService = service(engine);
+			BalanceAuditor auditor = accountsService.getBalanceAuditor();
+			for (int i = 0; i < ACCOUNTS; i++) {
+				accountsService.createAccount(new Account("Id-" + i, BigDecimal.valueOf(1000)));
+			}
+
+			AtomicBoolean running = new AtomicBoolean(true);
+			ExecutorService executor = Executors.newFixedThreadPool(7);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 6; t++) {
+				futures.add(executor.submit(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					while (running.get()) {
+						Account from = accountsService.getAccount("Id-" + random.nextInt(ACCOUNTS));
+						Account to = accountsService.getAccount("Id-" + random.nextInt(ACCOUNTS));
+						try {
+							accountsService.transfer(from, to, BigDecimal.valueOf(random.nextInt(1, 50), 2));
+						} catch (InsufficientFundsException e) {
+							// Expected now and then; the audit only cares that no money is created or lost.
+						}
+					}
+				}));
+			}
+			futures.add(executor.submit(() -> {
+				for (int i = 0; running.get(); i++) {
+					accountsService.createAccount(new Account("New-" + i, BigDecimal.valueOf(7)));
+					Thread.sleep(1);
+				}
+				return null;
+			}));
+
+			List<AuditResult> results = new ArrayList<>();
+			for (int i = 0; i < 50; i++) {
+				results.add(auditor.audit());
+			}
+			running.set(false);
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			executor.shutdown();
+
+			assertThat(results).allMatch(AuditResult::isConsistent);
+			AuditResult last = auditor.audit();
+			assertTrue(last.isConsistent());
+			BigDecimal deposited = BigDecimal.valueOf(1000L * ACCOUNTS)
+					.add(BigDecimal.valueOf(7L * (last.getAccounts() - ACCOUNTS)));
+			assertThat(last.getTotal()).isEqualByComparingTo(deposited);
+		}
+	}
+
+	@Test
+	void audit_letsCreationsAndDepositsThroughWhileItScans() throws Exception {
+		CountDownLatch scanning = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AccountsRepository repository = new AccountsRepositoryInMemory() {
+			@Override
+			public void forEachAccountParallel(Consumer<Account> action) {
+				scanning.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.forEachAccountParallel(action);
+			}
+		};
+		AccountsService accountsService = new AccountsService(repository, Mockito.mock(NotificationService.class),
+				new StripedLockTransferEngine(16), 256, TransferMetrics.disabled(), TransactionLedger.disabled(),
+				BalanceAuditor.manual(repository));
+		BalanceAuditor auditor = accountsService.getBalanceAuditor();
+		accountsService.createAccount(new Account("Id-1", BigDecimal.valueOf(100)));
+		auditor.audit();
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<AuditResult> audit = executor.submit(auditor::audit);
+			assertTrue(scanning.await(10, TimeUnit.SECONDS));
+
+			accountsService.createAccount(new Account("Id-2", BigDecimal.valueOf(20)));
+			accountsService.deposit(accountsService.getAccount("Id-1"), "Id-Remote", BigDecimal.valueOf(5));
+			release.countDown();
+
+			AuditResult during = audit.get(10, TimeUnit.SECONDS);
+			assertTrue(during.isConsistent());
+			assertThat(during.getTotal()).isEqualByComparingTo("100");
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+
+		AuditResult after = auditor.audit();
+		assertTrue(after.isConsistent());
+		assertThat(after.getTotal()).isEqualByComparingTo("125");
+	}
+
+	private static AccountsService service(TransferEngine engine) {
+		AccountsRepository repository = new AccountsRepositoryInMemory();
+		return new AccountsService(repository, Mockito.mock(NotificationService.class), engine, 256,
+				TransferMetrics.disabled(), TransactionLedger.disabled(), BalanceAuditor.manual(repository));
+	}
+}
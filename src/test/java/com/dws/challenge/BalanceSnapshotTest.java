@@ -0,0 +1,88 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountBalance;
+import com.dws.challenge.domain.BalanceSnapshot;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.MonitorTransferEngine;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransferEngine;
+
+class BalanceSnapshotTest {
+
+	private static final int ACCOUNT_COUNT = 8;
+
+	@Test
+	void snapshots_underConcurrentTransfers_alwaysBalance() throws Exception {
+		for (TransferEngine engine : new TransferEngine[] { new StripedLockTransferEngine(4),
+				new MonitorTransferEngine() }) {
+			AccountsService accountsService = new AccountsService(new AccountsRepositoryInMemory(),
+					(account, description) -> {
+					}, engine, 256);
+			List<String> accountIds = new ArrayList<>();
+			for (int i = 0; i < ACCOUNT_COUNT; i++) {
+				accountIds.add("Id-R" + i);
+				accountsService.createAccount(new Account("Id-R" + i, BigDecimal.valueOf(1000)));
+			}
+
+			AtomicBoolean running = new AtomicBoolean(true);
+			ExecutorService executor = Executors.newFixedThreadPool(4);
+			List<Future<?>> writers = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				writers.add(executor.submit(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					while (running.get()) {
+						Account from = accountsService.getAccount(accountIds.get(random.nextInt(ACCOUNT_COUNT)));
+						Account to = accountsService.getAccount(accountIds.get(random.nextInt(ACCOUNT_COUNT)));
+						try {
+							accountsService.transfer(from, to, BigDecimal.valueOf(random.nextInt(1, 50)));
+						} catch (RuntimeException e) {
+							// Insufficient funds, the next pair will do.
+						}
+					}
+				}));
+			}
+
+			for (int i = 0; i < 2000; i++) {
+				BalanceSnapshot snapshot = accountsService.getBalances(accountIds);
+				BigDecimal total = BigDecimal.ZERO;
+				for (AccountBalance balance : snapshot.getBalances()) {
+					total = total.add(balance.getBalance());
+				}
+				assertThat(total).isEqualByComparingTo(BigDecimal.valueOf(1000L * ACCOUNT_COUNT));
+			}
+			running.set(false);
+			for (Future<?> writer : writers) {
+				writer.get();
+			}
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void snapshot_listsMissingAccounts() {
+		AccountsService accountsService = new AccountsService(new AccountsRepositoryInMemory(),
+				(account, description) -> {
+				}, new StripedLockTransferEngine(4), 256);
+		accountsService.createAccount(new Account("Id-R1", BigDecimal.TEN));
+
+		BalanceSnapshot snapshot = accountsService.getBalances(List.of("Id-R1", "Id-Missing"));
+
+		assertThat(snapshot.getBalances()).containsExactly(new AccountBalance("Id-R1", BigDecimal.TEN));
+		assertThat(snapshot.getMissingAccountIds()).containsExactly("Id-Missing");
+	}
+}
@@ -0,0 +1,129 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.validation.Validation;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.dws.challenge.domain.ImportFailure;
+import com.dws.challenge.domain.ImportResult;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.OffHeapAccountsRepository;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.BulkAccountService;
+import com.dws.challenge.service.NotificationService;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class BulkAccountServiceTest {
+
+	private final AccountsService accountsService = new AccountsService(new AccountsRepositoryInMemory(),
+			Mockito.mock(NotificationService.class), new StripedLockTransferEngine(16), 256);
+
+	private final BulkAccountService bulkAccountService = new BulkAccountService(accountsService, new ObjectMapper(),
+			Validation.buildDefaultValidatorFactory().getValidator(), 3, 2);
+
+	@Test
+	void importAccounts_reportsFailedRowsAndKeepsGoing() throws Exception {
+		// Rows 1 to 3 share a chunk, so the duplicate on row 3 is always the one rejected.
+		String input = "{\"accountId\":\"Id-1\",\"balance\":100}\n"
+				+ "{\"accountId\":\"Id-2\",\"balance\":200.50}\n"
+				+ "{\"accountId\":\"Id-1\",\"balance\":5}\n"
+				+ "\n"
+				+ "{\"accountId\":\"Id-3\",\"balance\":-1}\n"
+				+ "not json\n"
+				+ "{\"accountId\":\"Id-4\",\"balance\":0}\n";
+
+		ImportResult result = bulkAccountService.importAccounts(stream(input));
+
+		assertEquals(3, result.getImported());
+		assertEquals(3, result.getFailed());
+		List<ImportFailure> failures = result.getFailures().stream()
+				.sorted(Comparator.comparingLong(ImportFailure::getLine))
+				.collect(Collectors.toList());
+		assertThat(failures).extracting(ImportFailure::getLine).containsExactly(3L, 5L, 6L);
+		assertThat(failures.get(0).getAccountId()).isEqualTo("Id-1");
+		assertThat(failures.get(0).getMessage()).contains("Id-1");
+		assertThat(failures.get(1).getAccountId()).isEqualTo("Id-3");
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("100");
+		assertThat(accountsService.getAccount("Id-3")).isNull();
+	}
+
+	@Test
+	void importAccounts_reportsUnknownCurrenciesAsFailedRows() throws Exception {
+		String input = "{\"accountId\":\"Id-1\",\"balance\":100,\"currency\":\"USD\"}\n"
+				+ "{\"accountId\":\"Id-2\",\"balance\":100,\"currency\":\"XYZ1\"}\n"
+				+ "{\"accountId\":\"Id-3\",\"balance\":100}\n";
+
+		ImportResult result = bulkAccountService.importAccounts(stream(input));
+
+		assertEquals(2, result.getImported());
+		assertEquals(1, result.getFailed());
+		ImportFailure failure = result.getFailures().get(0);
+		assertEquals(2L, failure.getLine());
+		assertThat(failure.getAccountId()).isEqualTo("Id-2");
+		assertThat(failure.getMessage()).contains("XYZ1");
+		assertThat(accountsService.getAccount("Id-2")).isNull();
+		assertThat(accountsService.getAccount("Id-3")).isNotNull();
+	}
+
+	@Test
+	void importAccounts_reportsRowsTheStoreCannotHoldAsFailures() throws Exception {
+		AccountsService offHeap = new AccountsService(new OffHeapAccountsRepository(2, 2),
+				Mockito.mock(NotificationService.class), new StripedLockTransferEngine(16), 256);
+		String input = "{\"accountId\":\"Id-1\",\"balance\":1}\n"
+				+ "{\"accountId\":\"Id-2\",\"balance\":2}\n"
+				+ "{\"accountId\":\"Id-3\",\"balance\":3}\n"
+				+ "{\"accountId\":\"Id-4\",\"balance\":4}\n";
+
+		ImportResult result = new BulkAccountService(offHeap, new ObjectMapper(),
+				Validation.buildDefaultValidatorFactory().getValidator(), 1, 1).importAccounts(stream(input));
+
+		assertEquals(2, result.getImported());
+		assertEquals(2, result.getFailed());
+		assertThat(result.getFailures()).extracting(ImportFailure::getLine).containsExactlyInAnyOrder(3L, 4L);
+		assertThat(result.getFailures()).allMatch(failure -> failure.getMessage().contains("full"));
+	}
+
+	@Test
+	void exportAccounts_roundTripsThroughImport() throws Exception {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			input.append("{\"accountId\":\"Id-").append(i).append("\",\"balance\":").append(i).append(".25}\n");
+		}
+		bulkAccountService.importAccounts(stream(input.toString()));
+
+		ByteArrayOutputStream exported = new ByteArrayOutputStream();
+		assertEquals(100, bulkAccountService.exportAccounts(exported));
+
+		String[] lines = exported.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(100, lines.length);
+		assertThat(Arrays.asList(lines)).allMatch(line -> line.startsWith("{\"accountId\":\"Id-"));
+
+		AccountsService copy = new AccountsService(new AccountsRepositoryInMemory(),
+				Mockito.mock(NotificationService.class), new StripedLockTransferEngine(16), 256);
+		ImportResult result = new BulkAccountService(copy, new ObjectMapper(),
+				Validation.buildDefaultValidatorFactory().getValidator(), 7, 3)
+				.importAccounts(new ByteArrayInputStream(exported.toByteArray()));
+
+		assertEquals(100, result.getImported());
+		assertEquals(0, result.getFailed());
+		assertThat(copy.getAccount("Id-42").getBalance()).isEqualByComparingTo(new BigDecimal("42.25"));
+	}
+
+	private static ByteArrayInputStream stream(String input) {
+		return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+	}
+}
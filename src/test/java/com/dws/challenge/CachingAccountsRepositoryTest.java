@@ -0,0 +1,78 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.CachingAccountsRepository;
+
+class CachingAccountsRepositoryTest {
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private final AccountsRepositoryInMemory store = spy(new AccountsRepositoryInMemory());
+
+	private final CachingAccountsRepository repository = new CachingAccountsRepository(store, 2, Duration.ofMinutes(5),
+			clock::get);
+
+	@Test
+	void repeatedLookups_readTheStoreOnce() {
+		repository.createAccount(new Account("Id-1", BigDecimal.TEN));
+
+		Account first = repository.getAccount("Id-1");
+		for (int i = 0; i < 10; i++) {
+			assertSame(first, repository.getAccount("Id-1"));
+		}
+
+		verify(store, times(1)).getAccount("Id-1");
+		assertThat(repository.snapshot()).containsEntry("hits", 10L).containsEntry("misses", 1L);
+	}
+
+	@Test
+	void unknownAccounts_areNotCached() {
+		assertNull(repository.getAccount("Id-1"));
+		repository.createAccount(new Account("Id-1", BigDecimal.TEN));
+
+		assertThat(repository.getAccount("Id-1").getBalance()).isEqualByComparingTo("10");
+		verify(store, times(2)).getAccount("Id-1");
+	}
+
+	@Test
+	void writes_invalidateCachedAccounts() {
+		repository.createAccount(new Account("Id-1", BigDecimal.TEN));
+		repository.getAccount("Id-1");
+		assertThrows(DuplicateAccountIdException.class,
+				() -> repository.createAccount(new Account("Id-1", BigDecimal.ONE)));
+		repository.getAccount("Id-1");
+
+		repository.clearAccounts();
+		assertNull(repository.getAccount("Id-1"));
+		verify(store, times(3)).getAccount("Id-1");
+	}
+
+	@Test
+	void entries_expireAfterTheirTimeToLive() {
+		repository.createAccount(new Account("Id-1", BigDecimal.TEN));
+		repository.getAccount("Id-1");
+		clock.addAndGet(TimeUnit.MINUTES.toNanos(4));
+		repository.getAccount("Id-1");
+		clock.addAndGet(TimeUnit.MINUTES.toNanos(2));
+		repository.getAccount("Id-1");
+
+		verify(store, times(2)).getAccount("Id-1");
+	}
+}
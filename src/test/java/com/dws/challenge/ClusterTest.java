@@ -0,0 +1,247 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.dws.challenge.domain.AuditResult;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.BalanceAuditor;
+import com.dws.challenge.service.ClusterClient;
+import com.dws.challenge.service.PartitionMap;
+
+/**
+ * Starts three nodes in this JVM on loopback ports and drives them over HTTP like a client would.
+ */
+class ClusterTest {
+
+	private static final int NODES = 3;
+
+	private static final String SECRET = "test-cluster-secret";
+
+	private static final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+	private static final List<String> urls = new ArrayList<>();
+
+	private static final HttpClient http = HttpClient.newHttpClient();
+
+	@BeforeAll
+	static void startCluster() throws IOException {
+		for (int i = 0; i < NODES; i++) {
+			try (ServerSocket socket = new ServerSocket(0)) {
+				urls.add("http://127.0.0.1:" + socket.getLocalPort());
+			}
+		}
+		for (int i = 0; i < NODES; i++) {
+			nodes.add(new SpringApplicationBuilder(ChallengeApplication.class).properties(
+					"server.port=" + URI.create(urls.get(i)).getPort(),
+					"cluster.nodes=" + String.join(",", urls),
+					"cluster.node-index=" + i,
+					"cluster.secret=" + SECRET,
+					"accounts.audit.interval-ms=0",
+					"transfer.admission.enabled=false").run());
+		}
+	}
+
+	@AfterAll
+	static void stopCluster() {
+		nodes.forEach(ConfigurableApplicationContext::close);
+	}
+
+	@BeforeEach
+	void clearAccounts() {
+		for (ConfigurableApplicationContext node : nodes) {
+			node.getBean(AccountsService.class).getAccountsRepository().clearAccounts();
+		}
+	}
+
+	@Test
+	void accounts_areCreatedOnAndReadFromTheirOwner() throws Exception {
+		for (int i = 0; i < 30; i++) {
+			assertEquals(201, createAccount(0, "Id-" + i, "10"));
+		}
+
+		PartitionMap partitionMap = nodes.get(0).getBean(PartitionMap.class);
+		for (int i = 0; i < 30; i++) {
+			String accountId = "Id-" + i;
+			for (int node = 0; node < NODES; node++) {
+				if (node == partitionMap.ownerOf(accountId)) {
+					assertNotNull(service(node).getAccount(accountId));
+				} else {
+					assertNull(service(node).getAccount(accountId));
+				}
+			}
+			HttpResponse<String> response = get((i % NODES), "/v1/accounts/" + accountId);
+			assertEquals(200, response.statusCode());
+			assertThat(response.body()).contains(accountId);
+		}
+		assertEquals(400, createAccount(1, "Id-7", "5"));
+	}
+
+	@Test
+	void crossNodeTransfer_movesMoneyBetweenNodes() throws Exception {
+		String from = accountOwnedBy(0);
+		String to = accountOwnedBy(1);
+		createAccount(2, from, "100");
+		createAccount(2, to, "50");
+
+		// Sent to the node owning neither account, which forwards it to the owner of the source.
+		assertEquals(200, get(2, "/v1/accounts/" + from + "/" + to + "/30").statusCode());
+
+		assertThat(service(0).getAccount(from).getBalance()).isEqualByComparingTo("70");
+		assertThat(service(1).getAccount(to).getBalance()).isEqualByComparingTo("80");
+		assertThat(get(1, "/v1/accounts/" + from + "/transactions").body()).contains(to);
+	}
+
+	@Test
+	void crossNodeTransfer_refusedTransfersLeaveBalancesUntouched() throws Exception {
+		String from = accountOwnedBy(0);
+		String to = accountOwnedBy(1);
+		createAccount(0, from, "100");
+		createAccount(1, to, "50");
+
+		assertEquals(400, get(0, "/v1/accounts/" + from + "/" + to + "/500").statusCode());
+		assertEquals(400, get(0, "/v1/accounts/" + from + "/" + accountOwnedBy(2) + "/10").statusCode());
+
+		assertThat(service(0).getAccount(from).getBalance()).isEqualByComparingTo("100");
+		assertThat(service(1).getAccount(to).getBalance()).isEqualByComparingTo("50");
+	}
+
+	@Test
+	void concurrent_crossNodeTransfers_conserveMoney() throws Exception {
+		List<String> accounts = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			accounts.add("Acc-" + i);
+			createAccount(i % NODES, "Acc-" + i, "1000");
+		}
+		for (ConfigurableApplicationContext node : nodes) {
+			node.getBean(BalanceAuditor.class).audit();
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			futures.add(executor.submit(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i = 0; i < 100; i++) {
+					String from = accounts.get(random.nextInt(accounts.size()));
+					String to = accounts.get(random.nextInt(accounts.size()));
+					get(random.nextInt(NODES), "/v1/accounts/" + from + "/" + to + "/" + random.nextInt(1, 20));
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		BigDecimal total = BigDecimal.ZERO;
+		for (String accountId : accounts) {
+			total = total.add(service(nodes.get(0).getBean(PartitionMap.class).ownerOf(accountId))
+					.getAccount(accountId).getBalance());
+		}
+		assertThat(total).isEqualByComparingTo("12000");
+		for (ConfigurableApplicationContext node : nodes) {
+			AuditResult audit = node.getBean(BalanceAuditor.class).audit();
+			assertThat(audit.isConsistent()).isTrue();
+		}
+	}
+
+	@Test
+	void transferEndpoints_refuseRequestsWithoutTheSecret() throws Exception {
+		String to = accountOwnedBy(1);
+		createAccount(1, to, "50");
+		String credit = "{\"accountId\":\"" + to + "\",\"counterpartyAccountId\":\"X\",\"amount\":1000}";
+
+		assertEquals(403, post(1, "/v1/cluster/transfers/forged/prepare", credit, null).statusCode());
+		assertEquals(403, post(1, "/v1/cluster/transfers/forged/prepare", credit, "wrong").statusCode());
+		assertEquals(200, post(1, "/v1/cluster/transfers/forged/prepare", credit, SECRET).statusCode());
+		assertEquals(403, post(1, "/v1/cluster/transfers/forged/commit", "", null).statusCode());
+
+		assertThat(service(1).getAccount(to).getBalance()).isEqualByComparingTo("50");
+		assertEquals(200, post(1, "/v1/cluster/transfers/forged/abort", "", SECRET).statusCode());
+	}
+
+	@Test
+	void multiAccountEndpoints_refuseAccountsOfOtherNodes() throws Exception {
+		String local = accountOwnedBy(0);
+		String remote = accountOwnedBy(1);
+		createAccount(0, local, "100");
+		createAccount(1, remote, "50");
+
+		assertEquals(200, get(0, "/v1/balances?ids=" + local).statusCode());
+		HttpResponse<String> balances = get(0, "/v1/balances?ids=" + local + "," + remote);
+		assertEquals(400, balances.statusCode());
+		assertThat(balances.body()).contains(remote);
+
+		String batch = "[{\"accountFromId\":\"" + local + "\",\"accountToId\":\"" + remote + "\",\"amount\":10}]";
+		assertEquals(400, post(0, "/v1/transfers/batch", batch, null).statusCode());
+		assertThat(service(0).getAccount(local).getBalance()).isEqualByComparingTo("100");
+
+		HttpRequest bulkImport = HttpRequest.newBuilder(URI.create(urls.get(0) + "/v1/bulk/accounts"))
+				.header("Content-Type", "application/x-ndjson")
+				.POST(HttpRequest.BodyPublishers.ofString("{\"accountId\":\"" + remote + "-2\",\"balance\":1}\n"))
+				.build();
+		assertEquals(400, http.send(bulkImport, HttpResponse.BodyHandlers.ofString()).statusCode());
+	}
+
+	private static AccountsService service(int node) {
+		return nodes.get(node).getBean(AccountsService.class);
+	}
+
+	private static String accountOwnedBy(int node) {
+		PartitionMap partitionMap = nodes.get(0).getBean(PartitionMap.class);
+		for (int i = 0;; i++) {
+			if (partitionMap.ownerOf("Owned-" + i) == node) {
+				return "Owned-" + i;
+			}
+		}
+	}
+
+	private static int createAccount(int node, String accountId, String balance) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(urls.get(node) + "/v1/accounts"))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers
+						.ofString("{\"accountId\":\"" + accountId + "\",\"balance\":" + balance + "}"))
+				.build();
+		return http.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+	}
+
+	private static HttpResponse<String> post(int node, String path, String body, String secret) throws Exception {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(urls.get(node) + path))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body));
+		if (secret != null) {
+			request.header(ClusterClient.SECRET_HEADER, secret);
+		}
+		return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private static HttpResponse<String> get(int node, String path) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(urls.get(node) + path)).build();
+		return http.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+}
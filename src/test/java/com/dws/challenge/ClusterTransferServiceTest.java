@@ -0,0 +1,76 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.CrossNodeCredit;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.ClusterClient;
+import com.dws.challenge.service.ClusterTransferService;
+import com.dws.challenge.service.NotificationService;
+import com.dws.challenge.service.PartitionMap;
+import com.dws.challenge.service.StripedLockTransferEngine;
+
+/**
+ * Participant side of cross-node transfers, driven directly instead of by another node.
+ */
+class ClusterTransferServiceTest {
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private final AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+
+	private final AccountsService accountsService = new AccountsService(repository,
+			Mockito.mock(NotificationService.class), new StripedLockTransferEngine(16), 256);
+
+	private final ClusterTransferService clusterTransferService = new ClusterTransferService(accountsService,
+			PartitionMap.singleNode(), Mockito.mock(ClusterClient.class), 1000, 60_000, clock::get);
+
+	@Test
+	void preparedCredit_expiresWithoutCommitOrAbort() {
+		accountsService.createAccount(new Account("Id-1", BigDecimal.TEN));
+		assertTrue(clusterTransferService.prepare("tx-1", new CrossNodeCredit("Id-1", "Id-Remote", BigDecimal.ONE)));
+		assertThat(clusterTransferService.snapshot()).containsEntry("prepared", 1L);
+
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+		assertThat(clusterTransferService.snapshot()).containsEntry("prepared", 0L)
+				.containsEntry("preparedExpired", 1L);
+		assertFalse(clusterTransferService.commit("tx-1"));
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("10");
+	}
+
+	@Test
+	void commit_ofACreditWhoseAccountWasRemoved_isAcknowledgedAndCounted() {
+		accountsService.createAccount(new Account("Id-1", BigDecimal.TEN));
+		assertTrue(clusterTransferService.prepare("tx-1", new CrossNodeCredit("Id-1", "Id-Remote", BigDecimal.ONE)));
+		repository.clearAccounts();
+
+		assertTrue(clusterTransferService.commit("tx-1"));
+		assertTrue(clusterTransferService.commit("tx-1"));
+		assertThat(clusterTransferService.snapshot()).containsEntry("creditsOrphaned", 1L)
+				.containsEntry("creditsApplied", 0L);
+	}
+
+	@Test
+	void commit_appliesThePreparedCreditOnce() {
+		accountsService.createAccount(new Account("Id-1", BigDecimal.TEN));
+		clusterTransferService.prepare("tx-1", new CrossNodeCredit("Id-1", "Id-Remote", BigDecimal.ONE));
+
+		assertTrue(clusterTransferService.commit("tx-1"));
+		assertTrue(clusterTransferService.commit("tx-1"));
+		assertFalse(clusterTransferService.commit("tx-unknown"));
+
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("11");
+	}
+}
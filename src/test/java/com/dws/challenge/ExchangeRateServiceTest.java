@@ -0,0 +1,164 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.ExchangeRates;
+import com.dws.challenge.domain.TransferRequest;
+import com.dws.challenge.domain.TransferResult;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.InsufficientFundsException;
+import com.dws.challenge.exception.UnsupportedCurrencyException;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.BalanceAuditor;
+import com.dws.challenge.service.ExchangeRateService;
+import com.dws.challenge.service.HotAccountDetector;
+import com.dws.challenge.service.NotificationService;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransactionLedger;
+import com.dws.challenge.service.TransferMetrics;
+
+class ExchangeRateServiceTest {
+
+	private static final ExchangeRates RATES = ExchangeRates.of("EUR",
+			Map.of("USD", new BigDecimal("1.0843"), "JPY", new BigDecimal("162.5")), 1);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void convert_usesCrossRatesAndRoundsToTheTargetMinorUnit() {
+		assertThat(RATES.convert(new BigDecimal("10"), null, "USD", -1)).isEqualTo(new BigDecimal("10.84"));
+		assertThat(RATES.convert(new BigDecimal("10"), "EUR", "USD", -1)).isEqualTo(new BigDecimal("10.84"));
+		// 100 * 162.5 / 1.0843 = 14986.63, and the yen has no minor unit.
+		assertThat(RATES.convert(new BigDecimal("100"), "USD", "JPY", -1)).isEqualTo(new BigDecimal("14987"));
+		assertThat(RATES.convert(new BigDecimal("10"), "EUR", "USD", 4)).isEqualTo(new BigDecimal("10.8430"));
+		assertTrue(RATES.isSameCurrency(null, "EUR"));
+		assertFalse(RATES.isSameCurrency(null, "USD"));
+	}
+
+	@Test
+	void unknownCurrenciesAndBadRates_areRejected() {
+		assertThrows(UnsupportedCurrencyException.class, () -> RATES.convert(BigDecimal.ONE, "EUR", "GBP", -1));
+		assertThrows(UnsupportedCurrencyException.class, () -> ExchangeRates.requireCurrency("XYZ1"));
+		assertThrows(UnsupportedCurrencyException.class,
+				() -> ExchangeRates.of("EUR", Map.of("USD", BigDecimal.ZERO), 1));
+	}
+
+	@Test
+	void reload_swapsTheTableAndKeepsItWhenTheFileIsBroken() throws Exception {
+		Path file = directory.resolve("rates.properties");
+		Files.write(file, "base=EUR\nUSD=1.0843\n".getBytes(StandardCharsets.UTF_8));
+		ExchangeRateService service = new ExchangeRateService("EUR", file.toString(), 0);
+		ExchangeRates loaded = service.getRates();
+		assertTrue(loaded.supports("USD"));
+
+		Files.write(file, "USD=1.10\nGBP=0.85\n".getBytes(StandardCharsets.UTF_8));
+		assertTrue(service.reload());
+		assertThat(service.getRates().convert(new BigDecimal("10"), "EUR", "USD", -1))
+				.isEqualTo(new BigDecimal("11.00"));
+		assertTrue(service.getRates().supports("GBP"));
+		// The table read before the reload is unchanged.
+		assertFalse(loaded.supports("GBP"));
+
+		ExchangeRates current = service.getRates();
+		Files.write(file, "USD=abc\n".getBytes(StandardCharsets.UTF_8));
+		assertFalse(service.reload());
+		assertSame(current, service.getRates());
+		assertThat(service.snapshot()).containsEntry("failedReloads", 1L).containsEntry("version", 2L);
+	}
+
+	@Test
+	void reload_refusesAFileWithAnotherBaseCurrency() throws Exception {
+		Path file = directory.resolve("rates.properties");
+		Files.write(file, "USD=1.0843
+".getBytes(StandardCharsets.UTF_8));
+		ExchangeRateService service = new ExchangeRateService("EUR", file.toString(), 0);
+		ExchangeRates current = service.getRates();
+
+		Files.write(file, "base=USD
+EUR=0.9222
+".getBytes(StandardCharsets.UTF_8));
+		assertFalse(service.reload());
+		assertSame(current, service.getRates());
+		assertThat(service.snapshot()).containsEntry("baseCurrency", "EUR").containsEntry("failedReloads", 1L);
+	}
+
+	@Test
+	void transferBetweenCurrencies_creditsTheConvertedAmount() {
+		AccountsService accountsService = newService();
+		Account euros = new Account("Id-EUR", new BigDecimal("100"));
+		Account dollars = new Account("Id-USD", BigDecimal.ZERO, "USD");
+		Account pounds = new Account("Id-GBP", BigDecimal.ZERO, "GBP");
+		accountsService.createAccount(euros);
+		accountsService.createAccount(dollars);
+		accountsService.createAccount(pounds);
+		accountsService.getBalanceAuditor().audit();
+
+		accountsService.transfer(euros, dollars, new BigDecimal("10"));
+
+		assertThat(euros.getBalance()).isEqualByComparingTo("90");
+		assertThat(dollars.getBalance()).isEqualByComparingTo("10.84");
+		assertThrows(InsufficientFundsException.class,
+				() -> accountsService.transfer(dollars, euros, new BigDecimal("20")));
+		assertThrows(UnsupportedCurrencyException.class,
+				() -> accountsService.transfer(euros, pounds, new BigDecimal("10")));
+		assertThat(euros.getBalance()).isEqualByComparingTo("90");
+		assertThat(dollars.getBalance()).isEqualByComparingTo("10.84");
+		// Both halves are counted as money leaving and entering, so the grown total is not reported as drift.
+		assertTrue(accountsService.getBalanceAuditor().audit().isConsistent());
+	}
+
+	@Test
+	void batch_convertsItemsBetweenCurrencies() {
+		AccountsService accountsService = newService();
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("Id-2", new BigDecimal("100")));
+		accountsService.createAccount(new Account("Id-USD", BigDecimal.ZERO, "USD"));
+		accountsService.createAccount(new Account("Id-GBP", BigDecimal.ZERO, "GBP"));
+
+		List<TransferResult> results = accountsService.transferBatch(List.of(
+				new TransferRequest("Id-1", "Id-2", new BigDecimal("10")),
+				new TransferRequest("Id-1", "Id-USD", new BigDecimal("10")),
+				new TransferRequest("Id-1", "Id-GBP", new BigDecimal("10")),
+				new TransferRequest("Id-USD", "Id-2", new BigDecimal("50"))));
+
+		assertThat(results).extracting(TransferResult::getStatus).containsExactly(TransferStatus.COMPLETED,
+				TransferStatus.COMPLETED, TransferStatus.INVALID_REQUEST, TransferStatus.INSUFFICIENT_FUNDS);
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("80");
+		assertThat(accountsService.getAccount("Id-USD").getBalance()).isEqualByComparingTo("10.84");
+	}
+
+	@Test
+	void createAccount_rejectsUnknownCurrencies() {
+		AccountsService accountsService = newService();
+
+		assertThrows(UnsupportedCurrencyException.class,
+				() -> accountsService.createAccount(new Account("Id-1", BigDecimal.ONE, "XYZ1")));
+		assertEquals(null, accountsService.getAccount("Id-1"));
+	}
+
+	private static AccountsService newService() {
+		AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+		return new AccountsService(repository, Mockito.mock(NotificationService.class),
+				new StripedLockTransferEngine(16), 256, TransferMetrics.disabled(), TransactionLedger.disabled(),
+				BalanceAuditor.manual(repository), HotAccountDetector.disabled(), ExchangeRateService.fixed(RATES));
+	}
+}
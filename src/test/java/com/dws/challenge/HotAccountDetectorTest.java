@@ -0,0 +1,154 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.InsufficientFundsException;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.BalanceAuditor;
+import com.dws.challenge.service.HotAccountDetector;
+import com.dws.challenge.service.NotificationService;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransactionLedger;
+import com.dws.challenge.service.TransferMetrics;
+
+class HotAccountDetectorTest {
+
+	@Test
+	void heavyHitter_isFlaggedAfterTheWindowAndCooledWhenItFades() {
+		// Every credit sampled, windows of 1000 credits, hot from 10% of them.
+		HotAccountDetector detector = new HotAccountDetector(true, 64, 1, 1000, 0.1, 4);
+
+		for (int i = 0; i < 999; i++) {
+			assertFalse(detector.recordCredit(i % 2 == 0 ? "Merchant" : "Id-" + i));
+		}
+		assertFalse(detector.recordCredit("Id-999"));
+		assertTrue(detector.isHot("Merchant"));
+		assertFalse(detector.isHot("Id-1"));
+		@SuppressWarnings("unchecked")
+		Map<String, Double> hot = (Map<String, Double>) detector.snapshot().get("hotAccounts");
+		assertThat(hot).containsOnlyKeys("Merchant");
+		assertThat(hot.get("Merchant")).isGreaterThanOrEqualTo(0.5);
+
+		// 6% is below the threshold but above half of it, so the account stays hot.
+		creditWindow(detector, 60);
+		assertTrue(detector.isHot("Merchant"));
+
+		creditWindow(detector, 0);
+		assertFalse(detector.isHot("Merchant"));
+		assertThat(detector.snapshot()).containsEntry("evaluations", 3L).containsEntry("promotions", 1L)
+				.containsEntry("demotions", 1L);
+	}
+
+	@Test
+	void manyColdAccounts_doNotFillTheHotSet() {
+		HotAccountDetector detector = new HotAccountDetector(true, 8, 1, 10_000, 0.01, 4);
+
+		for (int i = 0; i < 10_000; i++) {
+			detector.recordCredit("Id-" + i % 500);
+		}
+		assertThat(detector.snapshot()).containsEntry("evaluations", 1L).containsEntry("promotions", 0L);
+	}
+
+	@Test
+	void debitFromHotAccount_isCoveredByStripedCredits() {
+		AccountsService accountsService = newService(HotAccountDetector.disabled());
+		Account merchant = new Account("Merchant", BigDecimal.ZERO);
+		Account customer = new Account("Customer", BigDecimal.ZERO);
+		accountsService.createAccount(merchant);
+		accountsService.createAccount(customer);
+		merchant.useCreditStripes(4);
+		merchant.addStripedCredit(new BigDecimal("100"));
+
+		accountsService.transfer(merchant, customer, new BigDecimal("60"));
+
+		assertThat(merchant.getBalance()).isEqualByComparingTo("40");
+		assertThat(merchant.getSettledBalance()).isEqualByComparingTo("-60");
+		assertThat(customer.getBalance()).isEqualByComparingTo("60");
+		assertThrows(InsufficientFundsException.class,
+				() -> accountsService.transfer(merchant, customer, new BigDecimal("40")));
+	}
+
+	@Test
+	void minorUnitAccounts_cannotUseCreditStripes() {
+		Account account = new Account("Id-1", new BigDecimal("10"));
+		account.useMinorUnits(2);
+
+		assertThrows(IllegalStateException.class, () -> account.useCreditStripes(4));
+		assertThrows(IllegalStateException.class, () -> new Account("Id-2").addStripedCredit(BigDecimal.ONE));
+	}
+
+	@Test
+	void concurrentTransfersToHotAccount_conserveMoney() throws Exception {
+		HotAccountDetector detector = new HotAccountDetector(true, 16, 1, 200, 0.2, 8);
+		AccountsService accountsService = newService(detector);
+		Account merchant = new Account("Merchant", BigDecimal.ZERO);
+		accountsService.createAccount(merchant);
+		int threads = 8;
+		int transfersPerThread = 5_000;
+		for (int i = 0; i < threads; i++) {
+			accountsService.createAccount(new Account("Id-" + i, new BigDecimal("100000")));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				Account customer = accountsService.getAccount("Id-" + t);
+				results.add(executor.submit(() -> {
+					for (int i = 0; i < transfersPerThread; i++) {
+						accountsService.transfer(customer, merchant, new BigDecimal("2"));
+						if (i % 10 == 9) {
+							// The merchant pays back, which takes its claim while others credit it.
+							accountsService.transfer(merchant, customer, BigDecimal.ONE);
+						}
+					}
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertTrue(merchant.hasCreditStripes());
+		assertThat(detector.snapshot().get("stripedCredits")).isNotEqualTo(0L);
+		BigDecimal expectedMerchant = new BigDecimal(threads * (transfersPerThread * 2 - transfersPerThread / 10));
+		assertThat(merchant.getBalance()).isEqualByComparingTo(expectedMerchant);
+		BigDecimal total = merchant.getBalance();
+		for (int i = 0; i < threads; i++) {
+			total = total.add(accountsService.getAccount("Id-" + i).getBalance());
+		}
+		assertEquals(0, total.compareTo(new BigDecimal(threads * 100000)));
+	}
+
+	private static void creditWindow(HotAccountDetector detector, int merchantCredits) {
+		for (int i = 0; i < 1000; i++) {
+			detector.recordCredit(i < merchantCredits ? "Merchant" : "Id-" + i);
+		}
+	}
+
+	private static AccountsService newService(HotAccountDetector detector) {
+		AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+		return new AccountsService(repository, Mockito.mock(NotificationService.class),
+				new StripedLockTransferEngine(16), 256, TransferMetrics.disabled(), TransactionLedger.disabled(),
+				BalanceAuditor.manual(repository), detector);
+	}
+}
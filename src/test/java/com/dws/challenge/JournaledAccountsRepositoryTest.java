@@ -0,0 +1,236 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.exception.InsufficientFundsException;
+import com.dws.challenge.repository.AccountJournal;
+import com.dws.challenge.repository.JournaledAccountsRepository;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.StripedLockTransferEngine;
+
+class JournaledAccountsRepositoryTest {
+
+	@TempDir
+	Path journalDirectory;
+
+	@Test
+	void balances_rebuiltFromJournalOnRestart() throws Exception {
+		JournaledAccountsRepository repository = open();
+		AccountsService accountsService = service(repository);
+		accountsService.createAccount(new Account("Id-J1", new BigDecimal("100.00")));
+		accountsService.createAccount(new Account("Id-J2", new BigDecimal("50.00")));
+		accountsService.transfer(accountsService.getAccount("Id-J1"), accountsService.getAccount("Id-J2"),
+				new BigDecimal("30.25"));
+		accountsService.transfer(accountsService.getAccount("Id-J2"), accountsService.getAccount("Id-J1"),
+				new BigDecimal("0.25"));
+		repository.close();
+
+		JournaledAccountsRepository recovered = open();
+		assertThat(recovered.getAccount("Id-J1").getBalance()).isEqualByComparingTo("70.00");
+		assertThat(recovered.getAccount("Id-J2").getBalance()).isEqualByComparingTo("80.00");
+		recovered.close();
+	}
+
+	@Test
+	void snapshot_plusJournalTail_restoresBalances() throws Exception {
+		JournaledAccountsRepository repository = open();
+		AccountsService accountsService = service(repository);
+		accountsService.createAccount(new Account("Id-S1", new BigDecimal("500")));
+		accountsService.createAccount(new Account("Id-S2", new BigDecimal("500")));
+		accountsService.transfer(accountsService.getAccount("Id-S1"), accountsService.getAccount("Id-S2"),
+				new BigDecimal("100"));
+		repository.snapshot();
+		accountsService.createAccount(new Account("Id-S3", new BigDecimal("1")));
+		accountsService.transfer(accountsService.getAccount("Id-S2"), accountsService.getAccount("Id-S1"),
+				new BigDecimal("50"));
+		repository.snapshot();
+		accountsService.transfer(accountsService.getAccount("Id-S2"), accountsService.getAccount("Id-S3"),
+				new BigDecimal("9"));
+		repository.close();
+
+		JournaledAccountsRepository recovered = open();
+		assertThat(recovered.getAccount("Id-S1").getBalance()).isEqualByComparingTo("450");
+		assertThat(recovered.getAccount("Id-S2").getBalance()).isEqualByComparingTo("541");
+		assertThat(recovered.getAccount("Id-S3").getBalance()).isEqualByComparingTo("10");
+		recovered.close();
+	}
+
+	@Test
+	void crossNodeHalves_rebuiltFromJournalAndSnapshot() throws Exception {
+		JournaledAccountsRepository repository = open();
+		AccountsService accountsService = service(repository);
+		accountsService.createAccount(new Account("Id-X1", new BigDecimal("100")));
+		accountsService.withdraw(accountsService.getAccount("Id-X1"), "Remote-1", new BigDecimal("40"));
+		repository.snapshot();
+		accountsService.deposit(accountsService.getAccount("Id-X1"), "Remote-2", new BigDecimal("5.50"));
+		repository.close();
+
+		JournaledAccountsRepository recovered = open();
+		assertThat(recovered.getAccount("Id-X1").getBalance()).isEqualByComparingTo("65.50");
+		recovered.close();
+	}
+
+	@Test
+	void tornTail_isTruncated() throws Exception {
+		JournaledAccountsRepository repository = open();
+		repository.createAccount(new Account("Id-J3", new BigDecimal("10")));
+		repository.close();
+
+		try (var segments = Files.list(journalDirectory)) {
+			Path segment = segments.findFirst().orElseThrow();
+			Files.write(segment, new byte[] { 0, 0, 0, 42, 7 }, StandardOpenOption.APPEND);
+		}
+
+		JournaledAccountsRepository recovered = open();
+		assertThat(recovered.getAccount("Id-J3").getBalance()).isEqualByComparingTo("10");
+		recovered.clearAccounts();
+		recovered.close();
+
+		JournaledAccountsRepository cleared = open();
+		assertNull(cleared.getAccount("Id-J3"));
+		cleared.close();
+	}
+
+	@Test
+	void overlongIds_areRejectedBeforeTheyReachTheJournal() throws Exception {
+		JournaledAccountsRepository repository = open();
+		String overlong = "x".repeat(65536);
+		assertThrows(IllegalArgumentException.class,
+				() -> repository.createAccount(new Account(overlong, BigDecimal.ONE)));
+		repository.createAccount(new Account("Id-L1", BigDecimal.TEN));
+		repository.close();
+
+		JournaledAccountsRepository recovered = open();
+		assertNull(recovered.getAccount(overlong));
+		assertThat(recovered.getAccount("Id-L1").getBalance()).isEqualByComparingTo("10");
+		recovered.close();
+	}
+
+	@Test
+	void concurrentCreatesOfOneId_journalItOnce() throws Exception {
+		JournaledAccountsRepository repository = open();
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		AtomicInteger created = new AtomicInteger();
+		AtomicInteger duplicates = new AtomicInteger();
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				BigDecimal balance = new BigDecimal(t + 1);
+				results.add(executor.submit(() -> {
+					try {
+						repository.createAccount(new Account("Id-C1", balance));
+						created.incrementAndGet();
+					} catch (DuplicateAccountIdException e) {
+						duplicates.incrementAndGet();
+					}
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		BigDecimal balance = repository.getAccount("Id-C1").getBalance();
+		repository.close();
+
+		assertThat(created.get()).isEqualTo(1);
+		assertThat(duplicates.get()).isEqualTo(threads - 1);
+		JournaledAccountsRepository recovered = open();
+		assertThat(recovered.getAccount("Id-C1").getBalance()).isEqualByComparingTo(balance);
+		recovered.close();
+	}
+
+	@Test
+	void journalOrder_neverSpendsFundsBeforeTheRecordThatProvidedThem() throws Exception {
+		JournaledAccountsRepository repository = open();
+		AccountsService accountsService = service(repository);
+		int accounts = 4;
+		accountsService.createAccount(new Account("Id-O0", new BigDecimal("1000000")));
+		for (int i = 1; i < accounts; i++) {
+			accountsService.createAccount(new Account("Id-O" + i, BigDecimal.ONE));
+		}
+		// Money only flows down the chain, so every account but the first spends what it has just received.
+		ExecutorService executor = Executors.newFixedThreadPool(accounts - 1);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (int i = 0; i < accounts - 1; i++) {
+				Account from = accountsService.getAccount("Id-O" + i);
+				Account to = accountsService.getAccount("Id-O" + (i + 1));
+				results.add(executor.submit(() -> {
+					for (int n = 0; n < 2000; n++) {
+						try {
+							accountsService.transfer(from, to, BigDecimal.ONE);
+						} catch (InsufficientFundsException e) {
+							Thread.yield();
+						}
+					}
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		repository.close();
+
+		// Every prefix of the journal must replay to balances the engine would have allowed.
+		Map<String, BigDecimal> balances = new HashMap<>();
+		AtomicInteger overdrafts = new AtomicInteger();
+		AccountJournal journal = AccountJournal.open(journalDirectory, 0, 1 << 20, 16, 1, new AccountJournal.Visitor() {
+
+			@Override
+			public void accountCreated(String accountId, BigDecimal balance) {
+				balances.put(accountId, balance);
+			}
+
+			@Override
+			public void transferCommitted(String accountFromId, String accountToId, BigDecimal amount) {
+				BigDecimal remaining = balances.get(accountFromId).subtract(amount);
+				if (remaining.signum() <= 0) {
+					overdrafts.incrementAndGet();
+				}
+				balances.put(accountFromId, remaining);
+				balances.merge(accountToId, amount, BigDecimal::add);
+			}
+
+			@Override
+			public void balanceAdjusted(String accountId, BigDecimal amount) {
+				balances.merge(accountId, amount, BigDecimal::add);
+			}
+		});
+		journal.close();
+		assertThat(overdrafts.get()).isZero();
+	}
+
+	private JournaledAccountsRepository open() throws Exception {
+		return new JournaledAccountsRepository(journalDirectory, 1 << 20, 16, 1, true, 0, Account.DECIMAL_BALANCE);
+	}
+
+	private static AccountsService service(JournaledAccountsRepository repository) {
+		return new AccountsService(repository, (account, description) -> {
+		}, new StripedLockTransferEngine(16), 256);
+	}
+}
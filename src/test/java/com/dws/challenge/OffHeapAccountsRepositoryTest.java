@@ -0,0 +1,108 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+import com.dws.challenge.config.AccountConfiguration;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.exception.InsufficientFundsException;
+import com.dws.challenge.exception.SameAccountTransferException;
+import com.dws.challenge.repository.OffHeapAccountsRepository;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransferMetrics;
+
+class OffHeapAccountsRepositoryTest {
+
+	@Test
+	void createAndGet() {
+		OffHeapAccountsRepository repository = new OffHeapAccountsRepository(1000, 2);
+		repository.createAccount(new Account("Id-O1", new BigDecimal("12.34")));
+		repository.createAccount(new Account("Id-\u00dc2", new BigDecimal("5")));
+
+		Account account = repository.getAccount("Id-O1");
+		assertThat(account.getAccountId()).isEqualTo("Id-O1");
+		assertThat(account.isMinorUnits()).isTrue();
+		assertThat(account.getMinorBalance()).isEqualTo(1234L);
+		assertThat(account.getBalance()).isEqualByComparingTo("12.34");
+		assertThat(repository.getAccount("Id-\u00dc2").getBalance()).isEqualByComparingTo("5");
+		assertNull(repository.getAccount("Id-O3"));
+		assertThat(repository.size()).isEqualTo(2);
+	}
+
+	@Test
+	void createAccount_failsOnDuplicateId() {
+		OffHeapAccountsRepository repository = new OffHeapAccountsRepository(1000, 2);
+		repository.createAccount(new Account("Id-O1", BigDecimal.ONE));
+
+		assertThatThrownBy(() -> repository.createAccount(new Account("Id-O1", BigDecimal.TEN)))
+				.isInstanceOf(DuplicateAccountIdException.class)
+				.hasMessage("Account id Id-O1 already exists!");
+		assertThat(repository.getAccount("Id-O1").getBalance()).isEqualByComparingTo("1");
+	}
+
+	@Test
+	void transfer_updatesOffHeapBalances() {
+		OffHeapAccountsRepository repository = new OffHeapAccountsRepository(1000, 2);
+		AccountsService accountsService = new AccountsService(repository, (account, description) -> {
+		}, new StripedLockTransferEngine(16), 256);
+		accountsService.createAccount(new Account("Id-O1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("Id-O2", new BigDecimal("0")));
+
+		accountsService.transfer(accountsService.getAccount("Id-O1"), accountsService.getAccount("Id-O2"),
+				new BigDecimal("40.50"));
+
+		assertThat(repository.getAccount("Id-O1").getBalance()).isEqualByComparingTo("59.50");
+		assertThat(repository.getAccount("Id-O2").getBalance()).isEqualByComparingTo("40.50");
+		assertThatThrownBy(() -> accountsService.transfer(accountsService.getAccount("Id-O2"),
+				accountsService.getAccount("Id-O1"), new BigDecimal("40.50")))
+				.isInstanceOf(InsufficientFundsException.class);
+	}
+
+	@Test
+	void selfTransfer_throughSeparateViews_neitherCreatesMoneyNorTearsTheVersion() {
+		OffHeapAccountsRepository repository = new OffHeapAccountsRepository(1000, 2);
+		StripedLockTransferEngine transferEngine = new StripedLockTransferEngine(16);
+		AccountsService accountsService = new AccountsService(repository, (account, description) -> {
+		}, transferEngine, 256);
+		accountsService.createAccount(new Account("Id-O1", new BigDecimal("100")));
+		Account from = repository.getAccount("Id-O1");
+		Account to = repository.getAccount("Id-O1");
+		assertThat(from).isNotSameAs(to);
+
+		assertThatThrownBy(() -> accountsService.transfer(from, to, new BigDecimal("10")))
+				.isInstanceOf(SameAccountTransferException.class);
+		transferEngine.transfer(from, to, new BigDecimal("10"));
+		transferEngine.transferMinorUnits(from, to, 1000);
+
+		Account account = repository.getAccount("Id-O1");
+		assertThat(account.getBalance()).isEqualByComparingTo("100");
+		assertThat(account.getVersion() & 1).isZero();
+	}
+
+	@Test
+	void clearAccounts_removesEverything() {
+		OffHeapAccountsRepository repository = new OffHeapAccountsRepository(1000, 2);
+		repository.createAccount(new Account("Id-O1", BigDecimal.ONE));
+		repository.clearAccounts();
+
+		assertNull(repository.getAccount("Id-O1"));
+		assertThat(repository.size()).isZero();
+		repository.createAccount(new Account("Id-O1", BigDecimal.TEN));
+		assertThat(repository.getAccount("Id-O1").getBalance()).isEqualByComparingTo("10");
+	}
+
+	@Test
+	void monitorEngine_isRefusedForTheOffHeapStore() {
+		assertThatThrownBy(() -> new AccountConfiguration().transferEngine("monitor", 16, 0, 8, "offheap",
+				TransferMetrics.disabled()))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("accounts.store=offheap");
+	}
+}
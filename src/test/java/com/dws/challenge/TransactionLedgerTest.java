@@ -0,0 +1,135 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.LedgerEntry;
+import com.dws.challenge.domain.TransactionPage;
+import com.dws.challenge.exception.InsufficientFundsException;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.NotificationService;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransactionLedger;
+import com.dws.challenge.service.TransferMetrics;
+
+class TransactionLedgerTest {
+
+	private final TransactionLedger ledger = new TransactionLedger(4);
+
+	private final NotificationService notificationService = Mockito.mock(NotificationService.class);
+
+	private final AccountsService accountsService = new AccountsService(new AccountsRepositoryInMemory(),
+			notificationService, new StripedLockTransferEngine(16), 256, TransferMetrics.disabled(), ledger);
+
+	@Test
+	void transfer_recordsDebitAndCreditNewestFirst() {
+		Account accountA = new Account("Id-A", BigDecimal.valueOf(100));
+		Account accountB = new Account("Id-B", BigDecimal.valueOf(100));
+		accountsService.createAccount(accountA);
+		accountsService.createAccount(accountB);
+
+		accountsService.transfer(accountA, accountB, new BigDecimal("10.50"));
+		accountsService.transfer(accountB, accountA, BigDecimal.ONE);
+
+		TransactionPage page = ledger.page("Id-A", Long.MAX_VALUE, 10);
+		assertThat(page.getTransactions()).extracting(LedgerEntry::getSequence).containsExactly(1L, 0L);
+		assertThat(page.getTransactions().get(0).getAmount()).isEqualByComparingTo("1");
+		assertThat(page.getTransactions().get(1).getAmount()).isEqualByComparingTo("-10.50");
+		assertThat(page.getTransactions().get(1).getCounterpartyAccountId()).isEqualTo("Id-B");
+		assertNull(page.getNextBefore());
+		assertThat(ledger.page("Id-B", Long.MAX_VALUE, 10).getTransactions().get(1).getAmount())
+				.isEqualByComparingTo("10.50");
+	}
+
+	@Test
+	void failedTransfer_isNotRecorded() {
+		Account accountA = new Account("Id-A", BigDecimal.valueOf(5));
+		Account accountB = new Account("Id-B", BigDecimal.valueOf(5));
+
+		try {
+			accountsService.transfer(accountA, accountB, BigDecimal.TEN);
+		} catch (InsufficientFundsException e) {
+			// Expected.
+		}
+
+		assertThat(ledger.page("Id-A", Long.MAX_VALUE, 10).getTransactions()).isEmpty();
+	}
+
+	@Test
+	void page_walksBackwardsUntilOldestRetainedEntry() {
+		Account accountA = new Account("Id-A", BigDecimal.valueOf(100));
+		Account accountB = new Account("Id-B", BigDecimal.valueOf(100));
+		for (int i = 1; i <= 6; i++) {
+			accountsService.transfer(accountA, accountB, BigDecimal.valueOf(i));
+		}
+
+		// Depth 4: entries 0 and 1 have been overwritten.
+		TransactionPage first = ledger.page("Id-A", Long.MAX_VALUE, 3);
+		assertThat(first.getTransactions()).extracting(LedgerEntry::getSequence).containsExactly(5L, 4L, 3L);
+		assertEquals(3L, first.getNextBefore());
+		assertThat(first.getTransactions().get(0).getAmount()).isEqualByComparingTo("-6");
+
+		TransactionPage second = ledger.page("Id-A", first.getNextBefore(), 3);
+		assertThat(second.getTransactions()).extracting(LedgerEntry::getSequence).containsExactly(2L);
+		assertNull(second.getNextBefore());
+	}
+
+	@Test
+	void minorUnitTransfers_areReportedAtAccountScale() {
+		Account accountA = new Account("Id-A", new BigDecimal("100.00"));
+		Account accountB = new Account("Id-B", new BigDecimal("100.00"));
+		accountA.useMinorUnits(2);
+		accountB.useMinorUnits(2);
+
+		accountsService.transferMinorUnits(accountA, accountB, 1234);
+
+		assertThat(ledger.page("Id-B", Long.MAX_VALUE, 1).getTransactions().get(0).getAmount())
+				.isEqualByComparingTo("12.34");
+	}
+
+	@Test
+	void decimalAmountsOnMinorUnitAccounts_areKeptAtAccountScale() {
+		Account accountA = new Account("Id-A", new BigDecimal("100.00"));
+		Account accountB = new Account("Id-B", new BigDecimal("100.00"));
+		accountA.useMinorUnits(2);
+		accountB.useMinorUnits(2);
+
+		accountsService.transfer(accountA, accountB, new BigDecimal("1.5"));
+		accountsService.transferMinorUnits(accountB, accountA, 25);
+
+		TransactionPage page = ledger.page("Id-A", Long.MAX_VALUE, 10);
+		assertThat(page.getTransactions()).extracting(LedgerEntry::getAmount).containsExactly(new BigDecimal("0.25"),
+				new BigDecimal("-1.50"));
+	}
+
+	@Test
+	void decimalTransfersBetweenMinorUnitAccounts_takeTheMinorUnitPath() {
+		Account accountA = new Account("Id-A", new BigDecimal("100.00"));
+		Account accountB = new Account("Id-B", new BigDecimal("100.00"));
+		accountA.useMinorUnits(2);
+		accountB.useMinorUnits(2);
+
+		accountsService.transfer(accountA, accountB, new BigDecimal("1.5"));
+
+		assertEquals(9850, accountA.getMinorBalance());
+		Mockito.verify(notificationService).notifyAboutTransfer(accountA, "Money deducted from your account:", 150, 2);
+		Mockito.verify(notificationService).notifyAboutTransfer(accountB, "Money deposited in your account:", 150, 2);
+		Mockito.verify(notificationService, Mockito.never()).notifyAboutTransfer(Mockito.any(), Mockito.anyString());
+	}
+
+	@Test
+	void disabledLedger_recordsNothing() {
+		TransactionLedger disabled = TransactionLedger.disabled();
+		disabled.record(new Account("Id-A"), new Account("Id-B"), BigDecimal.ONE);
+
+		assertThat(disabled.page("Id-A", Long.MAX_VALUE, 10).getTransactions()).isEmpty();
+	}
+}
@@ -0,0 +1,99 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.dws.challenge.exception.TooManyRequestsException;
+import com.dws.challenge.service.TransferAdmissionControl;
+
+class TransferAdmissionControlTest {
+
+	private final AtomicLong clock = new AtomicLong();
+
+	@Test
+	void accountBucket_allowsBurstThenSustainedRate() {
+		// 10 transfers per second per account with a burst of 3.
+		TransferAdmissionControl admission = new TransferAdmissionControl(true, 10, 3, 1000, 100, clock::get);
+
+		for (int i = 0; i < 3; i++) {
+			admission.acquire("Id-1", "Id-" + (i + 2));
+			admission.release();
+		}
+		TooManyRequestsException exception = assertThrows(TooManyRequestsException.class,
+				() -> admission.acquire("Id-1", "Id-9"));
+		assertEquals(1, exception.getRetryAfterSeconds());
+
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+		admission.acquire("Id-1", "Id-9");
+		admission.release();
+		assertThrows(TooManyRequestsException.class, () -> admission.acquire("Id-1", "Id-9"));
+
+		// Other accounts are not affected.
+		admission.acquire("Id-7", "Id-8");
+		admission.release();
+		assertThat(admission.snapshot()).containsEntry("rateLimited", 2L).containsEntry("admitted", 5L);
+	}
+
+	@Test
+	void creditedAccounts_areNotLimitedByDefault() {
+		TransferAdmissionControl admission = new TransferAdmissionControl(true, 10, 1, 1000, 100, clock::get);
+
+		for (int i = 0; i < 10; i++) {
+			admission.acquire("Id-" + i, "Merchant");
+			admission.release();
+		}
+		assertThat(admission.snapshot()).containsEntry("rateLimited", 0L);
+	}
+
+	@Test
+	void rejectedSource_doesNotSpendTheTargetsToken() {
+		TransferAdmissionControl admission = new TransferAdmissionControl(true, 10, 1, 1000, 100, true, clock::get);
+		admission.acquire("Id-1", "Id-2");
+		admission.release();
+
+		assertThrows(TooManyRequestsException.class, () -> admission.acquire("Id-1", "Id-3"));
+		admission.acquire("Id-3", "Id-4");
+		admission.release();
+	}
+
+	@Test
+	void rejectedTarget_givesTheSourceTokenBack() {
+		TransferAdmissionControl admission = new TransferAdmissionControl(true, 10, 1, 1000, 100, true, clock::get);
+		admission.acquire("Id-1", "Id-2");
+		admission.release();
+
+		assertThrows(TooManyRequestsException.class, () -> admission.acquire("Id-3", "Id-2"));
+		admission.acquire("Id-3", "Id-4");
+		admission.release();
+		assertThrows(TooManyRequestsException.class, () -> admission.acquire("Id-3", "Id-5"));
+	}
+
+	@Test
+	void concurrencyLimit_shedsLoadUntilReleased() {
+		TransferAdmissionControl admission = new TransferAdmissionControl(true, 1000, 1000, 1000, 2, clock::get);
+
+		admission.acquire("Id-1", "Id-2");
+		admission.acquireSlot();
+		assertThrows(TooManyRequestsException.class, () -> admission.acquire("Id-3", "Id-4"));
+		assertThat(admission.snapshot()).containsEntry("inProgress", 2).containsEntry("shed", 1L);
+
+		admission.release();
+		admission.acquire("Id-3", "Id-4");
+	}
+
+	@Test
+	void disabled_admitsEverything() {
+		TransferAdmissionControl admission = TransferAdmissionControl.disabled();
+
+		for (int i = 0; i < 100; i++) {
+			admission.acquire("Id-1", "Id-2");
+		}
+		assertThat(admission.snapshot()).containsEntry("admitted", 0L);
+	}
+}
@@ -0,0 +1,296 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.InsufficientFundsException;
+import com.dws.challenge.exception.InvalidAmountException;
+import com.dws.challenge.repository.TransferCommitListener;
+import com.dws.challenge.service.MonitorTransferEngine;
+import com.dws.challenge.service.OptimisticTransferEngine;
+import com.dws.challenge.service.ShardedTransferEngine;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransferEngine;
+
+class TransferEngineTest {
+
+	@Test
+	void stripeCount_roundedUpToPowerOfTwo() {
+		assertEquals(1, new StripedLockTransferEngine(1).getStripeCount());
+		assertEquals(1024, new StripedLockTransferEngine(1000).getStripeCount());
+		assertEquals(1024, new StripedLockTransferEngine(1024).getStripeCount());
+	}
+
+	@Test
+	void transfer_insufficientFunds_leavesBalancesUntouched() {
+		TransferEngine engine = new StripedLockTransferEngine(16);
+		Account from = new Account("Id-1", BigDecimal.valueOf(100));
+		Account to = new Account("Id-2", BigDecimal.valueOf(50));
+
+		Exception exception = assertThrows(InsufficientFundsException.class,
+				() -> engine.transfer(from, to, BigDecimal.valueOf(200)));
+
+		assertEquals("Not enough balance in your account", exception.getMessage());
+		assertThat(from.getBalance()).isEqualByComparingTo("100");
+		assertThat(to.getBalance()).isEqualByComparingTo("50");
+	}
+
+	@Test
+	void everyEngine_reportsCommittedChangesToTheListener() {
+		ShardedTransferEngine sharded = new ShardedTransferEngine(2);
+		for (TransferEngine engine : new TransferEngine[] { new StripedLockTransferEngine(16),
+				new MonitorTransferEngine(), sharded, new OptimisticTransferEngine(4, 16) }) {
+			List<String> changes = Collections.synchronizedList(new ArrayList<>());
+			engine.setCommitListener(new TransferCommitListener() {
+
+				@Override
+				public void transferCommitted(Account accountFrom, Account accountTo, BigDecimal amount) {
+					changes.add(accountFrom.getAccountId() + ">" + accountTo.getAccountId() + " " + amount);
+				}
+
+				@Override
+				public void balanceAdjusted(Account account, BigDecimal amount) {
+					changes.add(account.getAccountId() + " " + amount);
+				}
+			});
+			Account from = new Account("Id-1", BigDecimal.valueOf(100));
+			Account to = new Account("Id-2", BigDecimal.valueOf(50));
+
+			engine.transfer(from, to, BigDecimal.TEN);
+			assertThrows(InsufficientFundsException.class, () -> engine.transfer(from, to, BigDecimal.valueOf(500)));
+			engine.withdraw(from, BigDecimal.ONE);
+			engine.deposit(to, BigDecimal.ONE);
+
+			assertThat(changes).as(engine.getClass().getSimpleName()).containsExactly("Id-1>Id-2 10", "Id-1 -1",
+					"Id-2 1");
+		}
+		sharded.shutdown();
+	}
+
+	@Test
+	void everyEngine_convertedTransfer_movesBothSidesOrNeither() {
+		ShardedTransferEngine sharded = new ShardedTransferEngine(2);
+		for (TransferEngine engine : new TransferEngine[] { new StripedLockTransferEngine(16),
+				new MonitorTransferEngine(), sharded, new OptimisticTransferEngine(4, 16) }) {
+			List<String> changes = Collections.synchronizedList(new ArrayList<>());
+			engine.setCommitListener(new TransferCommitListener() {
+
+				@Override
+				public void balanceAdjusted(Account account, BigDecimal amount) {
+					changes.add(account.getAccountId() + " " + amount);
+				}
+			});
+			Account from = new Account("Id-1", BigDecimal.valueOf(100));
+			Account to = new Account("Id-2", BigDecimal.valueOf(50));
+			to.useMinorUnits(2);
+
+			engine.transferConverted(from, to, BigDecimal.TEN, new BigDecimal("9.25"));
+			// The credit cannot be held at the target's scale, so the debit must be undone.
+			assertThrows(InvalidAmountException.class,
+					() -> engine.transferConverted(from, to, BigDecimal.ONE, new BigDecimal("0.001")));
+			assertThrows(InsufficientFundsException.class,
+					() -> engine.transferConverted(from, to, BigDecimal.valueOf(500), BigDecimal.ONE));
+
+			String name = engine.getClass().getSimpleName();
+			assertThat(from.getBalance()).as(name).isEqualByComparingTo("90");
+			assertThat(to.getBalance()).as(name).isEqualByComparingTo("59.25");
+			assertThat(changes).as(name).containsExactly("Id-1 -10", "Id-2 9.25");
+		}
+		sharded.shutdown();
+	}
+
+	@Test
+	void concurrent_transfers_AtoB_BtoA_conserveMoney() throws Exception {
+		// A single stripe forces every transfer through the same lock, two stripes exercise ordered acquisition.
+		for (int stripes : new int[] { 1, 2, 1024 }) {
+			TransferEngine engine = new StripedLockTransferEngine(stripes);
+			Account accountA = new Account("Id-A", BigDecimal.valueOf(1000000));
+			Account accountB = new Account("Id-B", BigDecimal.valueOf(1000000));
+
+			ExecutorService executor = Executors.newFixedThreadPool(8);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				boolean forward = t % 2 == 0;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 10000; i++) {
+						if (forward) {
+							engine.transfer(accountA, accountB, BigDecimal.ONE);
+						} else {
+							engine.transfer(accountB, accountA, BigDecimal.ONE);
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			executor.shutdown();
+
+			assertThat(accountA.getBalance()).isEqualByComparingTo("1000000");
+			assertThat(accountB.getBalance()).isEqualByComparingTo("1000000");
+		}
+	}
+
+	@Test
+	void transferMinorUnits_updatesLongBalances() {
+		TransferEngine engine = new StripedLockTransferEngine(16);
+		Account from = new Account("Id-M1", new BigDecimal("100.50"));
+		Account to = new Account("Id-M2", new BigDecimal("20"));
+		from.useMinorUnits(2);
+		to.useMinorUnits(2);
+
+		engine.transferMinorUnits(from, to, 5025);
+		engine.transfer(from, to, new BigDecimal("0.25"));
+
+		assertEquals(5000, from.getMinorBalance());
+		assertEquals(7050, to.getMinorBalance());
+		assertThat(from.getBalance()).isEqualByComparingTo("50.00");
+		assertThrows(InsufficientFundsException.class, () -> engine.transferMinorUnits(from, to, 5000));
+		assertThrows(InvalidAmountException.class, () -> engine.transfer(from, to, new BigDecimal("0.001")));
+	}
+
+	@Test
+	void shardedEngine_crossShardTransfers_conserveMoney() throws Exception {
+		ShardedTransferEngine engine = new ShardedTransferEngine(4);
+		Account[] accounts = new Account[16];
+		for (int i = 0; i < accounts.length; i++) {
+			accounts[i] = new Account("Id-S" + i, BigDecimal.valueOf(1000));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			int offset = t;
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < 5000; i++) {
+					Account from = accounts[(i + offset) % accounts.length];
+					Account to = accounts[(i * 7 + offset + 1) % accounts.length];
+					try {
+						engine.transfer(from, to, BigDecimal.valueOf(3));
+					} catch (InsufficientFundsException e) {
+						// Expected once an account runs dry.
+					}
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		engine.shutdown();
+
+		BigDecimal total = BigDecimal.ZERO;
+		for (Account account : accounts) {
+			assertThat(account.getBalance()).isPositive();
+			total = total.add(account.getBalance());
+		}
+		assertThat(total).isEqualByComparingTo("16000");
+		assertEquals(0, engine.getInFlightTransfers());
+	}
+
+	@Test
+	void shardedEngine_insufficientFunds_leavesBalancesUntouched() {
+		ShardedTransferEngine engine = new ShardedTransferEngine(2);
+		Account from = new Account("Id-1", BigDecimal.valueOf(100));
+		Account to = new Account("Id-2", BigDecimal.valueOf(50));
+
+		assertThrows(InsufficientFundsException.class, () -> engine.transfer(from, to, BigDecimal.valueOf(100)));
+		engine.transfer(to, from, BigDecimal.valueOf(20));
+		engine.shutdown();
+
+		assertThat(from.getBalance()).isEqualByComparingTo("120");
+		assertThat(to.getBalance()).isEqualByComparingTo("30");
+	}
+
+	@Test
+	void optimisticEngine_concurrentTransfers_conserveMoney() throws Exception {
+		// One attempt sends every conflict to the fallback locks, eight mostly retry optimistically.
+		for (int attempts : new int[] { 1, 8 }) {
+			OptimisticTransferEngine engine = new OptimisticTransferEngine(attempts, 4);
+			Account[] accounts = new Account[4];
+			for (int i = 0; i < accounts.length; i++) {
+				accounts[i] = new Account("Id-O" + i, BigDecimal.valueOf(1000));
+			}
+
+			ExecutorService executor = Executors.newFixedThreadPool(8);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				int offset = t;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 20000; i++) {
+						try {
+							engine.transfer(accounts[(i + offset) % accounts.length],
+									accounts[(i * 3 + offset + 1) % accounts.length], BigDecimal.valueOf(7));
+						} catch (InsufficientFundsException e) {
+							// Expected once an account runs dry.
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			executor.shutdown();
+
+			BigDecimal total = BigDecimal.ZERO;
+			for (Account account : accounts) {
+				assertThat(account.getBalance()).isPositive();
+				assertEquals(0, account.getVersion() & 1);
+				total = total.add(account.getBalance());
+			}
+			assertThat(total).isEqualByComparingTo("4000");
+		}
+	}
+
+	@Test
+	void optimisticEngine_insufficientFunds_releasesClaims() {
+		OptimisticTransferEngine engine = new OptimisticTransferEngine(8, 16);
+		Account from = new Account("Id-1", BigDecimal.valueOf(100));
+		Account to = new Account("Id-2", BigDecimal.valueOf(50));
+
+		assertThrows(InsufficientFundsException.class, () -> engine.transfer(from, to, BigDecimal.valueOf(100)));
+		engine.transfer(to, from, BigDecimal.valueOf(20));
+
+		assertThat(from.getBalance()).isEqualByComparingTo("120");
+		assertThat(to.getBalance()).isEqualByComparingTo("30");
+		assertEquals(0, from.getVersion() & 1);
+		assertEquals(2, engine.getOptimisticTransfers());
+		assertEquals(0, engine.getFallbacks());
+	}
+
+	@Test
+	void optimisticEngine_claimedAccount_fallsBackUntilReleased() throws Exception {
+		OptimisticTransferEngine engine = new OptimisticTransferEngine(2, 16);
+		Account from = new Account("Id-1", new BigDecimal("100.50"));
+		Account to = new Account("Id-2", new BigDecimal("20"));
+		from.useMinorUnits(2);
+		to.useMinorUnits(2);
+		assertThat(to.tryBeginUpdate(to.getVersion())).isTrue();
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<?> transfer = executor.submit(() -> engine.transferMinorUnits(from, to, 50));
+		while (engine.getFallbacks() == 0) {
+			Thread.onSpinWait();
+		}
+		assertThat(transfer.isDone()).isFalse();
+		to.endUpdate();
+		transfer.get();
+		executor.shutdown();
+
+		assertEquals(10000, from.getMinorBalance());
+		assertEquals(2050, to.getMinorBalance());
+		assertEquals(2, engine.getConflicts());
+	}
+}
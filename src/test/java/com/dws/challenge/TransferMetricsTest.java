@@ -0,0 +1,66 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.exception.InsufficientFundsException;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransferMetrics;
+
+class TransferMetricsTest {
+
+	private final TransferMetrics metrics = new TransferMetrics(true);
+
+	private final AccountsService accountsService = new AccountsService(new AccountsRepositoryInMemory(),
+			(account, description) -> {
+			}, new StripedLockTransferEngine(16, metrics), 256, metrics);
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void serviceOperations_areCounted() {
+		accountsService.createAccount(new Account("Id-M1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("Id-M2", BigDecimal.ZERO));
+		assertThatThrownBy(() -> accountsService.createAccount(new Account("Id-M1", BigDecimal.ONE)))
+				.isInstanceOf(DuplicateAccountIdException.class);
+
+		Account accountFrom = accountsService.getAccount("Id-M1");
+		Account accountTo = accountsService.getAccount("Id-M2");
+		accountsService.getAccount("Id-M3");
+		accountsService.transfer(accountFrom, accountTo, new BigDecimal("10"));
+		accountsService.transfer(accountFrom, accountTo, new BigDecimal("10"));
+		assertThatThrownBy(() -> accountsService.transfer(accountTo, accountFrom, new BigDecimal("50")))
+				.isInstanceOf(InsufficientFundsException.class);
+
+		Map<String, Object> snapshot = metrics.snapshot();
+		Map<String, Object> transfers = (Map<String, Object>) snapshot.get("transfers");
+		Map<String, Object> accounts = (Map<String, Object>) snapshot.get("accounts");
+		Map<String, Object> locks = (Map<String, Object>) snapshot.get("locks");
+		assertThat(transfers).containsEntry("completed", 2L).containsEntry("insufficientFunds", 1L);
+		assertThat((Map<String, Object>) transfers.get("latencyMicros")).containsEntry("count", 3L)
+				.containsKeys("p50", "p99", "max");
+		assertThat(accounts).containsEntry("created", 2L).containsEntry("duplicateCreates", 1L)
+				.containsEntry("lookups", 3L).containsEntry("lookupMisses", 1L);
+		assertThat((long) locks.get("acquisitions")).isPositive();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void disabledMetrics_recordNothing() {
+		TransferMetrics disabled = TransferMetrics.disabled();
+		disabled.recordTransferCompleted(disabled.start());
+		disabled.recordLockAcquired(1000);
+
+		Map<String, Object> transfers = (Map<String, Object>) disabled.snapshot().get("transfers");
+		assertThat(transfers).containsEntry("completed", 0L);
+		assertThat((Map<String, Object>) transfers.get("latencyMicros")).containsEntry("count", 0L);
+	}
+}
@@ -0,0 +1,178 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.ScheduledTransfer;
+import com.dws.challenge.exception.InvalidAmountException;
+import com.dws.challenge.exception.TooManyRequestsException;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.NotificationService;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransferScheduler;
+
+class TransferSchedulerTest {
+
+	private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+	private final AtomicLong clock = new AtomicLong(START.toEpochMilli());
+
+	private AccountsService accountsService;
+
+	private TransferScheduler scheduler;
+
+	@BeforeEach
+	void setUp() {
+		accountsService = new AccountsService(new AccountsRepositoryInMemory(), Mockito.mock(NotificationService.class),
+				new StripedLockTransferEngine(16), 256);
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("Id-2", new BigDecimal("0")));
+		scheduler = new TransferScheduler(accountsService, 10, 4, 1000, clock::get, false);
+	}
+
+	@Test
+	void schedule_runsTransferOnceDueAndNotBefore() {
+		scheduler.schedule(account("Id-1"), account("Id-2"), new BigDecimal("30"), START.plusMillis(1005));
+
+		advance(Duration.ofMillis(1000));
+		assertEquals(0, scheduler.runDue());
+		assertThat(account("Id-1").getBalance()).isEqualByComparingTo("100");
+
+		advance(Duration.ofMillis(10));
+		assertEquals(1, scheduler.runDue());
+		assertThat(account("Id-1").getBalance()).isEqualByComparingTo("70");
+		assertThat(account("Id-2").getBalance()).isEqualByComparingTo("30");
+		assertThat(scheduler.pending("Id-1")).isEmpty();
+		assertEquals(1L, scheduler.snapshot().get("executed"));
+	}
+
+	@Test
+	void schedule_inThePastRunsOnNextTick() {
+		scheduler.schedule(account("Id-1"), account("Id-2"), BigDecimal.TEN, START.minusSeconds(60));
+
+		assertEquals(0, scheduler.runDue());
+		advance(Duration.ofMillis(10));
+		assertEquals(1, scheduler.runDue());
+		assertThat(account("Id-2").getBalance()).isEqualByComparingTo("10");
+	}
+
+	@Test
+	void schedule_farInTheFutureCascadesDownToItsTick() {
+		Instant executeAt = START.plus(Duration.ofDays(3)).plusMillis(20);
+		scheduler.schedule(account("Id-1"), account("Id-2"), BigDecimal.ONE, executeAt);
+
+		for (int hour = 1; hour < 72; hour++) {
+			clock.set(START.plus(Duration.ofHours(hour)).toEpochMilli());
+			assertEquals(0, scheduler.runDue());
+		}
+		clock.set(executeAt.toEpochMilli() - 1);
+		assertEquals(0, scheduler.runDue());
+		clock.set(executeAt.toEpochMilli());
+		assertEquals(1, scheduler.runDue());
+	}
+
+	@Test
+	void cancel_removesPendingTransferOnlyFromItsSourceAccount() {
+		ScheduledTransfer first = scheduler.schedule(account("Id-1"), account("Id-2"), BigDecimal.ONE,
+				START.plusSeconds(1));
+		ScheduledTransfer second = scheduler.schedule(account("Id-1"), account("Id-2"), BigDecimal.TEN,
+				START.plusSeconds(2));
+
+		assertFalse(scheduler.cancel("Id-2", first.getId()));
+		assertTrue(scheduler.cancel("Id-1", first.getId()));
+		assertFalse(scheduler.cancel("Id-1", first.getId()));
+		assertThat(scheduler.pending("Id-1")).containsExactly(second);
+
+		advance(Duration.ofSeconds(5));
+		assertEquals(1, scheduler.runDue());
+		assertThat(account("Id-2").getBalance()).isEqualByComparingTo("10");
+		assertFalse(scheduler.cancel("Id-1", second.getId()));
+		assertEquals(1L, scheduler.snapshot().get("cancelled"));
+	}
+
+	@Test
+	void pending_listsTransfersOfTheSourceAccountSoonestFirst() {
+		ScheduledTransfer later = scheduler.schedule(account("Id-1"), account("Id-2"), BigDecimal.ONE,
+				START.plusSeconds(20));
+		ScheduledTransfer sooner = scheduler.schedule(account("Id-1"), account("Id-2"), BigDecimal.ONE,
+				START.plusSeconds(10));
+		scheduler.schedule(account("Id-2"), account("Id-1"), BigDecimal.ONE, START.plusSeconds(5));
+
+		assertThat(scheduler.pending("Id-1")).containsExactly(sooner, later);
+		assertThat(scheduler.pending("Id-2")).hasSize(1);
+		assertEquals(3, scheduler.getPendingCount());
+	}
+
+	@Test
+	void burst_runsInBatchesAndCountsFailures() {
+		for (int i = 0; i < 11; i++) {
+			scheduler.schedule(account("Id-1"), account("Id-2"), BigDecimal.TEN, START.plusSeconds(1));
+		}
+
+		advance(Duration.ofSeconds(1));
+		assertEquals(11, scheduler.runDue());
+		assertThat(account("Id-1").getBalance()).isEqualByComparingTo("0");
+		assertThat(account("Id-2").getBalance()).isEqualByComparingTo("100");
+		assertEquals(1L, scheduler.snapshot().get("failed"));
+	}
+
+	@Test
+	void schedule_rejectsNonPositiveAmountsAndTooManyPending() {
+		assertThatThrownBy(() -> scheduler.schedule(account("Id-1"), account("Id-2"), BigDecimal.ZERO, START))
+				.isInstanceOf(InvalidAmountException.class);
+
+		TransferScheduler small = new TransferScheduler(accountsService, 10, 4, 2, clock::get, false);
+		small.schedule(account("Id-1"), account("Id-2"), BigDecimal.ONE, START.plusSeconds(1));
+		small.schedule(account("Id-1"), account("Id-2"), BigDecimal.ONE, START.plusSeconds(1));
+		assertThatThrownBy(() -> small.schedule(account("Id-1"), account("Id-2"), BigDecimal.ONE,
+				START.plusSeconds(1))).isInstanceOf(TooManyRequestsException.class);
+	}
+
+	@Test
+	void random_deadlinesRunExactlyWhenDue() {
+		accountsService.getAccount("Id-1").setBalance(new BigDecimal("1000000"));
+		Random random = new Random(7);
+		List<ScheduledTransfer> transfers = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			// Multiples of the tick, so that due means the same to the scheduler and to this test.
+			long delay = 10L * (1 + (random.nextInt(4) == 0 ? random.nextInt(10_000_000) : random.nextInt(1_000)));
+			transfers.add(scheduler.schedule(account("Id-1"), account("Id-2"), BigDecimal.ONE,
+					START.plusMillis(delay)));
+		}
+
+		int run = 0;
+		while (run < transfers.size()) {
+			advance(Duration.ofMillis(1 + random.nextInt(random.nextBoolean() ? 50 : 5_000_000)));
+			Instant now = Instant.ofEpochMilli(clock.get());
+			run += scheduler.runDue();
+			long expected = transfers.stream().filter(transfer -> !transfer.getExecuteAt().isAfter(now)).count();
+			assertEquals(expected, run, "transfers run by " + now);
+		}
+		assertThat(account("Id-2").getBalance()).isEqualByComparingTo("2000");
+	}
+
+	private Account account(String accountId) {
+		return accountsService.getAccount(accountId);
+	}
+
+	private void advance(Duration duration) {
+		clock.addAndGet(duration.toMillis());
+	}
+}
@@ -0,0 +1,153 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.NotificationService;
+import com.dws.challenge.service.PartitionMap;
+import com.dws.challenge.service.StripedLockTransferEngine;
+import com.dws.challenge.service.TransferAdmissionControl;
+import com.dws.challenge.web.WireProtocol;
+import com.dws.challenge.web.WireProtocolClient;
+import com.dws.challenge.web.WireProtocolServer;
+
+class WireProtocolServerTest {
+
+	private AccountsService accountsService;
+
+	private WireProtocolServer server;
+
+	private WireProtocolClient client;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		accountsService = new AccountsService(new AccountsRepositoryInMemory(), Mockito.mock(NotificationService.class),
+				new StripedLockTransferEngine(16), 256);
+		server = new WireProtocolServer(accountsService, TransferAdmissionControl.disabled(),
+				PartitionMap.singleNode(), true, 0, 2, 1024);
+		client = new WireProtocolClient("127.0.0.1", server.getPort());
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	@Test
+	void createGetAndTransfer_matchTheRestOutcomes() throws Exception {
+		client.sendCreate("Id-1", new BigDecimal("100.50"));
+		client.sendCreate("Id-2", BigDecimal.ZERO);
+		client.sendCreate("Id-1", BigDecimal.ONE);
+		client.sendCreate("Id-3", new BigDecimal("-1"));
+		assertEquals(WireProtocol.OK, client.receive().getStatus());
+		assertEquals(WireProtocol.OK, client.receive().getStatus());
+		assertEquals(WireProtocol.DUPLICATE_ACCOUNT, client.receive().getStatus());
+		assertEquals(WireProtocol.INVALID_REQUEST, client.receive().getStatus());
+
+		assertEquals(WireProtocol.OK, client.transfer("Id-1", "Id-2", new BigDecimal("0.50")));
+		assertEquals(WireProtocol.INSUFFICIENT_FUNDS, client.transfer("Id-1", "Id-2", new BigDecimal("1000")));
+		assertEquals(WireProtocol.ACCOUNT_NOT_FOUND, client.transfer("Id-1", "Id-9", BigDecimal.ONE));
+		assertEquals(WireProtocol.INVALID_REQUEST, client.transfer("Id-1", "Id-2", BigDecimal.ZERO));
+
+		client.sendGet("Id-1");
+		WireProtocolClient.Response balance = client.receive();
+		assertEquals(WireProtocol.OK, balance.getStatus());
+		assertThat(balance.getBalance()).isEqualByComparingTo("100.00");
+		client.sendGet("Id-9");
+		WireProtocolClient.Response missing = client.receive();
+		assertEquals(WireProtocol.ACCOUNT_NOT_FOUND, missing.getStatus());
+		assertNull(missing.getBalance());
+		assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("0.50");
+	}
+
+	@Test
+	void pipelinedRequests_areAnsweredInOrder() throws Exception {
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("1000")));
+		accountsService.createAccount(new Account("Id-2", new BigDecimal("1000")));
+
+		int first = client.sendTransfer("Id-1", "Id-2", BigDecimal.ONE);
+		for (int i = 1; i < 10_000; i++) {
+			client.sendTransfer(i % 2 == 0 ? "Id-1" : "Id-2", i % 2 == 0 ? "Id-2" : "Id-1", BigDecimal.ONE);
+		}
+		client.flush();
+		for (int i = 0; i < 10_000; i++) {
+			WireProtocolClient.Response response = client.receive();
+			assertEquals(first + i, response.getRequestId());
+			assertEquals(WireProtocol.OK, response.getStatus());
+		}
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("1000");
+		assertEquals(10_000, server.getRequestCount());
+	}
+
+	@Test
+	void accountsOfOtherNodes_areAnsweredWithTheirOwner() throws Exception {
+		PartitionMap partitionMap = new PartitionMap(new String[] { "http://127.0.0.1:1", "http://127.0.0.1:2" },
+				new int[0], 0);
+		WireProtocolServer partitioned = new WireProtocolServer(accountsService, TransferAdmissionControl.disabled(),
+				partitionMap, true, 0, 1, 1024);
+		String local = ownedBy(partitionMap, 0);
+		String remote = ownedBy(partitionMap, 1);
+		try (WireProtocolClient partitionedClient = new WireProtocolClient("127.0.0.1", partitioned.getPort())) {
+			partitionedClient.sendGet(remote);
+			WireProtocolClient.Response response = partitionedClient.receive();
+			assertEquals(WireProtocol.WRONG_NODE, response.getStatus());
+			assertEquals(1, response.getOwnerNode());
+			assertEquals(WireProtocol.NOT_SUPPORTED, partitionedClient.transfer(local, remote, BigDecimal.ONE));
+		} finally {
+			partitioned.close();
+		}
+	}
+
+	@Test
+	void malformedFrames_areRejectedAndOversizedFramesCloseTheConnection() throws Exception {
+		try (SocketChannel raw = SocketChannel.open(new InetSocketAddress("127.0.0.1", server.getPort()))) {
+			ByteBuffer request = ByteBuffer.allocate(64);
+			// A transfer cut off inside its first account id, an unknown opcode, then a frame over the limit.
+			request.putInt(6).put(WireProtocol.TRANSFER).putInt(7).put((byte) 0);
+			request.putInt(5).put((byte) 99).putInt(8);
+			request.putInt(1_000_000);
+			request.flip();
+			raw.write(request);
+
+			ByteBuffer response = ByteBuffer.allocate(64);
+			while (response.position() < 18) {
+				if (raw.read(response) < 0) {
+					break;
+				}
+			}
+			response.flip();
+			assertEquals(5, response.getInt());
+			assertEquals(7, response.getInt());
+			assertEquals(WireProtocol.INVALID_REQUEST, response.get());
+			assertEquals(5, response.getInt());
+			assertEquals(8, response.getInt());
+			assertEquals(WireProtocol.INVALID_REQUEST, response.get());
+			response.clear();
+			assertEquals(-1, raw.read(response));
+		}
+		assertEquals(2, server.getProtocolErrorCount());
+	}
+
+	private static String ownedBy(PartitionMap partitionMap, int node) {
+		for (int i = 0;; i++) {
+			if (partitionMap.ownerOf("Owned-" + i) == node) {
+				return "Owned-" + i;
+			}
+		}
+	}
+}